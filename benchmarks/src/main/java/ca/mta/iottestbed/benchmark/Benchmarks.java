@@ -0,0 +1,36 @@
+package ca.mta.iottestbed.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Run the JMH benchmarks, writing results as JSON. Usage:
+ * java -jar benchmarks/target/benchmarks.jar [JMH options ...]
+ * 
+ * Without a {@code -rf} option, results go to {@code jmh-result.json} in
+ * the working directory, so runs from two releases can be compared.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Benchmarks {
+
+    /**
+     * Default result file.
+     */
+    public static final String RESULT_FILE = "jmh-result.json";
+
+    /**
+     * Run the benchmarks.
+     * 
+     * @param args JMH options.
+     * @throws Exception if the benchmarks cannot be run.
+     */
+    public static void main(String[] args) throws Exception {
+        if(!Arrays.asList(args).contains("-rf")) {
+            String[] json = Arrays.copyOf(new String[]{"-rf", "json", "-rff", RESULT_FILE}, args.length + 4);
+            System.arraycopy(args, 0, json, 4, args.length);
+            args = json;
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+}
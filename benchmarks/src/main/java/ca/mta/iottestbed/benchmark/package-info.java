@@ -0,0 +1,8 @@
+/**
+ * Entry point for the JMH benchmarks. The benchmarks themselves sit in the
+ * packages they measure, and use only the testbed's public API.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+package ca.mta.iottestbed.benchmark;
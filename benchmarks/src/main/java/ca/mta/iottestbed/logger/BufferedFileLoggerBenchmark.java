@@ -0,0 +1,92 @@
+package ca.mta.iottestbed.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link BufferedFileLogger#write()}. Each operation logs a
+ * batch of sensor lines and writes them to a temporary file, without
+ * syncing. The file is replaced every iteration so it stays small.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BufferedFileLoggerBenchmark {
+
+    /**
+     * A typical sensor log line.
+     */
+    private static final String MESSAGE = "2026-10-17 12:00:00.000,4.207354924039483,2.945148446827638";
+
+    /**
+     * Lines logged before each write.
+     */
+    @Param({"1", "100", "10000"})
+    public int lines;
+
+    /**
+     * File being written.
+     */
+    private File file;
+
+    /**
+     * Logger under test.
+     */
+    private BufferedFileLogger logger;
+
+    /**
+     * Open a logger on a temporary file.
+     * 
+     * @throws IOException if the file cannot be created.
+     */
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        file = File.createTempFile("benchmark", ".csv");
+        logger = new BufferedFileLogger(file);
+    }
+
+    /**
+     * Close the logger and delete its file.
+     * 
+     * @throws IOException if the logger cannot be closed.
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        logger.close();
+        file.delete();
+    }
+
+    /**
+     * Log a batch of lines and write them.
+     * 
+     * @return {@code true} if the write succeeded.
+     */
+    @Benchmark
+    public boolean write() {
+        for(int i = 0; i < lines; i++) {
+            logger.log(MESSAGE);
+        }
+        return logger.write();
+    }
+}
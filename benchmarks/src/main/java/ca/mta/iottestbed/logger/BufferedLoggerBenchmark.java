@@ -0,0 +1,137 @@
+package ca.mta.iottestbed.logger;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link BufferedLogger}.
+ * 
+ * Logging benchmarks empty the buffer once it holds a megabyte, so the
+ * cost of the occasional flush is spread across the messages logged.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BufferedLoggerBenchmark {
+
+    /**
+     * Characters at which the logging benchmarks empty the buffer.
+     */
+    private static final int LIMIT = 1 << 20;
+
+    /**
+     * Lines logged before each flush in {@link #flush()}.
+     */
+    private static final int LINES = 64;
+
+    /**
+     * A typical sensor log line.
+     */
+    private static final String MESSAGE = "2026-10-17 12:00:00.000,4.207354924039483,2.945148446827638";
+
+    /**
+     * Whether to prefix each line with a timestamp.
+     */
+    @Param({"false", "true"})
+    public boolean timestamps;
+
+    /**
+     * Logger shared by every benchmark thread.
+     */
+    private BufferedLogger shared;
+
+    /**
+     * Create the shared logger.
+     */
+    @Setup
+    public void setup() {
+        shared = new BufferedLogger();
+        shared.timestampEnabled(timestamps);
+    }
+
+    /**
+     * A logger used by one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Local {
+
+        /**
+         * Logger used by this thread only.
+         */
+        BufferedLogger logger;
+
+        /**
+         * Create the logger.
+         * 
+         * @param benchmark Benchmark state, for its parameters.
+         */
+        @Setup
+        public void setup(BufferedLoggerBenchmark benchmark) {
+            logger = new BufferedLogger();
+            logger.timestampEnabled(benchmark.timestamps);
+        }
+    }
+
+    /**
+     * Log from one thread.
+     * 
+     * @param local This thread's logger.
+     */
+    @Benchmark
+    public void log(Local local) {
+        log(local.logger);
+    }
+
+    /**
+     * Log from four threads to the same logger.
+     */
+    @Benchmark
+    @Threads(4)
+    public void logContended() {
+        log(shared);
+    }
+
+    /**
+     * Log a batch of lines, then take them out of the buffer.
+     * 
+     * @param local This thread's logger.
+     * @return Buffer contents.
+     */
+    @Benchmark
+    public String flush(Local local) {
+        for(int i = 0; i < LINES; i++) {
+            local.logger.log(MESSAGE);
+        }
+        return local.logger.flush();
+    }
+
+    /**
+     * Log one line, emptying the buffer once it is large.
+     * 
+     * @param logger Logger.
+     */
+    private static void log(BufferedLogger logger) {
+        logger.log(MESSAGE);
+        if(logger.size() > LIMIT) {
+            logger.flush();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ca.mta.iottestbed.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for logging structured events, against logging the same line
+ * built as a String.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventLoggerBenchmark {
+
+    /**
+     * A message being sent, with its size and peer.
+     */
+    private static final Event SENT = new Event() {
+        @Override
+        public int getCode() {
+            return 0;
+        }
+
+        @Override
+        public void format(StringBuilder out, long type, long size, long peer) {
+            out.append("Sent ").append(type).append(" (").append(size).append(" bytes) to ").append(peer);
+        }
+    };
+
+    /**
+     * Message type, size, and peer logged.
+     */
+    private long type = 3, size = 52, peer = 0x7F0000011396L;
+
+    /**
+     * Binary event log, in a temporary file.
+     */
+    private BinaryEventLogger binary;
+
+    /**
+     * Temporary file.
+     */
+    private File file;
+
+    /**
+     * Lock-free ring, drained after every iteration.
+     */
+    private RingBufferLogger ring;
+
+    /**
+     * Open the loggers.
+     *
+     * @throws IOException if the temporary file cannot be created.
+     */
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        file = File.createTempFile("events", ".bin");
+        binary = new BinaryEventLogger(file);
+        ring = new RingBufferLogger();
+    }
+
+    /**
+     * Empty the ring so that it never fills.
+     */
+    @TearDown(Level.Iteration)
+    public void drain() {
+        ring.flush();
+    }
+
+    /**
+     * Close the loggers and delete the temporary file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        binary.close();
+        file.delete();
+    }
+
+    /**
+     * Log an event to the binary log.
+     */
+    @Benchmark
+    public void binary() {
+        binary.log(SENT, type, size, peer);
+    }
+
+    /**
+     * Log an event to the binary log from four threads.
+     */
+    @Benchmark
+    @Threads(4)
+    public void binaryShared() {
+        binary.log(SENT, type, size, peer);
+    }
+
+    /**
+     * Log an event to the ring, to be formatted when drained.
+     */
+    @Benchmark
+    public void ringEvent() {
+        ring.log(SENT, type, size, peer);
+    }
+
+    /**
+     * Build the line as a String and log it to the ring, as call sites did
+     * before events.
+     */
+    @Benchmark
+    public void ringString() {
+        ring.log("Sent " + type + " (" + size + " bytes) to " + peer);
+    }
+}
@@ -0,0 +1,91 @@
+package ca.mta.iottestbed.logger;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Timestamp}, which is built for every log line.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimestampBenchmark {
+
+    /**
+     * Time of the next reading. Moving forward a second each call means
+     * every second formatted is new, the slowest case.
+     */
+    private long time = 1792218640964L;
+
+    /**
+     * Buffer formatted into.
+     */
+    private char[] buffer = new char[Timestamp.MAX_LENGTH];
+
+    /**
+     * Builder appended to.
+     */
+    private StringBuilder builder = new StringBuilder();
+
+    /**
+     * Format the current time.
+     * 
+     * @return Formatted time.
+     */
+    @Benchmark
+    public String now() {
+        return new Timestamp().toString();
+    }
+
+    /**
+     * Format readings taken a second apart, as a sensor log does.
+     * 
+     * @return Formatted time.
+     */
+    @Benchmark
+    public String reading() {
+        time += 1000;
+        return new Timestamp(time).toString();
+    }
+
+    /**
+     * Format times 10 milliseconds apart straight into a buffer, as a busy
+     * {@code BufferedLogger} does.
+     * 
+     * @return Position after the formatted time.
+     */
+    @Benchmark
+    public int readingIntoBuffer() {
+        time += 10;
+        return Timestamp.format(time, buffer, 0);
+    }
+
+    /**
+     * Format readings 10 milliseconds apart onto a reused builder, as a
+     * busy meter does.
+     * 
+     * @return Builder.
+     */
+    @Benchmark
+    public StringBuilder readingAppended() {
+        time += 10;
+        builder.setLength(0);
+        Timestamp.append(time, builder);
+        return builder;
+    }
+}
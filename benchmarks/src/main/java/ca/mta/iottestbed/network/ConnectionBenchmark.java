@@ -0,0 +1,129 @@
+package ca.mta.iottestbed.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for sending a typical sensor report over loopback and
+ * receiving it, in the text and binary formats. No logger is attached, as
+ * on a busy meter. Only one report is in flight at a time, so the socket
+ * buffers never fill.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConnectionBenchmark {
+
+    /**
+     * Tokens of a sensor report.
+     */
+    private static final String[] REPORT = {"A1", "report", "w:4.207354924039483", "e:2.945148446827638"};
+
+    /**
+     * Sending side of the text connection.
+     */
+    private Connection textSender;
+
+    /**
+     * Receiving side of the text connection.
+     */
+    private Connection textReceiver;
+
+    /**
+     * Sending side of the binary connection.
+     */
+    private Connection binarySender;
+
+    /**
+     * Receiving side of the binary connection.
+     */
+    private Connection binaryReceiver;
+
+    /**
+     * Report sent in the binary format.
+     */
+    private Frame report;
+
+    /**
+     * Frame the binary report is received into.
+     */
+    private Frame received;
+
+    /**
+     * Connect both pairs over loopback.
+     *
+     * @throws IOException if a connection cannot be made.
+     */
+    @Setup
+    public void setup() throws IOException {
+        try(ServerSocket server = new ServerSocket(0, 2, InetAddress.getLoopbackAddress())) {
+            String ip = server.getInetAddress().getHostAddress();
+            textSender = new Connection(ip, server.getLocalPort());
+            textReceiver = new Connection(server.accept());
+            binarySender = new Connection(ip, server.getLocalPort());
+            binaryReceiver = new Connection(server.accept());
+        }
+        binarySender.setProtocol(Protocol.BINARY);
+        binaryReceiver.setProtocol(Protocol.BINARY);
+
+        report = new Frame();
+        report.setReport("A1", System.currentTimeMillis(), 4.207354924039483, 2.945148446827638);
+        received = new Frame();
+    }
+
+    /**
+     * Close both pairs.
+     *
+     * @throws IOException if a connection cannot be closed.
+     */
+    @TearDown
+    public void teardown() throws IOException {
+        textSender.close();
+        textReceiver.close();
+        binarySender.close();
+        binaryReceiver.close();
+    }
+
+    /**
+     * Send a report as text, and receive and split it.
+     *
+     * @return Tokens received.
+     */
+    @Benchmark
+    public String[] text() {
+        textSender.send(REPORT);
+        return textReceiver.receive();
+    }
+
+    /**
+     * Send a report as a binary frame, and receive and decode it.
+     *
+     * @return Frame received.
+     */
+    @Benchmark
+    public Frame binary() {
+        binarySender.send(report);
+        binaryReceiver.receive(received);
+        return received;
+    }
+}
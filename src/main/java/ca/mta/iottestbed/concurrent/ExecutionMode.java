@@ -0,0 +1,86 @@
+package ca.mta.iottestbed.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The kind of threads used to run the long-lived loops of a device, such as
+ * listening for connections, monitoring a connection, and reporting readings.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public enum ExecutionMode {
+
+    /**
+     * Run each task on its own platform (operating system) thread.
+     */
+    PLATFORM {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public ExecutorService newExecutor(String name) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    return new Thread(task, name + "-" + count.getAndIncrement());
+                }
+            });
+        }
+    },
+
+    /**
+     * Run each task on its own virtual thread. Blocking I/O parks the
+     * virtual thread instead of its carrier, so hundreds of thousands of
+     * blocking connections can be served. Requires Java 21 or later at runtime.
+     */
+    VIRTUAL {
+        @Override
+        public boolean isAvailable() {
+            try {
+                Thread.class.getMethod("ofVirtual");
+                return true;
+            } catch(NoSuchMethodException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public ExecutorService newExecutor(String name) {
+            // the build targets Java 11, so the Java 21 API is reached reflectively
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+                ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+                Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) perTask.invoke(null, factory);
+            } catch(ReflectiveOperationException e) {
+                throw new UnsupportedOperationException("Virtual threads require Java 21 or later", e);
+            }
+        }
+    };
+
+    /**
+     * Return whether this mode is supported by the running JVM.
+     * 
+     * @return {@code true} if {@link #newExecutor(String)} will succeed.
+     */
+    public abstract boolean isAvailable();
+
+    /**
+     * Create an executor that runs every submitted task on a new thread of this kind.
+     * 
+     * @param name Prefix for thread names.
+     * @return New executor.
+     * @throws UnsupportedOperationException if this mode is not available.
+     */
+    public abstract ExecutorService newExecutor(String name);
+}
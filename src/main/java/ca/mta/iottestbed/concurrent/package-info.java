@@ -0,0 +1,5 @@
+/**
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+package ca.mta.iottestbed.concurrent;
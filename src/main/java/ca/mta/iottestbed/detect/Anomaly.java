@@ -0,0 +1,26 @@
+package ca.mta.iottestbed.detect;
+
+/**
+ * Kinds of anomaly found in sensor reports.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public enum Anomaly {
+
+    /**
+     * Water reading does not match the sensor's curve.
+     */
+    WATER,
+
+    /**
+     * Power reading does not match the sensor's curve.
+     */
+    POWER,
+
+    /**
+     * Reading is not newer than the sensor's previous reading, or was
+     * taken too far from the meter's clock.
+     */
+    TIME
+}
@@ -0,0 +1,280 @@
+package ca.mta.iottestbed.detect;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Checks each sensor reading against the curve sensors follow,
+ * {@code A|sin(t)|}, where {@code t} is the time the reading was taken in
+ * milliseconds.
+ * 
+ * The amplitude of each sensor's water and power curves is learned from
+ * its first readings. After that, each reading is compared with the curve,
+ * and an anomaly is reported if it is further off than the sensor's usual
+ * residual by more than a set number of standard deviations, with a small
+ * relative tolerance for rounding. Readings that are not newer than the
+ * sensor's last one, or were taken too far from the meter's clock, are
+ * also reported.
+ * 
+ * Checking a reading takes one sine and no allocation, and each sensor's
+ * state is a few numbers. Each sensor's readings must be checked by one
+ * thread at a time, which holds for readings from one connection.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class AnomalyDetector {
+
+    /**
+     * Default number of readings used to learn a curve.
+     */
+    public static final int DEFAULT_WARMUP = 8;
+
+    /**
+     * Default number of standard deviations a residual may be off.
+     */
+    public static final double DEFAULT_THRESHOLD = 6;
+
+    /**
+     * Default tolerance, relative to the amplitude.
+     */
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+
+    /**
+     * Default largest difference from the meter's clock, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_SKEW = 300000;
+
+    /**
+     * Smallest {@code |sin(t)|} used to learn an amplitude.
+     */
+    private static final double MIN_LEARNING_SINE = 0.2;
+
+    /**
+     * Largest relative difference between amplitude estimates while learning.
+     */
+    private static final double LEARNING_SPREAD = 1e-3;
+
+    /**
+     * Weight of a new residual in the running residual statistics.
+     */
+    private static final double ALPHA = 0.01;
+
+    /**
+     * Models for each sensor, by device id.
+     */
+    private ConcurrentMap<String, SensorModel> sensors;
+
+    /**
+     * Creates a model for a new sensor.
+     */
+    private Function<String, SensorModel> newModel;
+
+    /**
+     * Listeners to report anomalies to.
+     */
+    private List<AnomalyListener> listeners;
+
+    /**
+     * Readings used to learn a curve.
+     */
+    private int warmup;
+
+    /**
+     * Standard deviations a residual may be off.
+     */
+    private double threshold;
+
+    /**
+     * Tolerance, relative to the amplitude.
+     */
+    private double tolerance;
+
+    /**
+     * Largest difference from the meter's clock, in milliseconds.
+     */
+    private long maxSkew;
+
+    /**
+     * Create a new {@code AnomalyDetector} with default settings.
+     */
+    public AnomalyDetector() {
+        this(DEFAULT_WARMUP, DEFAULT_THRESHOLD, DEFAULT_TOLERANCE, DEFAULT_MAX_SKEW);
+    }
+
+    /**
+     * Create a new {@code AnomalyDetector}.
+     * 
+     * @param warmup Readings used to learn a curve.
+     * @param threshold Standard deviations a residual may be off.
+     * @param tolerance Tolerance, relative to the amplitude.
+     * @param maxSkew Largest difference from the meter's clock, in milliseconds.
+     * @throws IllegalArgumentException if any argument is not positive.
+     */
+    public AnomalyDetector(int warmup, double threshold, double tolerance, long maxSkew) {
+        if(warmup <= 0 || !(threshold > 0) || !(tolerance > 0) || maxSkew <= 0) {
+            throw new IllegalArgumentException("Invalid detector settings");
+        }
+        this.warmup = warmup;
+        this.threshold = threshold;
+        this.tolerance = tolerance;
+        this.maxSkew = maxSkew;
+        this.sensors = new ConcurrentHashMap<String, SensorModel>();
+        this.listeners = new CopyOnWriteArrayList<AnomalyListener>();
+        this.newModel = new Function<String, SensorModel>() {
+            @Override
+            public SensorModel apply(String device) {
+                return new SensorModel();
+            }
+        };
+    }
+
+    /**
+     * Report anomalies to a listener.
+     * 
+     * @param listener Listener to add.
+     */
+    public void addListener(AnomalyListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stop reporting anomalies to a listener.
+     * 
+     * @param listener Listener to remove.
+     */
+    public void removeListener(AnomalyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Check a reading.
+     * 
+     * @param device Sensor's device id.
+     * @param timestamp Time the reading was taken, in milliseconds since the epoch.
+     * @param water Water reading.
+     * @param power Power reading.
+     * @param now Meter's clock, in milliseconds since the epoch.
+     * @return Number of anomalies found.
+     */
+    public int check(String device, long timestamp, double water, double power, long now) {
+        SensorModel model = sensors.get(device);
+        if(model == null) {
+            model = sensors.computeIfAbsent(device, newModel);
+        }
+        int anomalies = 0;
+
+        // time must move forward, and stay near the meter's clock
+        if(timestamp <= model.lastTimestamp) {
+            report(device, Anomaly.TIME, timestamp, model.lastTimestamp + 1, timestamp);
+            anomalies++;
+        } else if(Math.abs(timestamp - now) > maxSkew) {
+            report(device, Anomaly.TIME, timestamp, now, timestamp);
+            anomalies++;
+            model.lastTimestamp = timestamp;
+        } else {
+            model.lastTimestamp = timestamp;
+        }
+
+        // one sine for both curves
+        double sine = Math.abs(Math.sin(timestamp));
+        if(!check(model.water, sine, water)) {
+            report(device, Anomaly.WATER, timestamp, model.water.amplitude * sine, water);
+            anomalies++;
+        }
+        if(!check(model.power, sine, power)) {
+            report(device, Anomaly.POWER, timestamp, model.power.amplitude * sine, power);
+            anomalies++;
+        }
+
+        return anomalies;
+    }
+
+    /**
+     * Return the learned amplitude of a sensor's water curve.
+     * 
+     * @param device Sensor's device id.
+     * @return Amplitude, or {@code NaN} if it has not been learned.
+     */
+    public double getWaterAmplitude(String device) {
+        SensorModel model = sensors.get(device);
+        return model == null || model.water.samples < warmup ? Double.NaN : model.water.amplitude;
+    }
+
+    /**
+     * Return the learned amplitude of a sensor's power curve.
+     * 
+     * @param device Sensor's device id.
+     * @return Amplitude, or {@code NaN} if it has not been learned.
+     */
+    public double getPowerAmplitude(String device) {
+        SensorModel model = sensors.get(device);
+        return model == null || model.power.samples < warmup ? Double.NaN : model.power.amplitude;
+    }
+
+    /**
+     * Forget a sensor, so that its curves are learned again.
+     * 
+     * @param device Sensor's device id.
+     */
+    public void forget(String device) {
+        sensors.remove(device);
+    }
+
+    /**
+     * Check one reading against a curve, or learn from it.
+     * 
+     * @param curve Curve.
+     * @param sine {@code |sin(t)|} at the reading's time.
+     * @param value Reading.
+     * @return {@code false} if the reading is anomalous.
+     */
+    private boolean check(SensorModel.Curve curve, double sine, double value) {
+        // learn the amplitude from readings away from the curve's zeros
+        if(curve.samples < warmup) {
+            if(sine >= MIN_LEARNING_SINE && value >= 0) {
+                double estimate = value / sine;
+
+                // start again if readings disagree about the amplitude
+                if(curve.samples > 0 && Math.abs(estimate - curve.amplitude) > LEARNING_SPREAD * curve.amplitude) {
+                    curve.samples = 0;
+                    curve.amplitude = 0;
+                }
+                curve.samples++;
+                curve.amplitude += (estimate - curve.amplitude) / curve.samples;
+            }
+            return true;
+        }
+
+        double residual = value - curve.amplitude * sine;
+        double deviation = Math.abs(residual - curve.residualMean);
+        double limit = threshold * Math.sqrt(curve.residualVariance) + tolerance * curve.amplitude;
+        if(!(deviation <= limit)) {
+            return false;
+        }
+
+        // only normal readings update the residual statistics
+        double delta = residual - curve.residualMean;
+        curve.residualMean += ALPHA * delta;
+        curve.residualVariance = (1 - ALPHA) * (curve.residualVariance + ALPHA * delta * delta);
+        return true;
+    }
+
+    /**
+     * Report an anomaly to every listener.
+     * 
+     * @param device Sensor's device id.
+     * @param anomaly Kind of anomaly.
+     * @param timestamp Time of the reading.
+     * @param expected Expected value.
+     * @param actual Value received.
+     */
+    private void report(String device, Anomaly anomaly, long timestamp, double expected, double actual) {
+        for(AnomalyListener listener : listeners) {
+            listener.onAnomaly(device, anomaly, timestamp, expected, actual);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ca.mta.iottestbed.detect;
+
+/**
+ * Receives anomalies found by an {@link AnomalyDetector}.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public interface AnomalyListener {
+
+    /**
+     * Called on the thread that checked the reading, as soon as an anomaly
+     * is found.
+     * 
+     * @param device Sensor's device id.
+     * @param anomaly Kind of anomaly.
+     * @param timestamp Time the reading was taken, in milliseconds since the epoch.
+     * @param expected Expected value: the reading on the curve, or the
+     *                 earliest acceptable time.
+     * @param actual Value received.
+     */
+    public void onAnomaly(String device, Anomaly anomaly, long timestamp, double expected, double actual);
+}
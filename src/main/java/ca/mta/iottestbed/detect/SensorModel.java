@@ -0,0 +1,62 @@
+package ca.mta.iottestbed.detect;
+
+/**
+ * What an {@link AnomalyDetector} knows about one sensor: the amplitude of
+ * its water and power curves, running statistics of how far its readings
+ * fall from them, and the time of its last reading.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class SensorModel {
+
+    /**
+     * Time of the last reading.
+     */
+    long lastTimestamp;
+
+    /**
+     * Water curve.
+     */
+    final Curve water;
+
+    /**
+     * Power curve.
+     */
+    final Curve power;
+
+    /**
+     * Create a new {@code SensorModel}.
+     */
+    SensorModel() {
+        lastTimestamp = Long.MIN_VALUE;
+        water = new Curve();
+        power = new Curve();
+    }
+
+    /**
+     * A learned curve {@code A|sin(t)|}, and its residuals.
+     */
+    static class Curve {
+
+        /**
+         * Readings used to learn the amplitude.
+         */
+        int samples;
+
+        /**
+         * Learned amplitude.
+         */
+        double amplitude;
+
+        /**
+         * Exponentially weighted mean of the residuals.
+         */
+        double residualMean;
+
+        /**
+         * Exponentially weighted variance of the residuals.
+         */
+        double residualVariance;
+    }
+}
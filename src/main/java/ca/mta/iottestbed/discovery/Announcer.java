@@ -0,0 +1,195 @@
+package ca.mta.iottestbed.discovery;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Announces a sensor on a multicast group, and tells a {@link MeterListener}
+ * about every meter that replies.
+ *
+ * Until a meter replies, the sensor announces itself about once a second;
+ * after that, about every 30 seconds, so that meters started later still
+ * find it. Each wait is varied at random, so a fleet started at once does
+ * not announce in step.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Announcer implements Closeable {
+
+    /**
+     * Default milliseconds between announcements until a meter replies.
+     */
+    public static final long DEFAULT_INTERVAL = 1000;
+
+    /**
+     * Milliseconds between announcements once a meter has replied.
+     */
+    public static final long ATTACHED_INTERVAL = 30000;
+
+    /**
+     * Sensor's device id.
+     */
+    private final String device;
+
+    /**
+     * Local address to announce from, or {@code null} for any.
+     */
+    private final InetAddress local;
+
+    /**
+     * Multicast group and port.
+     */
+    private final InetSocketAddress group;
+
+    /**
+     * Interface to announce on, or {@code null} for the system default.
+     */
+    private final NetworkInterface networkInterface;
+
+    /**
+     * Told about meters that reply.
+     */
+    private final MeterListener listener;
+
+    /**
+     * Socket announcements are sent and replies received on.
+     */
+    private MulticastSocket socket;
+
+    /**
+     * Milliseconds between announcements until a meter replies.
+     */
+    private volatile long interval;
+
+    /**
+     * Whether the announcer has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Create a new Announcer. Call {@link #start(Executor)} to announce.
+     *
+     * @param device Sensor's device id.
+     * @param local Local address to announce from, or {@code null} for any.
+     * @param group Multicast group and port.
+     * @param networkInterface Interface to announce on, or {@code null} for the system default.
+     * @param listener Told about meters that reply.
+     */
+    public Announcer(String device, InetAddress local, InetSocketAddress group,
+                     NetworkInterface networkInterface, MeterListener listener) {
+        this.device = device;
+        this.local = local;
+        this.group = group;
+        this.networkInterface = networkInterface;
+        this.listener = listener;
+        this.interval = DEFAULT_INTERVAL;
+    }
+
+    /**
+     * Set how often to announce until a meter replies.
+     *
+     * @param interval Milliseconds between announcements.
+     * @throws IllegalArgumentException if {@code interval <= 0}
+     */
+    public void setInterval(long interval) {
+        if(interval <= 0) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * Open the socket and start announcing.
+     *
+     * @param executor Executor to run the announcer on.
+     * @throws IOException if the socket cannot be opened.
+     */
+    public void start(Executor executor) throws IOException {
+        socket = new MulticastSocket(new InetSocketAddress(local, 0));
+        if(networkInterface != null) {
+            socket.setNetworkInterface(networkInterface);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                announce();
+            }
+        });
+    }
+
+    /**
+     * Stop announcing and close the socket.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if(socket != null) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Announce, and wait for replies in between, until closed.
+     */
+    private void announce() {
+        DatagramPacket announcement = Discovery.packet(group, device, Discovery.ANNOUNCE);
+        DatagramPacket reply = new DatagramPacket(new byte[Discovery.MAX_DATAGRAM], Discovery.MAX_DATAGRAM);
+        boolean answered = false;
+        long next = 0;
+
+        while(!closed) {
+            long now = System.currentTimeMillis();
+            if(now >= next) {
+                try {
+                    socket.send(announcement);
+                } catch(IOException e) {
+                    // try again next time
+                }
+                long wait = answered ? ATTACHED_INTERVAL : interval;
+                next = now + ThreadLocalRandom.current().nextLong(wait / 2, wait + wait / 2 + 1);
+            }
+
+            // wait for replies until the next announcement
+            try {
+                socket.setSoTimeout((int)Math.max(1, Math.min(Integer.MAX_VALUE, next - now)));
+                reply.setLength(Discovery.MAX_DATAGRAM);
+                socket.receive(reply);
+                answered |= replied(reply);
+            } catch(SocketTimeoutException e) {
+                // time to announce again
+            } catch(IOException e) {
+                if(closed) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Handle a reply.
+     *
+     * @param reply Datagram received.
+     * @return {@code true} if it was from a meter.
+     */
+    private boolean replied(DatagramPacket reply) {
+        String[] tokens = Discovery.parse(reply);
+        if(tokens.length < 3 || !tokens[1].equals(Discovery.METER)) {
+            return false;
+        }
+        try {
+            listener.onMeter(tokens[0], reply.getAddress(), Integer.parseInt(tokens[2]));
+            return true;
+        } catch(NumberFormatException e) {
+            return false;
+        }
+    }
+}
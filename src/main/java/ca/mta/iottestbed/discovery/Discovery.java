@@ -0,0 +1,117 @@
+package ca.mta.iottestbed.discovery;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Where and how sensors and meters find each other.
+ *
+ * A sensor sends {@code [ID]::_::announce} to a multicast group. A meter
+ * that wants it replies to the sender with {@code [name]::_::meter::_::[port]},
+ * and the sensor then opens a link to that port at the reply's address.
+ * Each message is one datagram of UTF-8 text, in the same tokens as the
+ * text protocol.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public final class Discovery {
+
+    /**
+     * Default multicast group, in the organization-local scope.
+     */
+    public static final String DEFAULT_GROUP = "239.255.50.50";
+
+    /**
+     * Default port announcements are sent to.
+     */
+    public static final int DEFAULT_PORT = 5007;
+
+    /**
+     * Command token announcing a sensor.
+     */
+    static final String ANNOUNCE = "announce";
+
+    /**
+     * Command token offering a meter.
+     */
+    static final String METER = "meter";
+
+    /**
+     * Largest datagram read.
+     */
+    static final int MAX_DATAGRAM = 512;
+
+    /**
+     * Separator between tokens, as in the text protocol.
+     */
+    private static final String SEPARATOR = "::_::";
+
+    /**
+     * Splits a message into tokens.
+     */
+    private static final Pattern SPLITTER = Pattern.compile(Pattern.quote(SEPARATOR));
+
+    private Discovery() {}
+
+    /**
+     * Return the default multicast group and port.
+     *
+     * @return Group address.
+     */
+    public static InetSocketAddress defaultGroup() {
+        return new InetSocketAddress(DEFAULT_GROUP, DEFAULT_PORT);
+    }
+
+    /**
+     * Return the interface to send and receive announcements on: the
+     * interface holding an address, or loopback for any loopback address,
+     * as with the many loopback addresses simulated sensors use.
+     *
+     * @param address Local address, or {@code null} for any.
+     * @return Network interface, or {@code null} for the system default.
+     * @throws IOException if no interface holds the address.
+     */
+    public static NetworkInterface interfaceFor(InetAddress address) throws IOException {
+        if(address == null) {
+            return null;
+        }
+        NetworkInterface found = NetworkInterface.getByInetAddress(address);
+        if(found == null && address.isLoopbackAddress()) {
+            found = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        }
+        if(found == null) {
+            throw new SocketException("No interface for " + address);
+        }
+        return found;
+    }
+
+    /**
+     * Build a datagram.
+     *
+     * @param to Destination.
+     * @param tokens Tokens that make up the message.
+     * @return Datagram.
+     */
+    static DatagramPacket packet(InetSocketAddress to, String ... tokens) {
+        byte[] data = String.join(SEPARATOR, tokens).getBytes(StandardCharsets.UTF_8);
+        return new DatagramPacket(data, data.length, to);
+    }
+
+    /**
+     * Split a received datagram into tokens.
+     *
+     * @param packet Datagram.
+     * @return Tokens.
+     */
+    static String[] parse(DatagramPacket packet) {
+        String data = new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8);
+        return SPLITTER.split(data);
+    }
+}
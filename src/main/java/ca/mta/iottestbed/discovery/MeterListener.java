@@ -0,0 +1,22 @@
+package ca.mta.iottestbed.discovery;
+
+import java.net.InetAddress;
+
+/**
+ * Told about every meter that answers a sensor's announcements.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public interface MeterListener {
+
+    /**
+     * Called on the announcer's thread when a meter replies. A meter may
+     * reply more than once.
+     *
+     * @param name Meter's name.
+     * @param address Address the reply came from.
+     * @param port Port the meter listens for sensors on.
+     */
+    public void onMeter(String name, InetAddress address, int port);
+}
@@ -0,0 +1,310 @@
+package ca.mta.iottestbed.discovery;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import ca.mta.iottestbed.metrics.Counter;
+import ca.mta.iottestbed.metrics.Gauge;
+import ca.mta.iottestbed.metrics.Histogram;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+
+/**
+ * Listens for sensors announcing themselves, and invites them to report to
+ * a meter.
+ *
+ * Only a bounded number of sensors are invited at a time. A sensor stays
+ * pending from its invitation until the meter reports it attached, or until
+ * the attach timeout passes. Announcements that arrive while every slot is
+ * taken are ignored, and the sensor is invited when it announces again, so
+ * a fleet starting at once attaches as fast as the meter can accept it
+ * without flooding its listen backlog. A pending sensor that announces
+ * again is sent the invitation again, in case it was lost.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Responder implements Closeable {
+
+    /**
+     * Default largest number of sensors invited but not yet attached.
+     */
+    public static final int DEFAULT_MAX_PENDING = 256;
+
+    /**
+     * Default milliseconds a sensor may take to attach once invited.
+     */
+    public static final long DEFAULT_ATTACH_TIMEOUT = 5000;
+
+    /**
+     * Milliseconds between checks for sensors that did not attach in time.
+     */
+    private static final int SWEEP_INTERVAL = 100;
+
+    /**
+     * Meter's name.
+     */
+    private final String name;
+
+    /**
+     * Port the meter listens for sensors on.
+     */
+    private final int port;
+
+    /**
+     * Multicast group and port.
+     */
+    private final InetSocketAddress group;
+
+    /**
+     * Interface to listen on, or {@code null} for the system default.
+     */
+    private final NetworkInterface networkInterface;
+
+    /**
+     * Largest number of sensors invited but not yet attached.
+     */
+    private final int maxPending;
+
+    /**
+     * Milliseconds a sensor may take to attach once invited.
+     */
+    private final long attachTimeout;
+
+    /**
+     * Time each pending sensor was first invited, from {@link System#nanoTime()}, by device id.
+     */
+    private final Map<String, Long> pending;
+
+    /**
+     * Sensors attached to the meter, which are not invited again.
+     */
+    private final Set<String> attached;
+
+    /**
+     * Time from inviting a sensor to it attaching.
+     */
+    private final Histogram attachTimes;
+
+    /**
+     * Announcements ignored because every slot was taken.
+     */
+    private final Counter deferred;
+
+    /**
+     * Invitations that timed out.
+     */
+    private final Counter expired;
+
+    /**
+     * Socket announcements are received and invitations sent on.
+     */
+    private MulticastSocket socket;
+
+    /**
+     * Whether the responder has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Create a new Responder with the default limits. Call
+     * {@link #start(Executor)} to listen.
+     *
+     * @param name Meter's name.
+     * @param port Port the meter listens for sensors on.
+     * @param group Multicast group and port.
+     * @param networkInterface Interface to listen on, or {@code null} for the system default.
+     */
+    public Responder(String name, int port, InetSocketAddress group, NetworkInterface networkInterface) {
+        this(name, port, group, networkInterface, DEFAULT_MAX_PENDING, DEFAULT_ATTACH_TIMEOUT);
+    }
+
+    /**
+     * Create a new Responder. Call {@link #start(Executor)} to listen.
+     *
+     * @param name Meter's name.
+     * @param port Port the meter listens for sensors on.
+     * @param group Multicast group and port.
+     * @param networkInterface Interface to listen on, or {@code null} for the system default.
+     * @param maxPending Largest number of sensors invited but not yet attached.
+     * @param attachTimeout Milliseconds a sensor may take to attach once invited.
+     * @throws IllegalArgumentException if {@code maxPending <= 0} or {@code attachTimeout <= 0}
+     */
+    public Responder(String name, int port, InetSocketAddress group, NetworkInterface networkInterface,
+                     int maxPending, long attachTimeout) {
+        if(maxPending <= 0) {
+            throw new IllegalArgumentException("Invalid pending limit: " + maxPending);
+        }
+        if(attachTimeout <= 0) {
+            throw new IllegalArgumentException("Invalid attach timeout: " + attachTimeout);
+        }
+        this.name = name;
+        this.port = port;
+        this.group = group;
+        this.networkInterface = networkInterface;
+        this.maxPending = maxPending;
+        this.attachTimeout = attachTimeout;
+        this.pending = new ConcurrentHashMap<String, Long>();
+        this.attached = ConcurrentHashMap.newKeySet();
+
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        this.attachTimes = metrics.histogram("iottestbed_discovery_attach_seconds",
+            "Time from a meter inviting a discovered sensor to the sensor attaching.", "meter", name);
+        this.deferred = metrics.counter("iottestbed_discovery_deferred_total",
+            "Sensor announcements a meter ignored because too many sensors were attaching.", "meter", name);
+        this.expired = metrics.counter("iottestbed_discovery_expired_total",
+            "Invited sensors that did not attach in time.", "meter", name);
+        metrics.register("iottestbed_discovery_pending", "Sensors a meter has invited that have not attached.", new Gauge() {
+            @Override
+            public long get() {
+                return pending.size();
+            }
+        }, "meter", name);
+    }
+
+    /**
+     * Join the multicast group and start listening.
+     *
+     * @param executor Executor to run the responder on.
+     * @throws IOException if the group cannot be joined.
+     */
+    public void start(Executor executor) throws IOException {
+        socket = new MulticastSocket(group.getPort());
+        socket.joinGroup(group, networkInterface);
+        socket.setSoTimeout(SWEEP_INTERVAL);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                respond();
+            }
+        });
+    }
+
+    /**
+     * Note that a sensor has attached, so it is no longer pending and is
+     * not invited again.
+     *
+     * @param device Sensor's device id.
+     */
+    public void attached(String device) {
+        attached.add(device);
+        Long invited = pending.remove(device);
+        if(invited != null) {
+            attachTimes.record(System.nanoTime() - invited);
+        }
+    }
+
+    /**
+     * Note that a sensor has gone, so it is invited again if it announces.
+     *
+     * @param device Sensor's device id.
+     */
+    public void detached(String device) {
+        attached.remove(device);
+    }
+
+    /**
+     * Return the number of sensors invited but not yet attached.
+     *
+     * @return Pending sensors.
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Stop listening, close the socket, and remove the responder's metrics.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if(socket != null) {
+            socket.close();
+        }
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.remove("iottestbed_discovery_attach_seconds", "meter", name);
+        metrics.remove("iottestbed_discovery_deferred_total", "meter", name);
+        metrics.remove("iottestbed_discovery_expired_total", "meter", name);
+        metrics.remove("iottestbed_discovery_pending", "meter", name);
+    }
+
+    /**
+     * Receive announcements and invite sensors until closed.
+     */
+    private void respond() {
+        DatagramPacket announcement = new DatagramPacket(new byte[Discovery.MAX_DATAGRAM], Discovery.MAX_DATAGRAM);
+        long nextSweep = System.nanoTime();
+
+        while(!closed) {
+            try {
+                announcement.setLength(Discovery.MAX_DATAGRAM);
+                socket.receive(announcement);
+                String[] tokens = Discovery.parse(announcement);
+                if(tokens.length >= 2 && tokens[1].equals(Discovery.ANNOUNCE)) {
+                    announced(tokens[0], announcement.getSocketAddress());
+                }
+            } catch(SocketTimeoutException e) {
+                // sweep below
+            } catch(IOException e) {
+                if(closed) {
+                    return;
+                }
+            }
+
+            // free the slots of sensors that did not attach in time
+            long now = System.nanoTime();
+            if(now - nextSweep >= 0) {
+                nextSweep = now + TimeUnit.MILLISECONDS.toNanos(SWEEP_INTERVAL);
+                expire(now);
+            }
+        }
+    }
+
+    /**
+     * Invite an announced sensor, if it is not attached and a slot is free.
+     *
+     * @param device Sensor's device id.
+     * @param from Address the announcement came from.
+     * @throws IOException if the invitation cannot be sent.
+     */
+    private void announced(String device, SocketAddress from) throws IOException {
+        if(attached.contains(device)) {
+            return;
+        }
+        if(!pending.containsKey(device)) {
+            if(pending.size() >= maxPending) {
+                deferred.increment();
+                return;
+            }
+            pending.put(device, System.nanoTime());
+        }
+        socket.send(Discovery.packet((InetSocketAddress)from, name, Discovery.METER, Integer.toString(port)));
+    }
+
+    /**
+     * Stop waiting for sensors invited too long ago.
+     *
+     * @param now Current {@link System#nanoTime()}.
+     */
+    private void expire(long now) {
+        long timeout = TimeUnit.MILLISECONDS.toNanos(attachTimeout);
+        Iterator<Long> invited = pending.values().iterator();
+        while(invited.hasNext()) {
+            if(now - invited.next() > timeout) {
+                invited.remove();
+                expired.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package ca.mta.iottestbed.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ca.mta.iottestbed.concurrent.ExecutionMode;
+import ca.mta.iottestbed.discovery.Discovery;
+import ca.mta.iottestbed.meter.Meter;
+import ca.mta.iottestbed.meter.ReadingListener;
+import ca.mta.iottestbed.metrics.Histogram;
+import ca.mta.iottestbed.sensor.Sensor;
+
+/**
+ * Drives one {@link Meter} with many simulated {@link Sensor}s in the same
+ * JVM, using the real {@code addmeter}/{@code OK}/{@code report} protocol.
+ *
+ * Each sensor listens on its own local address, counting up from a first
+ * address such as {@code 127.1.0.1}, so thousands of sensors can share the
+ * sensor port. Every loopback address works on Linux; other systems need
+ * the addresses set up first.
+ *
+ * Sensors are either asked to report by the meter, which connects to each
+ * in turn, or announce themselves over multicast discovery once the meter
+ * is running. Either way, it first reports how long the whole fleet took
+ * to attach.
+ *
+ * While running, it reports readings per second, the time from a reading
+ * being taken to the meter handling it, and the CPU time and heap used.
+ * Latency is measured with the sensors' millisecond timestamps, and
+ * includes time spent waiting in a batch. CPU time counts only the
+ * meter's platform threads; heap is for the whole JVM, sensors included.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class LoadGenerator {
+
+    /**
+     * Default first sensor address.
+     */
+    public static final String DEFAULT_FIRST_ADDRESS = "127.1.0.1";
+
+    /**
+     * Prefix of the simulated sensors' device ids.
+     */
+    private static final String PREFIX = "L";
+
+    /**
+     * Name of the meter under test.
+     */
+    private static final String METER = "LOAD";
+
+    /**
+     * Number of sensors.
+     */
+    private int sensorCount;
+
+    /**
+     * Address of the first sensor.
+     */
+    private InetAddress firstAddress;
+
+    /**
+     * Kind of threads the meter and sensors run on.
+     */
+    private ExecutionMode mode;
+
+    /**
+     * Milliseconds between samples.
+     */
+    private long samplingInterval;
+
+    /**
+     * Largest number of samples per message.
+     */
+    private int batchSize;
+
+    /**
+     * Longest time, in milliseconds, a sample waits to be sent.
+     */
+    private long batchWindow;
+
+    /**
+     * Port the meter listens on.
+     */
+    private int meterPort;
+
+    /**
+     * Port each sensor listens on.
+     */
+    private int sensorPort;
+
+    /**
+     * Whether sensors announce themselves instead of being asked by the meter.
+     */
+    private boolean discovery;
+
+    /**
+     * When {@link #start()} was called, from {@link System#nanoTime()}.
+     */
+    private long started;
+
+    /**
+     * Meter under test.
+     */
+    private Meter meter;
+
+    /**
+     * Simulated sensors.
+     */
+    private List<Sensor> sensors;
+
+    /**
+     * Readings handled by the meter.
+     */
+    private AtomicLong readings;
+
+    /**
+     * Latencies since the last report, in milliseconds.
+     */
+    private Histogram interval;
+
+    /**
+     * Latencies since the start, in milliseconds.
+     */
+    private Histogram total;
+
+    /**
+     * Create a new {@code LoadGenerator}. Sensors sample once a second and
+     * report each sample on its own, using the default ports.
+     *
+     * @param sensorCount Number of sensors.
+     * @param firstAddress Address of the first sensor.
+     * @param mode Kind of threads the meter and sensors run on.
+     * @throws IllegalArgumentException if {@code sensorCount <= 0}
+     */
+    public LoadGenerator(int sensorCount, InetAddress firstAddress, ExecutionMode mode) {
+        if(sensorCount <= 0) {
+            throw new IllegalArgumentException("Invalid sensor count: " + sensorCount);
+        }
+        this.sensorCount = sensorCount;
+        this.firstAddress = firstAddress;
+        this.mode = mode;
+        this.samplingInterval = 1000;
+        this.batchSize = 1;
+        this.batchWindow = 0;
+        this.meterPort = Meter.DEFAULT_LISTENING_PORT;
+        this.sensorPort = Meter.DEFAULT_SENDING_PORT;
+        this.sensors = new ArrayList<Sensor>();
+        this.readings = new AtomicLong();
+        this.interval = new Histogram();
+        this.total = new Histogram();
+
+        // count every reading the meter handles
+        this.meter = new Meter(METER, mode);
+        this.meter.setPrinting(false);
+        this.meter.addReadingListener(new ReadingListener() {
+            @Override
+            public void onReading(String device, long timestamp, double water, double power, long received) {
+                readings.incrementAndGet();
+                interval.record(received - timestamp);
+                total.record(received - timestamp);
+            }
+        });
+    }
+
+    /**
+     * Set how often each sensor samples, and how samples are batched. See
+     * {@link Sensor#setBatching(long, int, long)}. Call before {@link #start()}.
+     *
+     * @param samplingInterval Milliseconds between samples.
+     * @param batchSize Largest number of samples per message.
+     * @param batchWindow Longest time, in milliseconds, a sample waits, or 0 for no limit.
+     */
+    public void setRate(long samplingInterval, int batchSize, long batchWindow) {
+        this.samplingInterval = samplingInterval;
+        this.batchSize = batchSize;
+        this.batchWindow = batchWindow;
+    }
+
+    /**
+     * Set the ports used. Call before {@link #start()}.
+     *
+     * @param meterPort Port the meter listens on.
+     * @param sensorPort Port each sensor listens on.
+     */
+    public void setPorts(int meterPort, int sensorPort) {
+        this.meterPort = meterPort;
+        this.sensorPort = sensorPort;
+    }
+
+    /**
+     * Set whether sensors announce themselves over multicast discovery,
+     * instead of the meter asking each of them. Call before {@link #start()}.
+     *
+     * @param discovery {@code true} to use discovery.
+     */
+    public void setDiscovery(boolean discovery) {
+        this.discovery = discovery;
+    }
+
+    /**
+     * Return the meter under test, to configure before {@link #start()}.
+     *
+     * @return Meter.
+     */
+    public Meter getMeter() {
+        return meter;
+    }
+
+    /**
+     * Start every sensor, then the meter, which connects to each of them.
+     * With discovery, start the meter first, then every sensor, which
+     * announce themselves to it.
+     *
+     * @throws IOException if a sensor or the meter cannot listen.
+     * @throws InterruptedException if interrupted while starting.
+     */
+    public void start() throws IOException, InterruptedException {
+        started = System.nanoTime();
+        meter.setPorts(meterPort, sensorPort);
+
+        // meter listens for announcements on the sensors' interface
+        NetworkInterface discoveryInterface = null;
+        if(discovery) {
+            discoveryInterface = Discovery.interfaceFor(firstAddress);
+            meter.setDiscovery(Discovery.defaultGroup(), discoveryInterface);
+            meter.start(new String[0]);
+        }
+
+        String[] ips = new String[sensorCount];
+        for(int i = 0; i < sensorCount; i++) {
+            InetAddress address = address(firstAddress, i);
+            Sensor sensor = new Sensor(String.format("%s%05d", PREFIX, i), 10, 10, mode);
+            sensor.setAddress(address, sensorPort, meterPort);
+            sensor.setBatching(samplingInterval, batchSize, batchWindow);
+            sensor.setPrinting(false);
+            if(discovery) {
+                sensor.setDiscovery(Discovery.defaultGroup(), discoveryInterface);
+            }
+            sensor.start();
+            sensors.add(sensor);
+            ips[i] = address.getHostAddress();
+        }
+
+        if(!discovery) {
+            meter.start(ips);
+        }
+    }
+
+    /**
+     * Wait until every sensor has a session at the meter.
+     *
+     * @param timeout Longest time to wait, in milliseconds.
+     * @return Milliseconds from {@link #start()} until the whole fleet was
+     *         attached, or {@code -1} if it was not within the timeout.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public long awaitAttached(long timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while(meter.getSessions().size() < sensorCount) {
+            if(System.nanoTime() - deadline >= 0) {
+                return -1;
+            }
+            Thread.sleep(10);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+
+    /**
+     * Print a report at a fixed interval for a while, then a summary of
+     * the whole run.
+     *
+     * @param seconds How long to run.
+     * @param every Seconds between reports.
+     * @param out Stream to print to.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void run(long seconds, long every, PrintStream out) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        long start = System.nanoTime();
+        long startReadings = readings.get();
+        long startCpu = meterCpuNanos(threads);
+        long lastTime = start;
+        long lastReadings = startReadings;
+        long lastCpu = startCpu;
+
+        out.println("seconds,readings/s,p50 ms,p99 ms,p99.9 ms,max ms,meter cpu %,heap MB");
+        for(long elapsed = every; elapsed <= seconds; elapsed += every) {
+            TimeUnit.NANOSECONDS.sleep(start + TimeUnit.SECONDS.toNanos(elapsed) - System.nanoTime());
+
+            long now = System.nanoTime();
+            long count = readings.get();
+            long cpu = meterCpuNanos(threads);
+            out.println(line(elapsed, count - lastReadings, now - lastTime, cpu - lastCpu, interval,
+                memory.getHeapMemoryUsage().getUsed()));
+            interval.reset();
+            lastTime = now;
+            lastReadings = count;
+            lastCpu = cpu;
+        }
+
+        out.println(line(seconds, lastReadings - startReadings, lastTime - start, lastCpu - startCpu, total,
+            memory.getHeapMemoryUsage().getUsed()) + " (whole run)");
+    }
+
+    /**
+     * Format one report.
+     *
+     * @param seconds Seconds since the start.
+     * @param count Readings handled.
+     * @param nanos Time taken, in nanoseconds.
+     * @param cpuNanos Meter CPU time, in nanoseconds, or negative if unknown.
+     * @param latency Latencies.
+     * @param heap Heap used, in bytes.
+     * @return Report line.
+     */
+    private static String line(long seconds, long count, long nanos, long cpuNanos, Histogram latency, long heap) {
+        return String.format("%d,%.1f,%d,%d,%d,%d,%s,%.1f",
+            seconds,
+            count * 1e9 / Math.max(1, nanos),
+            latency.getPercentile(50),
+            latency.getPercentile(99),
+            latency.getPercentile(99.9),
+            latency.getMax(),
+            cpuNanos < 0 ? "n/a" : String.format("%.1f", cpuNanos * 100.0 / Math.max(1, nanos)),
+            heap / 1048576.0);
+    }
+
+    /**
+     * Return the CPU time used so far by the meter's live threads.
+     *
+     * @param threads Thread management bean.
+     * @return Nanoseconds, or {@code -1} if CPU time cannot be measured.
+     */
+    private static long meterCpuNanos(ThreadMXBean threads) {
+        if(!threads.isThreadCpuTimeSupported()) {
+            return -1;
+        }
+        long nanos = 0;
+        for(ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if(info != null && info.getThreadName().startsWith("meter-" + METER)) {
+                nanos += Math.max(0, threads.getThreadCpuTime(info.getThreadId()));
+            }
+        }
+        return nanos;
+    }
+
+    /**
+     * Return the address a number of places after another.
+     *
+     * @param first First address.
+     * @param offset Places after it.
+     * @return Address.
+     * @throws UnknownHostException never, for a valid offset.
+     */
+    static InetAddress address(InetAddress first, int offset) throws UnknownHostException {
+        byte[] bytes = first.getAddress();
+        int carry = offset;
+        for(int i = bytes.length - 1; i >= 0 && carry != 0; i--) {
+            int sum = (bytes[i] & 0xFF) + (carry & 0xFF);
+            bytes[i] = (byte)sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+        return InetAddress.getByAddress(bytes);
+    }
+
+    /**
+     * Run a load test. Options are system properties:
+     * {@code iottestbed.sensors} (default 100), {@code iottestbed.address}
+     * (first sensor address, default 127.1.0.1), {@code iottestbed.sampling},
+     * {@code iottestbed.batch}, and {@code iottestbed.window} (as for the
+     * sensor), {@code iottestbed.meterPort} and {@code iottestbed.sensorPort},
+     * {@code iottestbed.duration} and {@code iottestbed.every} (seconds,
+     * default 60 and 5), {@code iottestbed.execution},
+     * {@code iottestbed.discovery}, to have sensors announce themselves, and
+     * {@code iottestbed.store}, to store readings as time series instead of
+     * CSV files in the working directory.
+     *
+     * @param args Not used.
+     * @throws IOException if a sensor or the meter cannot start.
+     * @throws InterruptedException if interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadGenerator generator = new LoadGenerator(
+            Integer.getInteger("iottestbed.sensors", 100),
+            InetAddress.getByName(System.getProperty("iottestbed.address", DEFAULT_FIRST_ADDRESS)),
+            ExecutionMode.valueOf(System.getProperty("iottestbed.execution", "PLATFORM")));
+        generator.setRate(
+            Long.getLong("iottestbed.sampling", 1000),
+            Integer.getInteger("iottestbed.batch", 1),
+            Long.getLong("iottestbed.window", 0));
+        generator.setPorts(
+            Integer.getInteger("iottestbed.meterPort", Meter.DEFAULT_LISTENING_PORT),
+            Integer.getInteger("iottestbed.sensorPort", Meter.DEFAULT_SENDING_PORT));
+        if(System.getProperty("iottestbed.store") != null) {
+            generator.getMeter().setStore(new File(System.getProperty("iottestbed.store")));
+        }
+
+        generator.setDiscovery(Boolean.getBoolean("iottestbed.discovery"));
+
+        generator.start();
+        long attached = generator.awaitAttached(TimeUnit.SECONDS.toMillis(Long.getLong("iottestbed.duration", 60)));
+        System.out.println(attached < 0 ? "Fleet did not attach" : "Fleet attached in " + attached + " ms");
+        generator.run(Long.getLong("iottestbed.duration", 60), Long.getLong("iottestbed.every", 5), System.out);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,263 @@
+package ca.mta.iottestbed.logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A logger that writes events as fixed-size binary records into a
+ * memory-mapped file, used as a ring: once full, each record replaces the
+ * oldest. Logging an event claims a record with one atomic increment and
+ * writes its fields in place, so any number of threads can log at once
+ * without locks, formatting, or allocation.
+ *
+ * Each record holds a sequence number, the time from a {@link CoarseClock},
+ * the event's code, and its three fields. The sequence number is written last, and zero marks a
+ * record that was never written, so {@link #read} skips records torn by a
+ * crash. Reopening a file continues after its newest record.
+ *
+ * Plain messages cannot be stored without formatting them, so they are
+ * counted and dropped; attach a text logger alongside for those.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class BinaryEventLogger implements Closeable, Logger {
+
+    /**
+     * Default number of records.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    /**
+     * Size of a record, in bytes: sequence, time, code and padding, and
+     * three fields.
+     */
+    static final int RECORD = 48;
+
+    /**
+     * File being written.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * Mapping of the whole file. Only absolute puts are used, so threads do
+     * not share a position.
+     */
+    private final MappedByteBuffer records;
+
+    /**
+     * Number of records in the file minus one. The capacity is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Sequence number of the next record.
+     */
+    private final AtomicLong next;
+
+    /**
+     * Number of plain messages dropped.
+     */
+    private final AtomicLong skipped;
+
+    /**
+     * Whether the logger has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Create a new {@code BinaryEventLogger} with the default capacity.
+     *
+     * @param file File to write to.
+     * @throws IOException if the file cannot be opened.
+     */
+    public BinaryEventLogger(File file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new {@code BinaryEventLogger}. An existing file of the same
+     * capacity is continued; one of another size is started again.
+     *
+     * @param file File to write to.
+     * @param capacity Number of records kept. Rounded up to a power of two.
+     * @throws IOException if the file cannot be opened.
+     * @throws IllegalArgumentException if {@code capacity} is not positive, or too large to map.
+     */
+    public BinaryEventLogger(File file, int capacity) throws IOException {
+        if(capacity <= 0 || capacity > (1 << 25)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity) {
+            size <<= 1;
+        }
+        capacity = size;
+        this.mask = size - 1;
+        this.file = new RandomAccessFile(Objects.requireNonNull(file), "rw");
+        this.skipped = new AtomicLong();
+
+        try {
+            long length = (long)capacity * RECORD;
+            if(this.file.length() != length) {
+                this.file.setLength(0);
+                this.file.setLength(length);
+            }
+            this.records = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        } catch(IOException e) {
+            this.file.close();
+            throw e;
+        }
+
+        // continue after the newest record
+        long newest = 0;
+        for(int i = 0; i < capacity; i++) {
+            newest = Math.max(newest, records.getLong(i * RECORD));
+        }
+        this.next = new AtomicLong(newest);
+    }
+
+    /**
+     * Count and drop a plain message, which is not stored.
+     *
+     * @param message Message.
+     */
+    @Override
+    public void log(String message) {
+        skipped.incrementAndGet();
+    }
+
+    /**
+     * Write an event record.
+     *
+     * @param event Kind of event.
+     * @param first First field.
+     * @param second Second field.
+     * @param third Third field.
+     */
+    @Override
+    public void log(Event event, long first, long second, long third) {
+        if(closed) {
+            return;
+        }
+        long sequence = next.getAndIncrement();
+        int offset = ((int)sequence & mask) * RECORD;
+
+        // hide the old record while this one is written
+        records.putLong(offset, 0);
+        records.putLong(offset + 8, CoarseClock.millis());
+        records.putInt(offset + 16, event.getCode());
+        records.putLong(offset + 24, first);
+        records.putLong(offset + 32, second);
+        records.putLong(offset + 40, third);
+        records.putLong(offset, sequence + 1);
+    }
+
+    /**
+     * Return the number of events logged, including any since overwritten.
+     *
+     * @return Number of events.
+     */
+    public long getCount() {
+        return next.get();
+    }
+
+    /**
+     * Return the number of plain messages dropped.
+     *
+     * @return Number of messages.
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Ask the operating system to write every record to disk.
+     */
+    public void sync() {
+        records.force();
+    }
+
+    /**
+     * Write every record to disk and close the file. Events logged after
+     * closing are ignored.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        records.force();
+        file.close();
+    }
+
+    /**
+     * Format the records in a file as text, oldest first, one line each
+     * with its timestamp. Records whose code does not match any given kind
+     * of event are skipped.
+     *
+     * @param file File written by a {@code BinaryEventLogger}.
+     * @param events Kinds of event the file may hold.
+     * @param out Destination.
+     * @return Number of records formatted.
+     * @throws IOException if the file cannot be read.
+     */
+    public static int read(File file, Event[] events, StringBuilder out) throws IOException {
+        try(RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            int capacity = (int)(in.length() / RECORD);
+            MappedByteBuffer records = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, (long)capacity * RECORD);
+
+            // records sit at their sequence number modulo the capacity, so
+            // the oldest is found by its slot and the rest follow in order
+            long newest = 0;
+            for(int i = 0; i < capacity; i++) {
+                newest = Math.max(newest, records.getLong(i * RECORD));
+            }
+            long oldest = Math.max(1, newest - capacity + 1);
+
+            int count = 0;
+            for(long sequence = oldest; sequence <= newest; sequence++) {
+                int offset = (int)((sequence - 1) % capacity) * RECORD;
+                if(records.getLong(offset) != sequence) {
+                    continue;
+                }
+                Event event = find(events, records.getInt(offset + 16));
+                if(event == null) {
+                    continue;
+                }
+                out.append('[');
+                Timestamp.append(records.getLong(offset + 8), out);
+                out.append("] ");
+                event.format(out, records.getLong(offset + 24), records.getLong(offset + 32), records.getLong(offset + 40));
+                out.append('\n');
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Return the kind of event with a code.
+     *
+     * @param events Kinds of event.
+     * @param code Code.
+     * @return Kind of event, or {@code null} if none has the code.
+     */
+    private static Event find(Event[] events, int code) {
+        for(Event event : events) {
+            if(event.getCode() == code) {
+                return event;
+            }
+        }
+        return null;
+    }
+}
@@ -2,9 +2,21 @@ package ca.mta.iottestbed.logger;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
+/**
+ * A logger that buffers messages in memory and appends them to a file
+ * when {@link #write()} is called, either directly or by a {@link FlushService}.
+ * 
+ * Logging and writing use separate locks, so messages can be logged while
+ * earlier ones are being written.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
 public class BufferedFileLogger implements Closeable, Logger {
     /**
      * BufferedLogger to write logs to.
@@ -14,7 +26,27 @@ public class BufferedFileLogger implements Closeable, Logger {
     /**
      * File to write to.
      */
-    private FileWriter writer;
+    private Writer writer;
+
+    /**
+     * Stream under {@link #writer}, used to sync to disk.
+     */
+    private FileOutputStream stream;
+
+    /**
+     * Flush service to notify when the buffer is full, if registered with one.
+     */
+    private volatile FlushService service;
+
+    /**
+     * Buffer size, in characters, at which to notify the flush service.
+     */
+    private volatile int threshold;
+
+    /**
+     * Whether the flush service has been notified since the last write.
+     */
+    private volatile boolean notified;
 
     /**
      * Create a new {@code BufferedFileLogger}.
@@ -24,14 +56,22 @@ public class BufferedFileLogger implements Closeable, Logger {
      */
     public BufferedFileLogger(File file) throws IOException {
         logger = new BufferedLogger();
-        // create a new FileWriter in 'append' mode
-        writer = new FileWriter(file, true);
+        // open the file in 'append' mode
+        stream = new FileOutputStream(file, true);
+        writer = new OutputStreamWriter(stream);
     }
 
     /** {@inheritDoc} */
     @Override
     public void log(String message) {
         logger.log(message);
+
+        // ask the flush service for an early flush once the buffer is full
+        FlushService service = this.service;
+        if(service != null && !notified && logger.size() >= threshold) {
+            notified = true;
+            service.requestFlush();
+        }
     }
 
     /**
@@ -39,11 +79,12 @@ public class BufferedFileLogger implements Closeable, Logger {
      * 
      * @return {@code true} if successful.
      */
-    public boolean write() {
+    public synchronized boolean write() {
         // attempt to write to the file
         try {
-            //writer.write(logger.flush());
-            writer.write(logger.flush());
+            // take the buffer contents; logging can continue from here
+            notified = false;
+            logger.flushTo(writer);
             writer.flush();
             return true;
         } 
@@ -52,14 +93,58 @@ public class BufferedFileLogger implements Closeable, Logger {
         catch(IOException e) {
             return false;
         }
-    }       
+    }
+
+    /**
+     * Wait until everything written so far has reached the disk.
+     * 
+     * @return {@code true} if successful.
+     */
+    public synchronized boolean sync() {
+        try {
+            stream.getFD().sync();
+            return true;
+        } catch(IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return the number of characters waiting to be written.
+     * 
+     * @return Buffered characters.
+     */
+    public int size() {
+        return logger.size();
+    }
+
+    /**
+     * Return when the oldest message waiting to be written was logged.
+     * Only meaningful while {@link #size()} is not zero.
+     * 
+     * @return Milliseconds since the epoch.
+     */
+    long getOldest() {
+        return logger.getSince();
+    }
+
+    /**
+     * Attach or detach a flush service.
+     * 
+     * @param service Service to notify, or {@code null}.
+     * @param threshold Buffer size, in characters, at which to notify it.
+     */
+    void setFlushService(FlushService service, int threshold) {
+        this.threshold = threshold;
+        this.service = service;
+    }
     
     /**
      * Close the BufferedFileLogger.
      * 
      * @throws IOException if an I/O error occurs
      */
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
         writer.close();
     }
 }
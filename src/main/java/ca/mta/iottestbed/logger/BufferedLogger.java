@@ -1,23 +1,49 @@
 package ca.mta.iottestbed.logger;
 
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
  * A buffered logger for storing diagnostic messages.
- * 
+ *
+ * Messages are stored in a list of fixed-size chunks. The buffer grows by
+ * adding a chunk, so nothing logged is ever copied to make room, and
+ * flushing hands the chunks back to a shared pool, so a logger that took
+ * a lot of memory during a burst keeps none of it afterwards.
+ *
  * @author Hayden Walker
- * @version 2023-06-13
+ * @version 2026-10-17
  */
 public class BufferedLogger implements Logger {
     /**
-     * Default buffer size.
+     * Default chunk size.
      */
-    public static final int DEFAULT_SIZE = 50;
+    public static final int DEFAULT_SIZE = ChunkPool.CHUNK_SIZE;
 
     /**
-     * Store logged messages.
+     * Size of each chunk, in characters.
      */
-    private char[] buffer;
+    private final int chunkSize;
+
+    /**
+     * Chunks holding logged messages, in order. Every chunk but the last
+     * is full.
+     */
+    private List<char[]> chunks;
+
+    /**
+     * Last chunk, or {@code null} if there are none.
+     */
+    private char[] current;
+
+    /**
+     * Number of characters used in the last chunk.
+     */
+    private int position;
 
     /**
      * Store number of characters stored in the log.
@@ -25,15 +51,26 @@ public class BufferedLogger implements Logger {
     private int size;
 
     /**
-     * Store the size of the buffer.
+     * Time the buffer last went from empty to holding data, in
+     * milliseconds since the epoch.
      */
-    private int capacity;
+    private long since;
 
     /**
      * Store whether or not to write timestamps.
      */
     private boolean timestampEnabled;
 
+    /**
+     * Scratch space for a timestamp.
+     */
+    private final char[] stamp;
+
+    /**
+     * Scratch space for formatting events.
+     */
+    private final StringBuilder event;
+
     /**
      * Create a new {@code BufferedLogger}.
      */
@@ -42,49 +79,113 @@ public class BufferedLogger implements Logger {
     }
 
     /**
-     * Create a new {@code BufferedLogger} with the specified initial size.
-     * 
-     * @param size Initial size.
+     * Create a new {@code BufferedLogger} with the specified chunk size.
+     * Chunks of {@link #DEFAULT_SIZE} are shared with other loggers through
+     * a pool; chunks of other sizes are allocated as needed.
+     *
+     * @param size Chunk size, in characters.
      * @throws IllegalArgumentException if {@code size <= 0}
      */
     public BufferedLogger(int size) {
         if (size <= 0) {
             throw new IllegalArgumentException("Invalid initial buffer size: " + size);
         }
+        this.chunkSize = size;
+        this.chunks = new ArrayList<char[]>();
         this.size = 0;
-        this.capacity = size;
-        buffer = new char[this.capacity];
+        this.stamp = new char[Timestamp.MAX_LENGTH + 3];
+        this.event = new StringBuilder();
         timestampEnabled = false;
     }
 
     /** {@inheritDoc} */
     @Override
     public synchronized void log(String message) {
+        begin();
+
         // add a timestamp
         if(timestampEnabled) {
             logTimestamp();
         }
 
         // write message to buffer
-        for(char character : Objects.toString(message).toCharArray()) {
-            checkSize();
-            buffer[size++] = character;
-        }
+        String text = Objects.toString(message);
+        append(text, 0, text.length());
 
         // add newline
-        checkSize();
-        buffer[size++] = '\n';
+        append('\n');
+    }
+
+    /**
+     * Log an event, formatted into reused scratch space.
+     *
+     * @param event Kind of event.
+     * @param first First field.
+     * @param second Second field.
+     * @param third Third field.
+     */
+    @Override
+    public synchronized void log(Event event, long first, long second, long third) {
+        begin();
+        if(timestampEnabled) {
+            logTimestamp();
+        }
+        this.event.setLength(0);
+        event.format(this.event, first, second, third);
+        append(this.event, 0, this.event.length());
+        append('\n');
     }
 
     /**
      * Return the buffer contents and empty the buffer.
-     * 
+     *
      * @return Buffer contents as a String.
      */
-    public synchronized String flush() {
-        String output = new String(buffer, 0, size);
-        size = 0;
-        return output;
+    public String flush() {
+        CharArrayWriter output = new CharArrayWriter(Math.max(1, size()));
+        try {
+            flushTo(output);
+        } catch(IOException e) {
+            // a CharArrayWriter does not fail
+        }
+        return output.toString();
+    }
+
+    /**
+     * Write the buffer contents and empty the buffer. The contents are
+     * taken at once, so logging can continue while they are written, and
+     * the chunks go back to the pool afterwards.
+     *
+     * @param out Destination.
+     * @return Number of characters written.
+     * @throws IOException if writing fails. The contents are lost.
+     */
+    public int flushTo(Writer out) throws IOException {
+        // take the chunks; logging can continue from here
+        List<char[]> taken;
+        int last;
+        int total;
+        synchronized (this) {
+            taken = chunks;
+            last = position;
+            total = size;
+            chunks = new ArrayList<char[]>();
+            current = null;
+            position = 0;
+            size = 0;
+        }
+
+        try {
+            for(int i = 0; i < taken.size(); i++) {
+                char[] chunk = taken.get(i);
+                out.write(chunk, 0, i == taken.size() - 1 ? last : chunk.length);
+            }
+        } finally {
+            for(char[] chunk : taken) {
+                ChunkPool.release(chunk);
+            }
+        }
+        return total;
     }
 
     /**
@@ -94,9 +195,29 @@ public class BufferedLogger implements Logger {
         System.out.print(flush());
     }
 
+    /**
+     * Return the number of characters in the buffer.
+     *
+     * @return Buffered characters.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Return when the buffer last went from empty to holding data, which is
+     * when its oldest message was logged. Only meaningful while
+     * {@link #size()} is not zero.
+     *
+     * @return Milliseconds since the epoch.
+     */
+    public synchronized long getSince() {
+        return since;
+    }
+
     /**
      * Enable or disable timestamps.
-     * 
+     *
      * @param status {@code true} to enable timestamps.
      */
     public synchronized void timestampEnabled(boolean status) {
@@ -104,12 +225,12 @@ public class BufferedLogger implements Logger {
     }
 
     /**
-     * Check if the size needs to be increased, and call
-     * {@link #increaseLogSize()} if it does.
+     * Note the time if the buffer is empty, as the next message will be
+     * its oldest.
      */
-    private synchronized void checkSize() {
-        if(size >= capacity - 1) {
-            increaseLogSize();
+    private void begin() {
+        if(size == 0) {
+            since = System.currentTimeMillis();
         }
     }
 
@@ -117,28 +238,58 @@ public class BufferedLogger implements Logger {
      * Add a timestamp to the log.
      */
     private synchronized void logTimestamp() {
-        char[] date = ("[" + new Timestamp().toString() + "] ").toCharArray();
-        for(int i = 0; i < date.length; i++) {
-            checkSize();
-            buffer[size++] = date[i];
+        stamp[0] = '[';
+        int end = Timestamp.format(System.currentTimeMillis(), stamp, 1);
+        stamp[end++] = ']';
+        stamp[end++] = ' ';
+        for(int i = 0; i < end; i++) {
+            append(stamp[i]);
         }
     }
 
     /**
-     * Increase the size of the buffer by a factor of 2.
+     * Append one character, adding a chunk if needed.
+     *
+     * @param character Character to append.
      */
-    private synchronized void increaseLogSize() {
-        // calculate new size
-        int newCapacity = 2 * capacity;
+    private void append(char character) {
+        if(current == null || position == current.length) {
+            addChunk();
+        }
+        current[position++] = character;
+        size++;
+    }
 
-        // create a new buffer
-        char[] newBuffer = new char[newCapacity];
-        
-        // copy buffer
-        System.arraycopy(buffer, 0, newBuffer, 0, capacity);
+    /**
+     * Append characters, filling the last chunk and adding chunks as needed.
+     *
+     * @param text Characters to append, in a String or a StringBuilder.
+     * @param start Index of the first character.
+     * @param end Index after the last character.
+     */
+    private void append(CharSequence text, int start, int end) {
+        while(start < end) {
+            if(current == null || position == current.length) {
+                addChunk();
+            }
+            int count = Math.min(end - start, current.length - position);
+            if(text instanceof String) {
+                ((String)text).getChars(start, start + count, current, position);
+            } else {
+                ((StringBuilder)text).getChars(start, start + count, current, position);
+            }
+            start += count;
+            position += count;
+            size += count;
+        }
+    }
 
-        // replace buffer and capacity
-        buffer = newBuffer;
-        capacity = newCapacity;
+    /**
+     * Add an empty chunk to the end of the buffer.
+     */
+    private void addChunk() {
+        current = ChunkPool.acquire(chunkSize);
+        chunks.add(current);
+        position = 0;
     }
 }
@@ -0,0 +1,83 @@
+package ca.mta.iottestbed.logger;
+
+/**
+ * A process-wide pool of fixed-size {@code char} chunks for
+ * {@link BufferedLogger}, so that a logger's buffer grows without copying,
+ * and memory taken during a burst is handed back once it is flushed.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+final class ChunkPool {
+
+    /**
+     * Size of pooled chunks, in characters.
+     */
+    static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Largest number of idle chunks kept, 2 MiB in all. Chunks released
+     * beyond this are left to the garbage collector.
+     */
+    private static final int MAX_POOLED = 256;
+
+    /**
+     * Idle chunks, used as a stack.
+     */
+    private static final char[][] pool = new char[MAX_POOLED][];
+
+    /**
+     * Number of idle chunks.
+     */
+    private static int size;
+
+    private ChunkPool() {}
+
+    /**
+     * Take a chunk. Chunks of any size other than {@link #CHUNK_SIZE} are
+     * new and unpooled.
+     *
+     * @param length Chunk size.
+     * @return Chunk, with any contents.
+     */
+    static char[] acquire(int length) {
+        if(length == CHUNK_SIZE) {
+            synchronized (pool) {
+                if(size > 0) {
+                    char[] chunk = pool[--size];
+                    pool[size] = null;
+                    return chunk;
+                }
+            }
+        }
+        return new char[length];
+    }
+
+    /**
+     * Return a chunk to the pool. The caller must not use it afterwards.
+     *
+     * @param chunk Chunk from {@link #acquire(int)}.
+     */
+    static void release(char[] chunk) {
+        if(chunk.length != CHUNK_SIZE) {
+            return;
+        }
+
+        synchronized (pool) {
+            if(size < MAX_POOLED) {
+                pool[size++] = chunk;
+            }
+        }
+    }
+
+    /**
+     * Return the number of idle chunks.
+     *
+     * @return Idle chunks.
+     */
+    static int idle() {
+        synchronized (pool) {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ca.mta.iottestbed.logger;
+
+/**
+ * The current time to the millisecond, read from a field instead of the
+ * operating system. Reading the system clock can cost tens of nanoseconds,
+ * especially in virtual machines, which is more than writing a whole
+ * binary log record.
+ *
+ * A daemon thread refreshes the time every millisecond, starting the first
+ * time the clock is used. The time may lag by a millisecond or two, or
+ * more on a busy machine.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+final class CoarseClock {
+
+    /**
+     * Current time, in milliseconds since the epoch.
+     */
+    private static volatile long now = System.currentTimeMillis();
+
+    static {
+        Thread ticker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while(true) {
+                    try {
+                        Thread.sleep(1);
+                    } catch(InterruptedException e) {
+                        // keep ticking; nothing else uses this thread
+                    }
+                    now = System.currentTimeMillis();
+                }
+            }
+        }, "coarse-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Not instantiable.
+     */
+    private CoarseClock() {
+    }
+
+    /**
+     * Return the current time.
+     *
+     * @return Milliseconds since the epoch.
+     */
+    static long millis() {
+        return now;
+    }
+}
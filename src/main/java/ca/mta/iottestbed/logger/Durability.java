@@ -0,0 +1,22 @@
+package ca.mta.iottestbed.logger;
+
+/**
+ * How far a {@link FlushService} pushes data before considering it flushed.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public enum Durability {
+
+    /**
+     * Hand data to the operating system. Survives a crash of the JVM, but
+     * not of the machine.
+     */
+    WRITE,
+
+    /**
+     * Hand data to the operating system, then wait for it to reach the disk.
+     * Survives a crash of the machine, at the cost of one sync per file per cycle.
+     */
+    FSYNC
+}
@@ -0,0 +1,33 @@
+package ca.mta.iottestbed.logger;
+
+/**
+ * A kind of structured log event, such as a message being sent.
+ *
+ * Events are logged as a kind plus three {@code long} fields, whose meaning
+ * depends on the kind. Nothing is formatted when an event is logged; a
+ * {@link Logger} that keeps text calls {@link #format} when it needs the
+ * line, and a {@link BinaryEventLogger} stores the fields as they are.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public interface Event {
+
+    /**
+     * Return a number identifying this kind of event in binary logs. Kinds
+     * read back together must have different codes.
+     *
+     * @return Event code, at least 0.
+     */
+    public int getCode();
+
+    /**
+     * Append this event as a line of text, without a newline.
+     *
+     * @param out Destination.
+     * @param first First field.
+     * @param second Second field.
+     * @param third Third field.
+     */
+    public void format(StringBuilder out, long first, long second, long third);
+}
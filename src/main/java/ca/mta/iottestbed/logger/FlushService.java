@@ -0,0 +1,331 @@
+package ca.mta.iottestbed.logger;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import ca.mta.iottestbed.metrics.Histogram;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+import ca.mta.iottestbed.metrics.TimedLock;
+
+/**
+ * Writes registered {@link BufferedFileLogger}s to disk in the background.
+ * 
+ * A logger is flushed once it holds {@code maxChars} characters or its
+ * oldest data is {@code maxDelay} milliseconds old, whichever comes first.
+ * Each cycle writes every logger that is due, then syncs them together if
+ * the {@link Durability} asks for it, so that many files share one cycle.
+ * Loggers are never locked against logging while they are written.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class FlushService implements Closeable {
+
+    /**
+     * Durations of cycles that wrote data, across all services.
+     */
+    private static final Histogram FLUSHES = MetricsRegistry.getDefault().histogram(
+        "iottestbed_flush_duration_seconds", "Time taken by flush cycles that wrote data.");
+
+    /**
+     * Buffer size, in characters, that triggers a flush.
+     */
+    private final int maxChars;
+
+    /**
+     * Longest time, in milliseconds, data waits before being flushed.
+     */
+    private final long maxDelay;
+
+    /**
+     * How far to push data on each flush.
+     */
+    private final Durability durability;
+
+    /**
+     * Registered loggers.
+     */
+    private final Set<BufferedFileLogger> loggers;
+
+    /**
+     * Guards {@link #requested}.
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Signalled when a logger fills up, or the service closes.
+     */
+    private final Condition wake;
+
+    /**
+     * Whether a logger has filled up since the last cycle.
+     */
+    private boolean requested;
+
+    /**
+     * Whether the service is running.
+     */
+    private volatile boolean active;
+
+    /**
+     * Whether {@link #start(Executor)} has been called.
+     */
+    private volatile boolean started;
+
+    /**
+     * Counted down when the flushing loop exits.
+     */
+    private final CountDownLatch stopped;
+
+    /**
+     * Number of cycles that wrote at least one logger.
+     */
+    private volatile long cycles;
+
+    /**
+     * Number of logger writes, across all cycles.
+     */
+    private volatile long writes;
+
+    /**
+     * Duration of the last cycle that wrote data, in nanoseconds.
+     */
+    private volatile long lastCycleNanos;
+
+    /**
+     * Number of times the flushing loop has woken up, whether or not it
+     * wrote anything.
+     */
+    private volatile long wakeups;
+
+    /**
+     * Create a new FlushService.
+     * 
+     * @param maxChars Buffer size, in characters, that triggers a flush.
+     * @param maxDelay Longest time, in milliseconds, data waits before being flushed.
+     * @param durability How far to push data on each flush.
+     * @throws IllegalArgumentException if {@code maxChars} or {@code maxDelay} is not positive.
+     */
+    public FlushService(int maxChars, long maxDelay, Durability durability) {
+        if(maxChars <= 0) {
+            throw new IllegalArgumentException("Invalid flush size: " + maxChars);
+        }
+        if(maxDelay <= 0) {
+            throw new IllegalArgumentException("Invalid flush delay: " + maxDelay);
+        }
+        this.maxChars = maxChars;
+        this.maxDelay = maxDelay;
+        this.durability = Objects.requireNonNull(durability);
+        this.loggers = ConcurrentHashMap.newKeySet();
+        this.lock = new TimedLock(MetricsRegistry.getDefault().histogram(
+            "iottestbed_lock_wait_seconds", "Time spent waiting for contended locks.", "lock", "flush_service"));
+        this.wake = lock.newCondition();
+        this.stopped = new CountDownLatch(1);
+    }
+
+    /**
+     * Start flushing.
+     * 
+     * @param executor Executor to run the flushing loop on. The loop runs
+     *                 until the service is closed.
+     */
+    public void start(Executor executor) {
+        active = true;
+        started = true;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flushLoop();
+                } finally {
+                    stopped.countDown();
+                }
+            }
+        });
+    }
+
+    /**
+     * Start flushing a logger.
+     * 
+     * @param logger Logger to flush.
+     */
+    public void register(BufferedFileLogger logger) {
+        logger.setFlushService(this, maxChars);
+        loggers.add(logger);
+    }
+
+    /**
+     * Stop flushing a logger. Data still in the logger is not written.
+     * 
+     * @param logger Logger to stop flushing.
+     */
+    public void unregister(BufferedFileLogger logger) {
+        loggers.remove(logger);
+        logger.setFlushService(null, maxChars);
+    }
+
+    /**
+     * Ask for a cycle as soon as possible. Called by loggers that are full.
+     */
+    void requestFlush() {
+        lock.lock();
+        try {
+            requested = true;
+            wake.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of cycles that wrote at least one logger.
+     * 
+     * @return Number of cycles.
+     */
+    public long getCycles() {
+        return cycles;
+    }
+
+    /**
+     * Return the number of characters buffered in registered loggers and
+     * not yet written.
+     * 
+     * @return Number of characters.
+     */
+    public long getBufferedChars() {
+        long chars = 0;
+        for(BufferedFileLogger logger : loggers) {
+            chars += logger.size();
+        }
+        return chars;
+    }
+
+    /**
+     * Return the number of times the flushing loop has woken up, whether
+     * or not it wrote anything. An idle service wakes once per delay.
+     * 
+     * @return Number of wakeups.
+     */
+    public long getWakeups() {
+        return wakeups;
+    }
+
+    /**
+     * Return the number of logger writes, across all cycles.
+     * 
+     * @return Number of writes.
+     */
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * Return how long the last cycle that wrote data took.
+     * 
+     * @return Duration in nanoseconds.
+     */
+    public long getLastCycleNanos() {
+        return lastCycleNanos;
+    }
+
+    /**
+     * Stop the service, after writing every registered logger one last time.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            active = false;
+            wake.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            if(started) {
+                stopped.await();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run cycles until closed, then write everything.
+     */
+    private void flushLoop() {
+        while(active) {
+            wakeups++;
+            long wait = flushDue(false);
+
+            // sleep until the next logger is due, or one fills up
+            lock.lock();
+            try {
+                if(!requested && active) {
+                    wake.awaitNanos(TimeUnit.MILLISECONDS.toNanos(wait));
+                }
+                requested = false;
+            } catch(InterruptedException e) {
+                active = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        flushDue(true);
+    }
+
+    /**
+     * Write every logger that is due, then sync them if required.
+     * 
+     * @param all {@code true} to write every logger holding data.
+     * @return Milliseconds until the next logger is due.
+     */
+    private long flushDue(boolean all) {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        long next = maxDelay;
+        List<BufferedFileLogger> written = new ArrayList<BufferedFileLogger>();
+
+        for(BufferedFileLogger logger : loggers) {
+            // an empty logger is not due, however long since it was written
+            int size = logger.size();
+            if(size == 0) {
+                continue;
+            }
+
+            long age = now - logger.getOldest();
+            if(all || size >= maxChars || age >= maxDelay) {
+                if(logger.write()) {
+                    written.add(logger);
+                }
+            } else {
+                next = Math.min(next, Math.max(1, maxDelay - age));
+            }
+        }
+
+        // group commit: one pass of syncs after every write
+        if(durability == Durability.FSYNC) {
+            for(BufferedFileLogger logger : written) {
+                logger.sync();
+            }
+        }
+
+        if(!written.isEmpty()) {
+            cycles++;
+            writes += written.size();
+            lastCycleNanos = System.nanoTime() - start;
+            FLUSHES.record(lastCycleNanos);
+        }
+        return next;
+    }
+}
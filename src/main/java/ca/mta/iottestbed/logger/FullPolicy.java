@@ -0,0 +1,22 @@
+package ca.mta.iottestbed.logger;
+
+/**
+ * What a {@link RingBufferLogger} does with a message logged while it is full.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public enum FullPolicy {
+
+    /**
+     * Discard the new message and count it. The count is reported at the
+     * next flush.
+     */
+    DROP,
+
+    /**
+     * Wait until the drainer makes room. Only suitable when the logger is
+     * flushed frequently.
+     */
+    BLOCK
+}
@@ -4,7 +4,7 @@ package ca.mta.iottestbed.logger;
  * A logger, for writing messages to.
  * 
  * @author Hayden Walker
- * @version 2023-06-14
+ * @version 2026-10-17
  */
 public interface Logger {
 
@@ -14,4 +14,19 @@ public interface Logger {
      * @param message Message to log.
      */
     public void log(String message);
+
+    /**
+     * Log a structured event. By default, the event is formatted and logged
+     * as a message; loggers that can hold events as they are override this.
+     * 
+     * @param event Kind of event.
+     * @param first First field.
+     * @param second Second field.
+     * @param third Third field.
+     */
+    public default void log(Event event, long first, long second, long third) {
+        StringBuilder out = new StringBuilder();
+        event.format(out, first, second, third);
+        log(out.toString());
+    }
 }
@@ -0,0 +1,357 @@
+package ca.mta.iottestbed.logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * A logger that appends messages to pre-allocated, memory-mapped segment
+ * files. Logging a message copies its bytes into the mapped segment; the
+ * operating system writes the pages to disk in the background, or when
+ * {@link #sync()} is called.
+ *
+ * Segments are named {@code <name>.<index>.log} and hold one message per
+ * line. A new segment is started once a message no longer fits in the
+ * current one, so no message is split across segments. A message too long
+ * for an empty segment, newline included, is dropped and counted, since a
+ * truncated line could not be told from a whole one. Unused space at the
+ * end of a segment is filled with zero bytes, which never occur in a
+ * message, so reopening a logger after a crash finds the end of the last
+ * complete message and continues from there. Closing the logger trims the
+ * last segment to its contents.
+ *
+ * Messages are encoded as modified UTF-8: characters other than
+ * {@code '\u0000'} and supplementary characters are encoded exactly as in
+ * UTF-8.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class MappedSegmentLogger implements Closeable, Logger {
+
+    /**
+     * Default segment size, in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 24;
+
+    /**
+     * Suffix of segment file names.
+     */
+    private static final String SUFFIX = ".log";
+
+    /**
+     * Directory holding the segments.
+     */
+    private File directory;
+
+    /**
+     * Segment name, before the index.
+     */
+    private String name;
+
+    /**
+     * Size of each segment, in bytes.
+     */
+    private int segmentSize;
+
+    /**
+     * Index of the current segment.
+     */
+    private int index;
+
+    /**
+     * File holding the current segment.
+     */
+    private RandomAccessFile file;
+
+    /**
+     * Mapping of the current segment. Its position is the write position.
+     */
+    private MappedByteBuffer segment;
+
+    /**
+     * Whether the logger has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Messages dropped for being longer than a segment.
+     */
+    private long dropped;
+
+    /**
+     * Create a new {@code MappedSegmentLogger} with the default segment size.
+     *
+     * @param directory Directory to write segments to.
+     * @param name Segment name, before the index.
+     * @throws IOException if the last segment cannot be opened.
+     */
+    public MappedSegmentLogger(File directory, String name) throws IOException {
+        this(directory, name, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Create a new {@code MappedSegmentLogger}. If segments with this name
+     * already exist, logging continues after the last complete message in
+     * the last segment.
+     *
+     * @param directory Directory to write segments to.
+     * @param name Segment name, before the index.
+     * @param segmentSize Size of each segment, in bytes.
+     * @throws IOException if the last segment cannot be opened.
+     * @throws IllegalArgumentException if {@code segmentSize <= 0}
+     */
+    public MappedSegmentLogger(File directory, String name, int segmentSize) throws IOException {
+        if(segmentSize <= 0) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        this.directory = Objects.requireNonNull(directory);
+        this.name = Objects.requireNonNull(name);
+        this.segmentSize = segmentSize;
+
+        // continue the last segment, if there is one
+        File[] segments = segments(directory, name);
+        if(segments.length == 0) {
+            open(0);
+        } else {
+            open(index(segments[segments.length - 1], name));
+            recover();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void log(String message) {
+        if(closed) {
+            return;
+        }
+        String text = Objects.toString(message);
+
+        // a message longer than a segment would be split across two
+        int length = encodedLength(text) + 1;
+        if(length > segmentSize) {
+            dropped++;
+            return;
+        }
+
+        try {
+            // start a new segment if the message does not fit in this one
+            if(length > segment.remaining()) {
+                roll();
+            }
+
+            // copy the message into the segment
+            for(int i = 0; i < text.length(); i++) {
+                char character = text.charAt(i);
+                if(character >= 0x01 && character <= 0x7f) {
+                    segment.put((byte)character);
+                } else if(character <= 0x7ff) {
+                    segment.put((byte)(0xc0 | (character >> 6)));
+                    segment.put((byte)(0x80 | (character & 0x3f)));
+                } else {
+                    segment.put((byte)(0xe0 | (character >> 12)));
+                    segment.put((byte)(0x80 | ((character >> 6) & 0x3f)));
+                    segment.put((byte)(0x80 | (character & 0x3f)));
+                }
+            }
+            segment.put((byte)'\n');
+        } catch(IOException e) {
+            // the next segment could not be opened; drop the message
+        }
+    }
+
+    /**
+     * Wait until everything logged so far has reached the disk.
+     *
+     * @return {@code true} if successful.
+     */
+    public synchronized boolean sync() {
+        if(closed) {
+            return false;
+        }
+        segment.force();
+        return true;
+    }
+
+    /**
+     * Return the index of the segment being written.
+     *
+     * @return Segment index.
+     */
+    public synchronized int getSegment() {
+        return index;
+    }
+
+    /**
+     * Return the write position within the current segment.
+     *
+     * @return Bytes used in the current segment.
+     */
+    public synchronized int getPosition() {
+        return segment.position();
+    }
+
+    /**
+     * Return the number of messages dropped for being longer than a segment.
+     *
+     * @return Dropped messages.
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Return the segments written under a name, in order.
+     *
+     * @param directory Directory holding the segments.
+     * @param name Segment name, before the index.
+     * @return Segment files, oldest first.
+     */
+    public static File[] segments(File directory, String name) {
+        File[] files = directory.listFiles();
+        if(files == null) {
+            return new File[0];
+        }
+
+        // keep files named <name>.<index>.log
+        int count = 0;
+        for(File file : files) {
+            if(index(file, name) >= 0) {
+                files[count++] = file;
+            }
+        }
+        File[] segments = Arrays.copyOf(files, count);
+
+        Arrays.sort(segments, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Integer.compare(index(a, name), index(b, name));
+            }
+        });
+        return segments;
+    }
+
+    /**
+     * Sync the current segment, and trim it to its contents.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        segment.force();
+        file.setLength(segment.position());
+        file.close();
+    }
+
+    /**
+     * Finish the current segment and start the next one.
+     *
+     * @throws IOException if the next segment cannot be opened.
+     */
+    private void roll() throws IOException {
+        // trim the finished segment so it holds only messages
+        segment.force();
+        file.setLength(segment.position());
+        file.close();
+        open(index + 1);
+    }
+
+    /**
+     * Open and map a segment, pre-allocating it to the full segment size.
+     *
+     * @param index Segment index.
+     * @throws IOException if the segment cannot be opened.
+     */
+    private void open(int index) throws IOException {
+        File path = new File(directory, String.format("%s.%06d%s", name, index, SUFFIX));
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+
+        try {
+            file.setLength(segmentSize);
+            this.segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch(IOException e) {
+            file.close();
+            throw e;
+        }
+        this.file = file;
+        this.index = index;
+    }
+
+    /**
+     * Find the end of the last complete message in the current segment,
+     * and erase anything after it.
+     */
+    private void recover() {
+        // skip unused space at the end
+        int end = segment.capacity();
+        while(end > 0 && segment.get(end - 1) == 0) {
+            end--;
+        }
+
+        // skip a message that was only partly written
+        int position = end;
+        while(position > 0 && segment.get(position - 1) != '\n') {
+            position--;
+        }
+        for(int i = position; i < end; i++) {
+            segment.put(i, (byte)0);
+        }
+
+        segment.position(position);
+    }
+
+    /**
+     * Return the number of bytes a message takes, not counting the newline.
+     *
+     * @param text Message.
+     * @return Encoded length.
+     */
+    private static int encodedLength(String text) {
+        int length = 0;
+        for(int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if(character >= 0x01 && character <= 0x7f) {
+                length++;
+            } else if(character <= 0x7ff) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Return the index of a segment file.
+     *
+     * @param file Segment file.
+     * @param name Segment name, before the index.
+     * @return Segment index, or {@code -1} if the file is not a segment.
+     */
+    private static int index(File file, String name) {
+        String fileName = file.getName();
+        if(!fileName.startsWith(name + ".") || !fileName.endsWith(SUFFIX)) {
+            return -1;
+        }
+        String digits = fileName.substring(name.length() + 1, fileName.length() - SUFFIX.length());
+        if(digits.isEmpty() || digits.length() > 9) {
+            return -1;
+        }
+        for(int i = 0; i < digits.length(); i++) {
+            if(digits.charAt(i) < '0' || digits.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(digits);
+    }
+}
@@ -0,0 +1,296 @@
+package ca.mta.iottestbed.logger;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A logger backed by a fixed-size, lock-free ring of messages.
+ * 
+ * Any number of threads may log at once without taking a lock: each claims
+ * a slot with a single compare-and-set and publishes its message with a
+ * sequence number. One thread at a time drains the ring with {@link #flush()}.
+ * Timestamps are recorded as numbers when a message is logged, and only
+ * formatted when it is flushed. Events are held the same way, as their kind
+ * and fields, so logging one allocates nothing.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class RingBufferLogger implements Logger {
+
+    /**
+     * Default number of slots.
+     */
+    public static final int DEFAULT_CAPACITY = 65536;
+
+    /**
+     * Number of slots minus one. The capacity is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Logged messages.
+     */
+    private final AtomicReferenceArray<String> messages;
+
+    /**
+     * Kind of each event, or {@code null} for a plain message. Written
+     * before the slot's sequence, like {@link #times}.
+     */
+    private final Event[] events;
+
+    /**
+     * Three fields for each event.
+     */
+    private final long[] fields;
+
+    /**
+     * Time each message was logged, in milliseconds since the epoch.
+     * Written before the slot's sequence, so it is visible to the drainer.
+     */
+    private final long[] times;
+
+    /**
+     * Sequence number of each slot. A slot is free for the producer at
+     * position {@code p} when its sequence is {@code p}, and holds a message
+     * for the drainer when its sequence is {@code p + 1}.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * Next position to be claimed by a producer.
+     */
+    private final AtomicLong tail;
+
+    /**
+     * Next position to be drained. Only touched while holding the drain lock.
+     */
+    private volatile long head;
+
+    /**
+     * Number of messages discarded since the last flush.
+     */
+    private final AtomicLong dropped;
+
+    /**
+     * What to do when full.
+     */
+    private final FullPolicy policy;
+
+    /**
+     * Whether to write timestamps.
+     */
+    private volatile boolean timestampEnabled;
+
+    /**
+     * Create a new {@code RingBufferLogger} that drops messages when full.
+     */
+    public RingBufferLogger() {
+        this(DEFAULT_CAPACITY, FullPolicy.DROP);
+    }
+
+    /**
+     * Create a new {@code RingBufferLogger}.
+     * 
+     * @param capacity Number of messages held between flushes. Rounded up
+     *                 to a power of two.
+     * @param policy What to do when full.
+     * @throws IllegalArgumentException if {@code capacity <= 0} or {@code capacity > 2^30}
+     */
+    public RingBufferLogger(int capacity, FullPolicy policy) {
+        if(capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity) {
+            size <<= 1;
+        }
+
+        this.mask = size - 1;
+        this.messages = new AtomicReferenceArray<String>(size);
+        this.events = new Event[size];
+        this.fields = new long[3 * size];
+        this.times = new long[size];
+        this.sequences = new AtomicLongArray(size);
+        for(int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.tail = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.policy = Objects.requireNonNull(policy);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void log(String message) {
+        long time = timestampEnabled ? System.currentTimeMillis() : 0;
+        String text = Objects.toString(message);
+
+        while(!offer(text, null, 0, 0, 0, time)) {
+            if(policy == FullPolicy.DROP) {
+                dropped.incrementAndGet();
+                return;
+            }
+            LockSupport.parkNanos(1000);
+        }
+    }
+
+    /**
+     * Log an event, which is formatted when the logger is flushed.
+     * 
+     * @param event Kind of event.
+     * @param first First field.
+     * @param second Second field.
+     * @param third Third field.
+     */
+    @Override
+    public void log(Event event, long first, long second, long third) {
+        long time = timestampEnabled ? System.currentTimeMillis() : 0;
+        Objects.requireNonNull(event);
+
+        while(!offer(null, event, first, second, third, time)) {
+            if(policy == FullPolicy.DROP) {
+                dropped.incrementAndGet();
+                return;
+            }
+            LockSupport.parkNanos(1000);
+        }
+    }
+
+    /**
+     * Try to claim a slot and publish a message or an event.
+     * 
+     * @param message Message to publish, or {@code null} for an event.
+     * @param event Event to publish, or {@code null} for a message.
+     * @param first First event field.
+     * @param second Second event field.
+     * @param third Third event field.
+     * @param time Time logged.
+     * @return {@code false} if the ring is full.
+     */
+    private boolean offer(String message, Event event, long first, long second, long third, long time) {
+        long position = tail.get();
+
+        while(true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+
+            // slot is free: claim it
+            if(difference == 0) {
+                if(tail.compareAndSet(position, position + 1)) {
+                    times[index] = time;
+                    events[index] = event;
+                    fields[3 * index] = first;
+                    fields[3 * index + 1] = second;
+                    fields[3 * index + 2] = third;
+                    messages.lazySet(index, message);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            }
+
+            // slot still holds a message from one lap ago: full
+            else if(difference < 0) {
+                return false;
+            }
+
+            // another producer claimed this position: try the next
+            else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Return the logged messages and empty the logger. Messages are
+     * returned in the order their slots were claimed.
+     * 
+     * @return Logged messages, one per line.
+     */
+    public String flush() {
+        StringBuilder out = new StringBuilder();
+        drainTo(out);
+        return out.toString();
+    }
+
+    /**
+     * Print and flush the logger contents.
+     */
+    public void printFlush() {
+        System.out.print(flush());
+    }
+
+    /**
+     * Append the logged messages to a StringBuilder and empty the logger.
+     * 
+     * @param out Destination.
+     * @return Number of messages drained.
+     */
+    public synchronized int drainTo(StringBuilder out) {
+        int count = 0;
+
+        while(true) {
+            int index = (int) head & mask;
+
+            // stop at the first slot not yet published
+            if(sequences.get(index) != head + 1) {
+                break;
+            }
+
+            // copy the slot out before handing it back to producers
+            String message = messages.get(index);
+            Event event = events[index];
+            long time = times[index];
+            long first = fields[3 * index];
+            long second = fields[3 * index + 1];
+            long third = fields[3 * index + 2];
+            messages.lazySet(index, null);
+            events[index] = null;
+            sequences.set(index, head + mask + 1);
+            head++;
+            count++;
+
+            // format the line
+            if(time != 0) {
+                out.append('[');
+                Timestamp.append(time, out);
+                out.append("] ");
+            }
+            if(event != null) {
+                event.format(out, first, second, third);
+            } else {
+                out.append(message);
+            }
+            out.append('\n');
+        }
+
+        long lost = dropped.getAndSet(0);
+        if(lost > 0) {
+            out.append("[").append(lost).append(" messages dropped]\n");
+        }
+        return count;
+    }
+
+    /**
+     * Return the number of messages waiting to be flushed.
+     * 
+     * @return Approximate number of messages.
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    /**
+     * Enable or disable timestamps.
+     * 
+     * @param status {@code true} to enable timestamps.
+     */
+    public void timestampEnabled(boolean status) {
+        this.timestampEnabled = status;
+    }
+}
@@ -5,32 +5,234 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
 /**
- * A timestamp.
- * 
+ * A timestamp, formatted as an ISO local date and time in the system time
+ * zone, such as {@code 2026-10-17T14:03:27.125}. As with
+ * {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME}, trailing zeros of the
+ * milliseconds are left out, and so is the dot when there are none.
+ *
+ * Formatting a time is done with a few recently used seconds cached, each
+ * as its formatted date, hours, minutes, and seconds, so that only the
+ * milliseconds are written each time. The static {@code format} and
+ * {@code append} methods write straight into a buffer and allocate nothing
+ * unless the second is not cached.
+ *
  * @author Hayden Walker
- * @version 2023-06-15
+ * @version 2026-10-17
  */
 public class Timestamp {
+
+    /**
+     * Longest formatted timestamp, in characters, for years 0 to 9999.
+     */
+    public static final int MAX_LENGTH = 23;
+
+    /**
+     * Formats the date and time to the second.
+     */
+    private static final DateTimeFormatter FORMATTER =
+        DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    /**
+     * Number of seconds cached. A power of two.
+     */
+    private static final int CACHED = 16;
+
+    /**
+     * Recently formatted seconds, by second modulo {@link #CACHED}. Entries
+     * are immutable, so threads may replace them without locking.
+     */
+    private static final Second[] CACHE = new Second[CACHED];
+
+    /**
+     * Wall clock time, in nanoseconds since the epoch, when {@link #TICKS} was read.
+     */
+    private static final long ORIGIN = System.currentTimeMillis() * 1000000L;
+
+    /**
+     * {@link System#nanoTime()} when {@link #ORIGIN} was read.
+     */
+    private static final long TICKS = System.nanoTime();
+
     /**
-     * Timestamp as String.
+     * A second and its formatted date and time.
      */
-    private String timestamp;
+    private static final class Second {
+
+        /**
+         * Seconds since the epoch.
+         */
+        final long second;
+
+        /**
+         * Formatted date and time, to the second.
+         */
+        final char[] prefix;
+
+        /**
+         * Create a new {@code Second}.
+         *
+         * @param second Seconds since the epoch.
+         */
+        Second(long second) {
+            this.second = second;
+            this.prefix = FORMATTER.format(Instant.ofEpochSecond(second)).toCharArray();
+        }
+    }
 
     /**
-     * Create a new {@code Timestamp}.
+     * Time, in milliseconds since the epoch.
+     */
+    private final long millis;
+
+    /**
+     * Create a new {@code Timestamp} for the current time.
      */
     public Timestamp() {
-        DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME.withZone(ZoneId.systemDefault()); 
-        timestamp = formatter.format(Instant.now());   
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * Create a new {@code Timestamp} for a given time.
+     *
+     * @param milliseconds Milliseconds since the epoch.
+     */
+    public Timestamp(long milliseconds) {
+        this.millis = milliseconds;
+    }
+
+    /**
+     * Return the time.
+     *
+     * @return Milliseconds since the epoch.
+     */
+    public long getMillis() {
+        return millis;
     }
 
     /**
      * Return the Timestamp as a String.
-     * 
+     *
      * @return Timestamp as String.
      */
     @Override
     public String toString() {
-        return timestamp;
-    }   
+        StringBuilder out = new StringBuilder(MAX_LENGTH);
+        append(millis, out);
+        return out.toString();
+    }
+
+    /**
+     * Return the current time, for logs that store times as numbers.
+     *
+     * @return Milliseconds since the epoch.
+     */
+    public static long epochMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Return the current time in nanoseconds, for ordering and timing
+     * events finer than a millisecond. It follows {@link System#nanoTime()}
+     * from the moment this class was loaded, so it does not go backwards,
+     * but it can drift from the wall clock over a long run.
+     *
+     * @return Nanoseconds since the epoch.
+     */
+    public static long epochNanos() {
+        return ORIGIN + (System.nanoTime() - TICKS);
+    }
+
+    /**
+     * Append a formatted time.
+     *
+     * @param millis Milliseconds since the epoch.
+     * @param out Destination.
+     */
+    public static void append(long millis, StringBuilder out) {
+        out.append(second(millis).prefix);
+        int fraction = (int)Math.floorMod(millis, 1000L);
+        if(fraction == 0) {
+            return;
+        }
+        out.append('.').append((char)('0' + fraction / 100));
+        if(fraction % 100 != 0) {
+            out.append((char)('0' + fraction / 10 % 10));
+            if(fraction % 10 != 0) {
+                out.append((char)('0' + fraction % 10));
+            }
+        }
+    }
+
+    /**
+     * Write a formatted time into a char array.
+     *
+     * @param millis Milliseconds since the epoch.
+     * @param out Destination, with room for {@link #MAX_LENGTH} characters.
+     * @param offset Where to start writing.
+     * @return Position after the last character written.
+     */
+    public static int format(long millis, char[] out, int offset) {
+        char[] prefix = second(millis).prefix;
+        System.arraycopy(prefix, 0, out, offset, prefix.length);
+        int position = offset + prefix.length;
+        int fraction = (int)Math.floorMod(millis, 1000L);
+        if(fraction == 0) {
+            return position;
+        }
+        out[position++] = '.';
+        out[position++] = (char)('0' + fraction / 100);
+        if(fraction % 100 != 0) {
+            out[position++] = (char)('0' + fraction / 10 % 10);
+            if(fraction % 10 != 0) {
+                out[position++] = (char)('0' + fraction % 10);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Write a formatted time into a byte array, as ASCII.
+     *
+     * @param millis Milliseconds since the epoch.
+     * @param out Destination, with room for {@link #MAX_LENGTH} bytes.
+     * @param offset Where to start writing.
+     * @return Position after the last byte written.
+     */
+    public static int format(long millis, byte[] out, int offset) {
+        char[] prefix = second(millis).prefix;
+        int position = offset;
+        for(char character : prefix) {
+            out[position++] = (byte)character;
+        }
+        int fraction = (int)Math.floorMod(millis, 1000L);
+        if(fraction == 0) {
+            return position;
+        }
+        out[position++] = '.';
+        out[position++] = (byte)('0' + fraction / 100);
+        if(fraction % 100 != 0) {
+            out[position++] = (byte)('0' + fraction / 10 % 10);
+            if(fraction % 10 != 0) {
+                out[position++] = (byte)('0' + fraction % 10);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Return the cached second holding a time, formatting it if needed.
+     *
+     * @param millis Milliseconds since the epoch.
+     * @return Second holding the time.
+     */
+    private static Second second(long millis) {
+        long second = Math.floorDiv(millis, 1000L);
+        int slot = (int)second & (CACHED - 1);
+        Second cached = CACHE[slot];
+        if(cached == null || cached.second != second) {
+            cached = new Second(second);
+            CACHE[slot] = cached;
+        }
+        return cached;
+    }
 }
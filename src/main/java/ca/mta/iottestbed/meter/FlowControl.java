@@ -0,0 +1,233 @@
+package ca.mta.iottestbed.meter;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import ca.mta.iottestbed.metrics.Counter;
+import ca.mta.iottestbed.metrics.Gauge;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+import ca.mta.iottestbed.network.Connection;
+import ca.mta.iottestbed.network.Frame;
+import ca.mta.iottestbed.network.Protocol;
+
+/**
+ * Grants sensors credit to send reports, and holds it back while the meter
+ * is behind.
+ *
+ * Each sensor is granted a window of credits when its session opens, and
+ * uses one for every report or batch. Once it has used half the window,
+ * the credits are given back, unless the meter's backlog is over its limit;
+ * then the sensor is throttled, and its credits are given back once the
+ * meter has caught up. What the backlog measures depends on how the meter
+ * persists readings, such as characters the flush service has yet to
+ * write. Sensors that speak text are never granted credit, and are not
+ * limited.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class FlowControl {
+
+    /**
+     * Default credits granted to each sensor.
+     */
+    static final int DEFAULT_WINDOW = 32;
+
+    /**
+     * Default largest number of unwritten log characters before sensors
+     * are throttled.
+     */
+    static final long DEFAULT_MAX_BUFFERED_CHARS = 16L * 1024 * 1024;
+
+    /**
+     * Milliseconds between checks of the meter's load.
+     */
+    private static final long INTERVAL = 100;
+
+    /**
+     * Meter's name, labelling its metrics.
+     */
+    private final String meter;
+
+    /**
+     * Credits granted to each sensor.
+     */
+    private final int window;
+
+    /**
+     * Meter's backlog, read at every check.
+     */
+    private final Gauge backlog;
+
+    /**
+     * Largest backlog before sensors are throttled.
+     */
+    private final long maxBacklog;
+
+    /**
+     * Sessions of every connected sensor.
+     */
+    private final Collection<SensorSession> sessions;
+
+    /**
+     * Sensors waiting for the meter to catch up.
+     */
+    private final Queue<SensorSession> throttled;
+
+    /**
+     * Times credit was held back.
+     */
+    private final Counter withheld;
+
+    /**
+     * Whether the meter was behind at the last check.
+     */
+    private volatile boolean overloaded;
+
+    /**
+     * Whether the check should stop.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Create a new FlowControl. Call {@link #start(Executor)} to watch the
+     * meter's load.
+     *
+     * @param meter Meter's name.
+     * @param window Credits granted to each sensor.
+     * @param backlog Meter's backlog, read at every check.
+     * @param maxBacklog Largest backlog before sensors are throttled.
+     * @param sessions Sessions of every connected sensor.
+     */
+    FlowControl(String meter, int window, Gauge backlog, long maxBacklog, Collection<SensorSession> sessions) {
+        this.meter = meter;
+        this.window = window;
+        this.backlog = backlog;
+        this.maxBacklog = maxBacklog;
+        this.sessions = sessions;
+        this.throttled = new ConcurrentLinkedQueue<SensorSession>();
+
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        this.withheld = metrics.counter("iottestbed_meter_credit_withheld_total",
+            "Times a meter held back a sensor's credit because it was behind.", "meter", meter);
+        metrics.register("iottestbed_meter_throttled_sensors", "Sensors waiting for a meter to catch up.", new Gauge() {
+            @Override
+            public long get() {
+                return throttled.size();
+            }
+        }, "meter", meter);
+        metrics.register("iottestbed_meter_outstanding_credits", "Reports and batches sensors may still send a meter.", new Gauge() {
+            @Override
+            public long get() {
+                return getOutstanding();
+            }
+        }, "meter", meter);
+    }
+
+    /**
+     * Start checking the meter's load, and giving throttled sensors their
+     * credits back once it has caught up.
+     *
+     * @param executor Executor to run the check on.
+     */
+    void start(Executor executor) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                while(!closed) {
+                    overloaded = backlog.get() > maxBacklog;
+                    if(!overloaded) {
+                        release();
+                    }
+                    try {
+                        Thread.sleep(INTERVAL);
+                    } catch(InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop checking the meter's load, and remove its metrics.
+     */
+    void close() {
+        closed = true;
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.remove("iottestbed_meter_credit_withheld_total", "meter", meter);
+        metrics.remove("iottestbed_meter_throttled_sensors", "meter", meter);
+        metrics.remove("iottestbed_meter_outstanding_credits", "meter", meter);
+    }
+
+    /**
+     * Grant a new sensor its window.
+     *
+     * @param session Sensor's session.
+     */
+    void open(SensorSession session) {
+        grant(session, window);
+    }
+
+    /**
+     * Note that a sensor sent a report or batch, and give its credits back
+     * once it has used half its window, unless the meter is behind.
+     *
+     * @param session Sensor's session.
+     */
+    void used(SensorSession session) {
+        if(session.useCredit() < window / 2) {
+            return;
+        }
+        if(!overloaded) {
+            grant(session, session.takeUsedCredits());
+        } else if(session.setThrottled(true)) {
+            withheld.increment();
+            throttled.add(session);
+        }
+    }
+
+    /**
+     * Return the number of reports and batches sensors may still send.
+     *
+     * @return Credits granted and not used.
+     */
+    long getOutstanding() {
+        long outstanding = 0;
+        for(SensorSession session : sessions) {
+            if(session.getConnection().getProtocol() == Protocol.BINARY) {
+                outstanding += Math.max(0, window - session.getUsedCredits());
+            }
+        }
+        return outstanding;
+    }
+
+    /**
+     * Give every throttled sensor its credits back.
+     */
+    private void release() {
+        SensorSession session;
+        while((session = throttled.poll()) != null) {
+            session.setThrottled(false);
+            grant(session, session.takeUsedCredits());
+        }
+    }
+
+    /**
+     * Send credits to a sensor that speaks binary.
+     *
+     * @param session Sensor's session.
+     * @param credits Credits to grant.
+     */
+    private void grant(SensorSession session, int credits) {
+        Connection connection = session.getConnection();
+        if(credits <= 0 || connection.getProtocol() != Protocol.BINARY) {
+            return;
+        }
+        Frame frame = new Frame();
+        frame.setCredit(session.getDevice(), credits);
+        connection.send(frame);
+    }
+}
@@ -1,37 +1,129 @@
 package ca.mta.iottestbed.meter;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-import ca.mta.iottestbed.logger.BufferedLogger;
+import ca.mta.iottestbed.concurrent.ExecutionMode;
+import ca.mta.iottestbed.detect.Anomaly;
+import ca.mta.iottestbed.detect.AnomalyDetector;
+import ca.mta.iottestbed.detect.AnomalyListener;
+import ca.mta.iottestbed.discovery.Discovery;
+import ca.mta.iottestbed.discovery.Responder;
+import ca.mta.iottestbed.logger.RingBufferLogger;
 import ca.mta.iottestbed.logger.Timestamp;
+import ca.mta.iottestbed.logger.BinaryEventLogger;
 import ca.mta.iottestbed.logger.BufferedFileLogger;
+import ca.mta.iottestbed.logger.Durability;
+import ca.mta.iottestbed.logger.FlushService;
+import ca.mta.iottestbed.logger.Logger;
+import ca.mta.iottestbed.logger.MappedSegmentLogger;
+import ca.mta.iottestbed.metrics.Counter;
+import ca.mta.iottestbed.metrics.Gauge;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+import ca.mta.iottestbed.metrics.MetricsServer;
 import ca.mta.iottestbed.network.Connection;
+import ca.mta.iottestbed.network.Frame;
+import ca.mta.iottestbed.network.FrameHandler;
 import ca.mta.iottestbed.network.Listener;
+import ca.mta.iottestbed.network.MessageType;
+import ca.mta.iottestbed.network.Protocol;
+import ca.mta.iottestbed.network.Reactor;
+import ca.mta.iottestbed.stats.StatisticsStage;
+import ca.mta.iottestbed.store.BucketCursor;
+import ca.mta.iottestbed.store.Downsampler;
+import ca.mta.iottestbed.store.SeriesCursor;
+import ca.mta.iottestbed.store.SeriesStore;
 
 /**
  * A smart meter that reads data from sensors over the network.
  * 
  * @author Hayden Walker
- * @version 2023-06-15
+ * @version 2026-10-17
  */
 public class Meter {
 
     /**
-     * The port that the meter will listen on for information from sensors.
+     * By default, the port that the meter will listen on for information from sensors.
      */
-    private static final int LISTENING_PORT = 5006;
+    public static final int DEFAULT_LISTENING_PORT = 5006;
 
     /**
-     * The port that the meter will use to send information to sensors.
+     * By default, the port that the meter will use to send information to sensors.
      */
-    private static final int SENDING_PORT = 5005;
+    public static final int DEFAULT_SENDING_PORT = 5005;
+
+    /**
+     * Number of event loop threads serving sensor connections.
+     */
+    private static final int EVENT_LOOPS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Maximum number of sensor connections waiting to be accepted.
+     */
+    private static final int BACKLOG = 4096;
+
+    /**
+     * Largest share, in percent, of the serving threads' time a meter
+     * writing to a store or to segments may spend recording readings
+     * before sensors are throttled.
+     */
+    private static final long MAX_RECORDING_PERCENT = 50;
+
+    /**
+     * Default buffer size, in characters, at which a sensor log is written.
+     */
+    private static final int DEFAULT_FLUSH_CHARS = 65536;
+
+    /**
+     * Default longest time, in milliseconds, a reading waits before being written.
+     */
+    private static final long DEFAULT_FLUSH_DELAY = 1000;
+
+    /**
+     * Default number of sensors asked to report at once while starting.
+     */
+    private static final int DEFAULT_BOOTSTRAP_PARALLELISM = 64;
+
+    /**
+     * Default longest time, in milliseconds, to wait to connect to a sensor.
+     */
+    private static final int DEFAULT_CONNECT_TIMEOUT = 2000;
+
+    /**
+     * Default number of times to try each sensor.
+     */
+    private static final int DEFAULT_CONNECT_ATTEMPTS = 3;
+
+    /**
+     * Milliseconds before trying a sensor a second time, doubling after.
+     */
+    private static final long RETRY_DELAY = 250;
+
+    /**
+     * Longest time, in milliseconds, a stopping meter waits for its loops.
+     */
+    private static final long STOP_TIMEOUT = 5000;
 
     /**
      * Set of active connections.
@@ -39,10 +131,22 @@ public class Meter {
     private Set<Connection> connections;
 
     /**
-     * Logs for each sensor's data. Keys are sensor names,
-     * and values are the logs.
+     * Session of each connected sensor, by interned device id. The thread
+     * handling a connection finds the sessions of the sensors it carries
+     * attached to the connection, so only opening and closing a session
+     * touch this map.
+     */
+    private Map<String, SensorSession> sessions;
+
+    /**
+     * Running statistics of every sensor's readings.
+     */
+    private StatisticsStage statistics;
+
+    /**
+     * Checks readings against the sensors' curves.
      */
-    private Map<Connection, BufferedFileLogger> messageLogs;
+    private AnomalyDetector detector;
 
     /**
      * Meter's name.
@@ -52,73 +156,772 @@ public class Meter {
     /**
      * Log of network activity.
      */
-    private BufferedLogger networkLog;
+    private RingBufferLogger networkLog;
 
     /**
-     * Create a new {@code Meter} object.
+     * Where sensor connections log their events: the network log, or a
+     * binary event log.
+     */
+    private Logger connectionLog;
+
+    /**
+     * Writes sensor logs to disk in the background.
+     */
+    private FlushService flusher;
+
+    /**
+     * Buffer size, in characters, at which a sensor log is written.
+     */
+    private int flushChars;
+
+    /**
+     * Longest time, in milliseconds, a reading waits before being written.
+     */
+    private long flushDelay;
+
+    /**
+     * How far sensor logs are pushed on each write.
+     */
+    private Durability durability;
+
+    /**
+     * Size of memory-mapped log segments, in bytes, or 0 to write CSV files.
+     */
+    private int segmentSize;
+
+    /**
+     * Sensor time series, or {@code null} to write logs.
+     */
+    private SeriesStore store;
+
+    /**
+     * Rolls stored readings up into tiers, when readings are stored.
+     */
+    private Downsampler downsampler;
+
+    /**
+     * Port to listen for sensors on.
+     */
+    private int listeningPort;
+
+    /**
+     * Port to ask sensors to connect on.
+     */
+    private int sendingPort;
+
+    /**
+     * Told about every reading.
+     */
+    private List<ReadingListener> readingListeners;
+
+    /**
+     * Whether network activity is printed periodically.
+     */
+    private boolean printing;
+
+    /**
+     * Kind of threads used for the meter's loops.
+     */
+    private ExecutionMode mode;
+
+    /**
+     * Port to serve metrics on, or {@code -1} for none.
+     */
+    private int metricsPort;
+
+    /**
+     * Address to serve metrics on.
+     */
+    private InetAddress metricsAddress;
+
+    /**
+     * Serves metrics, once started.
+     */
+    private MetricsServer metricsServer;
+
+    /**
+     * Accepts and serves connections on platform threads, once started.
+     */
+    private Reactor reactor;
+
+    /**
+     * Accepts connections on virtual threads, once started.
+     */
+    private Listener listener;
+
+    /**
+     * Released when the meter stops.
+     */
+    private CountDownLatch stopping;
+
+    /**
+     * Readings taken in.
+     */
+    private Counter readings;
+
+    /**
+     * Anomalies detected.
+     */
+    private Counter anomalies;
+
+    /**
+     * Number of sensors asked to report at once while starting.
+     */
+    private int bootstrapParallelism;
+
+    /**
+     * Longest time, in milliseconds, to wait to connect to a sensor.
+     */
+    private int connectTimeout;
+
+    /**
+     * Number of times to try each sensor.
+     */
+    private int connectAttempts;
+
+    /**
+     * Milliseconds from starting until every sensor given to
+     * {@link #start(String[])} was asked to report or given up on, or
+     * {@code -1} until then.
+     */
+    private Gauge startup;
+
+    /**
+     * Sensors tried again while starting.
+     */
+    private Counter bootstrapRetries;
+
+    /**
+     * Sensors given up on while starting.
+     */
+    private Counter bootstrapFailures;
+
+    /**
+     * Credits granted to each sensor, or 0 to not limit sensors.
+     */
+    private int creditWindow;
+
+    /**
+     * Largest number of unwritten log characters before sensors are throttled.
+     */
+    private long maxBufferedChars;
+
+    /**
+     * Grants sensors credit, once started, unless sensors are not limited.
+     */
+    private FlowControl flow;
+
+    /**
+     * Time spent recording readings, in nanoseconds.
+     */
+    private LongAdder recordingNanos;
+
+    /**
+     * Multicast group to find sensors on, or {@code null} to find none.
+     */
+    private InetSocketAddress discoveryGroup;
+
+    /**
+     * Interface to find sensors on, or {@code null} for the system default.
+     */
+    private NetworkInterface discoveryInterface;
+
+    /**
+     * Invites discovered sensors, once started.
+     */
+    private Responder responder;
+
+    /**
+     * Runs the meter's listener, monitor, and flushing loops.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Create a new {@code Meter} object that runs on platform threads.
      * 
      * @param name Name of Meter.
      */
     public Meter(String name) {
-        this.connections = Collections.synchronizedSet(new HashSet<Connection>());
+        this(name, ExecutionMode.PLATFORM);
+    }
+
+    /**
+     * Create a new {@code Meter} object.
+     * 
+     * With {@link ExecutionMode#PLATFORM}, sensor connections are served by a
+     * {@link Reactor} on a few event loop threads. With {@link ExecutionMode#VIRTUAL},
+     * every sensor connection is monitored by its own virtual thread using
+     * blocking reads.
+     * 
+     * @param name Name of Meter.
+     * @param mode Kind of threads to run on.
+     * @throws UnsupportedOperationException if {@code mode} is not available in this JVM.
+     */
+    public Meter(String name, ExecutionMode mode) {
+        this.mode = mode;
+        this.executor = mode.newExecutor("meter-" + name);
+        this.connections = ConcurrentHashMap.newKeySet();
         this.name = name;
-        this.networkLog = new BufferedLogger();
+        this.networkLog = new RingBufferLogger();
         this.networkLog.timestampEnabled(true);
-        this.messageLogs = Collections.synchronizedMap(new HashMap<Connection, BufferedFileLogger>());
+        this.connectionLog = networkLog;
+        this.sessions = new ConcurrentHashMap<String, SensorSession>();
+        this.statistics = new StatisticsStage();
+        this.readings = MetricsRegistry.getDefault().counter(
+            "iottestbed_meter_readings_total", "Readings taken in by a meter.", "meter", name);
+        this.anomalies = MetricsRegistry.getDefault().counter(
+            "iottestbed_meter_anomalies_total", "Anomalies detected by a meter.", "meter", name);
+        this.detector = new AnomalyDetector();
+        this.detector.addListener(new AnomalyListener() {
+            @Override
+            public void onAnomaly(String device, Anomaly anomaly, long timestamp, double expected, double actual) {
+                anomalies.increment();
+                networkLog.log("Anomaly " + anomaly + " from " + device + " at " + new Timestamp(timestamp)
+                    + ": expected " + expected + ", got " + actual);
+            }
+        });
+        this.flushChars = DEFAULT_FLUSH_CHARS;
+        this.flushDelay = DEFAULT_FLUSH_DELAY;
+        this.durability = Durability.WRITE;
+        this.listeningPort = DEFAULT_LISTENING_PORT;
+        this.sendingPort = DEFAULT_SENDING_PORT;
+        this.readingListeners = new CopyOnWriteArrayList<ReadingListener>();
+        this.printing = true;
+        this.metricsPort = -1;
+        this.metricsAddress = InetAddress.getLoopbackAddress();
+        this.stopping = new CountDownLatch(1);
+        this.bootstrapParallelism = DEFAULT_BOOTSTRAP_PARALLELISM;
+        this.connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        this.connectAttempts = DEFAULT_CONNECT_ATTEMPTS;
+        this.creditWindow = FlowControl.DEFAULT_WINDOW;
+        this.maxBufferedChars = FlowControl.DEFAULT_MAX_BUFFERED_CHARS;
+        this.recordingNanos = new LongAdder();
+        this.startup = MetricsRegistry.getDefault().gauge(
+            "iottestbed_meter_startup_milliseconds", "Time a meter took to ask every given sensor to report, or -1 until done.", "meter", name);
+        this.startup.set(-1);
+        this.bootstrapRetries = MetricsRegistry.getDefault().counter(
+            "iottestbed_meter_bootstrap_retries_total", "Sensors a starting meter tried again.", "meter", name);
+        this.bootstrapFailures = MetricsRegistry.getDefault().counter(
+            "iottestbed_meter_bootstrap_failures_total", "Sensors a starting meter could not reach.", "meter", name);
+    }
+
+    /**
+     * Serve metrics over HTTP at {@code /metrics} once started, in the
+     * Prometheus text format. Call before {@link #start(String[])}.
+     * 
+     * @param port Port to serve on, 0 for any free port, or {@code -1} for none.
+     * @throws IllegalArgumentException if {@code port} is out of range.
+     */
+    public void setMetricsPort(int port) {
+        if(port < -1 || port > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid metrics port: " + port);
+        }
+        this.metricsPort = port;
+    }
+
+    /**
+     * Set the address metrics are served on. Only the local machine can
+     * read them by default. Call before {@link #start(String[])}.
+     * 
+     * @param address Address to serve on, or the wildcard address for every interface.
+     */
+    public void setMetricsAddress(InetAddress address) {
+        this.metricsAddress = Objects.requireNonNull(address);
+    }
+
+    /**
+     * Set whether network activity is printed every 30 seconds. It is
+     * printed by default.
+     * 
+     * @param printing {@code true} to print network activity.
+     */
+    public void setPrinting(boolean printing) {
+        this.printing = printing;
+    }
+
+    /**
+     * Set the ports the meter uses. By default, the meter listens on port
+     * 5006 and reaches sensors on port 5005. Call before {@link #start(String[])}.
+     * 
+     * @param listeningPort Port to listen for sensors on.
+     * @param sendingPort Port to reach sensors on.
+     * @throws IllegalArgumentException if a port is out of range.
+     */
+    public void setPorts(int listeningPort, int sendingPort) {
+        if(listeningPort < 0 || listeningPort > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid listening port: " + listeningPort);
+        }
+        if(sendingPort <= 0 || sendingPort > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid sending port: " + sendingPort);
+        }
+        this.listeningPort = listeningPort;
+        this.sendingPort = sendingPort;
+    }
+
+    /**
+     * Set how the sensors given to {@link #start(String[])} are asked to
+     * report. Up to {@code parallelism} sensors are contacted at once, each
+     * connection attempt gives up after {@code connectTimeout} milliseconds,
+     * and each sensor is tried up to {@code attempts} times, waiting a
+     * random, doubling delay in between. By default, 64 sensors are
+     * contacted at once, and each is tried 3 times for up to 2 seconds.
+     * Call before {@link #start(String[])}.
+     * 
+     * @param parallelism Number of sensors contacted at once.
+     * @param connectTimeout Longest time, in milliseconds, to wait to connect.
+     * @param attempts Number of times to try each sensor.
+     * @throws IllegalArgumentException if any argument is not positive.
+     */
+    public void setBootstrap(int parallelism, int connectTimeout, int attempts) {
+        if(parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        if(connectTimeout <= 0) {
+            throw new IllegalArgumentException("Invalid connect timeout: " + connectTimeout);
+        }
+        if(attempts <= 0) {
+            throw new IllegalArgumentException("Invalid attempts: " + attempts);
+        }
+        this.bootstrapParallelism = parallelism;
+        this.connectTimeout = connectTimeout;
+        this.connectAttempts = attempts;
+    }
+
+    /**
+     * Return how long the meter took to start: from {@link #start(String[])}
+     * being called until every sensor given to it was asked to report, or
+     * given up on.
+     * 
+     * @return Milliseconds, or {@code -1} if still starting.
+     */
+    public long getStartupMillis() {
+        return startup.get();
+    }
+
+    /**
+     * Set how sensors are kept from sending faster than the meter can write.
+     * Each sensor that speaks binary may send {@code window} reports or
+     * batches ahead, and is granted more as the meter handles them. While
+     * more than {@code maxBufferedChars} characters of CSV logs wait to be
+     * written, no more credit is granted, so sensors queue readings and
+     * send larger batches instead. A meter writing to a store or to
+     * segments holds credit back instead while recording readings keeps
+     * its threads more than half busy. By default, the window is 32 and up
+     * to 16 Mi characters may wait. Call before {@link #start(String[])}.
+     * 
+     * @param window Credits granted to each sensor, or 0 to not limit sensors.
+     * @param maxBufferedChars Largest number of unwritten log characters before sensors are throttled.
+     * @throws IllegalArgumentException if {@code window} is negative or {@code maxBufferedChars} is not positive.
+     */
+    public void setFlowControl(int window, long maxBufferedChars) {
+        if(window < 0) {
+            throw new IllegalArgumentException("Invalid credit window: " + window);
+        }
+        if(maxBufferedChars <= 0) {
+            throw new IllegalArgumentException("Invalid buffered limit: " + maxBufferedChars);
+        }
+        this.creditWindow = window;
+        this.maxBufferedChars = maxBufferedChars;
+    }
+
+    /**
+     * Find sensors announcing themselves on a multicast group, and invite
+     * them to report to this meter, a bounded number at a time. See
+     * {@link Responder}. Call before {@link #start(String[])}.
+     * 
+     * @param group Multicast group and port, or {@code null} to find none.
+     * @param networkInterface Interface to find sensors on, or {@code null} for the system default.
+     */
+    public void setDiscovery(InetSocketAddress group, NetworkInterface networkInterface) {
+        this.discoveryGroup = group;
+        this.discoveryInterface = networkInterface;
+    }
+
+    /**
+     * Tell a listener about every reading the meter takes in.
+     * 
+     * @param listener Listener to add.
+     */
+    public void addReadingListener(ReadingListener listener) {
+        readingListeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Set when sensor logs are written to disk. A log is written once it
+     * holds {@code maxChars} characters, or its oldest reading has waited
+     * {@code maxDelay} milliseconds, whichever comes first. By default, logs
+     * are written at 64 KiB or after one second, without syncing. Call before
+     * {@link #start(String[])}.
+     * 
+     * @param maxChars Buffer size, in characters, that triggers a write.
+     * @param maxDelay Longest time, in milliseconds, a reading waits.
+     * @param durability Whether to sync each write to disk.
+     * @throws IllegalArgumentException if {@code maxChars} or {@code maxDelay} is not positive.
+     */
+    public void setFlushPolicy(int maxChars, long maxDelay, Durability durability) {
+        if(maxChars <= 0) {
+            throw new IllegalArgumentException("Invalid flush size: " + maxChars);
+        }
+        if(maxDelay <= 0) {
+            throw new IllegalArgumentException("Invalid flush delay: " + maxDelay);
+        }
+        this.flushChars = maxChars;
+        this.flushDelay = maxDelay;
+        this.durability = Objects.requireNonNull(durability);
+    }
+
+    /**
+     * Log sensor connection events to a binary file instead of the network
+     * log, so that logging each message costs no formatting or allocation.
+     * Read it back with {@link BinaryEventLogger#read} and
+     * {@code NetworkEvent.values()}. Call before {@link #start(String[])}.
+     * 
+     * @param file File to write events to.
+     * @throws IOException if the file cannot be opened.
+     */
+    public void setEventLog(File file) throws IOException {
+        this.connectionLog = new BinaryEventLogger(file);
+    }
+
+    /**
+     * Write sensor logs to memory-mapped segment files instead of CSV files.
+     * Each sensor's readings go to {@code <device>.<index>.log} files of
+     * {@code segmentSize} bytes, which need no write calls and are not
+     * handled by the flush policy. Call before {@link #start(String[])}.
+     * 
+     * @param segmentSize Size of each segment, in bytes, or 0 to write CSV files.
+     * @throws IllegalArgumentException if {@code segmentSize} is negative.
+     */
+    public void setSegmentSize(int segmentSize) {
+        if(segmentSize < 0) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Store sensor readings as compressed, columnar time series instead of
+     * text logs. Each sensor's readings go to {@code <device>.tsd} in
+     * {@code directory}, with a block index in {@code <device>.tsi}. Use
+     * {@link ca.mta.iottestbed.store.CsvExport} to read them as CSV. Older
+     * readings are rolled up into the store's tiers once a minute. Call
+     * before {@link #start(String[])}.
+     * 
+     * @param directory Directory for time series, or {@code null} to write logs.
+     */
+    public void setStore(File directory) {
+        this.store = directory == null ? null : new SeriesStore(directory);
+    }
+
+    /**
+     * Return a sensor's stored readings taken in a time range. Readings
+     * are read lazily, and only the blocks of the series that overlap the
+     * range are read.
+     * 
+     * @param device Sensor's device id.
+     * @param from Earliest time, inclusive, in milliseconds since the epoch.
+     * @param to Latest time, exclusive, in milliseconds since the epoch.
+     * @return Cursor over the readings, which must be closed.
+     * @throws IOException if the sensor's series cannot be opened.
+     * @throws IllegalStateException if readings are not being stored.
+     */
+    public SeriesCursor query(String device, long from, long to) throws IOException {
+        return getStore().query(device, from, to);
+    }
+
+    /**
+     * Return the minimum, maximum, average, and sum of a sensor's stored
+     * readings over fixed-width buckets of a time range.
+     * 
+     * @param device Sensor's device id.
+     * @param from Earliest time, inclusive, and start of the first bucket.
+     * @param to Latest time, exclusive.
+     * @param width Width of each bucket, in milliseconds.
+     * @return Cursor over the buckets, which must be closed.
+     * @throws IOException if the sensor's series cannot be opened.
+     * @throws IllegalStateException if readings are not being stored.
+     */
+    public BucketCursor aggregate(String device, long from, long to, long width) throws IOException {
+        return getStore().aggregate(device, from, to, width);
+    }
+
+    /**
+     * Return the running statistics of every sensor's readings. They can be
+     * read at any time without pausing the meter.
+     * 
+     * @return Statistics.
+     */
+    public StatisticsStage getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Return the detector checking readings against the sensors' curves.
+     * Anomalies are written to the network log; add a listener to act on
+     * them.
+     * 
+     * @return Anomaly detector.
+     */
+    public AnomalyDetector getDetector() {
+        return detector;
+    }
+
+    /**
+     * Return the session of a connected sensor.
+     * 
+     * @param device Sensor's device id.
+     * @return Session, or {@code null} if the sensor is not connected.
+     */
+    public SensorSession getSession(String device) {
+        return sessions.get(device);
+    }
+
+    /**
+     * Return the sessions of every connected sensor.
+     * 
+     * @return Sessions, a live view.
+     */
+    public Collection<SensorSession> getSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    /**
+     * Return the store holding sensor readings.
+     * 
+     * @return Store.
+     * @throws IllegalStateException if readings are not being stored.
+     */
+    public SeriesStore getStore() {
+        if(store == null) {
+            throw new IllegalStateException("Meter " + name + " is not storing readings");
+        }
+        return store;
     }
        
     /**
-     * Establish a connection with a sensor at a certain IP address.
+     * Ask sensors to report to this meter, in the background, a bounded
+     * number at a time. Once every sensor has been asked or given up on,
+     * the time since {@code started} is recorded as the startup time. If
+     * interrupted while waiting to start a sensor, or if the meter stops,
+     * the sensors not yet started are given up on.
+     * 
+     * @param ips IP addresses of sensors.
+     * @param started When the meter started, from {@link System#nanoTime()}.
+     */
+    private void bootstrap(String[] ips, long started) {
+        Semaphore permits = new Semaphore(bootstrapParallelism);
+        AtomicInteger remaining = new AtomicInteger(ips.length);
+        AtomicInteger reached = new AtomicInteger();
+        if(ips.length == 0) {
+            ready(started, 0, 0);
+            return;
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for(int i = 0; i < ips.length; i++) {
+                    String ip = ips[i];
+                    try {
+                        permits.acquire();
+                    } catch(InterruptedException e) {
+                        giveUp(i);
+                        return;
+                    }
+
+                    // each sensor is tried on a thread of its own
+                    try {
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    if(addDevice(ip)) {
+                                        reached.incrementAndGet();
+                                    }
+                                } catch(InterruptedException e) {
+                                    // stopping
+                                } finally {
+                                    permits.release();
+                                    if(remaining.decrementAndGet() == 0) {
+                                        ready(started, reached.get(), ips.length);
+                                    }
+                                }
+                            }
+                        });
+                    } catch(RejectedExecutionException e) {
+                        // stopping
+                        permits.release();
+                        giveUp(i);
+                        return;
+                    }
+                }
+            }
+
+            /**
+             * Give up on the sensors not yet started.
+             * 
+             * @param next Index of the first sensor not started.
+             */
+            private void giveUp(int next) {
+                if(remaining.addAndGet(next - ips.length) == 0) {
+                    ready(started, reached.get(), ips.length);
+                }
+            }
+        });
+    }
+
+    /**
+     * Record that every sensor has been asked to report or given up on.
+     * 
+     * @param started When the meter started, from {@link System#nanoTime()}.
+     * @param reached Sensors asked to report.
+     * @param total Sensors given.
+     */
+    private void ready(long started, int reached, int total) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        startup.set(millis);
+        networkLog.log("Reached " + reached + " of " + total + " sensors in " + millis + " ms");
+    }
+
+    /**
+     * Ask a sensor at a certain IP address to report to this meter. The
+     * sensor reports over a link it opens itself, so this connection is
+     * closed once the request is sent. A sensor that cannot be reached is
+     * tried again after a random, doubling delay, up to the configured
+     * number of attempts.
      * 
      * @param ip IP address.
-     * @throws IOException if unable to connect to the specified address
+     * @return {@code true} if the request was sent.
+     * @throws InterruptedException if interrupted while waiting to try again.
      */
-    private void addDevice(String ip) throws IOException {
-        Connection connection = new Connection(ip, SENDING_PORT);
-        connection.addLogger(networkLog);
-        connection.send("addmeter");
-        connections.add(connection);
+    private boolean addDevice(String ip) throws InterruptedException {
+        long delay = RETRY_DELAY;
+
+        for(int attempt = 1; ; attempt++) {
+            Connection connection = null;
+            boolean sent = false;
+            try {
+                connection = new Connection(ip, sendingPort, null, connectTimeout);
+                connection.addLogger(connectionLog);
+                sent = connection.send("addmeter", Protocol.OFFER);
+            } catch(IOException e) {
+                // try again below
+            }
+            if(connection != null) {
+                try {
+                    connection.close();
+                } catch(IOException e) {
+                    // already logged by the connection
+                }
+            }
+            if(sent) {
+                return true;
+            }
+
+            if(attempt >= connectAttempts) {
+                bootstrapFailures.increment();
+                networkLog.log("Could not reach sensor at " + ip + " after " + attempt + " attempts");
+                return false;
+            }
+
+            // wait a random part of the delay, so retries spread out
+            bootstrapRetries.increment();
+            Thread.sleep(ThreadLocalRandom.current().nextLong(delay / 2, delay + 1));
+            delay *= 2;
+        }
     }
     
     /**
      * Listen for new connections.
      * 
-     * New connections will be listened to on a new thread.
+     * On platform threads, every connection is served by a {@link Reactor}
+     * running a small, fixed number of event loop threads. On virtual threads,
+     * each connection is monitored by a thread of its own.
      * 
-     * @throws IOException If an IOException is encountered when opening or closing a socket.
+     * @throws IOException If an IOException is encountered when opening a socket.
      */
     private void listen() throws IOException {
-        // ServerSocket to listen for incoming connections
-        Listener listener = new Listener(LISTENING_PORT);
-        listener.addLogger(networkLog);
+        if(mode == ExecutionMode.VIRTUAL) {
+            listener = new Listener(listeningPort, BACKLOG);
+            listener.addLogger(networkLog);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    accept(listener);
+                }
+            });
+            return;
+        }
+
+        // reactor to accept and serve incoming connections
+        reactor = new Reactor(listeningPort, EVENT_LOOPS, BACKLOG, new FrameHandler() {
+            @Override
+            public void onOpen(Connection connection) {
+                connection.addLogger(connectionLog);
+                connections.add(connection);
+            }
+
+            @Override
+            public void onFrame(Connection connection, Frame frame) {
+                try {
+                    handle(connection, frame);
+                } catch(IOException ioe) {
+                    networkLog.log("Failed to write log for " + connection.getIP());
+                }
+            }
+
+            @Override
+            public void onClose(Connection connection) {
+                remove(connection);
+            }
+        });
+        reactor.addLogger(networkLog);
+        reactor.start(executor);
+    }
+
+    /**
+     * Accept connections and monitor each one on a new thread.
+     * 
+     * @param listener Listener to accept connections from.
+     */
+    private void accept(Listener listener) {
         boolean active = true;
 
         while(active) {
             // read new socket
             Connection connection = listener.accept();
-            connection.addLogger(networkLog);
-
-            // get device id
-            String id = connection.receive()[0];
-
-            // add a message logger for this connection
-            File csv = new File(id + ".csv");
-            messageLogs.put(connection, new BufferedFileLogger(csv));
+            if(connection == null) {
+                active = false;
+                continue;
+            }
+            connection.addLogger(connectionLog);
+            connections.add(connection);
 
             // create new thread to listen to the socket
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    try {
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
                         monitor(connection);
-                    } catch (IOException ioe) {
-                        throw new UncheckedIOException(ioe);
                     }
+                });
+            } catch(RejectedExecutionException e) {
+                // stopping
+                remove(connection);
+                try {
+                    connection.close();
+                } catch(IOException ioe) {
+                    // already logged by the connection
                 }
-            }).start();
+                active = false;
+            }
         }
 
-        listener.close();
+        try {
+            listener.close();
+        } catch(IOException e) {
+            // already logged by the listener
+        }
     }
 
     /**
@@ -127,73 +930,304 @@ public class Meter {
      * Monitors a connection, and handles incoming messages. Stops listening
      * if a read fails.
      * 
-     * @param socket Socket to listen to.
-     * @throws IOException if an I/O error occurs
+     * @param connection Connection to listen to.
      */
-    private void monitor(Connection connection) throws IOException {
+    private void monitor(Connection connection) {
         // listen while connection is active
+        Frame frame = new Frame();
         boolean active = true;
-    
-        while(active) {
-            // read data from socket
-            String[] data = connection.receive();        
 
-            // check for failure
-            if(data == null) {
+        while(active) {
+            // read data from socket, and check for failure
+            if(!connection.receive(frame)) {
                 active = false;
             }
 
-            // log readings
-            else if(data[1].equals("report")) {
-                // write to log
-                messageLogs.get(connection).log(
-                    new Timestamp() + "," +
-                    data[2].substring(2, data[2].length()) + "," +
-                    data[3].substring(2, data[3].length())
-                );
+            else {
+                try {
+                    handle(connection, frame);
+                } catch(IOException ioe) {
+                    networkLog.log("Failed to write log for " + connection.getIP());
+                    active = false;
+                }
+            }
+        }
+
+        // close and remove connection
+        remove(connection);
+        try {
+            connection.close();
+        } catch(IOException e) {
+            // already logged by the connection
+        }
+    }
+
+    /**
+     * Handle a message from a connection.
+     * 
+     * A connection may carry several sensors. The first message from each
+     * is usually its {@code OK}, whose device id names the sensor's log
+     * file; a report or batch from a sensor that has not said hello starts
+     * its session too, and is recorded. Other messages from such a sensor
+     * are ignored, apart from pings, which are always answered. Readings
+     * are logged with the time they were taken.
+     * 
+     * @param connection Connection the message arrived on.
+     * @param frame Message.
+     * @throws IOException if the sensor's log file cannot be opened or written
+     */
+    private void handle(Connection connection, Frame frame) throws IOException {
+        SensorSession session = find(connection, frame.getDevice());
+        boolean hasReadings = frame.getType() == MessageType.REPORT || frame.getType() == MessageType.BATCH;
+
+        // start a session for this sensor
+        if(session == null && (hasReadings || frame.getType() == MessageType.HELLO)) {
+            session = open(connection, frame.getDevice());
+        }
+
+        // store or log readings, one row for each reading in a batch
+        if(session != null && hasReadings) {
+            long now = System.currentTimeMillis();
+            long started = System.nanoTime();
+            session.received(now);
+            readings.add(frame.getCount());
+            for(int i = 0; i < frame.getCount(); i++) {
+                session.record(frame.getTimestamp(i), frame.getWater(i), frame.getPower(i));
+                detector.check(frame.getDevice(), frame.getTimestamp(i), frame.getWater(i), frame.getPower(i), now);
+                for(ReadingListener listener : readingListeners) {
+                    listener.onReading(frame.getDevice(), frame.getTimestamp(i), frame.getWater(i), frame.getPower(i), now);
+                }
             }
+            recordingNanos.add(System.nanoTime() - started);
+            if(flow != null) {
+                flow.used(session);
+            }
+        }
 
-            // respond to ping
-            else if(data[1].equals("ping")) {
-                connection.send(name, "pong");
+        // respond to ping
+        else if(frame.getType() == MessageType.PING) {
+            connection.send(new Frame(MessageType.PONG, name));
+        }
+    }
+
+    /**
+     * Return the session of a sensor carried by a connection.
+     * 
+     * @param connection Connection the message arrived on.
+     * @param device Sensor's device id.
+     * @return Session, or {@code null} if the sensor has none on this connection.
+     */
+    private static SensorSession find(Connection connection, String device) {
+        SensorSession[] attached = (SensorSession[])connection.attachment();
+        if(attached != null) {
+            for(SensorSession session : attached) {
+                if(session.isFor(device)) {
+                    return session;
+                }
             }
         }
+        return null;
+    }
 
-        // close and remove message logger
-        messageLogs.get(connection).close();
-        messageLogs.remove(connection);
+    /**
+     * Start a session for a sensor, with a time series or a log for its
+     * readings, and attach it to the sensor's connection.
+     * 
+     * @param connection Connection the sensor reports on.
+     * @param device Sensor's device id.
+     * @return New session.
+     * @throws IOException if the time series or log cannot be opened
+     */
+    private SensorSession open(Connection connection, String device) throws IOException {
+        SensorSession session;
+        if(store != null) {
+            session = new SensorSession(device, connection, null, store.open(device), statistics.open(device));
+        } else {
+            session = new SensorSession(device, connection, openLog(device), null, statistics.open(device));
+        }
+        SensorSession[] attached = (SensorSession[])connection.attachment();
+        if(attached == null) {
+            attached = new SensorSession[]{session};
+        } else {
+            attached = Arrays.copyOf(attached, attached.length + 1);
+            attached[attached.length - 1] = session;
+        }
+        connection.attach(attached);
+        sessions.put(session.getDevice(), session);
+        if(responder != null) {
+            responder.attached(session.getDevice());
+        }
+        if(flow != null) {
+            flow.open(session);
+        }
+        return session;
+    }
 
-        // close and remove connection
+    /**
+     * Create flow control that watches the backlog of how this meter
+     * persists readings. CSV logs are written by the flush service, so
+     * sensors are throttled while it has more than {@link #maxBufferedChars}
+     * characters to write. The store and segments are written as readings
+     * arrive, so sensors are throttled instead while recording takes more
+     * than {@link #MAX_RECORDING_PERCENT} of the serving threads' time.
+     * 
+     * @return Flow control, not yet started.
+     */
+    private FlowControl newFlowControl() {
+        if(store == null && segmentSize == 0) {
+            return new FlowControl(name, creditWindow, new Gauge() {
+                @Override
+                public long get() {
+                    return flusher.getBufferedChars();
+                }
+            }, maxBufferedChars, sessions.values());
+        }
+
+        // virtual threads share one carrier thread per processor
+        int threads = mode == ExecutionMode.VIRTUAL ? Runtime.getRuntime().availableProcessors() : EVENT_LOOPS;
+        return new FlowControl(name, creditWindow, new Gauge() {
+            private long lastNanos = recordingNanos.sum();
+            private long lastTime = System.nanoTime();
+
+            @Override
+            public long get() {
+                long nanos = recordingNanos.sum();
+                long now = System.nanoTime();
+                long busy = 100 * (nanos - lastNanos) / Math.max(1, (now - lastTime) * threads);
+                lastNanos = nanos;
+                lastTime = now;
+                return busy;
+            }
+        }, MAX_RECORDING_PERCENT, sessions.values());
+    }
+
+    /**
+     * Open the log for a sensor's readings.
+     * 
+     * @param device Sensor's device id.
+     * @return New log.
+     * @throws IOException if the log cannot be opened
+     */
+    private Logger openLog(String device) throws IOException {
+        // memory-mapped segments
+        if(segmentSize > 0) {
+            return new MappedSegmentLogger(new File("."), device, segmentSize);
+        }
+
+        // csv file written by the flush service
+        BufferedFileLogger csvLog = new BufferedFileLogger(new File(device + ".csv"));
+        flusher.register(csvLog);
+        return csvLog;
+    }
+
+    /**
+     * Forget a closed connection.
+     * 
+     * @param connection Connection that was closed.
+     */
+    private void remove(Connection connection) {
         connections.remove(connection);
-        connection.close();
+        SensorSession[] attached = (SensorSession[])connection.attachment();
+        if(attached == null) {
+            return;
+        }
+        connection.attach(null);
+
+        for(SensorSession session : attached) {
+            sessions.remove(session.getDevice(), session);
+            if(responder != null) {
+                responder.detached(session.getDevice());
+            }
+
+            // write out what the flush service has not
+            Logger sensorLog = session.getLog();
+            if(sensorLog instanceof BufferedFileLogger) {
+                flusher.unregister((BufferedFileLogger)sensorLog);
+                ((BufferedFileLogger)sensorLog).write();
+            }
+
+            // close the log or time series
+            try {
+                session.close();
+            } catch(IOException e) {
+                networkLog.log("Failed to close log for " + session.getDevice());
+            }
+        }
     }
 
+    /**
+     * Start the meter, and ask sensors at the given addresses to report to
+     * it. The meter listens before any sensor is asked, and sensors are
+     * asked in the background, so {@code start} does not wait for them;
+     * see {@link #setBootstrap(int, int, int)} and {@link #getStartupMillis()}.
+     * 
+     * @param ips IP addresses of sensors.
+     * @throws IOException if the meter cannot listen.
+     * @throws InterruptedException if interrupted while starting.
+     */
     public void start(String[] ips) throws IOException, InterruptedException {
-        // add all ips
-        // TODO: make this look for sensors
-        for(String ip : ips) {
-            addDevice(ip);
+        long started = System.nanoTime();
+
+        // write sensor logs in the background
+        flusher = new FlushService(flushChars, flushDelay, durability);
+        flusher.start(executor);
+
+        // hold sensors back while the flush service is behind
+        if(creditWindow > 0) {
+            flow = newFlowControl();
+            flow.start(executor);
         }
 
-        // listen for readings on a new thread
-        new Thread(new Runnable() {
+        // report connections and unwritten log data when metrics are read
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.register("iottestbed_meter_connections", "Sensor connections open at a meter.", new Gauge() {
             @Override
-            public void run() {
-                try { listen(); } catch(IOException e) {}
+            public long get() {
+                return connections.size();
             }
-        }).start();
+        }, "meter", name);
+        metrics.register("iottestbed_meter_log_buffered_chars", "Characters buffered in a meter's logs and not yet written.", new Gauge() {
+            @Override
+            public long get() {
+                return flusher.getBufferedChars();
+            }
+        }, "meter", name);
+        if(metricsPort >= 0) {
+            metricsServer = new MetricsServer(metrics, metricsAddress, metricsPort);
+            metricsServer.start();
+        }
+
+        // roll stored readings up into tiers in the background
+        if(store != null) {
+            downsampler = new Downsampler(store);
+            downsampler.start(executor, Downsampler.DEFAULT_INTERVAL);
+        }
+
+        // listen for readings before any sensor is asked to connect back
+        listen();
+
+        // invite sensors that announce themselves
+        if(discoveryGroup != null) {
+            responder = new Responder(name, listeningPort, discoveryGroup, discoveryInterface);
+            responder.start(executor);
+        }
+
+        // ask every sensor to report, a few at a time
+        bootstrap(ips, started);
 
         System.out.println("Meter " + name + " started.");
 
-        new Thread(new Runnable() {
+        executor.execute(new Runnable() {
             @Override
             public void run() {
-                // display readings periodically
+                // display readings periodically, until stopped
                 while(true) {
                     //System.out.println(name);
                     //displayReadings();
                     //networkLog.printFlush();
-                    networkLog.printFlush();
+                    if(printing) {
+                        networkLog.printFlush();
+                    }
 
                     // System.out.println("Active connections:");
 
@@ -201,26 +1235,89 @@ public class Meter {
                     //     System.out.println("\t" + connection.getIP());
                     // }
 
-                    // flush all sensor logs
-                    synchronized (messageLogs) {
-                        for(BufferedFileLogger sensorLog : messageLogs.values()) {
-                            sensorLog.write();
-                        }
-                    }
-
                     //TimeUnit.SECONDS.sleep(5);
                     try {
-                        Thread.sleep(30000);
+                        if(stopping.await(30000, TimeUnit.MILLISECONDS)) {
+                            return;
+                        }
                     } catch (InterruptedException e) {
-                        // TODO Auto-generated catch block
-                        e.printStackTrace();
+                        return;
                     }
                 }
             }
-        }).start();
+        });
         
     }
 
+    /**
+     * Stop the meter. It stops inviting sensors and accepting connections,
+     * closes every connection, and writes out and closes each sensor's log.
+     * Its loops are given a few seconds to finish before they are
+     * interrupted. The metrics server is closed, and every metric labelled
+     * with the meter's name is removed from the registry, so a process
+     * that starts and stops many meters does not keep their series.
+     * 
+     * @throws IOException if the meter's listener or logs cannot be closed.
+     * @throws InterruptedException if interrupted while waiting for the loops.
+     */
+    public void stop() throws IOException, InterruptedException {
+        stopping.countDown();
+        if(responder != null) {
+            responder.close();
+        }
+        if(flow != null) {
+            flow.close();
+        }
+
+        // stop accepting; each connection's log is written out as it closes
+        if(reactor != null) {
+            reactor.close();
+        }
+        if(listener != null) {
+            listener.close();
+            for(Connection connection : connections) {
+                connection.close();
+            }
+        }
+
+        // write what is left, then let the loops finish
+        executor.shutdown();
+        if(flusher != null) {
+            flusher.close();
+        }
+        if(downsampler != null) {
+            downsampler.close();
+        }
+        if(!executor.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+        if(connectionLog instanceof Closeable) {
+            ((Closeable)connectionLog).close();
+        }
+
+        if(metricsServer != null) {
+            metricsServer.close();
+        }
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.remove("iottestbed_meter_connections", "meter", name);
+        metrics.remove("iottestbed_meter_log_buffered_chars", "meter", name);
+        metrics.remove("iottestbed_meter_readings_total", "meter", name);
+        metrics.remove("iottestbed_meter_anomalies_total", "meter", name);
+        metrics.remove("iottestbed_meter_startup_milliseconds", "meter", name);
+        metrics.remove("iottestbed_meter_bootstrap_retries_total", "meter", name);
+        metrics.remove("iottestbed_meter_bootstrap_failures_total", "meter", name);
+    }
+
+    /**
+     * Wait until the meter's loops have stopped. Virtual threads do not keep
+     * the JVM alive, so {@code main} waits here after starting.
+     * 
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void join() throws InterruptedException {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * Start the meter. Usage: java -jar Meter.jar [name] [sensor IP addresses ...]
      * 
@@ -245,7 +1342,24 @@ public class Meter {
         //     System.err.println("Usage: java -jar Meter.jar [name] [valid IPs ...]");
         // }
 
-        Meter meter1 = new Meter("M1");
-        meter1.start(new String[]{"127.0.0.1"});
+        Meter meter1 = new Meter("M1", ExecutionMode.valueOf(System.getProperty("iottestbed.execution", "PLATFORM")));
+        meter1.setSegmentSize(Integer.getInteger("iottestbed.segment", 0));
+        if(System.getProperty("iottestbed.eventLog") != null) {
+            meter1.setEventLog(new File(System.getProperty("iottestbed.eventLog")));
+        }
+        meter1.setMetricsPort(Integer.getInteger("iottestbed.metrics", -1));
+        if(System.getProperty("iottestbed.metricsAddress") != null) {
+            meter1.setMetricsAddress(InetAddress.getByName(System.getProperty("iottestbed.metricsAddress")));
+        }
+        if(System.getProperty("iottestbed.store") != null) {
+            meter1.setStore(new File(System.getProperty("iottestbed.store")));
+        }
+        if(System.getProperty("iottestbed.discovery") != null) {
+            meter1.setDiscovery(Discovery.defaultGroup(), NetworkInterface.getByName(System.getProperty("iottestbed.discovery")));
+            meter1.start(new String[0]);
+        } else {
+            meter1.start(new String[]{"127.0.0.1"});
+        }
+        meter1.join();
     }
 }
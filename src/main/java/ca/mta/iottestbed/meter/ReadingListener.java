@@ -0,0 +1,22 @@
+package ca.mta.iottestbed.meter;
+
+/**
+ * Receives every reading a {@link Meter} takes in.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public interface ReadingListener {
+
+    /**
+     * Called on the thread that handled the message, once for each reading
+     * in it. Implementations should return quickly.
+     * 
+     * @param device Sensor's device id.
+     * @param timestamp Time the reading was taken, in milliseconds since the epoch.
+     * @param water Water reading.
+     * @param power Power reading.
+     * @param received Time the message was handled, in milliseconds since the epoch.
+     */
+    public void onReading(String device, long timestamp, double water, double power, long received);
+}
@@ -0,0 +1,250 @@
+package ca.mta.iottestbed.meter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ca.mta.iottestbed.logger.Logger;
+import ca.mta.iottestbed.logger.Timestamp;
+import ca.mta.iottestbed.network.Connection;
+import ca.mta.iottestbed.stats.SensorStatistics;
+import ca.mta.iottestbed.store.SeriesWriter;
+
+/**
+ * Everything a {@link Meter} keeps about one connected sensor: where its
+ * readings go, its running statistics, and its counters.
+ *
+ * A session is attached to its connection, which may carry several
+ * sensors, and only the thread handling that connection records readings,
+ * so recording takes no locks. Other threads may read the counters at any
+ * time.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class SensorSession {
+
+    /**
+     * Sensor's device id, interned.
+     */
+    private final String device;
+
+    /**
+     * Connection the sensor reports on.
+     */
+    private final Connection connection;
+
+    /**
+     * Log of the sensor's readings, or {@code null} if they are stored in
+     * {@link #series}.
+     */
+    private final Logger log;
+
+    /**
+     * Time series of the sensor's readings, or {@code null} if they are
+     * logged to {@link #log}.
+     */
+    private final SeriesWriter series;
+
+    /**
+     * Running statistics of the sensor's readings.
+     */
+    private final SensorStatistics statistics;
+
+    /**
+     * Reused to build each row of the log.
+     */
+    private final StringBuilder row;
+
+    /**
+     * Readings recorded.
+     */
+    private volatile long readings;
+
+    /**
+     * Time the last message was recorded, in milliseconds since the epoch.
+     */
+    private volatile long lastReceived;
+
+    /**
+     * Credits the sensor has used since they were last given back.
+     */
+    private final AtomicInteger used;
+
+    /**
+     * Whether the sensor is waiting for the meter to catch up before its
+     * credits are given back.
+     */
+    private final AtomicBoolean throttled;
+
+    /**
+     * Create a new {@code SensorSession} that writes readings to a log or a
+     * time series.
+     *
+     * @param device Sensor's device id.
+     * @param connection Connection the sensor reports on.
+     * @param log Log of readings, or {@code null}.
+     * @param series Time series of readings, or {@code null}.
+     * @param statistics Running statistics of the sensor's readings.
+     */
+    SensorSession(String device, Connection connection, Logger log, SeriesWriter series, SensorStatistics statistics) {
+        this.device = device.intern();
+        this.connection = connection;
+        this.log = log;
+        this.series = series;
+        this.statistics = statistics;
+        this.row = new StringBuilder(64);
+        this.used = new AtomicInteger();
+        this.throttled = new AtomicBoolean();
+    }
+
+    /**
+     * Record a reading: add it to the statistics, then store or log it.
+     * Must only be called by the thread handling the connection.
+     *
+     * @param timestamp Time the reading was taken, in milliseconds since the epoch.
+     * @param water Water reading.
+     * @param power Power reading.
+     * @throws IOException if the reading cannot be stored.
+     */
+    void record(long timestamp, double water, double power) throws IOException {
+        statistics.add(timestamp, water, power);
+        readings++;
+
+        if(series != null) {
+            series.append(timestamp, water, power);
+            return;
+        }
+
+        row.setLength(0);
+        Timestamp.append(timestamp, row);
+        row.append(',').append(water).append(',').append(power);
+        log.log(row.toString());
+    }
+
+    /**
+     * Note that a message arrived.
+     *
+     * @param now Meter's clock, in milliseconds since the epoch.
+     */
+    void received(long now) {
+        lastReceived = now;
+    }
+
+    /**
+     * Note that the sensor used a credit.
+     *
+     * @return Credits used since they were last given back.
+     */
+    int useCredit() {
+        return used.incrementAndGet();
+    }
+
+    /**
+     * Take the credits used, to give them back to the sensor.
+     *
+     * @return Credits used since they were last given back.
+     */
+    int takeUsedCredits() {
+        return used.getAndSet(0);
+    }
+
+    /**
+     * Return the credits used since they were last given back.
+     *
+     * @return Credits used.
+     */
+    int getUsedCredits() {
+        return used.get();
+    }
+
+    /**
+     * Mark the sensor as waiting for the meter to catch up, or clear the mark.
+     *
+     * @param waiting Whether the sensor is waiting.
+     * @return {@code true} if the mark changed.
+     */
+    boolean setThrottled(boolean waiting) {
+        return throttled.compareAndSet(!waiting, waiting);
+    }
+
+    /**
+     * Close the sensor's log or time series.
+     *
+     * @throws IOException if it cannot be closed.
+     */
+    void close() throws IOException {
+        if(series != null) {
+            series.close();
+        }
+        if(log instanceof Closeable) {
+            ((Closeable)log).close();
+        }
+    }
+
+    /**
+     * Return whether this is the session of a device.
+     *
+     * @param device Device id.
+     * @return {@code true} if it is.
+     */
+    boolean isFor(String device) {
+        // ids from binary frames are interned, so identity usually answers
+        return this.device == device || this.device.equals(device);
+    }
+
+    /**
+     * Return the sensor's device id.
+     *
+     * @return Device id.
+     */
+    public String getDevice() {
+        return device;
+    }
+
+    /**
+     * Return the connection the sensor reports on.
+     *
+     * @return Connection.
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Return the log of the sensor's readings.
+     *
+     * @return Log, or {@code null} if readings are stored in a time series.
+     */
+    public Logger getLog() {
+        return log;
+    }
+
+    /**
+     * Return the running statistics of the sensor's readings.
+     *
+     * @return Statistics.
+     */
+    public SensorStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Return the number of readings recorded.
+     *
+     * @return Readings.
+     */
+    public long getReadings() {
+        return readings;
+    }
+
+    /**
+     * Return when the last message arrived.
+     *
+     * @return Milliseconds since the epoch, or 0 if none has.
+     */
+    public long getLastReceived() {
+        return lastReceived;
+    }
+}
@@ -0,0 +1,43 @@
+package ca.mta.iottestbed.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up, such as messages sent. Many threads can add
+ * to it at once without waiting for each other.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Counter {
+
+    /**
+     * Count so far.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Add one.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Add an amount.
+     * 
+     * @param amount Amount to add, which should not be negative.
+     */
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * Return the count so far.
+     * 
+     * @return Count.
+     */
+    public long get() {
+        return count.sum();
+    }
+}
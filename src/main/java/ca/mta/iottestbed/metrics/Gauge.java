@@ -0,0 +1,46 @@
+package ca.mta.iottestbed.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A value that goes up and down, such as open connections. Either set it
+ * as things change, or override {@link #get()} to read the value when
+ * metrics are collected.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Gauge {
+
+    /**
+     * Current value, when set directly.
+     */
+    private final AtomicLong value = new AtomicLong();
+
+    /**
+     * Set the value.
+     * 
+     * @param value New value.
+     */
+    public void set(long value) {
+        this.value.set(value);
+    }
+
+    /**
+     * Add to the value.
+     * 
+     * @param amount Amount to add, which may be negative.
+     */
+    public void add(long amount) {
+        value.addAndGet(amount);
+    }
+
+    /**
+     * Return the current value.
+     * 
+     * @return Value.
+     */
+    public long get() {
+        return value.get();
+    }
+}
@@ -0,0 +1,187 @@
+package ca.mta.iottestbed.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts non-negative values, such as latencies, in log-linear buckets, in
+ * the style of HdrHistogram. Many threads can record at once, and recording
+ * does not allocate.
+ * 
+ * Values below 64 each have a bucket of their own. Above that, each power
+ * of two is split into 32 buckets, so a percentile is never more than about
+ * 3% above the true value. Histograms in a {@link MetricsRegistry} hold
+ * nanoseconds.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Histogram {
+
+    /**
+     * Values below this are counted exactly.
+     */
+    private static final int EXACT = 64;
+
+    /**
+     * Buckets for each power of two above {@link #EXACT}.
+     */
+    private static final int SUB_BUCKETS = 32;
+
+    /**
+     * Number of buckets, enough for any {@code long}.
+     */
+    private static final int BUCKETS = EXACT + (63 - 6) * SUB_BUCKETS;
+
+    /**
+     * Count of values in each bucket.
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * Sum of the values.
+     */
+    private final LongAdder sum;
+
+    /**
+     * Create a new, empty {@code Histogram}.
+     */
+    public Histogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.sum = new LongAdder();
+    }
+
+    /**
+     * Count a value. Negative values, from clocks that disagree, count as 0.
+     * 
+     * @param value Value to count.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+    }
+
+    /**
+     * Forget every value counted so far. Values counted while this runs may
+     * be kept or forgotten.
+     */
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+    }
+
+    /**
+     * Return the number of values counted.
+     * 
+     * @return Count.
+     */
+    public long getCount() {
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Return the sum of the values counted.
+     * 
+     * @return Sum.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Return a value that a share of the counted values are at or below.
+     * 
+     * @param percentile Share of values, from 0 to 100.
+     * @return Largest value in the bucket holding the percentile, or 0 if
+     *         nothing has been counted.
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if(total == 0) {
+            return 0;
+        }
+
+        // the first bucket that brings the running count up to the rank
+        long rank = Math.max(1, (long)Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if(seen >= rank) {
+                return highest(i);
+            }
+        }
+        return highest(BUCKETS - 1);
+    }
+
+    /**
+     * Return the largest value counted.
+     * 
+     * @return Largest value, to within a bucket, or 0 if nothing has been counted.
+     */
+    public long getMax() {
+        for(int i = BUCKETS - 1; i >= 0; i--) {
+            if(counts.get(i) > 0) {
+                return highest(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Return the number of values in buckets that hold nothing above a bound.
+     * 
+     * @param bound Bound.
+     * @return Count.
+     */
+    long countAtOrBelow(long bound) {
+        long count = 0;
+        for(int i = 0; i < BUCKETS && highest(i) <= bound; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Return the bucket holding a value.
+     * 
+     * @param value Non-negative value.
+     * @return Bucket number.
+     */
+    static int bucket(long value) {
+        if(value < EXACT) {
+            return (int)value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int)(value >>> (exponent - 5)) & (SUB_BUCKETS - 1);
+        return EXACT + (exponent - 6) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Return the largest value in a bucket.
+     * 
+     * @param bucket Bucket number.
+     * @return Largest value.
+     */
+    static long highest(int bucket) {
+        if(bucket < EXACT) {
+            return bucket;
+        }
+        int exponent = (bucket - EXACT) / SUB_BUCKETS + 6;
+        long sub = (bucket - EXACT) % SUB_BUCKETS;
+        long step = 1L << (exponent - 5);
+        long lowest = (1L << exponent) + sub * step;
+        return lowest + (step - 1);
+    }
+}
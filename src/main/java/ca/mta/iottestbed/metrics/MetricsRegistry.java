@@ -0,0 +1,338 @@
+package ca.mta.iottestbed.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Named {@link Counter}s, {@link Gauge}s, and {@link Histogram}s, written
+ * out in the Prometheus text format.
+ *
+ * Each metric has a name, help text, and optional labels given as
+ * alternating names and values, such as {@code "meter", "M1"}. Asking for
+ * a metric that already exists returns it, so code should look a metric up
+ * once and keep it, leaving only the update on hot paths. Histograms hold
+ * nanoseconds and are written out in seconds.
+ *
+ * Most code uses the shared {@link #getDefault()} registry, like the
+ * shared {@code BufferPool}, so metrics from every part of the JVM are
+ * collected together.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class MetricsRegistry {
+
+    /**
+     * Shared registry.
+     */
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    /**
+     * Upper bounds of the histogram buckets written out, in seconds.
+     */
+    private static final double[] BOUNDS = {
+        0.000001, 0.00001, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005,
+        0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    /**
+     * Kinds of metric, named as in the Prometheus format.
+     */
+    private static final String COUNTER = "counter";
+    private static final String GAUGE = "gauge";
+    private static final String HISTOGRAM = "histogram";
+
+    /**
+     * Metrics with the same name.
+     */
+    private static class Family {
+
+        /**
+         * Help text.
+         */
+        final String help;
+
+        /**
+         * Kind of metric.
+         */
+        final String type;
+
+        /**
+         * Metrics, by formatted labels.
+         */
+        final Map<String, Object> metrics;
+
+        /**
+         * Create a new {@code Family}.
+         *
+         * @param help Help text.
+         * @param type Kind of metric.
+         */
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+            this.metrics = new ConcurrentHashMap<String, Object>();
+        }
+    }
+
+    /**
+     * Families, by name.
+     */
+    private final Map<String, Family> families;
+
+    /**
+     * Create a new, empty {@code MetricsRegistry}.
+     */
+    public MetricsRegistry() {
+        this.families = new ConcurrentHashMap<String, Family>();
+    }
+
+    /**
+     * Return the shared registry.
+     *
+     * @return Shared registry.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Return a counter, creating it if needed.
+     *
+     * @param name Metric name, ending in {@code _total} by convention.
+     * @param help Help text.
+     * @param labels Label names and values, alternating.
+     * @return Counter.
+     * @throws IllegalArgumentException if {@code name} is another kind of metric.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter)family(name, help, COUNTER).metrics.computeIfAbsent(labels(labels), new Function<String, Object>() {
+            @Override
+            public Object apply(String key) {
+                return new Counter();
+            }
+        });
+    }
+
+    /**
+     * Return a gauge, creating it if needed.
+     *
+     * @param name Metric name.
+     * @param help Help text.
+     * @param labels Label names and values, alternating.
+     * @return Gauge.
+     * @throws IllegalArgumentException if {@code name} is another kind of metric.
+     */
+    public Gauge gauge(String name, String help, String... labels) {
+        return (Gauge)family(name, help, GAUGE).metrics.computeIfAbsent(labels(labels), new Function<String, Object>() {
+            @Override
+            public Object apply(String key) {
+                return new Gauge();
+            }
+        });
+    }
+
+    /**
+     * Add a gauge, usually one that overrides {@link Gauge#get()} to read
+     * its value when metrics are collected. Replaces any gauge with the same
+     * name and labels.
+     *
+     * @param name Metric name.
+     * @param help Help text.
+     * @param gauge Gauge.
+     * @param labels Label names and values, alternating.
+     * @throws IllegalArgumentException if {@code name} is another kind of metric.
+     */
+    public void register(String name, String help, Gauge gauge, String... labels) {
+        family(name, help, GAUGE).metrics.put(labels(labels), gauge);
+    }
+
+    /**
+     * Return a histogram of nanoseconds, creating it if needed.
+     *
+     * @param name Metric name, ending in {@code _seconds} by convention.
+     * @param help Help text.
+     * @param labels Label names and values, alternating.
+     * @return Histogram.
+     * @throws IllegalArgumentException if {@code name} is another kind of metric.
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram)family(name, help, HISTOGRAM).metrics.computeIfAbsent(labels(labels), new Function<String, Object>() {
+            @Override
+            public Object apply(String key) {
+                return new Histogram();
+            }
+        });
+    }
+
+    /**
+     * Remove a metric, such as a gauge for something that has closed.
+     *
+     * @param name Metric name.
+     * @param labels Label names and values, alternating.
+     */
+    public void remove(String name, String... labels) {
+        Family family = families.get(name);
+        if(family != null) {
+            family.metrics.remove(labels(labels));
+        }
+    }
+
+    /**
+     * Write every metric in the Prometheus text format, sorted by name.
+     *
+     * @param out Writer to write to.
+     * @throws IOException if the writer fails.
+     */
+    public void write(Writer out) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for(Map.Entry<String, Family> entry : new TreeMap<String, Family>(families).entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            line.setLength(0);
+            line.append("# HELP ").append(name).append(' ').append(escape(family.help, false)).append('\n');
+            line.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+
+            for(Map.Entry<String, Object> metric : new TreeMap<String, Object>(family.metrics).entrySet()) {
+                String labels = metric.getKey();
+                Object value = metric.getValue();
+                if(value instanceof Counter) {
+                    sample(line, name, labels, null, Long.toString(((Counter)value).get()));
+                } else if(value instanceof Gauge) {
+                    sample(line, name, labels, null, Long.toString(((Gauge)value).get()));
+                } else {
+                    histogram(line, name, labels, (Histogram)value);
+                }
+            }
+            out.write(line.toString());
+        }
+        out.flush();
+    }
+
+    /**
+     * Return every metric in the Prometheus text format.
+     *
+     * @return Metrics.
+     */
+    public String scrape() {
+        StringWriter out = new StringWriter();
+        try {
+            write(out);
+        } catch(IOException e) {
+            // a StringWriter does not fail
+        }
+        return out.toString();
+    }
+
+    /**
+     * Return a family, creating it if needed.
+     *
+     * @param name Metric name.
+     * @param help Help text.
+     * @param type Kind of metric.
+     * @return Family.
+     * @throws IllegalArgumentException if {@code name} is another kind of metric.
+     */
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, new Function<String, Family>() {
+            @Override
+            public Family apply(String key) {
+                return new Family(help, type);
+            }
+        });
+        if(!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + family.type);
+        }
+        return family;
+    }
+
+    /**
+     * Write a histogram's buckets, sum, and count.
+     *
+     * @param line Output.
+     * @param name Metric name.
+     * @param labels Formatted labels.
+     * @param histogram Histogram.
+     */
+    private static void histogram(StringBuilder line, String name, String labels, Histogram histogram) {
+        for(double bound : BOUNDS) {
+            sample(line, name + "_bucket", labels, "le=\"" + bound + "\"",
+                Long.toString(histogram.countAtOrBelow((long)(bound * 1e9))));
+        }
+        long count = histogram.getCount();
+        sample(line, name + "_bucket", labels, "le=\"+Inf\"", Long.toString(count));
+        sample(line, name + "_sum", labels, null, Double.toString(histogram.getSum() / 1e9));
+        sample(line, name + "_count", labels, null, Long.toString(count));
+    }
+
+    /**
+     * Write one sample line.
+     *
+     * @param line Output.
+     * @param name Sample name.
+     * @param labels Formatted labels, or an empty string.
+     * @param extra One more formatted label, or {@code null}.
+     * @param value Value.
+     */
+    private static void sample(StringBuilder line, String name, String labels, String extra, String value) {
+        line.append(name);
+        if(!labels.isEmpty() || extra != null) {
+            line.append('{').append(labels);
+            if(extra != null) {
+                line.append(labels.isEmpty() ? "" : ",").append(extra);
+            }
+            line.append('}');
+        }
+        line.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Format labels as they are written out, without braces.
+     *
+     * @param labels Label names and values, alternating.
+     * @return Formatted labels.
+     * @throws IllegalArgumentException if a name has no value.
+     */
+    private static String labels(String... labels) {
+        if(labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Label without a value: " + labels[labels.length - 1]);
+        }
+        StringBuilder formatted = new StringBuilder();
+        for(int i = 0; i < labels.length; i += 2) {
+            if(i > 0) {
+                formatted.append(',');
+            }
+            formatted.append(labels[i]).append("=\"").append(escape(labels[i + 1], true)).append('"');
+        }
+        return formatted.toString();
+    }
+
+    /**
+     * Escape text for the Prometheus format.
+     *
+     * @param text Text.
+     * @param quotes {@code true} to escape double quotes too, as in label values.
+     * @return Escaped text.
+     */
+    private static String escape(String text, boolean quotes) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for(int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if(character == '\\') {
+                escaped.append("\\\\");
+            } else if(character == '\n') {
+                escaped.append("\\n");
+            } else if(character == '"' && quotes) {
+                escaped.append("\\\"");
+            } else {
+                escaped.append(character);
+            }
+        }
+        return escaped.toString();
+    }
+}
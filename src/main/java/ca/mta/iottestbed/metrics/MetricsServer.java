@@ -0,0 +1,125 @@
+package ca.mta.iottestbed.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves a {@link MetricsRegistry} over HTTP at {@code /metrics}, in the
+ * Prometheus text format, using the HTTP server built into the JDK. Only
+ * the local machine can read metrics unless another address is given.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class MetricsServer implements AutoCloseable {
+
+    /**
+     * Path metrics are served at.
+     */
+    public static final String PATH = "/metrics";
+
+    /**
+     * Content type of the Prometheus text format.
+     */
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Registry served.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Create a new {@code MetricsServer} on the loopback address. Call
+     * {@link #start()} to begin serving.
+     *
+     * @param registry Registry to serve.
+     * @param port Port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public MetricsServer(MetricsRegistry registry, int port) throws IOException {
+        this(registry, InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Create a new {@code MetricsServer}. Call {@link #start()} to begin
+     * serving.
+     *
+     * @param registry Registry to serve.
+     * @param address Address to listen on, or the wildcard address for every interface.
+     * @param port Port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public MetricsServer(MetricsRegistry registry, InetAddress address, int port) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        this.server.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+    }
+
+    /**
+     * Begin serving, on a background thread.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Return the port being listened on.
+     *
+     * @return Port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop serving.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * Answer one request.
+     *
+     * @param exchange Request and response.
+     * @throws IOException if the response cannot be sent.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            if(!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ca.mta.iottestbed.metrics;
+
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ReentrantLock} that records how long {@link #lock()} waits when
+ * the lock is held by another thread. Taking a free lock costs one extra
+ * {@code tryLock}, and is not recorded.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TimedLock extends ReentrantLock {
+
+    /**
+     * Version for serialization.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Waits, in nanoseconds.
+     */
+    private final transient Histogram waits;
+
+    /**
+     * Create a new {@code TimedLock}.
+     * 
+     * @param waits Histogram to record waits in, in nanoseconds.
+     */
+    public TimedLock(Histogram waits) {
+        this.waits = Objects.requireNonNull(waits);
+    }
+
+    /**
+     * Take the lock, recording the wait if it was held.
+     */
+    @Override
+    public void lock() {
+        if(tryLock()) {
+            return;
+        }
+        long start = System.nanoTime();
+        super.lock();
+        waits.record(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,76 @@
+package ca.mta.iottestbed.network;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A process-wide pool of small buffers for encoding outgoing messages, so
+ * that sending does not allocate once the pool has warmed up.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+final class BufferPool {
+
+    /**
+     * Capacity of pooled buffers. Large enough for a report, or a batch
+     * of up to 340 readings.
+     */
+    static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Largest number of idle buffers kept.
+     */
+    private static final int MAX_POOLED = 256;
+
+    /**
+     * Idle buffers, used as a stack.
+     */
+    private static final ByteBuffer[] pool = new ByteBuffer[MAX_POOLED];
+
+    /**
+     * Number of idle buffers.
+     */
+    private static int size;
+
+    private BufferPool() {}
+
+    /**
+     * Take an empty buffer of at least the requested size. Requests larger
+     * than {@link #BUFFER_SIZE} get a new, unpooled buffer.
+     * 
+     * @param needed Required capacity.
+     * @return Empty buffer.
+     */
+    static ByteBuffer acquire(int needed) {
+        if(needed > BUFFER_SIZE) {
+            return ByteBuffer.allocate(needed);
+        }
+
+        synchronized (pool) {
+            if(size > 0) {
+                ByteBuffer buffer = pool[--size];
+                pool[size] = null;
+                buffer.clear();
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Return a buffer to the pool. The caller must not use it afterwards.
+     * 
+     * @param buffer Buffer from {@link #acquire(int)}.
+     */
+    static void release(ByteBuffer buffer) {
+        if(buffer.capacity() != BUFFER_SIZE) {
+            return;
+        }
+
+        synchronized (pool) {
+            if(size < MAX_POOLED) {
+                pool[size++] = buffer;
+            }
+        }
+    }
+}
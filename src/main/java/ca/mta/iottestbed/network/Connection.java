@@ -1,23 +1,36 @@
 package ca.mta.iottestbed.network;
 
+import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import ca.mta.iottestbed.logger.Event;
 import ca.mta.iottestbed.logger.Loggable;
 import ca.mta.iottestbed.logger.Logger;
+import ca.mta.iottestbed.metrics.Counter;
+import ca.mta.iottestbed.metrics.Gauge;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
 
 /**
  * A facade for a Socket.
  * 
+ * Messages can be sent and received either as tokens or as {@link Frame}
+ * objects. Frames are written in the connection's current {@link Protocol},
+ * so a sender can use them without knowing which format its peer speaks.
+ * 
  * @author Hayden Walker
- * @version 2023-06-14
+ * @version 2026-10-17
  */
 public class Connection implements Closeable, Loggable {
     
@@ -26,16 +39,119 @@ public class Connection implements Closeable, Loggable {
      */
     private static final String separator = "::_::";
 
+    /**
+     * Messages written, across all connections.
+     */
+    private static final Counter MESSAGES_SENT = MetricsRegistry.getDefault().counter(
+        "iottestbed_messages_sent_total", "Messages sent over connections.");
+
+    /**
+     * Bytes written, across all connections.
+     */
+    private static final Counter BYTES_SENT = MetricsRegistry.getDefault().counter(
+        "iottestbed_bytes_sent_total", "Bytes sent over connections.");
+
+    /**
+     * Messages that could not be sent, across all connections.
+     */
+    private static final Counter SEND_FAILURES = MetricsRegistry.getDefault().counter(
+        "iottestbed_send_failures_total", "Messages that could not be sent.");
+
+    /**
+     * Messages read, across all connections.
+     */
+    private static final Counter MESSAGES_RECEIVED = MetricsRegistry.getDefault().counter(
+        "iottestbed_messages_received_total", "Messages received over connections.");
+
+    /**
+     * Bytes read, across all connections.
+     */
+    private static final Counter BYTES_RECEIVED = MetricsRegistry.getDefault().counter(
+        "iottestbed_bytes_received_total", "Bytes received over connections.");
+
+    /**
+     * Failed reads, across all connections.
+     */
+    private static final Counter RECEIVE_FAILURES = MetricsRegistry.getDefault().counter(
+        "iottestbed_receive_failures_total", "Reads that failed, usually because the peer closed.");
+
+    /**
+     * Connections created and not yet closed.
+     */
+    private static final Gauge OPEN = MetricsRegistry.getDefault().gauge(
+        "iottestbed_connections_open", "Connections created and not yet closed.");
+
     /**
      * Socket to send/receive over.
      */
     private Socket socket;
 
+    /**
+     * Event loop session, if this Connection is served by a {@link Reactor}.
+     */
+    private Session session;
+
+    /**
+     * Wire format currently spoken over this connection.
+     */
+    private volatile Protocol protocol;
+
+    /**
+     * Buffered input, created on the first blocking read.
+     */
+    private DataInputStream input;
+
+    /**
+     * Socket output, created on the first blocking write.
+     */
+    private OutputStream output;
+
+    /**
+     * Reusable storage for received binary frame bodies.
+     */
+    private ByteBuffer body;
+
+    /**
+     * Device numbers this side has bound in binary frames.
+     */
+    private DeviceTable sentDevices;
+
+    /**
+     * Device numbers the peer has bound in binary frames.
+     */
+    private DeviceTable receivedDevices;
+
     /**
      * Optional logger to write to.
      */
     private Set<Logger> loggers;
 
+    /**
+     * Whether this Connection is still counted as open.
+     */
+    private AtomicBoolean open;
+
+    /**
+     * Peer address and port, packed for {@link NetworkEvent}s about sending.
+     */
+    private long remote;
+
+    /**
+     * Peer address and local port, packed for {@link NetworkEvent}s about receiving.
+     */
+    private long local;
+
+    /**
+     * State kept with this connection by its owner, or {@code null}.
+     */
+    private volatile Object attachment;
+
+    /**
+     * Whether this side has sent {@link Protocol#OFFER}, so that a
+     * {@link MessageType#HELLO} carrying it is an answer, not an offer.
+     */
+    private volatile boolean offered;
+
     /**
      * Create a new Connection from a Socket.
      * 
@@ -45,6 +161,14 @@ public class Connection implements Closeable, Loggable {
     public Connection(Socket socket) {
         this.socket = Objects.requireNonNull(socket);
         this.loggers = Collections.synchronizedSet(new HashSet<Logger>());
+        this.protocol = Protocol.TEXT;
+        this.sentDevices = new DeviceTable();
+        this.receivedDevices = new DeviceTable();
+        this.body = ByteBuffer.allocate(FrameCodec.HEADER + FrameCodec.REPORT_PAYLOAD);
+        this.open = new AtomicBoolean(true);
+        this.remote = NetworkEvent.peer(socket.getInetAddress(), socket.getPort());
+        this.local = NetworkEvent.peer(socket.getInetAddress(), socket.getLocalPort());
+        OPEN.add(1);
     }
 
     /**
@@ -58,6 +182,66 @@ public class Connection implements Closeable, Loggable {
         this(new Socket(ip, port));
     }
 
+    /**
+     * Create a new Connection from a given local address.
+     * 
+     * @param ip IP address.
+     * @param port Network port.
+     * @param local Local address to connect from, or {@code null} for any.
+     * @throws IOException If unable to connect.
+     */
+    public Connection(String ip, int port, InetAddress local) throws IOException {
+        this(new Socket(ip, port, local, 0));
+    }
+
+    /**
+     * Create a new Connection from a given local address, giving up if it
+     * cannot connect in time.
+     * 
+     * @param ip IP address.
+     * @param port Network port.
+     * @param local Local address to connect from, or {@code null} for any.
+     * @param timeout Longest time to wait for the connection, in milliseconds.
+     * @throws IOException If unable to connect in time.
+     */
+    public Connection(String ip, int port, InetAddress local, int timeout) throws IOException {
+        this(connect(ip, port, local, timeout));
+    }
+
+    /**
+     * Open a socket, giving up if it cannot connect in time.
+     * 
+     * @param ip IP address.
+     * @param port Network port.
+     * @param local Local address to connect from, or {@code null} for any.
+     * @param timeout Longest time to wait for the connection, in milliseconds.
+     * @return Connected socket.
+     * @throws IOException If unable to connect in time.
+     */
+    private static Socket connect(String ip, int port, InetAddress local, int timeout) throws IOException {
+        Socket socket = new Socket();
+        try {
+            if(local != null) {
+                socket.bind(new InetSocketAddress(local, 0));
+            }
+            socket.connect(new InetSocketAddress(ip, port), timeout);
+        } catch(IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    /**
+     * Create a new Connection served by an event loop.
+     * 
+     * @param session Event loop session to wrap.
+     */
+    Connection(Session session) {
+        this(session.channel.socket());
+        this.session = session;
+    }
+
     /**
      * Send a message over this connection.
      * 
@@ -67,17 +251,28 @@ public class Connection implements Closeable, Loggable {
     public boolean send(String ... tokens) {
         // build the message string
         String data = buildMessage(tokens);
+        if(FrameCodec.offersBinary(tokens)) {
+            offered = true;
+        }
 
-        // attempt to write to the socket's output stream
+        // attempt to write to the socket's output stream, or hand the
+        // encoded message to the event loop, in writeUTF format
         try {
-            new DataOutputStream(socket.getOutputStream()).writeUTF(data);
-            log("Sent " + data + " to " + getHost());
+            ByteBuffer encoded = BufferPool.acquire(2 + ModifiedUTF8.length(data));
+            ModifiedUTF8.encode(data, encoded);
+            encoded.flip();
+            int size = encoded.remaining();
+            write(encoded);
+            if(isLogging()) {
+                log(NetworkEvent.SENT, -1, size, remote);
+            }
             return true;
         } 
 
         // return false if failed
         catch(IOException e) {
-            log("Failed to send " + data + " to " + getHost());
+            SEND_FAILURES.increment();
+            log(NetworkEvent.SEND_FAILED, -1, 2 + ModifiedUTF8.length(data), remote);
             return false;
         }
     }
@@ -86,22 +281,336 @@ public class Connection implements Closeable, Loggable {
      * Receive a message over this connection.
      * 
      * @return Array of message tokens, or {@code null} if failed to read.
+     * @throws IllegalStateException if this Connection is served by a {@link Reactor},
+     *                               which delivers messages to its {@link FrameHandler} instead
      */
     public String[] receive() {
+        if(session != null) {
+            throw new IllegalStateException("Messages are delivered by the reactor");
+        }
+
         // attempt to read
         try {
-            String data = new DataInputStream(socket.getInputStream()).readUTF();
-            log("Received " + data + " from " + getLocalHost());
-            return data.split(separator);
+            String data = input().readUTF();
+            count(2 + ModifiedUTF8.length(data));
+            return received(data);
         }
 
         // catch failure to read
         catch(IOException e) {
-            log("Failed to receive message from " + getLocalHost());
+            RECEIVE_FAILURES.increment();
+            log(NetworkEvent.RECEIVE_FAILED, 0, 0, local);
             return null;
         }
     }
 
+    /**
+     * Send a Frame over this connection, in its current {@link Protocol}.
+     * 
+     * @param frame Frame to send.
+     * @return {@code true} if successfully sent.
+     */
+    public boolean send(Frame frame) {
+        if(protocol == Protocol.TEXT) {
+            return frame.getType() == MessageType.BATCH ? sendUnbatched(frame) : send(FrameCodec.toTokens(frame));
+        }
+
+        // attempt to write the frame, binding its device first if needed
+        int size = 0;
+        try {
+            synchronized (sentDevices) {
+                int device = sentDevices.indexOf(frame.getDevice());
+                ByteBuffer encoded;
+
+                if(device < 0) {
+                    device = sentDevices.add(frame.getDevice());
+                    encoded = BufferPool.acquire(FrameCodec.PREFIX + FrameCodec.HEADER + 2
+                        + ModifiedUTF8.length(frame.getDevice()) + FrameCodec.size(frame));
+                    FrameCodec.encodeDevice(frame.getDevice(), device, encoded);
+                } else {
+                    encoded = BufferPool.acquire(FrameCodec.size(frame));
+                }
+
+                FrameCodec.encode(frame, device, encoded);
+                encoded.flip();
+                size = encoded.remaining();
+                write(encoded);
+            }
+            if(isLogging()) {
+                log(NetworkEvent.SENT, frame.getType().getCode(), size, remote);
+            }
+            return true;
+        }
+
+        // return false if failed
+        catch(IOException e) {
+            SEND_FAILURES.increment();
+            log(NetworkEvent.SEND_FAILED, frame.getType().getCode(), FrameCodec.size(frame), remote);
+            return false;
+        }
+    }
+
+    /**
+     * Send each reading in a batch as its own text report, for peers
+     * that do not speak the binary format.
+     * 
+     * @param batch Batch to send.
+     * @return {@code true} if every reading was sent.
+     */
+    private boolean sendUnbatched(Frame batch) {
+        for(int i = 0; i < batch.getCount(); i++) {
+            if(!send(batch.getDevice(), "report", "w:" + batch.getWater(i), "e:" + batch.getPower(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Receive a message over this connection into a Frame. Messages that
+     * are not understood are skipped.
+     * 
+     * @param frame Frame to fill in.
+     * @return {@code true} if a message was received, or {@code false} if failed to read.
+     * @throws IllegalStateException if this Connection is served by a {@link Reactor},
+     *                               which delivers messages to its {@link FrameHandler} instead
+     */
+    public boolean receive(Frame frame) {
+        if(session != null) {
+            throw new IllegalStateException("Messages are delivered by the reactor");
+        }
+
+        // attempt to read
+        try {
+            DataInputStream in = input();
+
+            while(true) {
+                if(protocol == Protocol.TEXT) {
+                    String data = in.readUTF();
+                    count(2 + ModifiedUTF8.length(data));
+                    if(receivedText(received(data), frame)) {
+                        return true;
+                    }
+                } else {
+                    int length = in.readInt();
+                    FrameCodec.checkLength(length);
+                    if(body.capacity() < length) {
+                        body = ByteBuffer.allocate(length);
+                    }
+                    in.readFully(body.array(), 0, length);
+                    count(FrameCodec.PREFIX + length);
+                    body.clear().limit(length);
+                    if(receivedBinary(body, frame)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        // catch failure to read
+        catch(IOException e) {
+            RECEIVE_FAILURES.increment();
+            log(NetworkEvent.RECEIVE_FAILED, 0, 0, local);
+            return false;
+        }
+    }
+
+    /**
+     * Return the wire format currently spoken over this connection.
+     * 
+     * @return Current protocol.
+     */
+    public Protocol getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Set the wire format for messages sent and received after this call.
+     * 
+     * Connections that receive a {@link MessageType#HELLO} carrying
+     * {@link Protocol#OFFER} switch to {@link Protocol#BINARY} on their own.
+     * If they had not offered it themselves, they first accept it with a
+     * text {@code OK} carrying the same token.
+     * 
+     * @param protocol New protocol.
+     */
+    public void setProtocol(Protocol protocol) {
+        this.protocol = Objects.requireNonNull(protocol);
+    }
+
+    /**
+     * Return the object attached to this connection.
+     * 
+     * @return Attachment, or {@code null} if there is none.
+     */
+    public Object attachment() {
+        return attachment;
+    }
+
+    /**
+     * Attach an object to this connection, such as per-connection state, so
+     * that whoever handles its messages can find it without a lookup.
+     * 
+     * @param attachment Attachment, or {@code null} to remove it.
+     */
+    public void attach(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /**
+     * Return the total size of the next message in a buffer.
+     * 
+     * @param buffer Buffer positioned at the start of a message.
+     * @return Message size, or {@code -1} if its length is not yet known.
+     * @throws IOException if the length is invalid.
+     */
+    int frameSize(ByteBuffer buffer) throws IOException {
+        return FrameCodec.frameSize(buffer, protocol);
+    }
+
+    /**
+     * Decode one complete message from a buffer.
+     * 
+     * @param buffer Buffer positioned at the start of a message.
+     * @param size Message size, from {@link #frameSize(ByteBuffer)}.
+     * @param frame Frame to fill in.
+     * @param scratch Scratch space of at least {@code size} chars.
+     * @return {@code true} if {@code frame} was filled in.
+     * @throws IOException if the message is malformed.
+     */
+    boolean decode(ByteBuffer buffer, int size, Frame frame, char[] scratch) throws IOException {
+        int end = buffer.position() + size;
+        count(size);
+
+        if(protocol == Protocol.TEXT) {
+            buffer.position(buffer.position() + 2);
+            return receivedText(received(ModifiedUTF8.decode(buffer, size - 2, scratch)), frame);
+        }
+
+        // limit the buffer to this frame's body while decoding
+        int limit = buffer.limit();
+        buffer.position(buffer.position() + FrameCodec.PREFIX);
+        buffer.limit(end);
+        try {
+            return receivedBinary(buffer, frame);
+        } finally {
+            buffer.limit(limit);
+            buffer.position(end);
+        }
+    }
+
+    /**
+     * Set how long a receive may block before failing.
+     * 
+     * @param millis Milliseconds, or {@code 0} to wait forever.
+     * @throws IOException if the socket is closed.
+     */
+    public void setTimeout(int millis) throws IOException {
+        socket.setSoTimeout(millis);
+    }
+
+    /**
+     * Convert received tokens into a Frame, switching to the binary format
+     * if the peer offered or accepted it.
+     * 
+     * @param tokens Message tokens.
+     * @param frame Frame to fill in.
+     * @return {@code true} if {@code frame} was filled in.
+     */
+    private boolean receivedText(String[] tokens, Frame frame) {
+        if(!FrameCodec.fromTokens(tokens, frame)) {
+            return false;
+        }
+        if(frame.getType() == MessageType.HELLO && FrameCodec.offersBinary(tokens)) {
+            // accept an offer in text, before switching
+            if(!offered) {
+                send(frame.getDevice(), "OK", Protocol.OFFER);
+            }
+            protocol = Protocol.BINARY;
+        }
+        return true;
+    }
+
+    /**
+     * Convert a received binary frame body into a Frame.
+     * 
+     * @param body Buffer holding exactly one frame body.
+     * @param frame Frame to fill in.
+     * @return {@code true} if {@code frame} was filled in.
+     * @throws IOException if the frame is malformed.
+     */
+    private boolean receivedBinary(ByteBuffer body, Frame frame) throws IOException {
+        int size = FrameCodec.PREFIX + body.remaining();
+        if(!FrameCodec.decode(body, frame, receivedDevices)) {
+            return false;
+        }
+        if(isLogging()) {
+            log(NetworkEvent.RECEIVED, frame.getType().getCode(), size, local);
+        }
+        return true;
+    }
+
+    /**
+     * Write encoded bytes to the socket, or hand them to the event loop.
+     * Either way, the buffer goes back to the {@link BufferPool} once written.
+     * 
+     * @param encoded Encoded message, ready to read.
+     * @throws IOException if the write fails.
+     */
+    private void write(ByteBuffer encoded) throws IOException {
+        int size = encoded.remaining();
+        if(session != null) {
+            session.write(encoded);
+            sent(size);
+            return;
+        }
+
+        try {
+            if(output == null) {
+                output = socket.getOutputStream();
+            }
+            output.write(encoded.array(), encoded.position(), encoded.remaining());
+            sent(size);
+        } finally {
+            BufferPool.release(encoded);
+        }
+    }
+
+    /**
+     * Count a message written.
+     * 
+     * @param size Message size, in bytes.
+     */
+    private static void sent(int size) {
+        MESSAGES_SENT.increment();
+        BYTES_SENT.add(size);
+    }
+
+    /**
+     * Count a message read.
+     * 
+     * @param size Message size, in bytes.
+     */
+    private static void count(int size) {
+        MESSAGES_RECEIVED.increment();
+        BYTES_RECEIVED.add(size);
+    }
+
+    /**
+     * Return the buffered input stream, creating it on first use. Text and
+     * binary reads share it, so that no buffered bytes are lost when the
+     * protocol changes.
+     * 
+     * @return Input stream.
+     * @throws IOException if the socket's stream cannot be opened.
+     */
+    private DataInputStream input() throws IOException {
+        if(input == null) {
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+        return input;
+    }
+
     /**
      * Close the connection.
      * 
@@ -110,12 +619,15 @@ public class Connection implements Closeable, Loggable {
      */
     @Override
     public void close() throws IOException {
+        if(open.compareAndSet(true, false)) {
+            OPEN.add(-1);
+        }
         try {
             socket.close();
-            log("Closed connection to " + getLocalHost());
+            log(NetworkEvent.CLOSED, 0, 0, local);
         }
         catch(IOException e) {
-            log("Failed to close connection to " + getLocalHost());
+            log(NetworkEvent.CLOSE_FAILED, 0, 0, local);
             throw new IOException("Failed to close connection to " + getLocalHost(), e);
         }
     }
@@ -157,14 +669,40 @@ public class Connection implements Closeable, Loggable {
     }
 
     /**
-     * Write a message to the logger, if it exists.
+     * Log a received message and split it into tokens.
      * 
-     * @param message Message to log.
+     * @param data Message as String.
+     * @return Array of message tokens.
      */
-    private void log(String message) {
+    String[] received(String data) {
+        if(isLogging()) {
+            log(NetworkEvent.RECEIVED, -1, 2 + ModifiedUTF8.length(data), local);
+        }
+        return data.split(separator);
+    }
+
+    /**
+     * Return whether any logger is attached, so that log messages are only
+     * built when someone will read them.
+     * 
+     * @return {@code true} if at least one logger is attached.
+     */
+    private boolean isLogging() {
+        return !loggers.isEmpty();
+    }
+
+    /**
+     * Write an event to every logger.
+     * 
+     * @param event Kind of event.
+     * @param type Message type's wire code, or {@code -1} for text.
+     * @param size Message size, in bytes.
+     * @param peer Packed peer address and port.
+     */
+    private void log(Event event, long type, long size, long peer) {
         synchronized (loggers) {
             for(Logger logger : loggers) {
-                logger.log(message);
+                logger.log(event, type, size, peer);
             }
         }
     }
@@ -178,15 +716,6 @@ public class Connection implements Closeable, Loggable {
         return socket.getInetAddress().getHostAddress() + ":" + socket.getLocalPort();
     }
 
-    /**
-     * Return ip:port
-     * 
-     * @return ip:port
-     */
-    private String getHost() {
-        return socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
-    }
-
     /**
      * Add a Logger to this Connection object. The Connection
      * will write logs to this Logger.
@@ -0,0 +1,97 @@
+package ca.mta.iottestbed.network;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps device ids to the small numbers that stand in for them in binary
+ * frames, so that a device id is sent once per connection rather than
+ * with every message. Numbers handed out with {@link #add(String)} are
+ * also indexed by id, since a connection carrying thousands of sensors
+ * looks one up for every frame it sends.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class DeviceTable {
+
+    /**
+     * Largest number of devices a connection can name.
+     */
+    static final int MAX_DEVICES = 65536;
+
+    /**
+     * Device ids, indexed by number.
+     */
+    private String[] devices;
+
+    /**
+     * Numbers handed out with {@link #add(String)}, by device id.
+     */
+    private final Map<String, Integer> numbers;
+
+    /**
+     * Number of devices added with {@link #add(String)}.
+     */
+    private int size;
+
+    /**
+     * Create an empty DeviceTable.
+     */
+    DeviceTable() {
+        this.devices = new String[4];
+        this.numbers = new HashMap<String, Integer>();
+    }
+
+    /**
+     * Return the device id for a number.
+     * 
+     * @param index Device number.
+     * @return Device id, or {@code null} if unbound.
+     */
+    String get(int index) {
+        return index < devices.length ? devices[index] : null;
+    }
+
+    /**
+     * Bind a device id to a number. The id is interned, so that every
+     * frame from the same device carries the identical String.
+     * 
+     * @param index Device number.
+     * @param device Device id.
+     */
+    void put(int index, String device) {
+        if(index >= devices.length) {
+            devices = Arrays.copyOf(devices, Math.max(index + 1, 2 * devices.length));
+        }
+        devices[index] = device.intern();
+    }
+
+    /**
+     * Return the number bound to a device id with {@link #add(String)}.
+     * 
+     * @param device Device id.
+     * @return Device number, or {@code -1} if unbound.
+     */
+    int indexOf(String device) {
+        Integer index = numbers.get(device);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Bind a device id to the next free number.
+     * 
+     * @param device Device id.
+     * @return Device number.
+     * @throws IllegalStateException if the table is full.
+     */
+    int add(String device) {
+        if(size == MAX_DEVICES) {
+            throw new IllegalStateException("Too many devices on one connection");
+        }
+        put(size, device);
+        numbers.put(devices[size], size);
+        return size++;
+    }
+}
@@ -0,0 +1,230 @@
+package ca.mta.iottestbed.network;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single selector thread serving many non-blocking channels.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class EventLoop implements Runnable, Closeable {
+
+    /**
+     * Selector for this loop's channels.
+     */
+    private final Selector selector;
+
+    /**
+     * Channels waiting to be registered with the selector.
+     */
+    private final Queue<SocketChannel> pending;
+
+    /**
+     * Reactor this loop belongs to, used for logging.
+     */
+    private final Reactor reactor;
+
+    /**
+     * Receiver of connection events.
+     */
+    private final FrameHandler handler;
+
+    /**
+     * Scratch space for decoding text messages.
+     */
+    private char[] scratch;
+
+    /**
+     * Frame reused for every message this loop decodes.
+     */
+    private final Frame frame;
+
+    /**
+     * Whether the loop should keep running.
+     */
+    private volatile boolean active;
+
+    /**
+     * Create a new EventLoop.
+     * 
+     * @param reactor Owning reactor.
+     * @param handler Receiver of connection events.
+     * @throws IOException if the selector cannot be opened.
+     */
+    EventLoop(Reactor reactor, FrameHandler handler) throws IOException {
+        this.selector = Selector.open();
+        this.pending = new ConcurrentLinkedQueue<SocketChannel>();
+        this.reactor = reactor;
+        this.handler = handler;
+        this.scratch = new char[256];
+        this.frame = new Frame();
+        this.active = true;
+    }
+
+    /**
+     * Hand a newly accepted channel to this loop.
+     * 
+     * @param channel Accepted channel.
+     */
+    void register(SocketChannel channel) {
+        pending.add(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Ask the loop to finish writing a session's queued data.
+     * 
+     * @param session Session with queued data.
+     */
+    void requestWrite(Session session) {
+        try {
+            session.key.interestOps(session.key.interestOps() | SelectionKey.OP_WRITE);
+            selector.wakeup();
+        } catch(CancelledKeyException e) {
+            // connection already closed
+        }
+    }
+
+    /**
+     * Run the loop until closed.
+     */
+    @Override
+    public void run() {
+        while(active) {
+            try {
+                selector.select();
+            } catch(IOException e) {
+                reactor.log("Selector failed: " + e.getMessage());
+                break;
+            }
+
+            registerPending();
+
+            // handle ready channels
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while(keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Session session = (Session) key.attachment();
+
+                try {
+                    if(key.isReadable()) {
+                        read(session);
+                    }
+                    if(key.isValid() && key.isWritable()) {
+                        session.flushQueue();
+                    }
+                } catch(IOException | CancelledKeyException e) {
+                    closeSession(session);
+                } catch(RuntimeException e) {
+                    // a failing handler only costs its own connection
+                    reactor.log("Closing connection after handler failed: " + e);
+                    closeSession(session);
+                }
+            }
+        }
+
+        // close every remaining channel
+        for(SelectionKey key : selector.keys()) {
+            if(key.isValid()) {
+                closeSession((Session) key.attachment());
+            }
+        }
+        try {
+            selector.close();
+        } catch(IOException e) {
+            reactor.log("Failed to close selector");
+        }
+    }
+
+    /**
+     * Stop the loop and close its channels.
+     */
+    @Override
+    public void close() {
+        active = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Register channels accepted since the last iteration.
+     */
+    private void registerPending() {
+        SocketChannel channel;
+        while((channel = pending.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                Session session = new Session(channel, this);
+                session.key = channel.register(selector, SelectionKey.OP_READ, session);
+                handler.onOpen(session.connection);
+            } catch(IOException | RuntimeException e) {
+                reactor.log("Failed to register connection: " + e.getMessage());
+                try { channel.close(); } catch(IOException ignored) {}
+            }
+        }
+    }
+
+    /**
+     * Read available bytes and dispatch every complete message.
+     * 
+     * @param session Readable session.
+     * @throws IOException on end of stream or a read failure.
+     */
+    private void read(Session session) throws IOException {
+        if(session.channel.read(session.readBuffer) < 0) {
+            throw new IOException("End of stream");
+        }
+
+        ByteBuffer buffer = session.readBuffer;
+        Connection connection = session.connection;
+        buffer.flip();
+
+        // decode every complete message; the protocol may change between messages
+        int size;
+        while((size = connection.frameSize(buffer)) >= 0 && buffer.remaining() >= size) {
+            if(scratch.length < size) {
+                scratch = new char[size];
+            }
+            if(connection.decode(buffer, size, frame, scratch)) {
+                handler.onFrame(connection, frame);
+            }
+        }
+
+        // keep any partial message, growing the buffer if it cannot fit
+        buffer.compact();
+        if(size > 0) {
+            session.ensureReadCapacity(size);
+        }
+    }
+
+    /**
+     * Close a session and notify the handler.
+     * 
+     * @param session Session to close.
+     */
+    private void closeSession(Session session) {
+        if(session.key != null) {
+            session.key.cancel();
+        }
+        try {
+            session.connection.close();
+        } catch(IOException e) {
+            // already logged by the connection
+        }
+        try {
+            handler.onClose(session.connection);
+        } catch(RuntimeException e) {
+            reactor.log("Handler failed closing connection: " + e);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package ca.mta.iottestbed.network;
+
+import java.util.Arrays;
+
+/**
+ * A decoded message. Frames are mutable so that one instance can be
+ * reused for every message received over a connection.
+ * 
+ * A {@link MessageType#REPORT} holds one reading, and a {@link MessageType#BATCH}
+ * holds up to {@link #MAX_READINGS}. Each reading is a timestamp, a water
+ * value, and a power value. A {@link MessageType#CREDIT} holds a number of
+ * credits.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Frame {
+
+    /**
+     * Largest number of readings in one Frame.
+     */
+    public static final int MAX_READINGS = 4096;
+
+    /**
+     * Kind of message.
+     */
+    private MessageType type;
+
+    /**
+     * Id of the device that sent the message.
+     */
+    private String device;
+
+    /**
+     * Times the readings were taken, in milliseconds since the epoch.
+     */
+    private long[] timestamps;
+
+    /**
+     * Water readings.
+     */
+    private double[] water;
+
+    /**
+     * Power readings.
+     */
+    private double[] power;
+
+    /**
+     * Number of readings.
+     */
+    private int count;
+
+    /**
+     * Credits granted, in a {@link MessageType#CREDIT}.
+     */
+    private int credits;
+
+    /**
+     * Create an empty Frame.
+     */
+    public Frame() {
+        this.timestamps = new long[1];
+        this.water = new double[1];
+        this.power = new double[1];
+    }
+
+    /**
+     * Create a Frame with no readings.
+     * 
+     * @param type Kind of message.
+     * @param device Id of the sending device.
+     */
+    public Frame(MessageType type, String device) {
+        this();
+        this.type = type;
+        this.device = device;
+    }
+
+    /**
+     * Make this Frame a report holding one reading.
+     * 
+     * @param device Id of the sending device.
+     * @param timestamp Time the readings were taken, in milliseconds since the epoch.
+     * @param water Water reading.
+     * @param power Power reading.
+     */
+    public void setReport(String device, long timestamp, double water, double power) {
+        this.type = MessageType.REPORT;
+        this.device = device;
+        this.count = 0;
+        addReading(timestamp, water, power);
+    }
+
+    /**
+     * Make this Frame an empty batch. Readings are then added with
+     * {@link #addReading(long, double, double)}.
+     * 
+     * @param device Id of the sending device.
+     */
+    public void setBatch(String device) {
+        this.type = MessageType.BATCH;
+        this.device = device;
+        this.count = 0;
+    }
+
+    /**
+     * Make this Frame a grant of credits.
+     * 
+     * @param device Id of the device the credits are for.
+     * @param credits Number of reports or batches the device may send.
+     */
+    public void setCredit(String device, int credits) {
+        this.type = MessageType.CREDIT;
+        this.device = device;
+        this.count = 0;
+        this.credits = credits;
+    }
+
+    /**
+     * Add a reading.
+     * 
+     * @param timestamp Time the readings were taken, in milliseconds since the epoch.
+     * @param water Water reading.
+     * @param power Power reading.
+     * @throws IllegalStateException if the Frame already holds {@link #MAX_READINGS} readings.
+     */
+    public void addReading(long timestamp, double water, double power) {
+        if(count == MAX_READINGS) {
+            throw new IllegalStateException("Frame is full");
+        }
+
+        // grow storage if needed
+        if(count == timestamps.length) {
+            int capacity = Math.min(MAX_READINGS, 2 * count);
+            this.timestamps = Arrays.copyOf(timestamps, capacity);
+            this.water = Arrays.copyOf(this.water, capacity);
+            this.power = Arrays.copyOf(this.power, capacity);
+        }
+
+        this.timestamps[count] = timestamp;
+        this.water[count] = water;
+        this.power[count] = power;
+        count++;
+    }
+
+    /**
+     * Make this Frame a copy of another, reusing this Frame's storage.
+     * 
+     * @param other Frame to copy.
+     */
+    public void copyFrom(Frame other) {
+        this.type = other.type;
+        this.device = other.device;
+        this.credits = other.credits;
+        this.count = 0;
+        for(int i = 0; i < other.count; i++) {
+            addReading(other.timestamps[i], other.water[i], other.power[i]);
+        }
+    }
+
+    /**
+     * Return the kind of message.
+     * 
+     * @return Message type.
+     */
+    public MessageType getType() {
+        return type;
+    }
+
+    /**
+     * Set the kind of message.
+     * 
+     * @param type Message type.
+     */
+    public void setType(MessageType type) {
+        this.type = type;
+        this.count = 0;
+    }
+
+    /**
+     * Return the id of the device that sent the message.
+     * 
+     * @return Device id.
+     */
+    public String getDevice() {
+        return device;
+    }
+
+    /**
+     * Set the id of the device that sent the message.
+     * 
+     * @param device Device id.
+     */
+    public void setDevice(String device) {
+        this.device = device;
+    }
+
+    /**
+     * Return the number of readings.
+     * 
+     * @return Number of readings.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Return the credits granted by a {@link MessageType#CREDIT}.
+     * 
+     * @return Number of credits.
+     */
+    public int getCredits() {
+        return credits;
+    }
+
+    /**
+     * Return the time the first reading was taken.
+     * 
+     * @return Milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return getTimestamp(0);
+    }
+
+    /**
+     * Return the first water reading.
+     * 
+     * @return Water reading.
+     */
+    public double getWater() {
+        return getWater(0);
+    }
+
+    /**
+     * Return the first power reading.
+     * 
+     * @return Power reading.
+     */
+    public double getPower() {
+        return getPower(0);
+    }
+
+    /**
+     * Return the time a reading was taken.
+     * 
+     * @param index Reading index.
+     * @return Milliseconds since the epoch.
+     * @throws IndexOutOfBoundsException if {@code index >= getCount()}
+     */
+    public long getTimestamp(int index) {
+        return timestamps[checkIndex(index)];
+    }
+
+    /**
+     * Return a water reading.
+     * 
+     * @param index Reading index.
+     * @return Water reading.
+     * @throws IndexOutOfBoundsException if {@code index >= getCount()}
+     */
+    public double getWater(int index) {
+        return water[checkIndex(index)];
+    }
+
+    /**
+     * Return a power reading.
+     * 
+     * @param index Reading index.
+     * @return Power reading.
+     * @throws IndexOutOfBoundsException if {@code index >= getCount()}
+     */
+    public double getPower(int index) {
+        return power[checkIndex(index)];
+    }
+
+    /**
+     * Check a reading index.
+     * 
+     * @param index Reading index.
+     * @return The index.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    private int checkIndex(int index) {
+        if(index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Reading " + index + " of " + count);
+        }
+        return index;
+    }
+
+    /**
+     * Return the Frame as a String, for logging.
+     * 
+     * @return Frame as String.
+     */
+    @Override
+    public String toString() {
+        if(type == MessageType.REPORT) {
+            return device + " " + type + " " + timestamps[0] + " w:" + water[0] + " e:" + power[0];
+        }
+        if(type == MessageType.BATCH) {
+            return device + " " + type + " of " + count;
+        }
+        if(type == MessageType.CREDIT) {
+            return device + " " + type + " " + credits;
+        }
+        return device + " " + type;
+    }
+}
@@ -0,0 +1,333 @@
+package ca.mta.iottestbed.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts {@link Frame} objects to and from both wire formats.
+ * 
+ * A binary frame is laid out as:
+ * 
+ * <pre>
+ * int    length of the rest of the frame
+ * byte   version ({@link Protocol#VERSION})
+ * byte   type ({@link MessageType#getCode()})
+ * short  device number
+ * ...    payload
+ * </pre>
+ * 
+ * A {@link MessageType#REPORT} payload is a {@code long} timestamp followed by
+ * the water and power readings as IEEE {@code double}s. A {@link MessageType#BATCH}
+ * payload is a {@code short} count followed by that many readings in the same
+ * layout. A {@link MessageType#CREDIT} payload is an {@code int} number of
+ * credits. A {@link MessageType#DEVICE}
+ * payload is the device id in modified UTF-8. Other types have no payload.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+final class FrameCodec {
+
+    /**
+     * Size of the binary length prefix.
+     */
+    static final int PREFIX = 4;
+
+    /**
+     * Size of the binary header after the length prefix.
+     */
+    static final int HEADER = 4;
+
+    /**
+     * Size of a report payload, and of each reading in a batch.
+     */
+    static final int REPORT_PAYLOAD = 8 + 8 + 8;
+
+    /**
+     * Largest binary frame accepted.
+     */
+    static final int MAX_FRAME = 1 << 20;
+
+    /**
+     * Command token for a report.
+     */
+    private static final String REPORT = "report";
+
+    /**
+     * Command token for a ping.
+     */
+    private static final String PING = "ping";
+
+    /**
+     * Command token for a pong.
+     */
+    private static final String PONG = "pong";
+
+    /**
+     * Command token accepting a meter.
+     */
+    private static final String HELLO = "OK";
+
+    private FrameCodec() {}
+
+    /**
+     * Return the total size of the next frame in a buffer, including its
+     * length prefix.
+     * 
+     * @param buffer Buffer positioned at the start of a frame.
+     * @param protocol Wire format.
+     * @return Frame size, or {@code -1} if the length prefix is incomplete.
+     * @throws IOException if the length prefix is invalid.
+     */
+    static int frameSize(ByteBuffer buffer, Protocol protocol) throws IOException {
+        if(protocol == Protocol.TEXT) {
+            if(buffer.remaining() < 2) {
+                return -1;
+            }
+            return 2 + (buffer.getShort(buffer.position()) & 0xFFFF);
+        }
+
+        if(buffer.remaining() < PREFIX) {
+            return -1;
+        }
+        int length = buffer.getInt(buffer.position());
+        checkLength(length);
+        return PREFIX + length;
+    }
+
+    /**
+     * Check a binary length prefix.
+     * 
+     * @param length Length read from the wire.
+     * @throws IOException if the length is out of range.
+     */
+    static void checkLength(int length) throws IOException {
+        if(length < HEADER || length > MAX_FRAME) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+    }
+
+    /**
+     * Return the size of a binary frame, including its length prefix.
+     * 
+     * @param frame Frame to measure.
+     * @return Frame size.
+     */
+    static int size(Frame frame) {
+        switch(frame.getType()) {
+            case REPORT:
+                return PREFIX + HEADER + REPORT_PAYLOAD;
+            case BATCH:
+                return PREFIX + HEADER + 2 + frame.getCount() * REPORT_PAYLOAD;
+            case CREDIT:
+                return PREFIX + HEADER + 4;
+            default:
+                return PREFIX + HEADER;
+        }
+    }
+
+    /**
+     * Write a binary frame.
+     * 
+     * @param frame Frame to write.
+     * @param device Device number for the frame's device.
+     * @param out Destination buffer.
+     */
+    static void encode(Frame frame, int device, ByteBuffer out) {
+        MessageType type = frame.getType();
+        out.putInt(size(frame) - PREFIX);
+        out.put(Protocol.VERSION);
+        out.put(type.getCode());
+        out.putShort((short) device);
+
+        if(type == MessageType.REPORT) {
+            out.putLong(frame.getTimestamp());
+            out.putDouble(frame.getWater());
+            out.putDouble(frame.getPower());
+        }
+
+        else if(type == MessageType.BATCH) {
+            out.putShort((short) frame.getCount());
+            for(int i = 0; i < frame.getCount(); i++) {
+                out.putLong(frame.getTimestamp(i));
+                out.putDouble(frame.getWater(i));
+                out.putDouble(frame.getPower(i));
+            }
+        }
+
+        else if(type == MessageType.CREDIT) {
+            out.putInt(frame.getCredits());
+        }
+    }
+
+    /**
+     * Write a binary frame binding a device id to a number.
+     * 
+     * @param device Device id.
+     * @param index Device number.
+     * @param out Destination buffer.
+     * @throws IOException if the device id is too long.
+     */
+    static void encodeDevice(String device, int index, ByteBuffer out) throws IOException {
+        out.putInt(HEADER + 2 + ModifiedUTF8.length(device));
+        out.put(Protocol.VERSION);
+        out.put(MessageType.DEVICE.getCode());
+        out.putShort((short) index);
+        ModifiedUTF8.encode(device, out);
+    }
+
+    /**
+     * Read a binary frame, without its length prefix.
+     * 
+     * Device bindings are recorded in the table and not returned. Frames of
+     * unknown types are skipped, so that newer peers can add types.
+     * 
+     * @param body Buffer holding exactly one frame body.
+     * @param frame Frame to fill in.
+     * @param devices Device numbers bound by the peer.
+     * @return {@code true} if {@code frame} was filled in.
+     * @throws IOException if the frame is malformed.
+     */
+    static boolean decode(ByteBuffer body, Frame frame, DeviceTable devices) throws IOException {
+        byte version = body.get();
+        if(version != Protocol.VERSION) {
+            throw new IOException("Unsupported protocol version: " + version);
+        }
+        MessageType type = MessageType.fromCode(body.get());
+        int index = body.getShort() & 0xFFFF;
+
+        // skip unknown types
+        if(type == null) {
+            body.position(body.limit());
+            return false;
+        }
+
+        // record device bindings
+        if(type == MessageType.DEVICE) {
+            if(body.remaining() < 2) {
+                throw new IOException("Missing device id length");
+            }
+            int length = body.getShort() & 0xFFFF;
+            if(body.remaining() < length) {
+                throw new IOException("Truncated device id");
+            }
+            devices.put(index, ModifiedUTF8.decode(body, length, new char[length]));
+            return false;
+        }
+
+        String device = devices.get(index);
+        if(device == null) {
+            throw new IOException("Unknown device number: " + index);
+        }
+        frame.setType(type);
+        frame.setDevice(device);
+
+        if(type == MessageType.CREDIT) {
+            if(body.remaining() < 4) {
+                throw new IOException("Missing credits");
+            }
+            frame.setCredit(device, body.getInt());
+        }
+
+        else if(type == MessageType.REPORT || type == MessageType.BATCH) {
+            int count = 1;
+            if(type == MessageType.BATCH) {
+                if(body.remaining() < 2) {
+                    throw new IOException("Missing number of readings");
+                }
+                count = body.getShort() & 0xFFFF;
+            }
+            if(count > Frame.MAX_READINGS || body.remaining() < count * REPORT_PAYLOAD) {
+                throw new IOException("Invalid number of readings: " + count);
+            }
+            for(int i = 0; i < count; i++) {
+                long timestamp = body.getLong();
+                double water = body.getDouble();
+                double power = body.getDouble();
+                frame.addReading(timestamp, water, power);
+            }
+        }
+
+        body.position(body.limit());
+        return true;
+    }
+
+    /**
+     * Convert a Frame to text tokens, for peers that only speak {@link Protocol#TEXT}.
+     * Batches cannot be sent as text; send each reading as a report instead.
+     * 
+     * @param frame Frame to convert.
+     * @return Message tokens.
+     */
+    static String[] toTokens(Frame frame) {
+        switch(frame.getType()) {
+            case REPORT:
+                return new String[]{frame.getDevice(), REPORT, "w:" + frame.getWater(), "e:" + frame.getPower()};
+            case PING:
+                return new String[]{frame.getDevice(), PING};
+            case PONG:
+                return new String[]{frame.getDevice(), PONG};
+            case HELLO:
+                return new String[]{frame.getDevice(), HELLO};
+            default:
+                throw new IllegalArgumentException("Cannot send " + frame.getType() + " as text");
+        }
+    }
+
+    /**
+     * Fill in a Frame from text tokens.
+     * 
+     * Text reports carry no timestamp, so the time of receipt is used.
+     * 
+     * @param tokens Message tokens.
+     * @param frame Frame to fill in.
+     * @return {@code true} if the tokens were a known message.
+     */
+    static boolean fromTokens(String[] tokens, Frame frame) {
+        if(tokens.length < 2) {
+            return false;
+        }
+
+        frame.setDevice(tokens[0]);
+        switch(tokens[1]) {
+            case REPORT:
+                if(tokens.length < 4) {
+                    return false;
+                }
+                try {
+                    frame.setReport(tokens[0], System.currentTimeMillis(),
+                        Double.parseDouble(tokens[2].substring(2)),
+                        Double.parseDouble(tokens[3].substring(2)));
+                } catch(NumberFormatException | IndexOutOfBoundsException e) {
+                    return false;
+                }
+                return true;
+            case PING:
+                frame.setType(MessageType.PING);
+                return true;
+            case PONG:
+                frame.setType(MessageType.PONG);
+                return true;
+            case HELLO:
+                frame.setType(MessageType.HELLO);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Return whether a text message carries {@link Protocol#OFFER}.
+     * 
+     * @param tokens Message tokens.
+     * @return {@code true} if the binary format was offered or accepted.
+     */
+    static boolean offersBinary(String[] tokens) {
+        for(String token : tokens) {
+            if(Protocol.OFFER.equals(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package ca.mta.iottestbed.network;
+
+/**
+ * Receives events for connections served by a {@link Reactor}.
+ * 
+ * Callbacks are made on the event loop thread that owns the connection,
+ * so implementations should return quickly and must not block.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public interface FrameHandler {
+
+    /**
+     * Called once when a new connection has been accepted and registered.
+     * 
+     * @param connection The new connection.
+     */
+    public void onOpen(Connection connection);
+
+    /**
+     * Called for every complete message received over a connection.
+     * 
+     * The Frame is reused for the next message, so implementations must
+     * copy any fields they want to keep.
+     * 
+     * @param connection Connection the message arrived on.
+     * @param frame Decoded message.
+     */
+    public void onFrame(Connection connection, Frame frame);
+
+    /**
+     * Called once when a connection has been closed, either by the peer
+     * or after a read failure.
+     * 
+     * @param connection The closed connection.
+     */
+    public void onClose(Connection connection);
+}
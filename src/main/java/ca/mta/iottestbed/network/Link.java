@@ -0,0 +1,704 @@
+package ca.mta.iottestbed.network;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import ca.mta.iottestbed.logger.Loggable;
+import ca.mta.iottestbed.logger.Logger;
+import ca.mta.iottestbed.metrics.Counter;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+
+/**
+ * A long-lived connection from this process to one meter, carrying the
+ * messages of any number of devices.
+ *
+ * The link dials the meter itself, so it works from behind NAT, and each
+ * device attached to it greets the meter with a {@link MessageType#HELLO}
+ * before its reports. Messages are queued in an {@link OutboundQueue} and
+ * written by one writer task, which also sends a {@link MessageType#PING}
+ * every keepalive interval. When a send fails, the connection closes, or
+ * nothing is heard from the meter for the timeout, the link reconnects with
+ * exponential backoff and jitter, greets the meter again for every device,
+ * and resends the message that failed. Messages queued meanwhile wait in
+ * the queue under its {@link OverflowPolicy}.
+ *
+ * Once the meter grants a device credit with a {@link MessageType#CREDIT},
+ * each report or batch from that device uses one credit. A device's
+ * messages that find it out of credit are set aside, in order, in a queue
+ * of its own, and sent once the meter grants more, while the writer carries
+ * on with other devices' messages; so an overloaded meter slows its sensors
+ * down instead of dropping their connections, and one throttled device does
+ * not hold up the rest. Each device sets aside at most as many messages as
+ * the link queues, dropping its oldest beyond that. Devices the meter has
+ * not granted credit to, as with meters that do not grant any, are not
+ * limited.
+ *
+ * Links are usually shared through a {@link LinkPool}.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Link implements Closeable, Loggable {
+
+    /**
+     * Default milliseconds between pings.
+     */
+    public static final long DEFAULT_KEEPALIVE = 5000;
+
+    /**
+     * Default milliseconds without hearing from the meter before reconnecting.
+     */
+    public static final long DEFAULT_TIMEOUT = 15000;
+
+    /**
+     * Milliseconds to wait before the first reconnect.
+     */
+    static final long MIN_BACKOFF = 100;
+
+    /**
+     * Longest wait between reconnects, in milliseconds.
+     */
+    static final long MAX_BACKOFF = 30000;
+
+    /**
+     * Longest wait for a connection to open, in milliseconds.
+     */
+    private static final int CONNECT_TIMEOUT = 5000;
+
+    /**
+     * Meter's host name or address.
+     */
+    private final String host;
+
+    /**
+     * Meter's port.
+     */
+    private final int port;
+
+    /**
+     * Local address to connect from, or {@code null} for any.
+     */
+    private final InetAddress local;
+
+    /**
+     * Messages waiting to be sent.
+     */
+    private final OutboundQueue queue;
+
+    /**
+     * Devices attached to this link, greeted again on every reconnect.
+     */
+    private final Set<String> devices;
+
+    /**
+     * Loggers added to every connection.
+     */
+    private final Set<Logger> loggers;
+
+    /**
+     * Credit left for each device the meter has granted credit to, by
+     * device id. Cleared on every reconnect.
+     */
+    private final Map<String, AtomicInteger> credits;
+
+    /**
+     * Messages set aside until their device is granted credit, by device id.
+     * Only the writer adds and takes messages.
+     */
+    private final Map<String, OutboundQueue> held;
+
+    /**
+     * Largest number of messages queued, and set aside for each device.
+     */
+    private final int capacity;
+
+    /**
+     * Times this link has reconnected.
+     */
+    private final Counter reconnects;
+
+    /**
+     * Times the writer set a message aside to wait for credit.
+     */
+    private final Counter stalls;
+
+    /**
+     * Messages discarded to make room, in the queue or among those set aside.
+     */
+    private final Counter drops;
+
+    /**
+     * Milliseconds between pings.
+     */
+    private volatile long keepalive;
+
+    /**
+     * Milliseconds without hearing from the meter before reconnecting.
+     */
+    private volatile long timeout;
+
+    /**
+     * Current connection, or {@code null} while reconnecting.
+     */
+    private volatile Connection connection;
+
+    /**
+     * Time the meter was last heard from, in milliseconds since the epoch.
+     */
+    private volatile long lastHeard;
+
+    /**
+     * Whether the link has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Number of {@link LinkPool} users holding this link.
+     */
+    private int references;
+
+    /**
+     * Create a new Link. Call {@link #start(Executor)} to connect.
+     *
+     * @param host Meter's host name or address.
+     * @param port Meter's port.
+     * @param local Local address to connect from, or {@code null} for any.
+     * @param capacity Largest number of queued messages.
+     * @param policy What to do when the queue is full.
+     * @throws IllegalArgumentException if {@code capacity <= 0}
+     */
+    public Link(String host, int port, InetAddress local, int capacity, OverflowPolicy policy) {
+        this.host = host;
+        this.port = port;
+        this.local = local;
+        this.drops = MetricsRegistry.getDefault().counter(
+            "iottestbed_link_dropped_total", "Messages a link discarded because a meter fell behind.", "meter", host + ":" + port);
+        this.queue = new OutboundQueue(capacity, policy, drops);
+        this.devices = new CopyOnWriteArraySet<String>();
+        this.loggers = Collections.synchronizedSet(new HashSet<Logger>());
+        this.credits = new ConcurrentHashMap<String, AtomicInteger>();
+        this.held = new ConcurrentHashMap<String, OutboundQueue>();
+        this.capacity = capacity;
+        this.reconnects = MetricsRegistry.getDefault().counter(
+            "iottestbed_link_reconnects_total", "Times a link to a meter has reconnected.", "meter", host + ":" + port);
+        this.stalls = MetricsRegistry.getDefault().counter(
+            "iottestbed_link_credit_stalls_total", "Times a link set a message aside until a meter granted credit.", "meter", host + ":" + port);
+        this.keepalive = DEFAULT_KEEPALIVE;
+        this.timeout = DEFAULT_TIMEOUT;
+    }
+
+    /**
+     * Set how often the link pings the meter, and how long it waits to hear
+     * from it before reconnecting.
+     *
+     * @param keepalive Milliseconds between pings.
+     * @param timeout Milliseconds without hearing from the meter before reconnecting.
+     * @throws IllegalArgumentException if {@code keepalive <= 0} or {@code timeout < keepalive}
+     */
+    public void setKeepalive(long keepalive, long timeout) {
+        if(keepalive <= 0 || timeout < keepalive) {
+            throw new IllegalArgumentException("Invalid keepalive: " + keepalive + ", timeout " + timeout);
+        }
+        this.keepalive = keepalive;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Start the writer task, which connects and keeps the link up until it
+     * is closed.
+     *
+     * @param executor Executor to run the writer, and each connection's reader, on.
+     */
+    public void start(Executor executor) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(executor);
+            }
+        });
+    }
+
+    /**
+     * Attach a device to the link, greeting the meter for it.
+     *
+     * @param device Device id.
+     * @return {@code false} if the link is closed.
+     */
+    public boolean attach(String device) {
+        if(!devices.add(device)) {
+            return !closed;
+        }
+        try {
+            return queue.offer(new Frame(MessageType.HELLO, device));
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Stop greeting the meter for a device after reconnects.
+     *
+     * @param device Device id.
+     */
+    public void detach(String device) {
+        devices.remove(device);
+    }
+
+    /**
+     * Queue a copy of a message.
+     *
+     * @param frame Message to send.
+     * @return {@code true} if queued, or {@code false} if the link is closed.
+     * @throws InterruptedException if interrupted while waiting under {@link OverflowPolicy#BLOCK}.
+     */
+    public boolean offer(Frame frame) throws InterruptedException {
+        return queue.offer(frame);
+    }
+
+    /**
+     * Return the number of queued messages, including those set aside
+     * for credit.
+     *
+     * @return Queue length.
+     */
+    public int size() {
+        int size = queue.size();
+        for(OutboundQueue waiting : held.values()) {
+            size += waiting.size();
+        }
+        return size;
+    }
+
+    /**
+     * Return the number of messages discarded to make room, in the queue
+     * or among those set aside for credit.
+     *
+     * @return Number of dropped messages.
+     */
+    public long getDropped() {
+        long dropped = queue.getDropped();
+        for(OutboundQueue waiting : held.values()) {
+            dropped += waiting.getDropped();
+        }
+        return dropped;
+    }
+
+    /**
+     * Return the credit a device has left.
+     *
+     * @param device Device id.
+     * @return Reports or batches the device may still send, or {@code -1}
+     *         if the meter has not limited it.
+     */
+    public int getCredits(String device) {
+        AtomicInteger left = credits.get(device);
+        return left == null ? -1 : left.get();
+    }
+
+    /**
+     * Return whether the link is connected to the meter.
+     *
+     * @return {@code true} if connected.
+     */
+    public boolean isConnected() {
+        return connection != null;
+    }
+
+    /**
+     * Return whether the link has been closed.
+     *
+     * @return {@code true} if closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Close the link and its connection. Queued messages are discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        queue.close();
+        Connection current = connection;
+        if(current != null) {
+            drop(current);
+        }
+    }
+
+    /**
+     * Add a Logger to every connection this link makes.
+     *
+     * @param logger Logger to add.
+     */
+    @Override
+    public void addLogger(Logger logger) {
+        loggers.add(logger);
+        Connection current = connection;
+        if(current != null) {
+            current.addLogger(logger);
+        }
+    }
+
+    /**
+     * Stop logging to a Logger.
+     *
+     * @param logger Logger to remove.
+     */
+    @Override
+    public void removeLogger(Logger logger) {
+        loggers.remove(logger);
+        Connection current = connection;
+        if(current != null) {
+            current.removeLogger(logger);
+        }
+    }
+
+    /**
+     * Add a user. Called by {@link LinkPool} with its lock held.
+     */
+    void retain() {
+        references++;
+    }
+
+    /**
+     * Remove a user. Called by {@link LinkPool} with its lock held.
+     *
+     * @return Number of users left.
+     */
+    int release() {
+        return --references;
+    }
+
+    /**
+     * Connect, send, and reconnect with backoff until closed.
+     *
+     * @param executor Executor to run each connection's reader on.
+     */
+    private void write(Executor executor) {
+        Frame frame = new Frame();
+        boolean unsent = false;
+        long backoff = MIN_BACKOFF;
+        boolean connected = false;
+
+        // a queue that overflowed under DISCONNECT closes the link
+        while(!closed && !queue.isClosed()) {
+            Connection current = connect();
+
+            // wait a random part of the backoff, so links do not reconnect together
+            if(current == null) {
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+                } catch(InterruptedException e) {
+                    close();
+                    return;
+                }
+                backoff = Math.min(2 * backoff, MAX_BACKOFF);
+                continue;
+            }
+            backoff = MIN_BACKOFF;
+            if(connected) {
+                reconnects.increment();
+            }
+            connected = true;
+
+            try {
+                unsent = serve(current, frame, unsent, executor);
+            } catch(InterruptedException e) {
+                close();
+                return;
+            }
+            drop(current);
+        }
+        close();
+    }
+
+    /**
+     * Open a connection.
+     *
+     * @return Connection, or {@code null} if the meter could not be reached.
+     */
+    private Connection connect() {
+        Connection current;
+        try {
+            current = new Connection(host, port, local, CONNECT_TIMEOUT);
+        } catch(IOException e) {
+            return null;
+        }
+
+        synchronized (loggers) {
+            for(Logger logger : loggers) {
+                current.addLogger(logger);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Send messages over one connection until it fails or the link closes.
+     *
+     * @param current Connection to send over.
+     * @param frame Message being sent, reused.
+     * @param unsent Whether {@code frame} holds a message a previous
+     *               connection failed to send.
+     * @param executor Executor to run the connection's reader on.
+     * @return Whether {@code frame} holds a message that was not sent.
+     * @throws InterruptedException if interrupted while waiting for a message.
+     */
+    private boolean serve(Connection current, Frame frame, boolean unsent, Executor executor) throws InterruptedException {
+        Frame ping = new Frame(MessageType.PING, null);
+        credits.clear();
+        connection = current;
+        lastHeard = System.currentTimeMillis();
+        long nextPing = lastHeard + keepalive;
+        boolean reading = false;
+
+        // greet the meter for every attached device
+        Set<String> greeted = new HashSet<String>();
+        for(String device : devices) {
+            if(!hello(current, device)) {
+                return unsent;
+            }
+            greeted.add(device);
+        }
+
+        while(!closed && !queue.isClosed() && connection == current) {
+            // read replies once the protocol is settled by the first greeting
+            if(!reading && current.getProtocol() == Protocol.BINARY) {
+                read(current, executor);
+                reading = true;
+            }
+
+            // reconnect if the meter has gone quiet, or ping it when due
+            long now = System.currentTimeMillis();
+            if(reading && now - lastHeard > timeout) {
+                return unsent;
+            }
+            if(reading && now >= nextPing) {
+                nextPing = now + keepalive;
+                ping.setDevice(firstDevice());
+                if(ping.getDevice() != null && !current.send(ping)) {
+                    return unsent;
+                }
+            }
+
+            // take a message set aside for a device granted credit since,
+            // or else the next queued message
+            boolean queued = false;
+            if(!unsent) {
+                unsent = unhold(frame);
+            }
+            if(!unsent) {
+                unsent = queued = queue.poll(frame, reading ? nextPing - now : keepalive);
+            }
+
+            // set it aside if its device is out of credit, or has older
+            // messages set aside, and carry on with other devices
+            if(unsent && ((queued && isHeld(frame.getDevice())) || !takeCredit(frame))) {
+                hold(frame);
+                unsent = false;
+                continue;
+            }
+            if(unsent) {
+                boolean sent;
+                if(frame.getType() != MessageType.HELLO) {
+                    sent = current.send(frame);
+                } else if(greeted.add(frame.getDevice())) {
+                    sent = hello(current, frame.getDevice());
+                } else {
+                    sent = true;
+                }
+                if(!sent) {
+                    return true;
+                }
+                unsent = false;
+            }
+        }
+        return unsent;
+    }
+
+    /**
+     * Greet the meter for a device. The first greeting on a connection is
+     * sent as text offering the binary format, and the link waits for the
+     * meter's reply. It speaks binary from then on only if the reply
+     * accepts the offer, and keeps to text otherwise, as it does when no
+     * reply comes in time.
+     *
+     * @param current Connection to greet over.
+     * @param device Device id.
+     * @return {@code true} if sent.
+     */
+    private boolean hello(Connection current, String device) {
+        if(current.getProtocol() == Protocol.BINARY) {
+            return current.send(new Frame(MessageType.HELLO, device));
+        }
+        if(!current.send(device, "OK", Protocol.OFFER)) {
+            return false;
+        }
+
+        // the connection switches itself if the reply carries the offer
+        try {
+            current.setTimeout(CONNECT_TIMEOUT);
+            current.receive(new Frame());
+            current.setTimeout(0);
+        } catch(IOException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Start reading a connection's incoming messages, noting when the meter
+     * was last heard from and answering its pings.
+     *
+     * @param current Connection to read.
+     * @param executor Executor to run the reader on.
+     */
+    private void read(Connection current, Executor executor) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Frame frame = new Frame();
+                while(current.receive(frame)) {
+                    lastHeard = System.currentTimeMillis();
+                    if(frame.getType() == MessageType.CREDIT) {
+                        grant(frame.getDevice(), frame.getCredits());
+                    } else if(frame.getType() == MessageType.PING) {
+                        try {
+                            queue.offer(new Frame(MessageType.PONG, firstDevice()));
+                        } catch(InterruptedException e) {
+                            break;
+                        }
+                    }
+                }
+
+                // let the writer reconnect now rather than at the next ping
+                drop(current);
+                queue.wake();
+            }
+        });
+    }
+
+    /**
+     * Use a credit to send a message, if the message needs one.
+     *
+     * @param frame Message to send.
+     * @return {@code false} if its device has no credit left.
+     */
+    private boolean takeCredit(Frame frame) {
+        if(frame.getType() != MessageType.REPORT && frame.getType() != MessageType.BATCH) {
+            return true;
+        }
+        AtomicInteger left = credits.get(frame.getDevice());
+        if(left == null) {
+            return true;
+        }
+
+        // only the writer takes credit, so the check cannot go stale
+        if(left.get() <= 0) {
+            return false;
+        }
+        left.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Add credit for a device and wake the writer.
+     *
+     * @param device Device id.
+     * @param granted Credits granted.
+     */
+    private void grant(String device, int granted) {
+        credits.computeIfAbsent(device, new Function<String, AtomicInteger>() {
+            @Override
+            public AtomicInteger apply(String key) {
+                return new AtomicInteger();
+            }
+        }).addAndGet(granted);
+        queue.wake();
+    }
+
+    /**
+     * Return whether a device has messages set aside.
+     *
+     * @param device Device id.
+     * @return {@code true} if any are waiting for credit.
+     */
+    private boolean isHeld(String device) {
+        OutboundQueue waiting = held.get(device);
+        return waiting != null && waiting.size() > 0;
+    }
+
+    /**
+     * Set a message aside until its device is granted credit.
+     *
+     * @param frame Message to set aside.
+     * @throws InterruptedException never, as the queue drops rather than waits.
+     */
+    private void hold(Frame frame) throws InterruptedException {
+        stalls.increment();
+        held.computeIfAbsent(frame.getDevice(), new Function<String, OutboundQueue>() {
+            @Override
+            public OutboundQueue apply(String key) {
+                return new OutboundQueue(capacity, OverflowPolicy.DROP_OLDEST, drops);
+            }
+        }).offer(frame);
+    }
+
+    /**
+     * Take the oldest message set aside for a device that has credit again.
+     *
+     * @param frame Frame to copy into.
+     * @return {@code true} if a message was taken.
+     * @throws InterruptedException never, as the wait is zero.
+     */
+    private boolean unhold(Frame frame) throws InterruptedException {
+        for(Map.Entry<String, OutboundQueue> entry : held.entrySet()) {
+            AtomicInteger left = credits.get(entry.getKey());
+            if((left == null || left.get() > 0) && entry.getValue().poll(frame, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return any attached device, to sign messages that are not about one.
+     *
+     * @return Device id, or {@code null} if none is attached.
+     */
+    private String firstDevice() {
+        for(String device : devices) {
+            return device;
+        }
+        return null;
+    }
+
+    /**
+     * Stop using a connection and close it.
+     *
+     * @param current Connection to drop.
+     */
+    private void drop(Connection current) {
+        if(connection == current) {
+            connection = null;
+        }
+        try {
+            current.close();
+        } catch(IOException e) {
+            // already logged by the connection
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ca.mta.iottestbed.network;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Shares {@link Link}s between the devices of one process, so that every
+ * device reporting to the same meter from the same local address uses one
+ * connection. Links are counted as they are acquired and released, and
+ * closed once nobody holds them.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class LinkPool {
+
+    /**
+     * Pool shared by the whole process.
+     */
+    private static final LinkPool DEFAULT = new LinkPool();
+
+    /**
+     * Open links, by meter and local address.
+     */
+    private final Map<String, Link> links;
+
+    /**
+     * Create a new, empty LinkPool.
+     */
+    public LinkPool() {
+        this.links = new HashMap<String, Link>();
+    }
+
+    /**
+     * Return the pool shared by the whole process.
+     *
+     * @return Default pool.
+     */
+    public static LinkPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Return the link to a meter, opening and starting it if there is none.
+     * The queue settings and executor are only used for a new link.
+     *
+     * @param host Meter's host name or address.
+     * @param port Meter's port.
+     * @param local Local address to connect from, or {@code null} for any.
+     * @param capacity Largest number of messages queued on a new link.
+     * @param policy What to do when a new link's queue is full.
+     * @param executor Executor to run a new link on.
+     * @return Link, to be given back with {@link #release(Link)}.
+     */
+    public synchronized Link acquire(String host, int port, InetAddress local, int capacity,
+                                     OverflowPolicy policy, Executor executor) {
+        String key = key(host, port, local);
+        Link link = links.get(key);
+        if(link == null || link.isClosed()) {
+            link = new Link(host, port, local, capacity, policy);
+            link.start(executor);
+            links.put(key, link);
+        }
+        link.retain();
+        return link;
+    }
+
+    /**
+     * Give back a link, closing it if nobody else holds it.
+     *
+     * @param link Link from {@link #acquire}.
+     */
+    public synchronized void release(Link link) {
+        if(link.release() > 0) {
+            return;
+        }
+        links.values().remove(link);
+        link.close();
+    }
+
+    /**
+     * Return the number of open links.
+     *
+     * @return Links.
+     */
+    public synchronized int size() {
+        return links.size();
+    }
+
+    /**
+     * Return the key of a link.
+     *
+     * @param host Meter's host name or address.
+     * @param port Meter's port.
+     * @param local Local address, or {@code null} for any.
+     * @return Key.
+     */
+    private static String key(String host, int port, InetAddress local) {
+        return host + ":" + port + "/" + (local == null ? "*" : local.getHostAddress());
+    }
+}
@@ -2,12 +2,14 @@ package ca.mta.iottestbed.network;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import ca.mta.iottestbed.logger.Event;
 import ca.mta.iottestbed.logger.Loggable;
 import ca.mta.iottestbed.logger.Logger;
 
@@ -18,6 +20,11 @@ import ca.mta.iottestbed.logger.Logger;
  * @version 2023-06-14
  */
 public class Listener implements Closeable, Loggable {
+
+    /**
+     * Default maximum number of pending connections.
+     */
+    public static final int DEFAULT_BACKLOG = 50;
     
     /**
      * Socket to listen on.
@@ -41,7 +48,30 @@ public class Listener implements Closeable, Loggable {
      * @throws IOException If failed to open port.
      */
     public Listener(int port) throws IOException {
-        this.socket = new ServerSocket(port);
+        this(port, DEFAULT_BACKLOG);
+    }
+
+    /**
+     * Start listening on a port.
+     * 
+     * @param port Port to listen on.
+     * @param backlog Maximum number of pending connections.
+     * @throws IOException If failed to open port.
+     */
+    public Listener(int port, int backlog) throws IOException {
+        this(null, port, backlog);
+    }
+
+    /**
+     * Start listening on a port of one local address.
+     * 
+     * @param address Local address to listen on, or {@code null} for every address.
+     * @param port Port to listen on.
+     * @param backlog Maximum number of pending connections.
+     * @throws IOException If failed to open port.
+     */
+    public Listener(InetAddress address, int port, int backlog) throws IOException {
+        this.socket = new ServerSocket(port, backlog, address);
         this.port = port;
         this.loggers = Collections.synchronizedSet(new HashSet<Logger>());
     }
@@ -55,7 +85,7 @@ public class Listener implements Closeable, Loggable {
         // attempt to accept connection
         try {
             Socket incoming = socket.accept();
-            log("Opened connection to " + incoming.getInetAddress().getHostAddress() + ":" + incoming.getLocalPort());
+            log(NetworkEvent.OPENED, NetworkEvent.peer(incoming.getInetAddress(), incoming.getLocalPort()));
             
             // create a new Connection
             return new Connection(incoming);
@@ -100,6 +130,20 @@ public class Listener implements Closeable, Loggable {
             }
         }
     }
+
+    /**
+     * Write an event about a peer to the logger.
+     * 
+     * @param event Kind of event.
+     * @param peer Packed peer address and port.
+     */
+    private void log(Event event, long peer) {
+        synchronized (loggers) {
+            for(Logger logger : loggers) {
+                logger.log(event, 0, 0, peer);
+            }
+        }
+    }
     
     /**
      * Add a Logger to this Listener object. The Listener
@@ -0,0 +1,91 @@
+package ca.mta.iottestbed.network;
+
+/**
+ * Kinds of messages exchanged between sensors and meters.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public enum MessageType {
+
+    /**
+     * Binds a device id to a number used by later binary frames. Handled
+     * by {@link Connection} and never returned from {@link Connection#receive(Frame)}.
+     */
+    DEVICE(1),
+
+    /**
+     * A sensor accepting a meter ({@code OK}).
+     */
+    HELLO(2),
+
+    /**
+     * A sensor reporting a water and a power reading.
+     */
+    REPORT(3),
+
+    /**
+     * A request for a {@link #PONG}.
+     */
+    PING(4),
+
+    /**
+     * A reply to a {@link #PING}.
+     */
+    PONG(5),
+
+    /**
+     * A sensor reporting several readings at once.
+     */
+    BATCH(6),
+
+    /**
+     * A meter allowing a sensor to send more reports or batches.
+     */
+    CREDIT(7);
+
+    /**
+     * Types indexed by code.
+     */
+    private static final MessageType[] BY_CODE;
+
+    static {
+        BY_CODE = new MessageType[8];
+        for(MessageType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    /**
+     * Code sent over the wire.
+     */
+    private final byte code;
+
+    /**
+     * Create a new MessageType.
+     * 
+     * @param code Code sent over the wire.
+     */
+    private MessageType(int code) {
+        this.code = (byte) code;
+    }
+
+    /**
+     * Return the code sent over the wire.
+     * 
+     * @return Wire code.
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Return the type with a given wire code.
+     * 
+     * @param code Wire code.
+     * @return Matching type, or {@code null} if the code is unknown.
+     */
+    public static MessageType fromCode(byte code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
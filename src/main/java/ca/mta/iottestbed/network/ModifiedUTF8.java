@@ -0,0 +1,127 @@
+package ca.mta.iottestbed.network;
+
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes and decodes Strings in the "modified UTF-8" format used by
+ * {@link java.io.DataOutputStream#writeUTF(String)}, so that channel-based
+ * connections stay compatible with stream-based ones.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+final class ModifiedUTF8 {
+
+    /**
+     * Largest encoded length that fits in the two-byte length prefix.
+     */
+    static final int MAX_LENGTH = 65535;
+
+    private ModifiedUTF8() {}
+
+    /**
+     * Return the number of bytes needed to encode a String, not including
+     * the two-byte length prefix.
+     * 
+     * @param string String to measure.
+     * @return Encoded length in bytes.
+     */
+    static int length(String string) {
+        int length = 0;
+        for(int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if(c >= 0x0001 && c <= 0x007F) {
+                length += 1;
+            } else if(c > 0x07FF) {
+                length += 3;
+            } else {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Write a length-prefixed String into a buffer.
+     * 
+     * @param string String to write.
+     * @param buffer Destination buffer, with at least {@code 2 + length(string)} bytes remaining.
+     * @throws UTFDataFormatException if the encoded String is too long.
+     */
+    static void encode(String string, ByteBuffer buffer) throws UTFDataFormatException {
+        int length = length(string);
+        if(length > MAX_LENGTH) {
+            throw new UTFDataFormatException("Encoded string too long: " + length + " bytes");
+        }
+
+        buffer.putShort((short) length);
+        for(int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if(c >= 0x0001 && c <= 0x007F) {
+                buffer.put((byte) c);
+            } else if(c > 0x07FF) {
+                buffer.put((byte) (0xE0 | ((c >> 12) & 0x0F)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put((byte) (0xC0 | ((c >> 6) & 0x1F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Decode {@code length} bytes from a buffer into a String.
+     * 
+     * @param buffer Source buffer, positioned at the first encoded byte.
+     * @param length Number of encoded bytes.
+     * @param scratch Scratch space of at least {@code length} chars.
+     * @return Decoded String.
+     * @throws UTFDataFormatException if the bytes are malformed.
+     */
+    static String decode(ByteBuffer buffer, int length, char[] scratch) throws UTFDataFormatException {
+        int end = buffer.position() + length;
+        int count = 0;
+
+        while(buffer.position() < end) {
+            int a = buffer.get() & 0xFF;
+
+            // one byte
+            if((a & 0x80) == 0) {
+                scratch[count++] = (char) a;
+            }
+
+            // two bytes
+            else if((a & 0xE0) == 0xC0) {
+                if(buffer.position() + 1 > end) {
+                    throw new UTFDataFormatException("Truncated input");
+                }
+                int b = buffer.get() & 0xFF;
+                if((b & 0xC0) != 0x80) {
+                    throw new UTFDataFormatException("Malformed input");
+                }
+                scratch[count++] = (char) (((a & 0x1F) << 6) | (b & 0x3F));
+            }
+
+            // three bytes
+            else if((a & 0xF0) == 0xE0) {
+                if(buffer.position() + 2 > end) {
+                    throw new UTFDataFormatException("Truncated input");
+                }
+                int b = buffer.get() & 0xFF;
+                int c = buffer.get() & 0xFF;
+                if((b & 0xC0) != 0x80 || (c & 0xC0) != 0x80) {
+                    throw new UTFDataFormatException("Malformed input");
+                }
+                scratch[count++] = (char) (((a & 0x0F) << 12) | ((b & 0x3F) << 6) | (c & 0x3F));
+            }
+
+            else {
+                throw new UTFDataFormatException("Malformed input");
+            }
+        }
+
+        return new String(scratch, 0, count);
+    }
+}
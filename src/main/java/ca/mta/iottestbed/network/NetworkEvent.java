@@ -0,0 +1,139 @@
+package ca.mta.iottestbed.network;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+
+import ca.mta.iottestbed.logger.Event;
+
+/**
+ * Events logged by {@link Connection}, {@link Listener}, and {@link Reactor}.
+ *
+ * Every event has the same three fields: the message type's wire code, or
+ * {@code -1} for a text message; the message size in bytes; and the peer,
+ * packed by {@link #peer(InetAddress, int)}. Events that are not about one
+ * message leave the first two fields at 0.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public enum NetworkEvent implements Event {
+
+    /**
+     * A connection was accepted.
+     */
+    OPENED("Opened connection", false, "to"),
+
+    /**
+     * A message was sent.
+     */
+    SENT("Sent", true, "to"),
+
+    /**
+     * A message could not be sent.
+     */
+    SEND_FAILED("Failed to send", true, "to"),
+
+    /**
+     * A message was received.
+     */
+    RECEIVED("Received", true, "from"),
+
+    /**
+     * A read failed, usually because the peer closed.
+     */
+    RECEIVE_FAILED("Failed to receive message", false, "from"),
+
+    /**
+     * A connection was closed.
+     */
+    CLOSED("Closed connection", false, "to"),
+
+    /**
+     * A connection could not be closed.
+     */
+    CLOSE_FAILED("Failed to close connection", false, "to");
+
+    /**
+     * Text the line starts with.
+     */
+    private final String verb;
+
+    /**
+     * Whether the event is about one message.
+     */
+    private final boolean message;
+
+    /**
+     * Word before the peer.
+     */
+    private final String preposition;
+
+    /**
+     * Create a new NetworkEvent.
+     *
+     * @param verb Text the line starts with.
+     * @param message Whether the event is about one message.
+     * @param preposition Word before the peer.
+     */
+    private NetworkEvent(String verb, boolean message, String preposition) {
+        this.verb = verb;
+        this.message = message;
+        this.preposition = preposition;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getCode() {
+        return ordinal();
+    }
+
+    /**
+     * Append this event as a line, such as
+     * {@code Sent REPORT (52 bytes) to 127.0.0.1:5006}.
+     *
+     * @param out Destination.
+     * @param type Message type's wire code, or {@code -1} for text.
+     * @param size Message size, in bytes.
+     * @param peer Packed peer address and port.
+     */
+    @Override
+    public void format(StringBuilder out, long type, long size, long peer) {
+        out.append(verb);
+        if(message) {
+            MessageType known = type < 0 ? null : MessageType.fromCode((byte)type);
+            out.append(' ').append(known == null ? "message" : known.name())
+                .append(" (").append(size).append(" bytes)");
+        }
+        out.append(' ').append(preposition).append(' ');
+
+        // address and port, if known
+        if(peer < 0) {
+            out.append("unknown");
+        } else {
+            out.append((peer >>> 40) & 0xFF).append('.')
+                .append((peer >>> 32) & 0xFF).append('.')
+                .append((peer >>> 24) & 0xFF).append('.')
+                .append((peer >>> 16) & 0xFF).append(':')
+                .append(peer & 0xFFFF);
+        }
+    }
+
+    /**
+     * Pack an IPv4 address and a port into one field.
+     *
+     * @param address Address.
+     * @param port Port.
+     * @return Packed peer, or {@code -1} if the address is not IPv4.
+     */
+    public static long peer(InetAddress address, int port) {
+        if(!(address instanceof Inet4Address)) {
+            return -1;
+        }
+        byte[] bytes = address.getAddress();
+        long packed = 0;
+        for(byte part : bytes) {
+            packed = (packed << 8) | (part & 0xFF);
+        }
+        return (packed << 16) | (port & 0xFFFF);
+    }
+}
@@ -0,0 +1,267 @@
+package ca.mta.iottestbed.network;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import ca.mta.iottestbed.metrics.Counter;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+import ca.mta.iottestbed.metrics.TimedLock;
+
+/**
+ * A bounded queue of outgoing messages, drained by one writer through
+ * {@link #poll(Frame, long)}, as a {@link Link} does across reconnects.
+ * 
+ * Offering a message only copies it into the queue, so a slow or unresponsive
+ * peer delays nobody but itself. What happens when the queue is full is set
+ * by an {@link OverflowPolicy}. Queued messages are held in Frames allocated
+ * up front, so steady-state use does not allocate.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class OutboundQueue implements Closeable {
+
+    /**
+     * What to do when full.
+     */
+    private final OverflowPolicy policy;
+
+    /**
+     * Queued messages, used as a ring.
+     */
+    private final Frame[] slots;
+
+    /**
+     * Index of the oldest queued message.
+     */
+    private int head;
+
+    /**
+     * Number of queued messages.
+     */
+    private int size;
+
+    /**
+     * Number of messages discarded by {@link OverflowPolicy#DROP_OLDEST}.
+     */
+    private long dropped;
+
+    /**
+     * Counts discarded messages, or {@code null}.
+     */
+    private final Counter drops;
+
+    /**
+     * Whether the queue has stopped.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Whether {@link #wake()} was called since the last poll.
+     */
+    private boolean woken;
+
+    /**
+     * Guards the ring.
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Signalled when a message is queued, or the queue closes.
+     */
+    private final Condition notEmpty;
+
+    /**
+     * Signalled when a message is taken, or the queue closes.
+     */
+    private final Condition notFull;
+
+    /**
+     * Create a new OutboundQueue.
+     * 
+     * @param capacity Largest number of queued messages.
+     * @param policy What to do when full.
+     * @throws IllegalArgumentException if {@code capacity <= 0}
+     */
+    public OutboundQueue(int capacity, OverflowPolicy policy) {
+        this(capacity, policy, null);
+    }
+
+    /**
+     * Create a new OutboundQueue that counts the messages it discards.
+     * 
+     * @param capacity Largest number of queued messages.
+     * @param policy What to do when full.
+     * @param drops Counts discarded messages, or {@code null}.
+     * @throws IllegalArgumentException if {@code capacity <= 0}
+     */
+    public OutboundQueue(int capacity, OverflowPolicy policy, Counter drops) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Invalid queue capacity: " + capacity);
+        }
+        this.policy = policy;
+        this.drops = drops;
+        this.slots = new Frame[capacity];
+        for(int i = 0; i < capacity; i++) {
+            slots[i] = new Frame();
+        }
+        this.lock = new TimedLock(MetricsRegistry.getDefault().histogram(
+            "iottestbed_lock_wait_seconds", "Time spent waiting for contended locks.", "lock", "outbound_queue"));
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+    }
+
+    /**
+     * Queue a copy of a message.
+     * 
+     * @param frame Message to send.
+     * @return {@code true} if queued, or {@code false} if the queue is closed,
+     *         or was closed because it was full.
+     * @throws InterruptedException if interrupted while waiting under {@link OverflowPolicy#BLOCK}.
+     */
+    public boolean offer(Frame frame) throws InterruptedException {
+        lock.lock();
+        try {
+            // make room, according to the policy
+            while(size == slots.length && !closed) {
+                if(policy == OverflowPolicy.DROP_OLDEST) {
+                    head = (head + 1) % slots.length;
+                    size--;
+                    dropped++;
+                    if(drops != null) {
+                        drops.increment();
+                    }
+                } else if(policy == OverflowPolicy.BLOCK) {
+                    notFull.await();
+                } else {
+                    stop();
+                }
+            }
+
+            if(closed) {
+                return false;
+            }
+
+            slots[(head + size) % slots.length].copyFrom(frame);
+            size++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return whether the queue has stopped, because it was closed or it
+     * overflowed under {@link OverflowPolicy#DISCONNECT}.
+     * 
+     * @return {@code true} if closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Return the number of queued messages.
+     * 
+     * @return Queue length.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of messages discarded to make room.
+     * 
+     * @return Number of dropped messages.
+     */
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the queue and wake every waiter. Queued messages are discarded.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            stop();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait a limited time for a message and copy it out of the queue. The
+     * wait ends early after {@link #wake()}, even if it was called before
+     * the wait began.
+     * 
+     * @param frame Frame to copy into.
+     * @param timeout Longest time to wait, in milliseconds.
+     * @return {@code true} if a message was taken, or {@code false} if there
+     *         was none or the queue is closed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean poll(Frame frame, long timeout) throws InterruptedException {
+        lock.lock();
+        try {
+            if(size == 0 && !closed && !woken && timeout > 0) {
+                notEmpty.awaitNanos(TimeUnit.MILLISECONDS.toNanos(timeout));
+            }
+            woken = false;
+
+            if(size == 0 || closed) {
+                return false;
+            }
+
+            frame.copyFrom(slots[head]);
+            head = (head + 1) % slots.length;
+            size--;
+            notFull.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wake a thread waiting in {@link #poll(Frame, long)}, or keep the next
+     * poll from waiting if none is.
+     */
+    void wake() {
+        lock.lock();
+        try {
+            woken = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Mark the queue closed and wake every waiter. Must be called with the
+     * lock held.
+     */
+    private void stop() {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        size = 0;
+        notEmpty.signalAll();
+        notFull.signalAll();
+    }
+}
@@ -0,0 +1,26 @@
+package ca.mta.iottestbed.network;
+
+/**
+ * What an {@link OutboundQueue} does when a message is offered while it is full.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Discard the oldest queued message to make room.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Wait until the writer makes room.
+     */
+    BLOCK,
+
+    /**
+     * Close the queue, and the link it feeds, on the assumption that the peer
+     * is not keeping up.
+     */
+    DISCONNECT
+}
@@ -0,0 +1,38 @@
+package ca.mta.iottestbed.network;
+
+/**
+ * Wire formats a {@link Connection} can speak.
+ * 
+ * Every connection starts in {@link #TEXT}. A meter offers the binary format
+ * by adding {@link #OFFER} to its {@code addmeter} message, and a sensor that
+ * supports it accepts by adding the same token to its {@code OK} reply. A
+ * sensor that opens the connection itself offers the token in its
+ * {@code OK}, and the meter accepts with an {@code OK} carrying it too. Both
+ * sides then switch to {@link #BINARY}. Peers that do not know the token
+ * ignore it and keep using text.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public enum Protocol {
+
+    /**
+     * Tokens delimited by {@code ::_::}, sent with {@code writeUTF}.
+     */
+    TEXT,
+
+    /**
+     * Length-prefixed binary frames. See {@code doc/communication.md}.
+     */
+    BINARY;
+
+    /**
+     * Version of the binary format.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Handshake token offering or accepting the binary format.
+     */
+    public static final String OFFER = "proto=" + VERSION;
+}
@@ -0,0 +1,245 @@
+package ca.mta.iottestbed.network;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import ca.mta.iottestbed.logger.Event;
+import ca.mta.iottestbed.logger.Loggable;
+import ca.mta.iottestbed.logger.Logger;
+
+/**
+ * A non-blocking server that serves every incoming connection on a small,
+ * fixed number of event loop threads.
+ * 
+ * One thread accepts connections and hands them to the event loops in
+ * round-robin order. Each event loop reads from its channels with a
+ * {@link java.nio.channels.Selector}, decodes complete messages, and passes
+ * them to a {@link FrameHandler}. Connections are exposed to the handler as
+ * ordinary {@link Connection} objects, so replies use {@link Connection#send(String...)}.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Reactor implements Closeable, Loggable {
+
+    /**
+     * Socket to accept connections on.
+     */
+    private ServerSocketChannel server;
+
+    /**
+     * Event loops serving accepted connections.
+     */
+    private EventLoop[] loops;
+
+    /**
+     * Index of the event loop that will receive the next connection.
+     */
+    private int next;
+
+    /**
+     * Port to listen on.
+     */
+    private int port;
+
+    /**
+     * Whether the reactor is accepting connections.
+     */
+    private volatile boolean active;
+
+    /**
+     * Optional logger to write to.
+     */
+    private Set<Logger> loggers;
+
+    /**
+     * Start listening on a port.
+     * 
+     * @param port Port to listen on, or 0 for any free port.
+     * @param threads Number of event loop threads.
+     * @param handler Receiver of connection events.
+     * @throws IOException If failed to open port.
+     * @throws IllegalArgumentException if {@code threads <= 0}
+     * @throws NullPointerException if {@code handler} is {@code null}
+     */
+    public Reactor(int port, int threads, FrameHandler handler) throws IOException {
+        this(port, threads, Listener.DEFAULT_BACKLOG, handler);
+    }
+
+    /**
+     * Start listening on a port.
+     * 
+     * @param port Port to listen on, or 0 for any free port.
+     * @param threads Number of event loop threads.
+     * @param backlog Maximum number of pending connections.
+     * @param handler Receiver of connection events.
+     * @throws IOException If failed to open port.
+     * @throws IllegalArgumentException if {@code threads <= 0}
+     * @throws NullPointerException if {@code handler} is {@code null}
+     */
+    public Reactor(int port, int threads, int backlog, FrameHandler handler) throws IOException {
+        if(threads <= 0) {
+            throw new IllegalArgumentException("Invalid number of event loops: " + threads);
+        }
+        Objects.requireNonNull(handler);
+
+        this.loggers = Collections.synchronizedSet(new HashSet<Logger>());
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(port), backlog);
+        this.port = server.socket().getLocalPort();
+
+        this.loops = new EventLoop[threads];
+        for(int i = 0; i < threads; i++) {
+            loops[i] = new EventLoop(this, handler);
+        }
+    }
+
+    /**
+     * Start the event loops and begin accepting connections, each on
+     * a new thread.
+     */
+    public void start() {
+        start(new Executor() {
+            private int count;
+
+            @Override
+            public void execute(Runnable task) {
+                new Thread(task, "reactor-" + port + "-" + count++).start();
+            }
+        });
+    }
+
+    /**
+     * Start the event loops and begin accepting connections. The executor
+     * must run every task concurrently, since none of them return until
+     * the Reactor is closed.
+     * 
+     * @param executor Executor to run the event loops and acceptor on.
+     */
+    public void start(Executor executor) {
+        active = true;
+
+        for(EventLoop loop : loops) {
+            executor.execute(loop);
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        });
+    }
+
+    /**
+     * Return the port this Reactor is listening on.
+     * 
+     * @return Local port.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Accept connections until closed.
+     */
+    private void accept() {
+        while(active) {
+            try {
+                SocketChannel incoming = server.accept();
+                log(NetworkEvent.OPENED, NetworkEvent.peer(incoming.socket().getInetAddress(), incoming.socket().getLocalPort()));
+
+                // hand off to the next event loop
+                loops[next].register(incoming);
+                next = (next + 1) % loops.length;
+            }
+            catch(ClosedChannelException e) {
+                active = false;
+            }
+            catch(IOException e) {
+                log("Failed to connect.");
+            }
+        }
+    }
+
+    /**
+     * Stop accepting connections and close every open connection.
+     * 
+     * @throws IOException if an I/O error occurs while closing the server socket
+     */
+    @Override
+    public void close() throws IOException {
+        active = false;
+        for(EventLoop loop : loops) {
+            loop.close();
+        }
+
+        try {
+            server.close();
+            log("Closed reactor on port " + port);
+        }
+        catch(IOException e) {
+            log("Failed to close reactor on port " + port);
+            throw new IOException("Failed to close reactor on port " + port, e);
+        }
+    }
+
+    /**
+     * Write to the logger.
+     * 
+     * @param message Message to log.
+     */
+    void log(String message) {
+        synchronized (loggers) {
+            for(Logger logger : loggers) {
+                logger.log(message);
+            }
+        }
+    }
+
+    /**
+     * Write an event about a peer to the logger.
+     * 
+     * @param event Kind of event.
+     * @param peer Packed peer address and port.
+     */
+    private void log(Event event, long peer) {
+        synchronized (loggers) {
+            for(Logger logger : loggers) {
+                logger.log(event, 0, 0, peer);
+            }
+        }
+    }
+
+    /**
+     * Add a Logger to this Reactor object. The Reactor
+     * will write logs to this Logger.
+     * 
+     * @param logger Logger to add.
+     */
+    @Override
+    public void addLogger(Logger logger) {
+        loggers.add(logger);
+    }
+
+    /**
+     * Remove a Logger from this Reactor object. The
+     * Reactor will no longer write to a Logger after
+     * it is removed.
+     * 
+     * @param logger Logger to remove.
+     */
+    @Override
+    public void removeLogger(Logger logger) {
+        loggers.remove(logger);
+    }
+}
@@ -0,0 +1,124 @@
+package ca.mta.iottestbed.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Per-channel state for a connection served by an {@link EventLoop}.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class Session {
+
+    /**
+     * Initial size of the read buffer. Grown on demand for large messages.
+     */
+    private static final int INITIAL_READ_SIZE = 512;
+
+    /**
+     * Channel this session reads from and writes to.
+     */
+    final SocketChannel channel;
+
+    /**
+     * Event loop that owns this session.
+     */
+    final EventLoop loop;
+
+    /**
+     * Connection facade handed to the {@link FrameHandler}.
+     */
+    final Connection connection;
+
+    /**
+     * Selection key, set once the channel is registered.
+     */
+    SelectionKey key;
+
+    /**
+     * Bytes read but not yet decoded. Always left in write mode.
+     */
+    ByteBuffer readBuffer;
+
+    /**
+     * Encoded messages waiting for the channel to become writable.
+     */
+    private final Deque<ByteBuffer> writeQueue;
+
+    /**
+     * Create a new Session.
+     * 
+     * @param channel Channel to serve.
+     * @param loop Event loop that owns the channel.
+     */
+    Session(SocketChannel channel, EventLoop loop) {
+        this.channel = channel;
+        this.loop = loop;
+        this.readBuffer = ByteBuffer.allocate(INITIAL_READ_SIZE);
+        this.writeQueue = new ArrayDeque<ByteBuffer>();
+        this.connection = new Connection(this);
+    }
+
+    /**
+     * Make room in the read buffer for at least {@code needed} bytes in total.
+     * 
+     * @param needed Required capacity.
+     */
+    void ensureReadCapacity(int needed) {
+        if(readBuffer.capacity() < needed) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(needed, 2 * readBuffer.capacity()));
+            readBuffer.flip();
+            larger.put(readBuffer);
+            readBuffer = larger;
+        }
+    }
+
+    /**
+     * Write an encoded message. Writes directly if nothing is queued, and
+     * queues the remainder for the event loop otherwise. The buffer is
+     * returned to the {@link BufferPool} once written.
+     * 
+     * @param data Encoded message.
+     * @throws IOException if the channel is closed or the write fails.
+     */
+    void write(ByteBuffer data) throws IOException {
+        synchronized (writeQueue) {
+            if(writeQueue.isEmpty()) {
+                channel.write(data);
+                if(!data.hasRemaining()) {
+                    BufferPool.release(data);
+                    return;
+                }
+            }
+            writeQueue.addLast(data);
+        }
+        loop.requestWrite(this);
+    }
+
+    /**
+     * Write as much queued data as the channel will accept. Once the queue
+     * is empty, stop waiting for the channel to become writable; this is
+     * done under the queue's lock, so a message queued by another thread
+     * cannot be left behind.
+     * 
+     * @throws IOException if the write fails.
+     */
+    void flushQueue() throws IOException {
+        synchronized (writeQueue) {
+            while(!writeQueue.isEmpty()) {
+                ByteBuffer head = writeQueue.peekFirst();
+                channel.write(head);
+                if(head.hasRemaining()) {
+                    return;
+                }
+                BufferPool.release(writeQueue.removeFirst());
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+}
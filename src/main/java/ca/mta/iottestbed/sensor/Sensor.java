@@ -1,32 +1,77 @@
 package ca.mta.iottestbed.sensor;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
-import ca.mta.iottestbed.logger.BufferedLogger;
+import ca.mta.iottestbed.concurrent.ExecutionMode;
+import ca.mta.iottestbed.discovery.Announcer;
+import ca.mta.iottestbed.discovery.Discovery;
+import ca.mta.iottestbed.discovery.MeterListener;
+import ca.mta.iottestbed.logger.FullPolicy;
+import ca.mta.iottestbed.logger.RingBufferLogger;
+import ca.mta.iottestbed.metrics.Counter;
+import ca.mta.iottestbed.metrics.Gauge;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+import ca.mta.iottestbed.metrics.MetricsServer;
 import ca.mta.iottestbed.network.Connection;
+import ca.mta.iottestbed.network.Frame;
+import ca.mta.iottestbed.network.Link;
+import ca.mta.iottestbed.network.LinkPool;
 import ca.mta.iottestbed.network.Listener;
+import ca.mta.iottestbed.network.OverflowPolicy;
 
 /**
  * A connected sensor.
  * 
  * @author Hayden Walker
- * @version 2023-06-13
+ * @version 2026-10-17
  */
 public class Sensor {
     
     /**
-     * The sensor will listen for information from meters on this port.
+     * By default, the sensor will listen for information from meters on this port.
      */
-    private static final int LISTENING_PORT = 5005;
+    public static final int DEFAULT_LISTENING_PORT = 5005;
 
     /**
-     * The sensor will send information to meters on this port.
+     * By default, the sensor will send information to meters on this port.
      */
-    private static final int SENDING_PORT = 5006;
+    public static final int DEFAULT_SENDING_PORT = 5006;
+
+    /**
+     * Default milliseconds between samples.
+     */
+    private static final long DEFAULT_SAMPLING_INTERVAL = 5000;
+
+    /**
+     * Default number of messages queued for each meter.
+     */
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    /**
+     * Number of network log lines kept between prints. A sensor logs a
+     * few lines per report, so this is small enough for thousands of
+     * sensors to share a process.
+     */
+    private static final int NETWORK_LOG_CAPACITY = 1024;
+
+    /**
+     * Credit left with a meter below which batches are made larger.
+     */
+    private static final int LOW_CREDITS = 2;
+
+    /**
+     * Credit left with every meter at or above which batches are made
+     * smaller again.
+     */
+    private static final int HIGH_CREDITS = 8;
 
     /**
      * Maximum power consumption.
@@ -44,122 +89,479 @@ public class Sensor {
     private String name;
 
     /**
-     * Set of active connections.
+     * Link to each meter, shared with other sensors in this process that
+     * report to the same meter. Copy-on-write, so that reporting and
+     * adding meters never wait for each other.
      */
-    private Set<Connection> connections;
+    private List<Link> links;
     
     /**
      * Logger for network messages.
      */
-    private BufferedLogger networkLog;
+    private RingBufferLogger networkLog;
 
     /**
-     * Create a new Appliance object.
+     * Runs the sensor's listener and reporting loops.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Milliseconds between samples.
+     */
+    private long samplingInterval;
+
+    /**
+     * Largest number of samples sent in one message.
+     */
+    private int batchSize;
+
+    /**
+     * Longest time, in milliseconds, a sample may wait to be sent, or 0 for no limit.
+     */
+    private long batchWindow;
+
+    /**
+     * How many times larger than {@link #batchSize} batches are made, and
+     * how many times longer than {@link #batchWindow} they may wait, while
+     * meters are short of credit. 1 when they are not.
+     */
+    private volatile int stretch;
+
+    /**
+     * Samples waiting to be sent.
+     */
+    private Frame batch;
+
+    /**
+     * Reused to send a batch holding one sample as a report.
+     */
+    private Frame single;
+
+    /**
+     * Largest number of messages queued for each meter.
+     */
+    private int queueCapacity;
+
+    /**
+     * What to do when a meter's queue is full.
+     */
+    private OverflowPolicy overflowPolicy;
+
+    /**
+     * Local address to listen on and connect from, or {@code null} for any.
+     */
+    private InetAddress address;
+
+    /**
+     * Port to listen for meters on.
+     */
+    private int listeningPort;
+
+    /**
+     * Port to send readings to meters on.
+     */
+    private int sendingPort;
+
+    /**
+     * Whether network activity is printed.
+     */
+    private boolean printing;
+
+    /**
+     * Multicast group to announce on, or {@code null} to wait to be asked.
+     */
+    private InetSocketAddress discoveryGroup;
+
+    /**
+     * Interface to announce on, or {@code null} for the system default.
+     */
+    private NetworkInterface discoveryInterface;
+
+    /**
+     * Announces the sensor, once started.
+     */
+    private Announcer announcer;
+
+    /**
+     * Listens for meters, once started.
+     */
+    private Listener listener;
+
+    /**
+     * Whether the sensor has been stopped.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Reports queued for meters.
+     */
+    private Counter reports;
+
+    /**
+     * Create a new Appliance object that runs on platform threads.
      * 
      * @param power Power consumption.
      * @param water Water consumption.
      */
     public Sensor(String name, int water, int power) {
+        this(name, water, power, ExecutionMode.PLATFORM);
+    }
+
+    /**
+     * Create a new Appliance object.
+     * 
+     * @param power Power consumption.
+     * @param water Water consumption.
+     * @param mode Kind of threads to run on.
+     * @throws UnsupportedOperationException if {@code mode} is not available in this JVM.
+     */
+    public Sensor(String name, int water, int power, ExecutionMode mode) {
+        this.executor = mode.newExecutor("sensor-" + name);
         this.name = name;
         this.power = power;
         this.water = water;
-        this.connections = Collections.synchronizedSet(new HashSet<Connection>());
-        this.networkLog = new BufferedLogger();
+        this.links = new CopyOnWriteArrayList<Link>();
+        this.networkLog = new RingBufferLogger(NETWORK_LOG_CAPACITY, FullPolicy.DROP);
         this.networkLog.timestampEnabled(true);
+        this.samplingInterval = DEFAULT_SAMPLING_INTERVAL;
+        this.batchSize = 1;
+        this.batchWindow = 0;
+        this.stretch = 1;
+        this.batch = new Frame();
+        this.batch.setBatch(name);
+        this.single = new Frame();
+        this.queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        this.overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        this.listeningPort = DEFAULT_LISTENING_PORT;
+        this.sendingPort = DEFAULT_SENDING_PORT;
+        this.printing = true;
+
+        // report meters and queued messages when metrics are read
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        this.reports = metrics.counter("iottestbed_sensor_reports_total", "Reports queued for meters by a sensor.", "sensor", name);
+        metrics.register("iottestbed_sensor_meters", "Meters a sensor is reporting to.", new Gauge() {
+            @Override
+            public long get() {
+                return links.size();
+            }
+        }, "sensor", name);
+        metrics.register("iottestbed_sensor_queued_messages", "Messages waiting in a sensor's outbound queues.", new Gauge() {
+            @Override
+            public long get() {
+                long queued = 0;
+                for(Link link : links) {
+                    queued += link.size();
+                }
+                return queued;
+            }
+        }, "sensor", name);
+        metrics.register("iottestbed_sensor_batch_size", "Samples a sensor sends per message, after adapting to credit.", new Gauge() {
+            @Override
+            public long get() {
+                return Math.min(Frame.MAX_READINGS, (long)batchSize * stretch);
+            }
+        }, "sensor", name);
     }
 
     /**
-     * Get the current power consumption.
+     * Get the power consumption at a point in time.
      * 
-     * @return The current water consumption.
+     * @param milliseconds UNIX time, in milliseconds.
+     * @return The power consumption.
      */
-    private double getPower() {
-        // get UNIX time and plug into sine wave with power consumption as amplitude
-        long milliseconds = System.currentTimeMillis();
+    private double getPower(long milliseconds) {
+        // plug UNIX time into sine wave with power consumption as amplitude
         return power * Math.abs(Math.sin(milliseconds));
     }
 
     /**
-     * Get the current water consumption.
+     * Get the water consumption at a point in time.
      * 
-     * @return The current water consumption.
+     * @param milliseconds UNIX time, in milliseconds.
+     * @return The water consumption.
      */
-    private double getWater() {
-        // get UNIX time and plug into sine wave with water consumption as amplitude
-        long milliseconds = System.currentTimeMillis();
+    private double getWater(long milliseconds) {
+        // plug UNIX time into sine wave with water consumption as amplitude
         return water * Math.abs(Math.sin(milliseconds));
+    }
+
+    /**
+     * Take a sample and add it to the current batch. While a meter is out
+     * of credit, samples are kept in the batch until it is full, rather
+     * than queued as more messages the meter cannot take yet.
+     * 
+     * @return {@code true} if the batch is full, or its oldest sample has
+     *         waited for the batch window, and it should be reported.
+     */
+    private boolean sample() {
+        long now = System.currentTimeMillis();
+        batch.addReading(now, getWater(now), getPower(now));
+        if(batch.getCount() >= Frame.MAX_READINGS) {
+            return true;
+        }
+        if(outOfCredit()) {
+            return false;
+        }
+        return batch.getCount() >= Math.min(Frame.MAX_READINGS, (long)batchSize * stretch)
+            || (batchWindow > 0 && now - batch.getTimestamp(0) >= batchWindow * stretch);
+    }
 
+    /**
+     * Return whether any meter has left this sensor no credit.
+     * 
+     * @return {@code true} if a report would wait for credit.
+     */
+    private boolean outOfCredit() {
+        for(Link link : links) {
+            if(link.getCredits(name) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adapt the batch size to the credit meters have granted. While any
+     * meter is short of credit, batches are doubled, so the same samples
+     * take fewer messages; once every meter has credit to spare, they are
+     * halved again. Meters that do not grant credit are ignored.
+     */
+    private void adapt() {
+        boolean low = false;
+        boolean high = true;
+        for(Link link : links) {
+            int credits = link.getCredits(name);
+            if(credits >= 0 && credits < LOW_CREDITS) {
+                low = true;
+            }
+            if(credits >= 0 && credits < HIGH_CREDITS) {
+                high = false;
+            }
+        }
+
+        if(low && (long)batchSize * stretch < Frame.MAX_READINGS) {
+            stretch *= 2;
+        } else if(high && stretch > 1) {
+            stretch /= 2;
+        }
     }
 
     /**
      * Report sensor readings to connected meters.
      * 
-     * Will call {@link #getWater()} and {@link #getPower()}, format the readings into
-     * a {@link String}, and attempt to send that String to every {@link Socket} in {@link #connections}.
+     * Queues the current batch as one {@link Frame} for every link in
+     * {@link #links}. A batch holding one sample is sent as a plain report.
+     * Each link's writer sends it in the background, so a slow meter
+     * does not hold up the others.
      * 
-     * If a send fails, will attempt to close the connection to the socket, and remove the socket
-     * from {@link #connections}.
+     * Links that have closed, because their queue overflowed under
+     * {@link OverflowPolicy#DISCONNECT}, are removed from {@link #links}
+     * and released.
+     * The next batch's size is then adapted to the meters' credit.
      */
     private void reportReadings() {
-        // get readings
-        double water = getWater();
-        double power = getPower();
+        // send a lone sample as a report
+        Frame report = batch;
+        if(batch.getCount() == 1) {
+            report = single;
+            report.setReport(name, batch.getTimestamp(), batch.getWater(), batch.getPower());
+        }
       
-        // iterate over each connection
-        synchronized (connections) {
-            Iterator<Connection> iterator = connections.iterator();
-
-            while(iterator.hasNext()) {    
-                // get next connection
-                Connection thisSocket = iterator.next();
-        
-                // attempt to send message. if send fails, attempt to close.
-                // if close is successful, remove connection.
-                if(!thisSocket.send(name, "report", "w:" + water, "e:" + power)) {
-                    try {
-                        thisSocket.close();
-                        iterator.remove();
-                    } catch (IOException ioe) {
-                        // close is unsuccessful, do not remove connection
-                    }
-                } 
+        // queue for each meter
+        for(Link link : links) {
+            try {
+                if(link.offer(report)) {
+                    reports.increment();
+                } else {
+                    release(link);
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
         }
+
+        // start the next batch
+        batch.setBatch(name);
+        adapt();
     }
 
     /**
-     * Listen for incoming connections.
+     * Set how often the sensor samples, and how samples are batched.
+     * 
+     * Samples are collected into one message until {@code batchSize} samples
+     * have been taken, or the oldest has waited {@code batchWindow} milliseconds,
+     * whichever comes first. By default, one sample is taken and reported
+     * every 5 seconds. Call before {@link #start()}.
      * 
-     * @throws IOException If attempt to open port fails.
+     * @param samplingInterval Milliseconds between samples.
+     * @param batchSize Largest number of samples per message.
+     * @param batchWindow Longest time, in milliseconds, a sample may wait before
+     *                    being sent, or 0 for no limit.
+     * @throws IllegalArgumentException if any argument is out of range.
      */
-    private void listen() throws IOException {
-        
-        Listener listener = new Listener(LISTENING_PORT);
-        listener.addLogger(networkLog);
-        
+    public void setBatching(long samplingInterval, int batchSize, long batchWindow) {
+        if(samplingInterval <= 0) {
+            throw new IllegalArgumentException("Invalid sampling interval: " + samplingInterval);
+        }
+        if(batchSize <= 0 || batchSize > Frame.MAX_READINGS) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+        if(batchWindow < 0) {
+            throw new IllegalArgumentException("Invalid batch window: " + batchWindow);
+        }
+        this.samplingInterval = samplingInterval;
+        this.batchSize = batchSize;
+        this.batchWindow = batchWindow;
+    }
+
+    /**
+     * Set how messages are queued for each meter. By default, each meter
+     * has room for 64 messages, and the oldest
+     * message is dropped when a meter falls further behind. Applies to links
+     * opened after the call; a link already shared with another sensor keeps
+     * its settings.
+     * 
+     * @param capacity Largest number of messages queued for one meter.
+     * @param policy What to do when a meter's queue is full.
+     * @throws IllegalArgumentException if {@code capacity <= 0}
+     */
+    public void setOutboundQueue(int capacity, OverflowPolicy policy) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Invalid queue capacity: " + capacity);
+        }
+        this.queueCapacity = capacity;
+        this.overflowPolicy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * Set the local address and ports the sensor uses. By default, the
+     * sensor listens on port 5005 of every address, and sends to port 5006.
+     * Giving each sensor its own address, such as one of the many loopback
+     * addresses, lets many sensors share a machine. Call before {@link #start()}.
+     * 
+     * @param address Local address to listen on and connect from, or {@code null} for any.
+     * @param listeningPort Port to listen for meters on.
+     * @param sendingPort Port to send readings to meters on.
+     * @throws IllegalArgumentException if a port is out of range.
+     */
+    public void setAddress(InetAddress address, int listeningPort, int sendingPort) {
+        if(listeningPort < 0 || listeningPort > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid listening port: " + listeningPort);
+        }
+        if(sendingPort <= 0 || sendingPort > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid sending port: " + sendingPort);
+        }
+        this.address = address;
+        this.listeningPort = listeningPort;
+        this.sendingPort = sendingPort;
+    }
+
+    /**
+     * Announce the sensor on a multicast group once started, and report to
+     * every meter that replies. See {@link Announcer}. Call after
+     * {@link #setAddress(InetAddress, int, int)} and before {@link #start()}.
+     * 
+     * @param group Multicast group and port, or {@code null} to wait to be asked.
+     * @param networkInterface Interface to announce on, or {@code null} for the
+     *                         interface holding the sensor's address.
+     * @throws IOException if no interface holds the sensor's address.
+     */
+    public void setDiscovery(InetSocketAddress group, NetworkInterface networkInterface) throws IOException {
+        this.discoveryGroup = group;
+        this.discoveryInterface = networkInterface == null ? Discovery.interfaceFor(address) : networkInterface;
+    }
+
+    /**
+     * Set whether network activity is printed after each report. It is
+     * printed by default. When it is not, messages to meters are not logged
+     * at all, which saves formatting every report. Call before {@link #start()}.
+     * 
+     * @param printing {@code true} to print network activity.
+     */
+    public void setPrinting(boolean printing) {
+        this.printing = printing;
+    }
+
+    /**
+     * Report to a meter. Readings go over a {@link Link} the sensor dials
+     * itself and keeps open, shared with any other sensor in this process
+     * reporting to the same meter from the same address.
+     * 
+     * @param host Meter's host name or address.
+     * @param port Meter's listening port.
+     */
+    public void addMeter(String host, int port) {
+        if(stopped) {
+            return;
+        }
+        Link link = LinkPool.getDefault().acquire(host, port, address, queueCapacity, overflowPolicy, executor);
+        if(links.contains(link)) {
+            LinkPool.getDefault().release(link);
+            return;
+        }
+        if(printing) {
+            link.addLogger(networkLog);
+        }
+        link.attach(name);
+        links.add(link);
+    }
+
+    /**
+     * Stop reporting over a link and hand it back to the pool, which
+     * closes it once no other sensor uses it.
+     * 
+     * @param link Link to release.
+     */
+    private void release(Link link) {
+        if(!links.remove(link)) {
+            return;
+        }
+        link.detach(name);
+        link.removeLogger(networkLog);
+        LinkPool.getDefault().release(link);
+    }
+
+    /**
+     * Listen for meters asking the sensor to report to them.
+     * 
+     * A meter sends {@code addmeter} and closes the connection; the sensor
+     * then reports over a link of its own to the meter's address.
+     * 
+     * @param listener Listener to accept connections from.
+     */
+    private void listen(Listener listener) {
         boolean active = true;
 
         while(active) {
             // accept an incoming connection
             Connection connection = listener.accept();
+            if(connection == null) {
+                active = false;
+                continue;
+            }
             connection.addLogger(networkLog);
             
             // read input
             String[] terms = connection.receive();
             
             // if the connection wants to add a meter, add a meter
-            if(terms[0].equals("addmeter")) {
-                Connection newConnection = new Connection(connection.getIP().toString(), SENDING_PORT);
-                newConnection.addLogger(networkLog);
-                newConnection.send(name, "OK");
-                synchronized (connections) {
-                    connections.add(newConnection);
-                }
+            if(terms != null && terms[0].equals("addmeter")) {
+                addMeter(connection.getIP(), sendingPort);
+            }
 
+            try {
+                connection.close();
+            } catch(IOException e) {
+                // already logged by the connection
             }
         }
 
-        listener.close();
+        try {
+            listener.close();
+        } catch(IOException e) {
+            // already logged by the listener
+        }
     }
 
     /**
@@ -169,32 +571,89 @@ public class Sensor {
      * @throws InterruptedException If listeneing thread is interrupted.
      */
     public void start() throws IOException, InterruptedException {
+        // open the port now, so meters can connect once start returns
+        listener = new Listener(address, listeningPort, Listener.DEFAULT_BACKLOG);
+        listener.addLogger(networkLog);
+
         // listen for connections in a new thread
-        new Thread(new Runnable() {
+        executor.execute(new Runnable() {
             @Override
             public void run() {
-                try { listen(); } catch(IOException e) {}
+                listen(listener);
             }
-        }).start();
+        });
 
+        // announce, and report to meters that reply
+        if(discoveryGroup != null) {
+            announcer = new Announcer(name, address, discoveryGroup, discoveryInterface, new MeterListener() {
+                @Override
+                public void onMeter(String meter, InetAddress meterAddress, int port) {
+                    addMeter(meterAddress.getHostAddress(), port);
+                }
+            });
+            announcer.start(executor);
+        }
 
-        new Thread(new Runnable() {
+        executor.execute(new Runnable() {
             @Override
             public void run() {
-                // report readings every 5 seconds
-                while(true) {
-                    reportReadings();
-                    networkLog.printFlush();
+                // sample periodically, and report readings when a batch is ready
+                while(!stopped) {
+                    if(sample()) {
+                        reportReadings();
+                        if(printing) {
+                            networkLog.printFlush();
+                        }
+                    }
                     //TimeUnit.SECONDS.sleep(5);
                     
                     try {
-                        Thread.sleep(5000);
+                        Thread.sleep(samplingInterval);
                     } catch (InterruptedException e) {
                         e.printStackTrace();
                     }
                 }
             }
-        }).start();
+        });
+    }
+
+    /**
+     * Stop sampling, listening and announcing, and release every link. A
+     * link shared with another sensor stays open for it, so the executor is
+     * left running, and the sampling loop ends after its current interval.
+     */
+    public void stop() {
+        stopped = true;
+        if(announcer != null) {
+            announcer.close();
+        }
+        if(listener != null) {
+            try {
+                listener.close();
+            } catch(IOException e) {
+                // already logged by the listener
+            }
+        }
+        for(Link link : links) {
+            release(link);
+        }
+
+        // a stopped sensor's metrics would otherwise be scraped forever
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.remove("iottestbed_sensor_reports_total", "sensor", name);
+        metrics.remove("iottestbed_sensor_meters", "sensor", name);
+        metrics.remove("iottestbed_sensor_queued_messages", "sensor", name);
+        metrics.remove("iottestbed_sensor_batch_size", "sensor", name);
+    }
+
+    /**
+     * Wait until the sensor's loops have stopped. Virtual threads do not keep
+     * the JVM alive, so {@code main} waits here after starting.
+     * 
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void join() throws InterruptedException {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -206,8 +665,24 @@ public class Sensor {
      */
     public static void main(String[] args) throws IOException, InterruptedException {
         //Appliance a1 = new Appliance(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
-        Sensor a1 = new Sensor("A1", 10, 10);
+        Sensor a1 = new Sensor("A1", 10, 10, ExecutionMode.valueOf(System.getProperty("iottestbed.execution", "PLATFORM")));
+        a1.setBatching(
+            Long.getLong("iottestbed.sampling", DEFAULT_SAMPLING_INTERVAL),
+            Integer.getInteger("iottestbed.batch", 1),
+            Long.getLong("iottestbed.window", 0));
+        if(Integer.getInteger("iottestbed.metrics") != null) {
+            InetAddress address = InetAddress.getByName(
+                System.getProperty("iottestbed.metricsAddress", InetAddress.getLoopbackAddress().getHostAddress()));
+            new MetricsServer(MetricsRegistry.getDefault(), address, Integer.getInteger("iottestbed.metrics")).start();
+        }
+        if(System.getProperty("iottestbed.discovery") != null) {
+            a1.setDiscovery(Discovery.defaultGroup(), NetworkInterface.getByName(System.getProperty("iottestbed.discovery")));
+        }
         a1.start();
+        if(System.getProperty("iottestbed.meter") != null) {
+            a1.addMeter(System.getProperty("iottestbed.meter"), DEFAULT_SENDING_PORT);
+        }
+        a1.join();
 
         // // start the program
         // try {
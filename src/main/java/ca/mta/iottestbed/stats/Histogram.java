@@ -0,0 +1,91 @@
+package ca.mta.iottestbed.stats;
+
+/**
+ * Maps readings to the buckets of a fixed-size, log-scaled histogram.
+ * 
+ * Each power of two from 2<sup>-16</sup> to 2<sup>16</sup> is split into
+ * eight buckets, for positive and negative readings, with one bucket for
+ * zero. A bucket's midpoint is within about 6% of every reading in it.
+ * Readings beyond the range go in the outermost buckets.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+final class Histogram {
+
+    /**
+     * Smallest power of two with buckets of its own.
+     */
+    private static final int MIN_EXPONENT = -16;
+
+    /**
+     * Number of powers of two with buckets.
+     */
+    private static final int EXPONENTS = 32;
+
+    /**
+     * Mantissa bits used to split each power of two.
+     */
+    private static final int SUB_BITS = 3;
+
+    /**
+     * Buckets for readings of one sign.
+     */
+    private static final int HALF = EXPONENTS << SUB_BITS;
+
+    /**
+     * Number of buckets.
+     */
+    static final int BUCKETS = 2 * HALF + 1;
+
+    /**
+     * Not instantiable.
+     */
+    private Histogram() {
+    }
+
+    /**
+     * Return the bucket for a reading.
+     * 
+     * @param value Reading.
+     * @return Bucket, from 0 to {@link #BUCKETS} - 1.
+     */
+    static int bucket(double value) {
+        if(value == 0 || Double.isNaN(value)) {
+            return HALF;
+        }
+
+        // exponent and top mantissa bits of the magnitude
+        long bits = Double.doubleToRawLongBits(Math.abs(value));
+        int exponent = (int)(bits >>> 52) - 1023;
+        int offset;
+        if(exponent < MIN_EXPONENT) {
+            offset = 0;
+        } else if(exponent >= MIN_EXPONENT + EXPONENTS) {
+            offset = HALF - 1;
+        } else {
+            int sub = (int)(bits >>> (52 - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+            offset = ((exponent - MIN_EXPONENT) << SUB_BITS) | sub;
+        }
+
+        return value > 0 ? HALF + 1 + offset : HALF - 1 - offset;
+    }
+
+    /**
+     * Return the midpoint of a bucket.
+     * 
+     * @param bucket Bucket.
+     * @return Reading at the middle of the bucket.
+     */
+    static double midpoint(int bucket) {
+        if(bucket == HALF) {
+            return 0;
+        }
+        int offset = bucket > HALF ? bucket - HALF - 1 : HALF - 1 - bucket;
+        int exponent = (offset >> SUB_BITS) + MIN_EXPONENT;
+        int sub = offset & ((1 << SUB_BITS) - 1);
+
+        double magnitude = Math.scalb(1 + (sub + 0.5) / (1 << SUB_BITS), exponent);
+        return bucket > HALF ? magnitude : -magnitude;
+    }
+}
@@ -0,0 +1,79 @@
+package ca.mta.iottestbed.stats;
+
+/**
+ * Tumbling and sliding window statistics of one sensor's water and power
+ * readings.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class SensorStatistics {
+
+    /**
+     * Water readings in the tumbling window.
+     */
+    private WindowedStatistics tumblingWater;
+
+    /**
+     * Power readings in the tumbling window.
+     */
+    private WindowedStatistics tumblingPower;
+
+    /**
+     * Water readings in the sliding window.
+     */
+    private WindowedStatistics slidingWater;
+
+    /**
+     * Power readings in the sliding window.
+     */
+    private WindowedStatistics slidingPower;
+
+    /**
+     * Create a new {@code SensorStatistics}.
+     * 
+     * @param tumblingMillis Length of the tumbling window, in milliseconds.
+     * @param slideMillis Step of the sliding window, in milliseconds.
+     * @param slides Number of steps in the sliding window.
+     */
+    public SensorStatistics(long tumblingMillis, long slideMillis, int slides) {
+        tumblingWater = new WindowedStatistics(tumblingMillis, 1);
+        tumblingPower = new WindowedStatistics(tumblingMillis, 1);
+        slidingWater = new WindowedStatistics(slideMillis, slides);
+        slidingPower = new WindowedStatistics(slideMillis, slides);
+    }
+
+    /**
+     * Add a reading. Must only be called by one thread at a time.
+     * 
+     * @param timestamp Time of the reading, in milliseconds since the epoch.
+     * @param water Water reading.
+     * @param power Power reading.
+     */
+    public void add(long timestamp, double water, double power) {
+        tumblingWater.add(timestamp, water);
+        tumblingPower.add(timestamp, power);
+        slidingWater.add(timestamp, water);
+        slidingPower.add(timestamp, power);
+    }
+
+    /**
+     * Return the water statistics for a window.
+     * 
+     * @param window Kind of window.
+     * @return Water statistics.
+     */
+    public WindowedStatistics getWater(Window window) {
+        return window == Window.TUMBLING ? tumblingWater : slidingWater;
+    }
+
+    /**
+     * Return the power statistics for a window.
+     * 
+     * @param window Kind of window.
+     * @return Power statistics.
+     */
+    public WindowedStatistics getPower(Window window) {
+        return window == Window.TUMBLING ? tumblingPower : slidingPower;
+    }
+}
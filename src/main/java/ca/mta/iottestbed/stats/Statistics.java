@@ -0,0 +1,213 @@
+package ca.mta.iottestbed.stats;
+
+import java.util.Arrays;
+
+/**
+ * Count, sum, minimum, maximum, mean, variance, and approximate percentiles
+ * of a set of readings.
+ * 
+ * A {@code Statistics} object is filled by reading a
+ * {@link WindowedStatistics}, and can be reused for the next read.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Statistics {
+
+    /**
+     * Number of readings.
+     */
+    private long count;
+
+    /**
+     * Sum of the readings.
+     */
+    private double sum;
+
+    /**
+     * Smallest reading.
+     */
+    private double min;
+
+    /**
+     * Largest reading.
+     */
+    private double max;
+
+    /**
+     * Mean of the readings.
+     */
+    private double mean;
+
+    /**
+     * Sum of squared differences from the mean.
+     */
+    private double m2;
+
+    /**
+     * Readings in each histogram bucket.
+     */
+    private long[] histogram;
+
+    /**
+     * Create a new, empty {@code Statistics}.
+     */
+    public Statistics() {
+        histogram = new long[Histogram.BUCKETS];
+        reset();
+    }
+
+    /**
+     * Forget every reading.
+     */
+    public void reset() {
+        count = 0;
+        sum = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        mean = 0;
+        m2 = 0;
+        Arrays.fill(histogram, 0);
+    }
+
+    /**
+     * Add the readings summarized by another {@code Statistics}.
+     * 
+     * @param other Readings to add.
+     */
+    public void merge(Statistics other) {
+        merge(other.count, other.sum, other.min, other.max, other.mean, other.m2);
+        for(int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+    }
+
+    /**
+     * Add a group of readings, combining means and variances as described
+     * by Chan et al.
+     * 
+     * @param count Number of readings.
+     * @param sum Sum of the readings.
+     * @param min Smallest reading.
+     * @param max Largest reading.
+     * @param mean Mean of the readings.
+     * @param m2 Sum of squared differences from the mean.
+     */
+    void merge(long count, double sum, double min, double max, double mean, double m2) {
+        if(count == 0) {
+            return;
+        }
+        long total = this.count + count;
+        double delta = mean - this.mean;
+
+        this.m2 += m2 + delta * delta * ((double)this.count * count / total);
+        this.mean += delta * count / total;
+        this.count = total;
+        this.sum += sum;
+        this.min = Math.min(this.min, min);
+        this.max = Math.max(this.max, max);
+    }
+
+    /**
+     * Add histogram counts.
+     * 
+     * @param counts Array holding counts for every bucket.
+     * @param offset Index of the first bucket's count.
+     */
+    void mergeHistogram(int[] counts, int offset) {
+        for(int i = 0; i < histogram.length; i++) {
+            histogram[i] += counts[offset + i];
+        }
+    }
+
+    /**
+     * Return the number of readings.
+     * 
+     * @return Readings.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Return the sum of the readings.
+     * 
+     * @return Sum.
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Return the smallest reading.
+     * 
+     * @return Minimum, or {@code NaN} if there are no readings.
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Return the largest reading.
+     * 
+     * @return Maximum, or {@code NaN} if there are no readings.
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Return the mean of the readings.
+     * 
+     * @return Mean, or {@code NaN} if there are no readings.
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Return the sample variance of the readings.
+     * 
+     * @return Variance, or {@code NaN} if there are fewer than two readings.
+     */
+    public double getVariance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    /**
+     * Return the sample standard deviation of the readings.
+     * 
+     * @return Standard deviation, or {@code NaN} if there are fewer than two readings.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Return an approximate percentile, within about 6% of the true value
+     * for readings between 2<sup>-16</sup> and 2<sup>16</sup> in magnitude.
+     * 
+     * @param percentile Percentile, from 0 to 100.
+     * @return Reading at the percentile, or {@code NaN} if there are no readings.
+     * @throws IllegalArgumentException if {@code percentile} is out of range.
+     */
+    public double getPercentile(double percentile) {
+        if(!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+        if(count == 0) {
+            return Double.NaN;
+        }
+
+        // find the bucket holding the reading at this rank
+        long rank = Math.max(1, (long)Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for(int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if(seen >= rank) {
+                return Math.min(max, Math.max(min, Histogram.midpoint(i)));
+            }
+        }
+        return max;
+    }
+}
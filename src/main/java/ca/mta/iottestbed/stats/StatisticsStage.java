@@ -0,0 +1,164 @@
+package ca.mta.iottestbed.stats;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Streaming statistics for every sensor a meter reads from.
+ * 
+ * Each reading updates its sensor's windows as it arrives. Each sensor's
+ * readings must come from one thread at a time, which holds for readings
+ * from one connection. Meter-wide statistics are not updated on the
+ * reading path; they are built when read, by merging every sensor's.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class StatisticsStage {
+
+    /**
+     * Default length of the tumbling window, in milliseconds.
+     */
+    public static final long DEFAULT_TUMBLING_MILLIS = 60000;
+
+    /**
+     * Default step of the sliding window, in milliseconds.
+     */
+    public static final long DEFAULT_SLIDE_MILLIS = 15000;
+
+    /**
+     * Default number of steps in the sliding window.
+     */
+    public static final int DEFAULT_SLIDES = 4;
+
+    /**
+     * Statistics for each sensor, by device id.
+     */
+    private ConcurrentMap<String, SensorStatistics> sensors;
+
+    /**
+     * Length of the tumbling window, in milliseconds.
+     */
+    private long tumblingMillis;
+
+    /**
+     * Step of the sliding window, in milliseconds.
+     */
+    private long slideMillis;
+
+    /**
+     * Number of steps in the sliding window.
+     */
+    private int slides;
+
+    /**
+     * Create a new {@code StatisticsStage} with a one-minute tumbling window,
+     * and a one-minute sliding window that moves every 15 seconds.
+     */
+    public StatisticsStage() {
+        this(DEFAULT_TUMBLING_MILLIS, DEFAULT_SLIDE_MILLIS, DEFAULT_SLIDES);
+    }
+
+    /**
+     * Create a new {@code StatisticsStage}.
+     * 
+     * @param tumblingMillis Length of the tumbling window, in milliseconds.
+     * @param slideMillis Step of the sliding window, in milliseconds.
+     * @param slides Number of steps in the sliding window.
+     * @throws IllegalArgumentException if any argument is not positive.
+     */
+    public StatisticsStage(long tumblingMillis, long slideMillis, int slides) {
+        if(tumblingMillis <= 0 || slideMillis <= 0 || slides <= 0) {
+            throw new IllegalArgumentException("Invalid windows: " + tumblingMillis + ", " + slideMillis + " x " + slides);
+        }
+        this.tumblingMillis = tumblingMillis;
+        this.slideMillis = slideMillis;
+        this.slides = slides;
+        this.sensors = new ConcurrentHashMap<String, SensorStatistics>();
+    }
+
+    /**
+     * Add a reading.
+     * 
+     * @param device Sensor's device id.
+     * @param timestamp Time of the reading, in milliseconds since the epoch.
+     * @param water Water reading.
+     * @param power Power reading.
+     */
+    public void add(String device, long timestamp, double water, double power) {
+        SensorStatistics sensor = sensors.get(device);
+        if(sensor == null) {
+            sensor = open(device);
+        }
+        sensor.add(timestamp, water, power);
+    }
+
+    /**
+     * Return the statistics for a sensor, creating them if it has none. A
+     * caller that handles one sensor can keep them and add readings to them
+     * directly.
+     * 
+     * @param device Sensor's device id.
+     * @return Sensor's statistics.
+     */
+    public SensorStatistics open(String device) {
+        return sensors.computeIfAbsent(device, new Function<String, SensorStatistics>() {
+            @Override
+            public SensorStatistics apply(String key) {
+                return new SensorStatistics(tumblingMillis, slideMillis, slides);
+            }
+        });
+    }
+
+    /**
+     * Return the statistics for a sensor.
+     * 
+     * @param device Sensor's device id.
+     * @return Sensor's statistics, or {@code null} if it has sent no readings.
+     */
+    public SensorStatistics getSensor(String device) {
+        return sensors.get(device);
+    }
+
+    /**
+     * Return the sensors that have sent readings.
+     * 
+     * @return Device ids.
+     */
+    public Set<String> getDevices() {
+        return Collections.unmodifiableSet(sensors.keySet());
+    }
+
+    /**
+     * Read meter-wide water statistics, merged from every sensor's window.
+     * 
+     * @param window Kind of window.
+     * @param into Statistics to fill.
+     */
+    public void readWater(Window window, Statistics into) {
+        into.reset();
+        Statistics sensor = new Statistics();
+        for(SensorStatistics statistics : sensors.values()) {
+            statistics.getWater(window).read(sensor);
+            into.merge(sensor);
+        }
+    }
+
+    /**
+     * Read meter-wide power statistics, merged from every sensor's window.
+     * 
+     * @param window Kind of window.
+     * @param into Statistics to fill.
+     */
+    public void readPower(Window window, Statistics into) {
+        into.reset();
+        Statistics sensor = new Statistics();
+        for(SensorStatistics statistics : sensors.values()) {
+            statistics.getPower(window).read(sensor);
+            into.merge(sensor);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ca.mta.iottestbed.stats;
+
+/**
+ * Kinds of window kept for each sensor.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public enum Window {
+
+    /**
+     * Readings since the start of the current fixed-length period.
+     */
+    TUMBLING,
+
+    /**
+     * Readings in the most recent stretch of time, advancing in steps.
+     */
+    SLIDING
+}
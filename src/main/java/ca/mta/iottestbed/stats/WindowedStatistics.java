@@ -0,0 +1,266 @@
+package ca.mta.iottestbed.stats;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Running statistics over a window of recent readings, in a fixed amount
+ * of memory.
+ * 
+ * The window is split into {@code slots} slots of {@code slotMillis}
+ * milliseconds each, by the time each reading was taken. Each slot keeps a
+ * count, sum, minimum, maximum, Welford mean and variance, and a histogram.
+ * A window of one slot is a tumbling window, which starts again at each
+ * period; a window of several slots slides forward one slot at a time.
+ * Readings older than the window are counted as late and otherwise ignored.
+ * Readings stamped more than {@link #MAX_AHEAD_MILLIS} after the local
+ * clock are counted as early and ignored too, so that one bad timestamp
+ * cannot move the window so far forward that every later reading is late.
+ * 
+ * Only one thread may add readings, but any number of threads may read at
+ * the same time. Neither side takes a lock: the writer bumps a sequence
+ * number before and after each update, and a reader copies the slots and
+ * retries if the sequence number changed or was odd while it copied.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class WindowedStatistics {
+
+    /**
+     * Handle for ordered access to {@link #sequence}.
+     */
+    private static final VarHandle SEQUENCE;
+
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(WindowedStatistics.class, "sequence", long.class);
+        } catch(ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * How far ahead of the local clock a reading may be, in milliseconds,
+     * to allow for sensors whose clocks run fast.
+     */
+    public static final long MAX_AHEAD_MILLIS = 60000;
+
+    /**
+     * Length of a slot, in milliseconds.
+     */
+    private final long slotMillis;
+
+    /**
+     * Number of slots in the window.
+     */
+    private final int slots;
+
+    /**
+     * Period each slot holds, as a multiple of {@link #slotMillis}, or
+     * {@code Long.MIN_VALUE} if it is empty.
+     */
+    private final long[] periods;
+
+    /**
+     * Readings in each slot.
+     */
+    private final long[] counts;
+
+    /**
+     * Sum of each slot's readings.
+     */
+    private final double[] sums;
+
+    /**
+     * Smallest reading in each slot.
+     */
+    private final double[] mins;
+
+    /**
+     * Largest reading in each slot.
+     */
+    private final double[] maxes;
+
+    /**
+     * Mean of each slot's readings.
+     */
+    private final double[] means;
+
+    /**
+     * Sum of squared differences from the mean, for each slot.
+     */
+    private final double[] m2s;
+
+    /**
+     * Histogram of each slot, one after the other.
+     */
+    private final int[] histograms;
+
+    /**
+     * Latest period seen.
+     */
+    private long latest;
+
+    /**
+     * Readings too old for the window.
+     */
+    private long late;
+
+    /**
+     * Readings too far in the future.
+     */
+    private long early;
+
+    /**
+     * Odd while an update is in progress. Accessed through {@link #SEQUENCE}.
+     */
+    @SuppressWarnings("unused")
+    private volatile long sequence;
+
+    /**
+     * Create a new {@code WindowedStatistics}.
+     * 
+     * @param slotMillis Length of a slot, in milliseconds.
+     * @param slots Number of slots in the window.
+     * @throws IllegalArgumentException if {@code slotMillis} or {@code slots} is not positive.
+     */
+    public WindowedStatistics(long slotMillis, int slots) {
+        if(slotMillis <= 0) {
+            throw new IllegalArgumentException("Invalid slot length: " + slotMillis);
+        }
+        if(slots <= 0) {
+            throw new IllegalArgumentException("Invalid number of slots: " + slots);
+        }
+        this.slotMillis = slotMillis;
+        this.slots = slots;
+        this.periods = new long[slots];
+        this.counts = new long[slots];
+        this.sums = new double[slots];
+        this.mins = new double[slots];
+        this.maxes = new double[slots];
+        this.means = new double[slots];
+        this.m2s = new double[slots];
+        this.histograms = new int[slots * Histogram.BUCKETS];
+        this.latest = Long.MIN_VALUE;
+        Arrays.fill(periods, Long.MIN_VALUE);
+    }
+
+    /**
+     * Add a reading. Must only be called by one thread at a time.
+     * 
+     * @param timestamp Time of the reading, in milliseconds since the epoch.
+     * @param value Reading.
+     */
+    public void add(long timestamp, double value) {
+        long period = Math.floorDiv(timestamp, slotMillis);
+        if(latest != Long.MIN_VALUE && period <= latest - slots) {
+            late++;
+            return;
+        }
+
+        // only a reading that moves the window forward is checked against the clock
+        if(period > latest && timestamp - MAX_AHEAD_MILLIS > System.currentTimeMillis()) {
+            early++;
+            return;
+        }
+        int slot = (int)Math.floorMod(period, (long)slots);
+
+        // mark the update as in progress
+        long start = sequence;
+        SEQUENCE.setOpaque(this, start + 1);
+        VarHandle.storeStoreFence();
+
+        // start the slot again if it holds an old period
+        if(periods[slot] != period) {
+            periods[slot] = period;
+            counts[slot] = 0;
+            sums[slot] = 0;
+            mins[slot] = Double.POSITIVE_INFINITY;
+            maxes[slot] = Double.NEGATIVE_INFINITY;
+            means[slot] = 0;
+            m2s[slot] = 0;
+            Arrays.fill(histograms, slot * Histogram.BUCKETS, (slot + 1) * Histogram.BUCKETS, 0);
+        }
+
+        // Welford's update
+        long count = ++counts[slot];
+        double delta = value - means[slot];
+        means[slot] += delta / count;
+        m2s[slot] += delta * (value - means[slot]);
+        sums[slot] += value;
+        mins[slot] = Math.min(mins[slot], value);
+        maxes[slot] = Math.max(maxes[slot], value);
+        histograms[slot * Histogram.BUCKETS + Histogram.bucket(value)]++;
+        latest = Math.max(latest, period);
+
+        // publish the update
+        SEQUENCE.setRelease(this, start + 2);
+    }
+
+    /**
+     * Read the statistics of the window ending with the latest reading.
+     * Safe to call from any thread, while readings are being added.
+     * 
+     * @param into Statistics to fill. Its previous contents are replaced.
+     */
+    public void read(Statistics into) {
+        while(true) {
+            long before = (long)SEQUENCE.getAcquire(this);
+            if((before & 1) == 0) {
+                copy(into);
+                VarHandle.loadLoadFence();
+                if((long)SEQUENCE.getOpaque(this) == before) {
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Return the number of readings too old for the window.
+     * 
+     * @return Late readings.
+     */
+    public long getLate() {
+        return late;
+    }
+
+    /**
+     * Return the number of readings ignored for being too far in the future.
+     * 
+     * @return Early readings.
+     */
+    public long getEarly() {
+        return early;
+    }
+
+    /**
+     * Return the length of the window.
+     * 
+     * @return Milliseconds.
+     */
+    public long getWindowMillis() {
+        return slotMillis * slots;
+    }
+
+    /**
+     * Copy the slots in the window. The copy may be inconsistent if the
+     * writer is active; {@link #read(Statistics)} checks for that.
+     * 
+     * @param into Statistics to fill.
+     */
+    private void copy(Statistics into) {
+        into.reset();
+        long newest = latest;
+        for(int slot = 0; slot < slots; slot++) {
+            long period = periods[slot];
+            if(period != Long.MIN_VALUE && period > newest - slots && period <= newest) {
+                into.merge(counts[slot], sums[slot], mins[slot], maxes[slot], means[slot], m2s[slot]);
+                into.mergeHistogram(histograms, slot * Histogram.BUCKETS);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ca.mta.iottestbed.store;
+
+/**
+ * Reads a stream of bits written by a {@link BitWriter}.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class BitReader {
+
+    /**
+     * Array holding the bits.
+     */
+    private byte[] bytes;
+
+    /**
+     * Position of the next bit, counted from the start of the array.
+     */
+    private long position;
+
+    /**
+     * Position after the last bit.
+     */
+    private long limit;
+
+    /**
+     * Start reading bits from part of an array.
+     * 
+     * @param bytes Array holding the bits.
+     * @param offset Offset of the first byte.
+     * @param bits Number of bits to read.
+     */
+    void reset(byte[] bytes, int offset, long bits) {
+        this.bytes = bytes;
+        this.position = 8L * offset;
+        this.limit = position + bits;
+    }
+
+    /**
+     * Read one bit.
+     * 
+     * @return {@code true} if the bit is set.
+     * @throws IllegalStateException if there are no bits left.
+     */
+    boolean readBit() {
+        return read(1) != 0;
+    }
+
+    /**
+     * Read a value, most significant bit first.
+     * 
+     * @param count Number of bits to read, from 0 to 64.
+     * @return Value read.
+     * @throws IllegalStateException if fewer than {@code count} bits are left.
+     */
+    long read(int count) {
+        if(position + count > limit) {
+            throw new IllegalStateException("Read past end of column");
+        }
+
+        long value = 0;
+        while(count > 0) {
+            int available = 8 - (int)(position & 7);
+            int bits = Math.min(available, count);
+            int chunk = (bytes[(int)(position >>> 3)] >>> (available - bits)) & ((1 << bits) - 1);
+            value = (value << bits) | chunk;
+            position += bits;
+            count -= bits;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,107 @@
+package ca.mta.iottestbed.store;
+
+import java.util.Arrays;
+
+/**
+ * A growable stream of bits, written most significant bit first.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class BitWriter {
+
+    /**
+     * Written bits, packed into bytes.
+     */
+    private byte[] bytes;
+
+    /**
+     * Number of bits written.
+     */
+    private long length;
+
+    /**
+     * Create a new, empty {@code BitWriter}.
+     */
+    BitWriter() {
+        bytes = new byte[256];
+    }
+
+    /**
+     * Write one bit.
+     * 
+     * @param bit Bit to write.
+     */
+    void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Write the low bits of a value, most significant first.
+     * 
+     * @param value Value to write.
+     * @param count Number of bits to write, from 0 to 64.
+     */
+    void write(long value, int count) {
+        ensureCapacity(count);
+
+        // fill the current byte, then whole bytes
+        while(count > 0) {
+            int position = (int)(length >>> 3);
+            int free = 8 - (int)(length & 7);
+            int bits = Math.min(free, count);
+            int chunk = (int)(value >>> (count - bits)) & ((1 << bits) - 1);
+            bytes[position] |= chunk << (free - bits);
+            length += bits;
+            count -= bits;
+        }
+    }
+
+    /**
+     * Return the number of bits written.
+     * 
+     * @return Bits written.
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * Return the number of bytes holding the written bits.
+     * 
+     * @return Bytes used.
+     */
+    int byteLength() {
+        return (int)((length + 7) >>> 3);
+    }
+
+    /**
+     * Return the array holding the written bits. The first
+     * {@link #byteLength()} bytes are used.
+     * 
+     * @return Backing array.
+     */
+    byte[] array() {
+        return bytes;
+    }
+
+    /**
+     * Discard everything written.
+     */
+    void reset() {
+        Arrays.fill(bytes, 0, byteLength(), (byte)0);
+        length = 0;
+    }
+
+    /**
+     * Grow the backing array to fit more bits.
+     * 
+     * @param count Bits about to be written.
+     */
+    private void ensureCapacity(int count) {
+        long needed = (length + count + 7) >>> 3;
+        if(needed > bytes.length) {
+            bytes = Arrays.copyOf(bytes, (int)Math.max(needed, 2L * bytes.length));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ca.mta.iottestbed.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the rows in a block written by a {@link BlockEncoder}.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class BlockDecoder {
+
+    /**
+     * Timestamp column.
+     */
+    private TimestampDecoder timestamps;
+
+    /**
+     * Value columns.
+     */
+    private ValueDecoder[] columns;
+
+    /**
+     * Rows left in the block.
+     */
+    private int remaining;
+
+    /**
+     * Checksum, reused between blocks.
+     */
+    private CRC32 crc;
+
+    /**
+     * Current timestamp.
+     */
+    private long timestamp;
+
+    /**
+     * Current values.
+     */
+    private double[] values;
+
+    /**
+     * Create a new {@code BlockDecoder}.
+     * 
+     * @param columns Number of values in each row.
+     */
+    BlockDecoder(int columns) {
+        timestamps = new TimestampDecoder();
+        this.columns = new ValueDecoder[columns];
+        for(int i = 0; i < columns; i++) {
+            this.columns[i] = new ValueDecoder();
+        }
+        values = new double[columns];
+        crc = new CRC32();
+    }
+
+    /**
+     * Start reading a block.
+     * 
+     * @param bytes Array holding the block, from index 0.
+     * @param length Length of the block.
+     * @throws IOException if the block is damaged.
+     */
+    void load(byte[] bytes, int length) throws IOException {
+        if(!verify(bytes, length)) {
+            throw new IOException("Corrupt block");
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(bytes, 0, length);
+        int count = header.getInt(0);
+        long first = header.getLong(4);
+
+        int offset = BlockEncoder.headerSize(columns.length);
+        int timeBits = header.getInt(28);
+        timestamps.reset(bytes, offset, timeBits, first);
+        offset += (timeBits + 7) >>> 3;
+        for(int i = 0; i < columns.length; i++) {
+            int bits = header.getInt(32 + 4 * i);
+            columns[i].reset(bytes, offset, bits);
+            offset += (bits + 7) >>> 3;
+        }
+        remaining = count;
+    }
+
+    /**
+     * Move to the next row.
+     * 
+     * @return {@code false} if the block has no more rows.
+     * @throws IOException if the block is damaged.
+     */
+    boolean next() throws IOException {
+        if(remaining == 0) {
+            return false;
+        }
+        remaining--;
+
+        try {
+            timestamp = timestamps.decode();
+            for(int i = 0; i < columns.length; i++) {
+                values[i] = columns[i].decode();
+            }
+        } catch(IllegalStateException e) {
+            throw new IOException("Corrupt block", e);
+        }
+        return true;
+    }
+
+    /**
+     * Return the current timestamp.
+     * 
+     * @return Milliseconds since the epoch.
+     */
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Return a value of the current row.
+     * 
+     * @param column Column number.
+     * @return Value.
+     */
+    double getValue(int column) {
+        return values[column];
+    }
+
+    /**
+     * Check a block's length and checksum.
+     * 
+     * @param bytes Array holding the block, from index 0.
+     * @param length Length of the block.
+     * @return {@code true} if the block is intact.
+     */
+    boolean verify(byte[] bytes, int length) {
+        if(length < BlockEncoder.headerSize(columns.length) + BlockEncoder.TRAILER_SIZE
+            || BlockEncoder.length(ByteBuffer.wrap(bytes), columns.length) != length) {
+            return false;
+        }
+
+        crc.reset();
+        crc.update(bytes, 0, length - BlockEncoder.TRAILER_SIZE);
+        return (int)crc.getValue() == ByteBuffer.wrap(bytes).getInt(length - BlockEncoder.TRAILER_SIZE);
+    }
+}
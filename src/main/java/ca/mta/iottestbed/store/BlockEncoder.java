@@ -0,0 +1,250 @@
+package ca.mta.iottestbed.store;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Collects rows into a compressed, columnar block. A row is a timestamp
+ * and a fixed number of values; sensor readings have two values, water
+ * and power.
+ * 
+ * A block is laid out as:
+ * 
+ * <pre>
+ * int  count
+ * long first timestamp
+ * long min timestamp
+ * long max timestamp
+ * int  timestamp column length, in bits
+ * int  length of each value column, in bits
+ * timestamp column, then each value column, each padded to a byte
+ * int  CRC-32 of everything above
+ * </pre>
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class BlockEncoder {
+
+    /**
+     * Number of values in a sensor reading.
+     */
+    static final int READING_COLUMNS = 2;
+
+    /**
+     * Size of a block header with no value columns, in bytes.
+     */
+    private static final int BASE_HEADER_SIZE = 28;
+
+    /**
+     * Size of a block trailer, in bytes.
+     */
+    static final int TRAILER_SIZE = 4;
+
+    /**
+     * Timestamp column.
+     */
+    private TimestampEncoder timestamps;
+
+    /**
+     * Value columns.
+     */
+    private ValueEncoder[] values;
+
+    /**
+     * Number of rows in the block.
+     */
+    private int count;
+
+    /**
+     * First timestamp.
+     */
+    private long first;
+
+    /**
+     * Earliest timestamp.
+     */
+    private long min;
+
+    /**
+     * Latest timestamp.
+     */
+    private long max;
+
+    /**
+     * Encoded block, reused between blocks.
+     */
+    private ByteBuffer block;
+
+    /**
+     * Checksum, reused between blocks.
+     */
+    private CRC32 crc;
+
+    /**
+     * Create a new, empty {@code BlockEncoder}.
+     * 
+     * @param columns Number of values in each row.
+     */
+    BlockEncoder(int columns) {
+        timestamps = new TimestampEncoder();
+        values = new ValueEncoder[columns];
+        for(int i = 0; i < columns; i++) {
+            values[i] = new ValueEncoder();
+        }
+        block = ByteBuffer.allocate(4096);
+        crc = new CRC32();
+    }
+
+    /**
+     * Add a sensor reading to the block.
+     * 
+     * @param timestamp Time of the reading, in milliseconds since the epoch.
+     * @param water Water reading.
+     * @param power Power reading.
+     */
+    void add(long timestamp, double water, double power) {
+        addTimestamp(timestamp);
+        values[0].encode(water);
+        values[1].encode(power);
+    }
+
+    /**
+     * Add a row to the block.
+     * 
+     * @param timestamp Time of the row, in milliseconds since the epoch.
+     * @param row One value for each column.
+     */
+    void add(long timestamp, double[] row) {
+        addTimestamp(timestamp);
+        for(int i = 0; i < values.length; i++) {
+            values[i].encode(row[i]);
+        }
+    }
+
+    /**
+     * Return the number of rows in the block.
+     * 
+     * @return Rows.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Return the earliest timestamp in the block.
+     * 
+     * @return Milliseconds since the epoch.
+     */
+    long getMin() {
+        return min;
+    }
+
+    /**
+     * Return the latest timestamp in the block.
+     * 
+     * @return Milliseconds since the epoch.
+     */
+    long getMax() {
+        return max;
+    }
+
+    /**
+     * Encode the block. The returned buffer is reused by the next call.
+     * 
+     * @return Buffer holding the block, between position 0 and its limit.
+     */
+    ByteBuffer encode() {
+        BitWriter timeColumn = timestamps.getColumn();
+        int length = headerSize(values.length) + timeColumn.byteLength() + TRAILER_SIZE;
+        for(ValueEncoder column : values) {
+            length += column.getColumn().byteLength();
+        }
+
+        // grow the block buffer if needed
+        if(block.capacity() < length) {
+            block = ByteBuffer.allocate(Math.max(length, 2 * block.capacity()));
+        }
+        block.clear();
+
+        block.putInt(count);
+        block.putLong(first);
+        block.putLong(min);
+        block.putLong(max);
+        block.putInt((int)timeColumn.length());
+        for(ValueEncoder column : values) {
+            block.putInt((int)column.getColumn().length());
+        }
+        block.put(timeColumn.array(), 0, timeColumn.byteLength());
+        for(ValueEncoder column : values) {
+            block.put(column.getColumn().array(), 0, column.getColumn().byteLength());
+        }
+
+        crc.reset();
+        crc.update(block.array(), 0, block.position());
+        block.putInt((int)crc.getValue());
+
+        block.flip();
+        return block;
+    }
+
+    /**
+     * Empty the block.
+     */
+    void reset() {
+        timestamps.reset();
+        for(ValueEncoder column : values) {
+            column.reset();
+        }
+        count = 0;
+    }
+
+    /**
+     * Return the size of a block header.
+     * 
+     * @param columns Number of values in each row.
+     * @return Header size, in bytes.
+     */
+    static int headerSize(int columns) {
+        return BASE_HEADER_SIZE + 4 * (columns + 1);
+    }
+
+    /**
+     * Return the length of a block from its header.
+     * 
+     * @param header Buffer holding at least {@link #headerSize(int)} bytes
+     *               of a block, starting at its position.
+     * @param columns Number of values in each row.
+     * @return Block length, in bytes, or -1 if the header is not valid.
+     */
+    static int length(ByteBuffer header, int columns) {
+        int start = header.position();
+        if(header.getInt(start) <= 0) {
+            return -1;
+        }
+
+        long length = headerSize(columns) + TRAILER_SIZE;
+        for(int i = 0; i <= columns; i++) {
+            long bits = header.getInt(start + BASE_HEADER_SIZE + 4 * i) & 0xffffffffL;
+            length += (bits + 7) >>> 3;
+        }
+        return length > Integer.MAX_VALUE ? -1 : (int)length;
+    }
+
+    /**
+     * Add a timestamp, and track the block's time range.
+     * 
+     * @param timestamp Milliseconds since the epoch.
+     */
+    private void addTimestamp(long timestamp) {
+        if(count == 0) {
+            first = timestamp;
+            min = timestamp;
+            max = timestamp;
+        }
+        min = Math.min(min, timestamp);
+        max = Math.max(max, timestamp);
+        count++;
+        timestamps.encode(timestamp);
+    }
+}
@@ -0,0 +1,385 @@
+package ca.mta.iottestbed.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Where each block of a series is, how many readings it holds, and which
+ * times it covers. Saved next to the series as fixed-size entries:
+ * 
+ * <pre>
+ * long offset
+ * int  length
+ * int  count
+ * long min timestamp
+ * long max timestamp
+ * </pre>
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class BlockIndex {
+
+    /**
+     * Size of an entry, in bytes.
+     */
+    static final int ENTRY_SIZE = 32;
+
+    /**
+     * Offset of each block in the data file.
+     */
+    private long[] offsets;
+
+    /**
+     * Length of each block.
+     */
+    private int[] lengths;
+
+    /**
+     * Readings in each block.
+     */
+    private int[] counts;
+
+    /**
+     * Earliest timestamp in each block.
+     */
+    private long[] mins;
+
+    /**
+     * Latest timestamp in each block.
+     */
+    private long[] maxes;
+
+    /**
+     * Latest timestamp in each block and every block before it.
+     */
+    private long[] runningMax;
+
+    /**
+     * Earliest timestamp in each block and every block after it.
+     */
+    private long[] runningMin;
+
+    /**
+     * Number of blocks.
+     */
+    private int size;
+
+    /**
+     * Create a new, empty {@code BlockIndex}.
+     */
+    BlockIndex() {
+        offsets = new long[16];
+        lengths = new int[16];
+        counts = new int[16];
+        mins = new long[16];
+        maxes = new long[16];
+    }
+
+    /**
+     * Add a block.
+     * 
+     * @param offset Offset of the block in the data file.
+     * @param length Length of the block.
+     * @param count Readings in the block.
+     * @param min Earliest timestamp in the block.
+     * @param max Latest timestamp in the block.
+     */
+    void add(long offset, int length, int count, long min, long max) {
+        if(size == offsets.length) {
+            int capacity = 2 * size;
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxes = Arrays.copyOf(maxes, capacity);
+        }
+        offsets[size] = offset;
+        lengths[size] = length;
+        counts[size] = count;
+        mins[size] = min;
+        maxes[size] = max;
+        size++;
+    }
+
+    /**
+     * Return the number of blocks.
+     * 
+     * @return Blocks.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return the offset of a block in the data file.
+     * 
+     * @param block Block number.
+     * @return Offset, in bytes.
+     */
+    long getOffset(int block) {
+        return offsets[block];
+    }
+
+    /**
+     * Return the length of a block.
+     * 
+     * @param block Block number.
+     * @return Length, in bytes.
+     */
+    int getLength(int block) {
+        return lengths[block];
+    }
+
+    /**
+     * Return the number of readings in a block.
+     * 
+     * @param block Block number.
+     * @return Readings.
+     */
+    int getCount(int block) {
+        return counts[block];
+    }
+
+    /**
+     * Return the earliest timestamp in a block.
+     * 
+     * @param block Block number.
+     * @return Milliseconds since the epoch.
+     */
+    long getMin(int block) {
+        return mins[block];
+    }
+
+    /**
+     * Return the latest timestamp in a block.
+     * 
+     * @param block Block number.
+     * @return Milliseconds since the epoch.
+     */
+    long getMax(int block) {
+        return maxes[block];
+    }
+
+    /**
+     * Return the first block that may hold readings at or after a time.
+     * 
+     * @param from Milliseconds since the epoch.
+     * @return Block number, or {@link #size()} if there is none.
+     */
+    int first(long from) {
+        summarize();
+
+        // running maxima never decrease, so search for the first one >= from
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(runningMax[middle] < from) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Return the block after the last one that may hold readings before a time.
+     * 
+     * @param to Milliseconds since the epoch.
+     * @return Block number, or 0 if there is none.
+     */
+    int until(long to) {
+        summarize();
+
+        // running minima never decrease, so search for the first one >= to
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(runningMin[middle] < to) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Bring the running minima and maxima up to date. Readings usually
+     * arrive in order, but a block may overlap its neighbours, so searches
+     * use the running values rather than each block's own range.
+     */
+    private void summarize() {
+        if(runningMax != null && runningMax.length == size) {
+            return;
+        }
+        runningMax = new long[size];
+        runningMin = new long[size];
+        for(int i = 0; i < size; i++) {
+            runningMax[i] = i == 0 ? maxes[i] : Math.max(runningMax[i - 1], maxes[i]);
+        }
+        for(int i = size - 1; i >= 0; i--) {
+            runningMin[i] = i == size - 1 ? mins[i] : Math.min(runningMin[i + 1], mins[i]);
+        }
+    }
+
+    /**
+     * Return the earliest timestamp in any block.
+     * 
+     * @return Milliseconds since the epoch, or {@code Long.MAX_VALUE} if there are no blocks.
+     */
+    long min() {
+        summarize();
+        return size == 0 ? Long.MAX_VALUE : runningMin[0];
+    }
+
+    /**
+     * Return the latest timestamp in any block.
+     * 
+     * @return Milliseconds since the epoch, or {@code Long.MIN_VALUE} if there are no blocks.
+     */
+    long max() {
+        summarize();
+        return size == 0 ? Long.MIN_VALUE : runningMax[size - 1];
+    }
+
+    /**
+     * Return a copy of this index, which does not see blocks added later.
+     * 
+     * @return Copy.
+     */
+    BlockIndex copy() {
+        BlockIndex copy = new BlockIndex();
+        for(int i = 0; i < size; i++) {
+            copy.add(offsets[i], lengths[i], counts[i], mins[i], maxes[i]);
+        }
+        return copy;
+    }
+
+    /**
+     * Return the offset just after the last block.
+     * 
+     * @return Length of the data the index covers.
+     */
+    long end() {
+        return size == 0 ? 0 : offsets[size - 1] + lengths[size - 1];
+    }
+
+    /**
+     * Write one entry.
+     * 
+     * @param output Stream to write to.
+     * @param block Block number.
+     * @throws IOException if an I/O error occurs
+     */
+    void write(DataOutputStream output, int block) throws IOException {
+        output.writeLong(offsets[block]);
+        output.writeInt(lengths[block]);
+        output.writeInt(counts[block]);
+        output.writeLong(mins[block]);
+        output.writeLong(maxes[block]);
+    }
+
+    /**
+     * Replace an index file with this index.
+     * 
+     * @param file Index file.
+     * @throws IOException if an I/O error occurs
+     */
+    void save(File file) throws IOException {
+        try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for(int i = 0; i < size; i++) {
+                write(output, i);
+            }
+        }
+    }
+
+    /**
+     * Load the index of a series. Entries past the end of the data, or
+     * that do not follow on from the previous entry, are dropped. Blocks in
+     * the data file that are missing from the index are found by reading
+     * their headers, up to the first damaged or incomplete block.
+     * 
+     * @param file Index file, which need not exist.
+     * @param data Data file.
+     * @param columns Number of values in each row.
+     * @return Index of every intact block.
+     * @throws IOException if an I/O error occurs
+     */
+    static BlockIndex load(File file, FileChannel data, int columns) throws IOException {
+        BlockIndex index = new BlockIndex();
+        long length = data.size();
+
+        // read saved entries
+        if(file.exists()) {
+            try(DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while(true) {
+                    long offset = input.readLong();
+                    int blockLength = input.readInt();
+                    int count = input.readInt();
+                    long min = input.readLong();
+                    long max = input.readLong();
+                    if(offset != index.end() || offset + blockLength > length) {
+                        break;
+                    }
+                    index.add(offset, blockLength, count, min, max);
+                }
+            } catch(EOFException e) {
+                // end of the saved entries
+            }
+        }
+
+        // find blocks written after the last saved entry
+        BlockDecoder decoder = new BlockDecoder(columns);
+        ByteBuffer header = ByteBuffer.allocate(BlockEncoder.headerSize(columns));
+        long offset = index.end();
+        while(offset + header.capacity() <= length) {
+            header.clear();
+            readFully(data, header, offset);
+            int blockLength = BlockEncoder.length(header.flip(), columns);
+            if(blockLength < 0 || offset + blockLength > length) {
+                break;
+            }
+
+            ByteBuffer block = ByteBuffer.allocate(blockLength);
+            readFully(data, block, offset);
+            if(!decoder.verify(block.array(), blockLength)) {
+                break;
+            }
+            index.add(offset, blockLength, block.getInt(0), block.getLong(12), block.getLong(20));
+            offset += blockLength;
+        }
+
+        return index;
+    }
+
+    /**
+     * Fill a buffer from a file.
+     * 
+     * @param channel File to read.
+     * @param buffer Buffer to fill.
+     * @param position Offset in the file to read from.
+     * @throws IOException if the file ends first, or an I/O error occurs
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position - buffer.position();
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ca.mta.iottestbed.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Steps through fixed-width time buckets of a time series, summarizing the
+ * water and power readings in each one.
+ * 
+ * Buckets start at the query's start time and are {@code width}
+ * milliseconds wide. Buckets with no readings are skipped. Buckets are
+ * filled from readings in the order written, which sensors send in time
+ * order; a reading that arrives after later ones starts a bucket of its own.
+ * Buckets of a wide query may be filled from a {@link Tier} of
+ * summarized history rather than single readings.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class BucketCursor implements Closeable {
+
+    /**
+     * Rows to summarize.
+     */
+    private Rows rows;
+
+    /**
+     * Start of the first bucket.
+     */
+    private long from;
+
+    /**
+     * Width of each bucket, in milliseconds.
+     */
+    private long width;
+
+    /**
+     * Start of the current bucket.
+     */
+    private long start;
+
+    /**
+     * Water readings in the current bucket.
+     */
+    private Summary water;
+
+    /**
+     * Power readings in the current bucket.
+     */
+    private Summary power;
+
+    /**
+     * Whether {@link #rows} is on a row not yet added to a bucket.
+     */
+    private boolean pending;
+
+    /**
+     * Create a new {@code BucketCursor}.
+     * 
+     * @param rows Rows to summarize, starting at {@code from}.
+     * @param from Start of the first bucket.
+     * @param width Width of each bucket, in milliseconds.
+     * @throws IllegalArgumentException if {@code width <= 0}
+     */
+    BucketCursor(Rows rows, long from, long width) {
+        if(width <= 0) {
+            throw new IllegalArgumentException("Invalid bucket width: " + width);
+        }
+        this.rows = rows;
+        this.from = from;
+        this.width = width;
+        this.water = new Summary();
+        this.power = new Summary();
+    }
+
+    /**
+     * Move to the next bucket holding readings.
+     * 
+     * @return {@code false} if there are no more readings.
+     * @throws IOException if the series cannot be read.
+     */
+    public boolean next() throws IOException {
+        if(!pending && !rows.next()) {
+            return false;
+        }
+
+        water.reset();
+        power.reset();
+        start = bucket(rows.getTimestamp());
+
+        // add rows until one falls in another bucket
+        do {
+            if(bucket(rows.getTimestamp()) != start) {
+                pending = true;
+                return true;
+            }
+            rows.addTo(water, power);
+        } while(rows.next());
+
+        pending = false;
+        return true;
+    }
+
+    /**
+     * Return the start of the current bucket.
+     * 
+     * @return Milliseconds since the epoch.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Return the number of readings in the current bucket.
+     * 
+     * @return Readings.
+     */
+    public long getCount() {
+        return water.getCount();
+    }
+
+    /**
+     * Return a summary of the water readings in the current bucket. The
+     * summary is reused by the next bucket.
+     * 
+     * @return Water summary.
+     */
+    public Summary getWater() {
+        return water;
+    }
+
+    /**
+     * Return a summary of the power readings in the current bucket. The
+     * summary is reused by the next bucket.
+     * 
+     * @return Power summary.
+     */
+    public Summary getPower() {
+        return power;
+    }
+
+    /**
+     * Close the underlying rows.
+     * 
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        rows.close();
+    }
+
+    /**
+     * Return the start of the bucket holding a time.
+     * 
+     * @param timestamp Milliseconds since the epoch.
+     * @return Start of its bucket.
+     */
+    private long bucket(long timestamp) {
+        return from + Math.floorDiv(timestamp - from, width) * width;
+    }
+}
@@ -0,0 +1,72 @@
+package ca.mta.iottestbed.store;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Several sets of {@link Rows}, one after the other.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class ConcatRows implements Rows {
+
+    /**
+     * Sets of rows, in order.
+     */
+    private List<Rows> parts;
+
+    /**
+     * Index of the current set.
+     */
+    private int current;
+
+    /**
+     * Create a new {@code ConcatRows}.
+     * 
+     * @param parts Sets of rows, in order.
+     */
+    ConcatRows(List<Rows> parts) {
+        this.parts = parts;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean next() throws IOException {
+        while(current < parts.size()) {
+            if(parts.get(current).next()) {
+                return true;
+            }
+            current++;
+        }
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTimestamp() {
+        return parts.get(current).getTimestamp();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addTo(Summary water, Summary power) {
+        parts.get(current).addTo(water, power);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for(Rows part : parts) {
+            try {
+                part.close();
+            } catch(IOException e) {
+                failure = e;
+            }
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ca.mta.iottestbed.store;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import ca.mta.iottestbed.logger.Timestamp;
+
+/**
+ * Writes a time series as CSV, in the same format as the meter's
+ * {@code <device>.csv} logs.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class CsvExport {
+
+    /**
+     * Write every reading in a series as a line of CSV.
+     * 
+     * @param reader Series to export.
+     * @param output Destination.
+     * @return Number of readings written.
+     * @throws IOException if an I/O error occurs
+     */
+    public static long export(SeriesReader reader, Writer output) throws IOException {
+        SeriesCursor cursor = reader.cursor();
+        long count = 0;
+        StringBuilder line = new StringBuilder();
+
+        while(cursor.next()) {
+            line.setLength(0);
+            Timestamp.append(cursor.getTimestamp(), line);
+            line.append(',').append(cursor.getWater()).append(',').append(cursor.getPower()).append('\n');
+            output.append(line);
+            count++;
+        }
+
+        output.flush();
+        return count;
+    }
+
+    /**
+     * Export a series. Usage: CsvExport [directory] [device] [output.csv]
+     * 
+     * @param args Directory, device id, and optional output file. Writes to
+     *             standard output if no output file is given.
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("Usage: CsvExport [directory] [device] [output.csv]");
+            System.exit(1);
+        }
+
+        try(SeriesReader reader = new SeriesReader(new File(args[0]), args[1]);
+            Writer output = new BufferedWriter(args.length > 2 ? new FileWriter(args[2]) : new OutputStreamWriter(System.out))) {
+            export(reader, output);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package ca.mta.iottestbed.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rolls a {@link SeriesStore}'s readings up into its {@link Tier}s in the
+ * background, and removes history older than its retention.
+ *
+ * The first tier summarizes single readings and each later tier summarizes
+ * the one before it. A bucket is written once the source holds data past
+ * its end, so every bucket is written once and complete. Each run starts
+ * where the last one stopped. Data is only removed from a source once the
+ * next tier has written it to disk, so nothing is lost if the meter stops.
+ *
+ * The tiers are those of the store when the downsampler is created.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Downsampler implements Closeable {
+
+    /**
+     * Default time between runs, in milliseconds.
+     */
+    public static final long DEFAULT_INTERVAL = Tier.MINUTE;
+
+    /**
+     * Store to roll up.
+     */
+    private final SeriesStore store;
+
+    /**
+     * Tiers, finest first.
+     */
+    private final List<Tier> tiers;
+
+    /**
+     * Tier writers for each sensor, kept open between runs.
+     */
+    private final Map<String, SeriesWriter[]> writers;
+
+    /**
+     * Start of the next bucket to write, for each sensor and tier.
+     */
+    private final Map<String, long[]> watermarks;
+
+    /**
+     * Guards the sleep between runs.
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Signalled when the downsampler closes.
+     */
+    private final Condition wake;
+
+    /**
+     * Whether the downsampler is running.
+     */
+    private volatile boolean active;
+
+    /**
+     * Whether {@link #start(Executor, long)} has been called.
+     */
+    private volatile boolean started;
+
+    /**
+     * Counted down when the loop exits.
+     */
+    private final CountDownLatch stopped;
+
+    /**
+     * Number of completed runs.
+     */
+    private volatile long runs;
+
+    /**
+     * Number of buckets written, across all tiers.
+     */
+    private volatile long buckets;
+
+    /**
+     * Number of blocks removed, across all series.
+     */
+    private volatile long dropped;
+
+    /**
+     * Number of series that could not be rolled up or trimmed.
+     */
+    private volatile long failures;
+
+    /**
+     * Create a new {@code Downsampler}.
+     *
+     * @param store Store to roll up.
+     */
+    public Downsampler(SeriesStore store) {
+        this.store = Objects.requireNonNull(store);
+        this.tiers = store.getTiers();
+        this.writers = new HashMap<String, SeriesWriter[]>();
+        this.watermarks = new HashMap<String, long[]>();
+        this.lock = new ReentrantLock();
+        this.wake = lock.newCondition();
+        this.stopped = new CountDownLatch(1);
+    }
+
+    /**
+     * Start rolling up in the background.
+     *
+     * @param executor Executor to run the loop on. The loop runs until the
+     *                 downsampler is closed.
+     * @param interval Time between runs, in milliseconds.
+     * @throws IllegalArgumentException if {@code interval <= 0}
+     */
+    public void start(Executor executor, long interval) {
+        if(interval <= 0) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+        active = true;
+        started = true;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    loop(interval);
+                } finally {
+                    stopped.countDown();
+                }
+            }
+        });
+    }
+
+    /**
+     * Roll up and trim every series once. Must not be called while the
+     * downsampler is running in the background.
+     *
+     * @param now Current time, in milliseconds since the epoch.
+     * @return Number of buckets written.
+     */
+    public long runOnce(long now) {
+        long written = 0;
+        for(String device : store.devices()) {
+            try {
+                for(int i = 0; i < tiers.size(); i++) {
+                    written += rollUp(device, i);
+                }
+                dropped += trim(device, now);
+            } catch(IOException e) {
+                failures++;
+            }
+        }
+        buckets += written;
+        runs++;
+        return written;
+    }
+
+    /**
+     * Return the number of completed runs.
+     *
+     * @return Runs.
+     */
+    public long getRuns() {
+        return runs;
+    }
+
+    /**
+     * Return the number of buckets written, across all tiers.
+     *
+     * @return Buckets.
+     */
+    public long getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Return the number of blocks removed, across all series.
+     *
+     * @return Blocks.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Return the number of times a series could not be rolled up or trimmed.
+     *
+     * @return Failures.
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Stop the downsampler, and write the tiers' last blocks.
+     *
+     * @throws IOException if a tier cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            active = false;
+            wake.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            if(started) {
+                stopped.await();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        IOException failure = null;
+        for(SeriesWriter[] tierWriters : writers.values()) {
+            for(SeriesWriter writer : tierWriters) {
+                try {
+                    if(writer != null) {
+                        writer.close();
+                    }
+                } catch(IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        writers.clear();
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Run until closed.
+     *
+     * @param interval Time between runs, in milliseconds.
+     */
+    private void loop(long interval) {
+        while(active) {
+            runOnce(System.currentTimeMillis());
+
+            lock.lock();
+            try {
+                if(active) {
+                    wake.awaitNanos(TimeUnit.MILLISECONDS.toNanos(interval));
+                }
+            } catch(InterruptedException e) {
+                active = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Write a tier's buckets that are complete in its source.
+     *
+     * @param device Sensor's device id.
+     * @param tier Index of the tier.
+     * @return Number of buckets written.
+     * @throws IOException if a series cannot be read or written.
+     */
+    private long rollUp(String device, int tier) throws IOException {
+        long width = tiers.get(tier).getWidth();
+        SeriesWriter target = writer(device, tier);
+        long[] marks = watermarks.get(device);
+
+        // the source is the single readings, or the tier before
+        File sourceDirectory = tier == 0 ? store.getDirectory() : store.getDirectory(tiers.get(tier - 1));
+        if(!SeriesWriter.dataFile(sourceDirectory, device).exists()) {
+            return 0;
+        }
+        SeriesReader reader = tier == 0
+            ? new SeriesReader(sourceDirectory, device)
+            : new SeriesReader(sourceDirectory, device, TierRows.COLUMNS);
+
+        try {
+            long max = reader.getMaxTimestamp();
+            if(max == Long.MIN_VALUE) {
+                return 0;
+            }
+
+            // a bucket is complete once the source holds data past its end
+            long sourceEnd = tier == 0 ? max : max + tiers.get(tier - 1).getWidth();
+            long start = marks[tier] != Long.MIN_VALUE ? marks[tier] : Math.floorDiv(reader.getMinTimestamp(), width) * width;
+            long limit = Math.floorDiv(sourceEnd, width) * width;
+            if(start >= limit) {
+                return 0;
+            }
+
+            Rows rows = tier == 0
+                ? new ReadingRows(reader.query(start, limit, false))
+                : new TierRows(reader.query(start, limit, false));
+            double[] row = new double[TierRows.COLUMNS];
+            long written = 0;
+            try(BucketCursor bucket = new BucketCursor(rows, start, width)) {
+                while(bucket.next()) {
+                    TierRows.fill(bucket.getWater(), bucket.getPower(), row);
+                    target.append(bucket.getStart(), row);
+                    written++;
+                }
+            }
+            marks[tier] = limit;
+            return written;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Remove history older than its retention, but not before the next
+     * tier has written it to disk.
+     *
+     * @param device Sensor's device id.
+     * @param now Current time, in milliseconds since the epoch.
+     * @return Number of blocks removed.
+     * @throws IOException if a series cannot be rewritten.
+     */
+    private long trim(String device, long now) throws IOException {
+        SeriesWriter[] tierWriters = writers.get(device);
+
+        long cutoff = now - store.getRetention();
+        if(!tiers.isEmpty()) {
+            cutoff = Math.min(cutoff, written(tierWriters[0], tiers.get(0)));
+        }
+        long removed = store.dropBefore(device, cutoff);
+
+        for(int i = 0; i < tiers.size(); i++) {
+            long retention = tiers.get(i).getRetention();
+            if(retention == Tier.FOREVER) {
+                continue;
+            }
+            cutoff = now - retention;
+            if(i + 1 < tiers.size()) {
+                cutoff = Math.min(cutoff, written(tierWriters[i + 1], tiers.get(i + 1)));
+            }
+            removed += tierWriters[i].dropBefore(cutoff);
+        }
+        return removed;
+    }
+
+    /**
+     * Return the end of the last bucket a tier has written to disk.
+     *
+     * @param writer Tier writer.
+     * @param tier Tier.
+     * @return Milliseconds since the epoch, or {@code Long.MIN_VALUE} if none.
+     */
+    private static long written(SeriesWriter writer, Tier tier) {
+        long max = writer.getMaxTimestamp();
+        return max == Long.MIN_VALUE ? Long.MIN_VALUE : max + tier.getWidth();
+    }
+
+    /**
+     * Return a sensor's writer for a tier, opening it if needed.
+     *
+     * @param device Sensor's device id.
+     * @param tier Index of the tier.
+     * @return Writer.
+     * @throws IOException if the tier's series cannot be opened.
+     */
+    private SeriesWriter writer(String device, int tier) throws IOException {
+        SeriesWriter[] tierWriters = writers.get(device);
+        if(tierWriters == null) {
+            tierWriters = new SeriesWriter[tiers.size()];
+            long[] marks = new long[tiers.size()];
+            writers.put(device, tierWriters);
+            watermarks.put(device, marks);
+            for(int i = 0; i < marks.length; i++) {
+                marks[i] = Long.MIN_VALUE;
+            }
+        }
+
+        if(tierWriters[tier] == null) {
+            File directory = store.getDirectory(tiers.get(tier));
+            if(!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            SeriesWriter writer = new SeriesWriter(directory, device, blockSize(tier), TierRows.COLUMNS);
+            tierWriters[tier] = writer;
+
+            // continue after the last bucket written before
+            watermarks.get(device)[tier] = written(writer, tiers.get(tier));
+        }
+        return tierWriters[tier];
+    }
+
+    /**
+     * Return the number of buckets in a full block of a tier: enough to
+     * fill half the time its source is kept, so the source can be trimmed
+     * well before its retention runs out, up to the usual block size.
+     *
+     * @param tier Index of the tier.
+     * @return Rows in a full block.
+     */
+    private int blockSize(int tier) {
+        long retention = tier == 0 ? store.getRetention() : tiers.get(tier - 1).getRetention();
+        long rows = retention / 2 / tiers.get(tier).getWidth();
+        return (int)Math.max(1, Math.min(SeriesWriter.DEFAULT_BLOCK_SIZE, rows));
+    }
+}
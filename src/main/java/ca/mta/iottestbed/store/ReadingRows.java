@@ -0,0 +1,51 @@
+package ca.mta.iottestbed.store;
+
+import java.io.IOException;
+
+/**
+ * Single readings, as {@link Rows}.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class ReadingRows implements Rows {
+
+    /**
+     * Readings.
+     */
+    private SeriesCursor readings;
+
+    /**
+     * Create a new {@code ReadingRows}.
+     * 
+     * @param readings Readings.
+     */
+    ReadingRows(SeriesCursor readings) {
+        this.readings = readings;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean next() throws IOException {
+        return readings.next();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTimestamp() {
+        return readings.getTimestamp();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addTo(Summary water, Summary power) {
+        water.add(readings.getWater());
+        power.add(readings.getPower());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        readings.close();
+    }
+}
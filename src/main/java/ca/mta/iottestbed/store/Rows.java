@@ -0,0 +1,37 @@
+package ca.mta.iottestbed.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Rows summarized by a {@link BucketCursor}: single readings, or buckets
+ * of a {@link Tier}.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+interface Rows extends Closeable {
+
+    /**
+     * Move to the next row.
+     * 
+     * @return {@code false} if there are no more rows.
+     * @throws IOException if the rows cannot be read.
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Return the time of the current row.
+     * 
+     * @return Milliseconds since the epoch.
+     */
+    long getTimestamp();
+
+    /**
+     * Add the current row's readings to summaries.
+     * 
+     * @param water Water summary.
+     * @param power Power summary.
+     */
+    void addTo(Summary water, Summary power);
+}
@@ -0,0 +1,167 @@
+package ca.mta.iottestbed.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Steps through the readings in a time series, one block at a time.
+ * 
+ * A cursor reuses one block buffer, so stepping through a series does not
+ * allocate for each reading, and only blocks that may hold readings in the
+ * cursor's time range are read.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class SeriesCursor implements Closeable {
+
+    /**
+     * Series being read.
+     */
+    private SeriesReader reader;
+
+    /**
+     * Next block to load.
+     */
+    private int block;
+
+    /**
+     * Block after the last one to load.
+     */
+    private int end;
+
+    /**
+     * Earliest time returned, inclusive.
+     */
+    private long from;
+
+    /**
+     * Latest time returned, exclusive.
+     */
+    private long to;
+
+    /**
+     * Whether closing the cursor closes the series.
+     */
+    private boolean owner;
+
+    /**
+     * Buffer holding the current block.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Decoder for the current block.
+     */
+    private BlockDecoder decoder;
+
+    /**
+     * Whether a block has been loaded.
+     */
+    private boolean loaded;
+
+    /**
+     * Create a new {@code SeriesCursor} over a range of blocks.
+     * 
+     * @param reader Series to read.
+     * @param block First block.
+     * @param end Block after the last one.
+     * @param from Earliest time to return, inclusive.
+     * @param to Latest time to return, exclusive.
+     * @param owner {@code true} if closing the cursor should close {@code reader}.
+     * @param columns Number of values in each row.
+     */
+    SeriesCursor(SeriesReader reader, int block, int end, long from, long to, boolean owner, int columns) {
+        this.reader = reader;
+        this.block = block;
+        this.end = end;
+        this.from = from;
+        this.to = to;
+        this.owner = owner;
+        this.decoder = new BlockDecoder(columns);
+    }
+
+    /**
+     * Move to the next reading.
+     * 
+     * @return {@code false} if there are no more readings.
+     * @throws IOException if a block cannot be read, or is damaged.
+     */
+    public boolean next() throws IOException {
+        while(true) {
+            // next reading in the time range
+            while(loaded && decoder.next()) {
+                long timestamp = decoder.getTimestamp();
+                if(timestamp >= from && timestamp < to) {
+                    return true;
+                }
+            }
+            loaded = false;
+
+            // skip blocks outside the time range
+            while(block < end && !reader.overlaps(block, from, to)) {
+                block++;
+            }
+            if(block >= end) {
+                return false;
+            }
+
+            // load the next block
+            buffer = reader.read(block++, buffer);
+            decoder.load(buffer.array(), buffer.limit());
+            loaded = true;
+        }
+    }
+
+    /**
+     * Return the time of the current reading.
+     * 
+     * @return Milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return decoder.getTimestamp();
+    }
+
+    /**
+     * Return the current water reading.
+     * 
+     * @return Water reading.
+     */
+    public double getWater() {
+        return decoder.getValue(0);
+    }
+
+    /**
+     * Return the current power reading.
+     * 
+     * @return Power reading.
+     */
+    public double getPower() {
+        return decoder.getValue(1);
+    }
+
+    /**
+     * Return a value of the current row.
+     * 
+     * @param column Column number.
+     * @return Value.
+     */
+    double getValue(int column) {
+        return decoder.getValue(column);
+    }
+
+    /**
+     * Close the cursor, and the series if the cursor opened it.
+     * 
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        block = end;
+        loaded = false;
+        if(owner) {
+            reader.close();
+        }
+    }
+}
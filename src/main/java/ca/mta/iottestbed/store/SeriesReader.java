@@ -0,0 +1,186 @@
+package ca.mta.iottestbed.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a time series written by a {@link SeriesWriter}.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class SeriesReader implements Closeable {
+
+    /**
+     * Number of values in each row.
+     */
+    private int columns;
+
+    /**
+     * Data file.
+     */
+    private FileChannel data;
+
+    /**
+     * Index of intact blocks.
+     */
+    private BlockIndex index;
+
+    /**
+     * Open a series. Blocks written after the reader is opened are not seen.
+     * 
+     * @param directory Directory holding the series.
+     * @param device Sensor's device id.
+     * @throws IOException if the series cannot be opened.
+     */
+    public SeriesReader(File directory, String device) throws IOException {
+        this(directory, device, BlockEncoder.READING_COLUMNS);
+    }
+
+    /**
+     * Open a series with any number of values in each row.
+     * 
+     * @param directory Directory holding the series.
+     * @param device Sensor's device id.
+     * @param columns Number of values in each row.
+     * @throws IOException if the series cannot be opened.
+     */
+    SeriesReader(File directory, String device, int columns) throws IOException {
+        this.columns = columns;
+        data = FileChannel.open(SeriesWriter.dataFile(directory, device).toPath(), StandardOpenOption.READ);
+        try {
+            index = BlockIndex.load(SeriesWriter.indexFile(directory, device), data, columns);
+        } catch(IOException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a cursor over every reading, in the order written.
+     * 
+     * @return New cursor.
+     */
+    public SeriesCursor cursor() {
+        return new SeriesCursor(this, 0, index.size(), Long.MIN_VALUE, Long.MAX_VALUE, false, columns);
+    }
+
+    /**
+     * Return a cursor over the readings taken in a time range, in the
+     * order written. Only blocks whose time range overlaps the query are
+     * read, and the first one is found by binary search of the block index.
+     * 
+     * @param from Earliest time, inclusive, in milliseconds since the epoch.
+     * @param to Latest time, exclusive, in milliseconds since the epoch.
+     * @return New cursor.
+     */
+    public SeriesCursor query(long from, long to) {
+        return query(from, to, false);
+    }
+
+    /**
+     * Return a cursor over the readings taken in a time range.
+     * 
+     * @param from Earliest time, inclusive.
+     * @param to Latest time, exclusive.
+     * @param owner {@code true} if closing the cursor should close this reader.
+     * @return New cursor.
+     */
+    SeriesCursor query(long from, long to, boolean owner) {
+        return new SeriesCursor(this, index.first(from), index.until(to), from, to, owner, columns);
+    }
+
+    /**
+     * Return the number of blocks.
+     * 
+     * @return Blocks.
+     */
+    public int getBlocks() {
+        return index.size();
+    }
+
+    /**
+     * Return the number of readings.
+     * 
+     * @return Readings.
+     */
+    public long getCount() {
+        long count = 0;
+        for(int i = 0; i < index.size(); i++) {
+            count += index.getCount(i);
+        }
+        return count;
+    }
+
+    /**
+     * Return the time of the earliest reading.
+     * 
+     * @return Milliseconds since the epoch, or {@code Long.MAX_VALUE} if there are no readings.
+     */
+    public long getMinTimestamp() {
+        return index.min();
+    }
+
+    /**
+     * Return the time of the latest reading.
+     * 
+     * @return Milliseconds since the epoch, or {@code Long.MIN_VALUE} if there are no readings.
+     */
+    public long getMaxTimestamp() {
+        return index.max();
+    }
+
+    /**
+     * Return the size of the data.
+     * 
+     * @return Bytes.
+     */
+    public long getBytes() {
+        return index.end();
+    }
+
+    /**
+     * Return whether a block may hold readings in a time range.
+     * 
+     * @param block Block number.
+     * @param from Earliest time, inclusive.
+     * @param to Latest time, exclusive.
+     * @return {@code true} if the block's time range overlaps.
+     */
+    boolean overlaps(int block, long from, long to) {
+        return index.getMax(block) >= from && index.getMin(block) < to;
+    }
+
+    /**
+     * Read a block.
+     * 
+     * @param block Block number.
+     * @param buffer Buffer to read into, or {@code null}.
+     * @return {@code buffer}, or a larger buffer if it was too small, holding
+     *         the block from index 0.
+     * @throws IOException if the block cannot be read.
+     */
+    ByteBuffer read(int block, ByteBuffer buffer) throws IOException {
+        int length = index.getLength(block);
+        if(buffer == null || buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, 4096));
+        }
+        buffer.clear().limit(length);
+        BlockIndex.readFully(data, buffer, index.getOffset(block));
+        return buffer;
+    }
+
+    /**
+     * Close the series.
+     * 
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        data.close();
+    }
+}
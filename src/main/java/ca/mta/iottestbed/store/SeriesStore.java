@@ -0,0 +1,280 @@
+package ca.mta.iottestbed.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A directory of time series, one for each sensor.
+ * 
+ * Queries open a series, read only the blocks that overlap the requested
+ * time range, and return their results lazily through a cursor, which
+ * must be closed. A query sees every block written before it started;
+ * readings a {@link SeriesWriter} has not yet written as a block are not
+ * included.
+ * 
+ * Older history is rolled up by a {@link Downsampler} into {@link Tier}s,
+ * each in a subdirectory named after the tier, and removed once it is older
+ * than its retention. Aggregate queries read from the coarsest tier that
+ * fits their buckets, and from finer tiers or single readings after it.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class SeriesStore {
+
+    /**
+     * Default time single readings are kept, in milliseconds.
+     */
+    public static final long DEFAULT_RETENTION = 7 * Tier.DAY;
+
+    /**
+     * Default tiers: minutes for 30 days, hours for a year, and days forever.
+     */
+    public static final List<Tier> DEFAULT_TIERS = List.of(
+        new Tier("1m", Tier.MINUTE, 30 * Tier.DAY),
+        new Tier("1h", Tier.HOUR, 365 * Tier.DAY),
+        new Tier("1d", Tier.DAY, Tier.FOREVER));
+
+    /**
+     * Directory holding the series.
+     */
+    private File directory;
+
+    /**
+     * Open writers, by device id.
+     */
+    private ConcurrentHashMap<String, SeriesWriter> writers;
+
+    /**
+     * Time single readings are kept, in milliseconds.
+     */
+    private volatile long retention;
+
+    /**
+     * Tiers, finest first.
+     */
+    private volatile List<Tier> tiers;
+
+    /**
+     * Create a new {@code SeriesStore} with the default tiers.
+     * 
+     * @param directory Directory holding the series.
+     */
+    public SeriesStore(File directory) {
+        this.directory = Objects.requireNonNull(directory);
+        this.writers = new ConcurrentHashMap<String, SeriesWriter>();
+        this.retention = DEFAULT_RETENTION;
+        this.tiers = DEFAULT_TIERS;
+    }
+
+    /**
+     * Return the directory holding the series.
+     * 
+     * @return Directory.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Set how long single readings are kept, and the tiers they are rolled
+     * up into.
+     * 
+     * @param retention Time single readings are kept, in milliseconds.
+     * @param tiers Tiers, finest first. Each tier's width must be a
+     *              multiple of the one before it.
+     * @throws IllegalArgumentException if {@code retention} is not
+     *                                  positive, or the tiers do not nest.
+     */
+    public void setTiers(long retention, Tier... tiers) {
+        if(retention <= 0) {
+            throw new IllegalArgumentException("Invalid retention: " + retention);
+        }
+        for(int i = 1; i < tiers.length; i++) {
+            if(tiers[i].getWidth() % tiers[i - 1].getWidth() != 0 || tiers[i].getWidth() == tiers[i - 1].getWidth()) {
+                throw new IllegalArgumentException("Tier " + tiers[i] + " does not nest in " + tiers[i - 1]);
+            }
+        }
+        this.tiers = List.of(tiers);
+        this.retention = retention;
+    }
+
+    /**
+     * Return the tiers history is rolled up into.
+     * 
+     * @return Tiers, finest first.
+     */
+    public List<Tier> getTiers() {
+        return tiers;
+    }
+
+    /**
+     * Return how long single readings are kept.
+     * 
+     * @return Milliseconds.
+     */
+    public long getRetention() {
+        return retention;
+    }
+
+    /**
+     * Open a sensor's series for writing.
+     * 
+     * @param device Sensor's device id.
+     * @return New writer.
+     * @throws IOException if the series cannot be opened.
+     */
+    public synchronized SeriesWriter open(String device) throws IOException {
+        SeriesWriter writer = new SeriesWriter(directory, device);
+        writer.setOwner(this);
+        writers.put(device, writer);
+        return writer;
+    }
+
+    /**
+     * Forget a writer that has been closed.
+     * 
+     * @param device Sensor's device id.
+     * @param writer Closed writer.
+     */
+    void closed(String device, SeriesWriter writer) {
+        writers.remove(device, writer);
+    }
+
+    /**
+     * Remove a sensor's oldest readings, through its open writer if it
+     * has one.
+     * 
+     * @param device Sensor's device id.
+     * @param cutoff Milliseconds since the epoch.
+     * @return Number of blocks removed.
+     * @throws IOException if the series cannot be rewritten.
+     */
+    long dropBefore(String device, long cutoff) throws IOException {
+        SeriesWriter writer = writers.get(device);
+        if(writer != null) {
+            return writer.dropBefore(cutoff);
+        }
+
+        // hold the store so the sensor cannot open a second writer meanwhile
+        synchronized(this) {
+            writer = writers.get(device);
+            if(writer != null) {
+                return writer.dropBefore(cutoff);
+            }
+            try(SeriesWriter idle = new SeriesWriter(directory, device)) {
+                return idle.dropBefore(cutoff);
+            }
+        }
+    }
+
+    /**
+     * Return the directory holding a tier.
+     * 
+     * @param tier Tier.
+     * @return Directory.
+     */
+    File getDirectory(Tier tier) {
+        return new File(directory, tier.getName());
+    }
+
+    /**
+     * Return the sensors that have a series in the store.
+     * 
+     * @return Device ids, sorted.
+     */
+    public List<String> devices() {
+        List<String> devices = new ArrayList<String>();
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file : files) {
+                String name = file.getName();
+                if(name.endsWith(SeriesWriter.DATA_SUFFIX)) {
+                    devices.add(name.substring(0, name.length() - SeriesWriter.DATA_SUFFIX.length()));
+                }
+            }
+        }
+        Collections.sort(devices);
+        return devices;
+    }
+
+    /**
+     * Return a sensor's readings taken in a time range.
+     * 
+     * @param device Sensor's device id.
+     * @param from Earliest time, inclusive, in milliseconds since the epoch.
+     * @param to Latest time, exclusive, in milliseconds since the epoch.
+     * @return Cursor over the readings. Closing it closes the series.
+     * @throws IOException if the series cannot be opened.
+     */
+    public SeriesCursor query(String device, long from, long to) throws IOException {
+        return new SeriesReader(directory, device).query(from, to, true);
+    }
+
+    /**
+     * Return the minimum, maximum, average, and sum of a sensor's readings
+     * over fixed-width buckets of a time range.
+     * 
+     * A tier is used when {@code from} is a multiple of its width and
+     * {@code width} a multiple of it, so that each of its buckets falls in
+     * exactly one bucket of the query. The coarsest such tier answers up to
+     * its last bucket, finer tiers after that, and single readings the rest.
+     * 
+     * @param device Sensor's device id.
+     * @param from Earliest time, inclusive, and start of the first bucket.
+     * @param to Latest time, exclusive.
+     * @param width Width of each bucket, in milliseconds.
+     * @return Cursor over the buckets. Closing it closes the series.
+     * @throws IOException if the series cannot be opened.
+     * @throws IllegalArgumentException if {@code width <= 0}
+     */
+    public BucketCursor aggregate(String device, long from, long to, long width) throws IOException {
+        if(width <= 0) {
+            throw new IllegalArgumentException("Invalid bucket width: " + width);
+        }
+
+        List<Rows> parts = new ArrayList<Rows>();
+        try {
+            long position = from;
+            List<Tier> tiers = this.tiers;
+
+            // coarsest tiers first, each taking over where the last one ends
+            for(int i = tiers.size() - 1; i >= 0 && position < to; i--) {
+                Tier tier = tiers.get(i);
+                long tierWidth = tier.getWidth();
+                if(width % tierWidth != 0 || Math.floorMod(from, tierWidth) != 0
+                        || !SeriesWriter.dataFile(getDirectory(tier), device).exists()) {
+                    continue;
+                }
+
+                SeriesReader reader = new SeriesReader(getDirectory(tier), device, TierRows.COLUMNS);
+                long max = reader.getMaxTimestamp();
+                long end = max == Long.MIN_VALUE ? position : Math.min(max + tierWidth, Math.floorDiv(to, tierWidth) * tierWidth);
+                if(end <= position) {
+                    reader.close();
+                    continue;
+                }
+                parts.add(new TierRows(reader.query(position, end, true)));
+                position = end;
+            }
+
+            if(position < to || parts.isEmpty()) {
+                parts.add(new ReadingRows(query(device, position, to)));
+            }
+        } catch(IOException | RuntimeException e) {
+            try {
+                new ConcatRows(parts).close();
+            } catch(IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+
+        return new BucketCursor(parts.size() == 1 ? parts.get(0) : new ConcatRows(parts), from, width);
+    }
+}
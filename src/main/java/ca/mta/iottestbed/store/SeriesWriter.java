@@ -0,0 +1,384 @@
+package ca.mta.iottestbed.store;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends one sensor's readings to a columnar time series.
+ * 
+ * Readings are collected into blocks of {@code blockSize} readings. Each
+ * block stores its timestamps as deltas of deltas and its water and power
+ * readings XOR-compressed, one column after the other, so readings at a
+ * steady rate take a few bits each. Full blocks are appended to
+ * {@code <device>.tsd}, and an entry for each block is appended to the
+ * block index, {@code <device>.tsi}.
+ * 
+ * Reopening a series continues after its last intact block. Readings in a
+ * block that has not been written are lost if the meter stops without
+ * closing the writer. {@link #dropBefore(long)} removes old blocks while
+ * readings keep arriving.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class SeriesWriter implements Closeable {
+
+    /**
+     * Default number of readings in a block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /**
+     * Suffix of data files.
+     */
+    static final String DATA_SUFFIX = ".tsd";
+
+    /**
+     * Suffix of index files.
+     */
+    static final String INDEX_SUFFIX = ".tsi";
+
+    /**
+     * Directory holding the series.
+     */
+    private File directory;
+
+    /**
+     * Sensor's device id.
+     */
+    private String device;
+
+    /**
+     * Store that opened this writer, or {@code null}.
+     */
+    private SeriesStore owner;
+
+    /**
+     * Held while old blocks are being removed.
+     */
+    private final Object dropping = new Object();
+
+    /**
+     * Data file.
+     */
+    private FileChannel data;
+
+    /**
+     * Index file, appended to after each block.
+     */
+    private DataOutputStream indexOutput;
+
+    /**
+     * Index of written blocks.
+     */
+    private BlockIndex index;
+
+    /**
+     * Block being filled.
+     */
+    private BlockEncoder block;
+
+    /**
+     * Readings in a full block.
+     */
+    private int blockSize;
+
+    /**
+     * Create a new {@code SeriesWriter} with the default block size.
+     * 
+     * @param directory Directory holding the series.
+     * @param device Sensor's device id.
+     * @throws IOException if the series cannot be opened.
+     */
+    public SeriesWriter(File directory, String device) throws IOException {
+        this(directory, device, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Create a new {@code SeriesWriter}, continuing the series if it exists.
+     * 
+     * @param directory Directory holding the series.
+     * @param device Sensor's device id.
+     * @param blockSize Readings in a full block.
+     * @throws IOException if the series cannot be opened.
+     * @throws IllegalArgumentException if {@code blockSize <= 0}
+     */
+    public SeriesWriter(File directory, String device, int blockSize) throws IOException {
+        this(directory, device, blockSize, BlockEncoder.READING_COLUMNS);
+    }
+
+    /**
+     * Create a new {@code SeriesWriter} with any number of values in each row.
+     * 
+     * @param directory Directory holding the series.
+     * @param device Sensor's device id.
+     * @param blockSize Rows in a full block.
+     * @param columns Number of values in each row.
+     * @throws IOException if the series cannot be opened.
+     */
+    SeriesWriter(File directory, String device, int blockSize, int columns) throws IOException {
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.block = new BlockEncoder(columns);
+        this.directory = directory;
+        this.device = device;
+
+        File indexFile = indexFile(directory, device);
+        data = FileChannel.open(dataFile(directory, device).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // drop anything after the last intact block
+        try {
+            index = BlockIndex.load(indexFile, data, columns);
+            data.truncate(index.end());
+            index.save(indexFile);
+            indexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+        } catch(IOException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Add a reading.
+     * 
+     * @param timestamp Time of the reading, in milliseconds since the epoch.
+     * @param water Water reading.
+     * @param power Power reading.
+     * @throws IOException if a full block cannot be written.
+     */
+    public synchronized void append(long timestamp, double water, double power) throws IOException {
+        block.add(timestamp, water, power);
+        if(block.getCount() >= blockSize) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Add a row.
+     * 
+     * @param timestamp Time of the row, in milliseconds since the epoch.
+     * @param row One value for each column.
+     * @throws IOException if a full block cannot be written.
+     */
+    synchronized void append(long timestamp, double[] row) throws IOException {
+        block.add(timestamp, row);
+        if(block.getCount() >= blockSize) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Write the readings collected so far as a block, even if it is not full.
+     * 
+     * @throws IOException if the block cannot be written.
+     */
+    public synchronized void flush() throws IOException {
+        if(block.getCount() > 0) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Return the number of blocks written.
+     * 
+     * @return Blocks.
+     */
+    public synchronized int getBlocks() {
+        return index.size();
+    }
+
+    /**
+     * Return the size of the data file.
+     * 
+     * @return Bytes written.
+     */
+    public synchronized long getBytes() {
+        return index.end();
+    }
+
+    /**
+     * Return the time of the latest reading in a written block.
+     * 
+     * @return Milliseconds since the epoch, or {@code Long.MIN_VALUE} if no block has been written.
+     */
+    public synchronized long getMaxTimestamp() {
+        return index.max();
+    }
+
+    /**
+     * Remove the oldest blocks, up to the first that may hold readings at
+     * or after a time. The remaining blocks are copied to a new file, which
+     * then replaces the series. Most of the copy happens without holding
+     * the writer's lock, so readings can be added while it runs.
+     * 
+     * @param cutoff Milliseconds since the epoch.
+     * @return Number of blocks removed.
+     * @throws IOException if the series cannot be rewritten.
+     */
+    public long dropBefore(long cutoff) throws IOException {
+        synchronized(dropping) {
+            return drop(cutoff);
+        }
+    }
+
+    /**
+     * Remove the oldest blocks. Called by one thread at a time.
+     * 
+     * @param cutoff Milliseconds since the epoch.
+     * @return Number of blocks removed.
+     * @throws IOException if the series cannot be rewritten.
+     */
+    private long drop(long cutoff) throws IOException {
+        BlockIndex snapshot;
+        int first;
+        synchronized(this) {
+            first = index.first(cutoff);
+            if(first == 0) {
+                return 0;
+            }
+            snapshot = index.copy();
+        }
+
+        File dataFile = dataFile(directory, device);
+        File indexFile = indexFile(directory, device);
+        File newData = new File(directory, device + DATA_SUFFIX + ".tmp");
+        File newIndexFile = new File(directory, device + INDEX_SUFFIX + ".tmp");
+        BlockIndex kept = new BlockIndex();
+
+        try(FileChannel output = FileChannel.open(newData.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // copy the blocks written so far
+            copy(snapshot, first, snapshot.size(), output, kept);
+
+            synchronized(this) {
+                // copy blocks written during the first copy
+                copy(index, snapshot.size(), index.size(), output, kept);
+                output.force(false);
+                kept.save(newIndexFile);
+
+                // without an index, a crash during the swap rebuilds it from the data
+                indexOutput.close();
+                data.close();
+                Files.deleteIfExists(indexFile.toPath());
+                Files.move(newData.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(newIndexFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                data = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                indexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+                index = kept;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Write the last block and close the series.
+     * 
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            indexOutput.close();
+            data.close();
+            if(owner != null) {
+                owner.closed(device, this);
+            }
+        }
+    }
+
+    /**
+     * Set the store that opened this writer, to tell it when it is closed.
+     * 
+     * @param owner Store.
+     */
+    void setOwner(SeriesStore owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Copy blocks to another file.
+     * 
+     * @param source Index of the blocks.
+     * @param from First block to copy.
+     * @param to Block after the last one to copy.
+     * @param output File to append to.
+     * @param copied Index to add the copied blocks to.
+     * @throws IOException if an I/O error occurs
+     */
+    private void copy(BlockIndex source, int from, int to, FileChannel output, BlockIndex copied) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        for(int i = from; i < to; i++) {
+            int length = source.getLength(i);
+            if(buffer.capacity() < length) {
+                buffer = ByteBuffer.allocate(length);
+            }
+            buffer.clear().limit(length);
+            BlockIndex.readFully(data, buffer, source.getOffset(i));
+            buffer.flip();
+
+            long offset = copied.end();
+            while(buffer.hasRemaining()) {
+                output.write(buffer, offset + buffer.position());
+            }
+            copied.add(offset, length, source.getCount(i), source.getMin(i), source.getMax(i));
+        }
+    }
+
+    /**
+     * Append the current block to the data file, and its entry to the index.
+     * 
+     * @throws IOException if the block cannot be written.
+     */
+    private void writeBlock() throws IOException {
+        ByteBuffer encoded = block.encode();
+        long offset = index.end();
+        int length = encoded.remaining();
+
+        // data first, so the index never points past the data
+        while(encoded.hasRemaining()) {
+            data.write(encoded, offset + encoded.position());
+        }
+        index.add(offset, length, block.getCount(), block.getMin(), block.getMax());
+        index.write(indexOutput, index.size() - 1);
+        indexOutput.flush();
+
+        block.reset();
+    }
+
+    /**
+     * Return the data file of a series.
+     * 
+     * @param directory Directory holding the series.
+     * @param device Sensor's device id.
+     * @return Data file.
+     */
+    static File dataFile(File directory, String device) {
+        return new File(directory, device + DATA_SUFFIX);
+    }
+
+    /**
+     * Return the index file of a series.
+     * 
+     * @param directory Directory holding the series.
+     * @param device Sensor's device id.
+     * @return Index file.
+     */
+    static File indexFile(File directory, String device) {
+        return new File(directory, device + INDEX_SUFFIX);
+    }
+}
@@ -0,0 +1,122 @@
+package ca.mta.iottestbed.store;
+
+/**
+ * Count, minimum, maximum, and sum of a set of readings.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Summary {
+
+    /**
+     * Number of readings.
+     */
+    private long count;
+
+    /**
+     * Smallest reading.
+     */
+    private double min;
+
+    /**
+     * Largest reading.
+     */
+    private double max;
+
+    /**
+     * Sum of the readings.
+     */
+    private double sum;
+
+    /**
+     * Create a new, empty {@code Summary}.
+     */
+    public Summary() {
+        reset();
+    }
+
+    /**
+     * Add a reading.
+     * 
+     * @param value Reading.
+     */
+    public void add(double value) {
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+    }
+
+    /**
+     * Add a group of readings.
+     * 
+     * @param count Number of readings.
+     * @param min Smallest reading.
+     * @param max Largest reading.
+     * @param sum Sum of the readings.
+     */
+    void merge(long count, double min, double max, double sum) {
+        if(count == 0) {
+            return;
+        }
+        this.count += count;
+        this.min = Math.min(this.min, min);
+        this.max = Math.max(this.max, max);
+        this.sum += sum;
+    }
+
+    /**
+     * Forget every reading.
+     */
+    public void reset() {
+        count = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        sum = 0;
+    }
+
+    /**
+     * Return the number of readings.
+     * 
+     * @return Readings.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Return the smallest reading.
+     * 
+     * @return Minimum, or {@code NaN} if there are no readings.
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Return the largest reading.
+     * 
+     * @return Maximum, or {@code NaN} if there are no readings.
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Return the sum of the readings.
+     * 
+     * @return Sum.
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Return the mean of the readings.
+     * 
+     * @return Average, or {@code NaN} if there are no readings.
+     */
+    public double getAverage() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+}
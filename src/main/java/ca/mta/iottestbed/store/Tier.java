@@ -0,0 +1,105 @@
+package ca.mta.iottestbed.store;
+
+import java.util.Objects;
+
+/**
+ * A level of summarized history: readings rolled up into buckets of a fixed
+ * width, kept for a fixed time.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class Tier {
+
+    /**
+     * One minute, in milliseconds.
+     */
+    public static final long MINUTE = 60000;
+
+    /**
+     * One hour, in milliseconds.
+     */
+    public static final long HOUR = 60 * MINUTE;
+
+    /**
+     * One day, in milliseconds.
+     */
+    public static final long DAY = 24 * HOUR;
+
+    /**
+     * Keep data forever.
+     */
+    public static final long FOREVER = Long.MAX_VALUE;
+
+    /**
+     * Name, used as the tier's directory.
+     */
+    private String name;
+
+    /**
+     * Width of each bucket, in milliseconds.
+     */
+    private long width;
+
+    /**
+     * How long buckets are kept, in milliseconds.
+     */
+    private long retention;
+
+    /**
+     * Create a new {@code Tier}.
+     * 
+     * @param name Name, used as the tier's directory.
+     * @param width Width of each bucket, in milliseconds.
+     * @param retention How long buckets are kept, in milliseconds, or {@link #FOREVER}.
+     * @throws IllegalArgumentException if {@code width} or {@code retention} is not positive.
+     */
+    public Tier(String name, long width, long retention) {
+        if(width <= 0) {
+            throw new IllegalArgumentException("Invalid tier width: " + width);
+        }
+        if(retention <= 0) {
+            throw new IllegalArgumentException("Invalid tier retention: " + retention);
+        }
+        this.name = Objects.requireNonNull(name);
+        this.width = width;
+        this.retention = retention;
+    }
+
+    /**
+     * Return the tier's name.
+     * 
+     * @return Name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the width of each bucket.
+     * 
+     * @return Milliseconds.
+     */
+    public long getWidth() {
+        return width;
+    }
+
+    /**
+     * Return how long buckets are kept.
+     * 
+     * @return Milliseconds, or {@link #FOREVER}.
+     */
+    public long getRetention() {
+        return retention;
+    }
+
+    /**
+     * Return the tier's name and width.
+     * 
+     * @return Description.
+     */
+    @Override
+    public String toString() {
+        return name + " (" + width + " ms)";
+    }
+}
@@ -0,0 +1,78 @@
+package ca.mta.iottestbed.store;
+
+import java.io.IOException;
+
+/**
+ * Buckets of a {@link Tier}, as {@link Rows}.
+ * 
+ * A tier is stored as a series with seven values in each row: the number
+ * of readings in the bucket, then the minimum, maximum, and sum of the
+ * water readings, then the same for power.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class TierRows implements Rows {
+
+    /**
+     * Number of values in each row of a tier.
+     */
+    static final int COLUMNS = 7;
+
+    /**
+     * Buckets.
+     */
+    private SeriesCursor buckets;
+
+    /**
+     * Create a new {@code TierRows}.
+     * 
+     * @param buckets Cursor over a tier's series.
+     */
+    TierRows(SeriesCursor buckets) {
+        this.buckets = buckets;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean next() throws IOException {
+        return buckets.next();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTimestamp() {
+        return buckets.getTimestamp();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addTo(Summary water, Summary power) {
+        long count = (long)buckets.getValue(0);
+        water.merge(count, buckets.getValue(1), buckets.getValue(2), buckets.getValue(3));
+        power.merge(count, buckets.getValue(4), buckets.getValue(5), buckets.getValue(6));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        buckets.close();
+    }
+
+    /**
+     * Fill a tier row from summaries.
+     * 
+     * @param water Water summary.
+     * @param power Power summary.
+     * @param row Row to fill.
+     */
+    static void fill(Summary water, Summary power, double[] row) {
+        row[0] = water.getCount();
+        row[1] = water.getMin();
+        row[2] = water.getMax();
+        row[3] = water.getSum();
+        row[4] = power.getMin();
+        row[5] = power.getMax();
+        row[6] = power.getSum();
+    }
+}
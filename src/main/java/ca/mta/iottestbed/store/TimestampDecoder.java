@@ -0,0 +1,82 @@
+package ca.mta.iottestbed.store;
+
+/**
+ * Decodes a column written by a {@link TimestampEncoder}.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class TimestampDecoder {
+
+    /**
+     * Column being read.
+     */
+    private BitReader column;
+
+    /**
+     * Whether the first timestamp has been returned.
+     */
+    private boolean started;
+
+    /**
+     * Previous timestamp.
+     */
+    private long previous;
+
+    /**
+     * Gap between the previous two timestamps.
+     */
+    private long delta;
+
+    /**
+     * Create a new {@code TimestampDecoder}.
+     */
+    TimestampDecoder() {
+        column = new BitReader();
+    }
+
+    /**
+     * Start reading a column.
+     * 
+     * @param bytes Array holding the column.
+     * @param offset Offset of the column.
+     * @param bits Length of the column, in bits.
+     * @param first First timestamp, from the block header.
+     */
+    void reset(byte[] bytes, int offset, long bits, long first) {
+        column.reset(bytes, offset, bits);
+        started = false;
+        previous = first;
+        delta = 0;
+    }
+
+    /**
+     * Return the next timestamp.
+     * 
+     * @return Milliseconds since the epoch.
+     */
+    long decode() {
+        if(!started) {
+            started = true;
+            return previous;
+        }
+
+        // count the prefix bits
+        long change;
+        if(!column.readBit()) {
+            change = 0;
+        } else if(!column.readBit()) {
+            change = column.read(7) - 63;
+        } else if(!column.readBit()) {
+            change = column.read(9) - 255;
+        } else if(!column.readBit()) {
+            change = column.read(12) - 2047;
+        } else {
+            change = column.read(64);
+        }
+
+        delta += change;
+        previous += delta;
+        return previous;
+    }
+}
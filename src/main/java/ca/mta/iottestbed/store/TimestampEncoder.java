@@ -0,0 +1,99 @@
+package ca.mta.iottestbed.store;
+
+/**
+ * Encodes a column of timestamps as deltas of deltas. Readings that arrive
+ * at a steady interval take one bit each.
+ * 
+ * The first timestamp is kept in the block header, not in the column. Each
+ * later timestamp is written as the change in the gap since the previous
+ * one, using the smallest of these forms that fits:
+ * 
+ * <pre>
+ * 0                     no change
+ * 10   + 7 bits         -63 to 64
+ * 110  + 9 bits         -255 to 256
+ * 1110 + 12 bits        -2047 to 2048
+ * 1111 + 64 bits        anything else
+ * </pre>
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class TimestampEncoder {
+
+    /**
+     * Column being written.
+     */
+    private BitWriter column;
+
+    /**
+     * Number of timestamps written.
+     */
+    private int count;
+
+    /**
+     * Previous timestamp.
+     */
+    private long previous;
+
+    /**
+     * Gap between the previous two timestamps.
+     */
+    private long delta;
+
+    /**
+     * Create a new {@code TimestampEncoder}.
+     */
+    TimestampEncoder() {
+        column = new BitWriter();
+    }
+
+    /**
+     * Add a timestamp to the column.
+     * 
+     * @param timestamp Milliseconds since the epoch.
+     */
+    void encode(long timestamp) {
+        if(count++ > 0) {
+            long next = timestamp - previous;
+            long change = next - delta;
+            delta = next;
+
+            if(change == 0) {
+                column.write(0, 1);
+            } else if(change >= -63 && change <= 64) {
+                column.write(0b10, 2);
+                column.write(change + 63, 7);
+            } else if(change >= -255 && change <= 256) {
+                column.write(0b110, 3);
+                column.write(change + 255, 9);
+            } else if(change >= -2047 && change <= 2048) {
+                column.write(0b1110, 4);
+                column.write(change + 2047, 12);
+            } else {
+                column.write(0b1111, 4);
+                column.write(change, 64);
+            }
+        }
+        previous = timestamp;
+    }
+
+    /**
+     * Return the column.
+     * 
+     * @return Encoded timestamps.
+     */
+    BitWriter getColumn() {
+        return column;
+    }
+
+    /**
+     * Start a new column.
+     */
+    void reset() {
+        column.reset();
+        count = 0;
+        previous = 0;
+        delta = 0;
+    }
+}
@@ -0,0 +1,80 @@
+package ca.mta.iottestbed.store;
+
+/**
+ * Decodes a column written by a {@link ValueEncoder}.
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class ValueDecoder {
+
+    /**
+     * Column being read.
+     */
+    private BitReader column;
+
+    /**
+     * Whether the first value has been read.
+     */
+    private boolean started;
+
+    /**
+     * Bits of the previous value.
+     */
+    private long previous;
+
+    /**
+     * Leading zeros of the current window.
+     */
+    private int leading;
+
+    /**
+     * Trailing zeros of the current window.
+     */
+    private int trailing;
+
+    /**
+     * Create a new {@code ValueDecoder}.
+     */
+    ValueDecoder() {
+        column = new BitReader();
+    }
+
+    /**
+     * Start reading a column.
+     * 
+     * @param bytes Array holding the column.
+     * @param offset Offset of the column.
+     * @param bits Length of the column, in bits.
+     */
+    void reset(byte[] bytes, int offset, long bits) {
+        column.reset(bytes, offset, bits);
+        started = false;
+        previous = 0;
+        leading = 0;
+        trailing = 0;
+    }
+
+    /**
+     * Return the next value.
+     * 
+     * @return Value.
+     */
+    double decode() {
+        if(!started) {
+            started = true;
+            previous = column.read(64);
+        }
+
+        // value changed
+        else if(column.readBit()) {
+            if(column.readBit()) {
+                leading = (int)column.read(5);
+                trailing = 64 - leading - ((int)column.read(6) + 1);
+            }
+            previous ^= column.read(64 - leading - trailing) << trailing;
+        }
+
+        return Double.longBitsToDouble(previous);
+    }
+}
@@ -0,0 +1,118 @@
+package ca.mta.iottestbed.store;
+
+/**
+ * Encodes a column of doubles by XOR with the previous value. Consecutive
+ * readings from a sensor share their sign, exponent, and top mantissa bits,
+ * so only the bits that changed are written.
+ * 
+ * The first value is written whole. Each later value is written as:
+ * 
+ * <pre>
+ * 0                                  same as the previous value
+ * 10 + changed bits                  changed bits fit in the previous window
+ * 11 + 5 bits leading zeros
+ *    + 6 bits length - 1
+ *    + changed bits                  new window
+ * </pre>
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+class ValueEncoder {
+
+    /**
+     * Column being written.
+     */
+    private BitWriter column;
+
+    /**
+     * Number of values written.
+     */
+    private int count;
+
+    /**
+     * Bits of the previous value.
+     */
+    private long previous;
+
+    /**
+     * Leading zeros of the current window, or -1 if there is none yet.
+     */
+    private int leading;
+
+    /**
+     * Trailing zeros of the current window.
+     */
+    private int trailing;
+
+    /**
+     * Create a new {@code ValueEncoder}.
+     */
+    ValueEncoder() {
+        column = new BitWriter();
+        leading = -1;
+    }
+
+    /**
+     * Add a value to the column.
+     * 
+     * @param value Value to add.
+     */
+    void encode(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        if(count++ == 0) {
+            column.write(bits, 64);
+            previous = bits;
+            return;
+        }
+
+        long xor = bits ^ previous;
+        previous = bits;
+
+        // value repeated
+        if(xor == 0) {
+            column.write(0, 1);
+            return;
+        }
+
+        int newLeading = Math.min(31, Long.numberOfLeadingZeros(xor));
+        int newTrailing = Long.numberOfTrailingZeros(xor);
+
+        // reuse the previous window
+        if(leading >= 0 && newLeading >= leading && newTrailing >= trailing) {
+            column.write(0b10, 2);
+            column.write(xor >>> trailing, 64 - leading - trailing);
+        }
+
+        // start a new window
+        else {
+            int length = 64 - newLeading - newTrailing;
+            column.write(0b11, 2);
+            column.write(newLeading, 5);
+            column.write(length - 1, 6);
+            column.write(xor >>> newTrailing, length);
+            leading = newLeading;
+            trailing = newTrailing;
+        }
+    }
+
+    /**
+     * Return the column.
+     * 
+     * @return Encoded values.
+     */
+    BitWriter getColumn() {
+        return column;
+    }
+
+    /**
+     * Start a new column.
+     */
+    void reset() {
+        column.reset();
+        count = 0;
+        previous = 0;
+        leading = -1;
+        trailing = 0;
+    }
+}
@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ca.mta.iottestbed.detect.Anomaly;
+import ca.mta.iottestbed.detect.AnomalyDetector;
+import ca.mta.iottestbed.detect.AnomalyListener;
+
+/**
+ * Unit tests for ca.mta.iottestbed.detect.AnomalyDetector
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestAnomalyDetector {
+
+    /**
+     * Time of the first reading.
+     */
+    private static final long START = 1792218640964L;
+
+    /**
+     * Detector under test.
+     */
+    private AnomalyDetector detector;
+
+    /**
+     * Anomalies reported.
+     */
+    private List<Anomaly> anomalies;
+
+    @BeforeEach
+    public void setUp() {
+        detector = new AnomalyDetector();
+        anomalies = new ArrayList<Anomaly>();
+        detector.addListener(new AnomalyListener() {
+            @Override
+            public void onAnomaly(String device, Anomaly anomaly, long timestamp, double expected, double actual) {
+                anomalies.add(anomaly);
+            }
+        });
+    }
+
+    /**
+     * Assert that readings on the sensor curve are never reported, and that
+     * the amplitudes are learned.
+     */
+    @Test
+    public void testNormal() {
+        for(int i = 0; i < 10000; i++) {
+            report("A1", START + 1000L * i, 1, 1);
+        }
+        assertEquals(0, anomalies.size());
+        assertEquals(20, detector.getWaterAmplitude("A1"), 1e-9);
+        assertEquals(30, detector.getPowerAmplitude("A1"), 1e-9);
+    }
+
+    /**
+     * Assert that tampered readings and timestamps are reported at once.
+     */
+    @Test
+    public void testTampered() {
+        long time = START;
+        for(int i = 0; i < 100; i++) {
+            report("A1", time += 1000, 1, 1);
+        }
+
+        // power reading 1% high
+        report("A1", time += 1000, 1, 1.01);
+        assertEquals(List.of(Anomaly.POWER), anomalies);
+        anomalies.clear();
+
+        // replayed reading
+        report("A1", time - 5000, 1, 1);
+        assertEquals(List.of(Anomaly.TIME), anomalies);
+        anomalies.clear();
+
+        // reading from the future
+        double sine = Math.abs(Math.sin(time + 3600000));
+        detector.check("A1", time + 3600000, 20 * sine, 30 * sine, time);
+        assertEquals(List.of(Anomaly.TIME), anomalies);
+        anomalies.clear();
+
+        // readings stay normal after anomalies
+        report("A1", time + 3601000, 1, 1);
+        assertEquals(0, anomalies.size());
+    }
+
+    /**
+     * Measure how many reports one thread can check.
+     * Run with {@code mvn test -Dbenchmarks=true -Dtest=TestAnomalyDetector}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    public void testThroughput() {
+        String[] devices = new String[1000];
+        for(int i = 0; i < devices.length; i++) {
+            devices[i] = ("S" + i).intern();
+        }
+        int total = 5000000;
+        for(int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for(int i = 0; i < total; i++) {
+                long time = START + 1000L * (round * total + i) / devices.length;
+                double sine = Math.abs(Math.sin(time));
+                detector.check(devices[i % devices.length], time + i % devices.length, 20 * sine, 30 * sine, time);
+            }
+            System.out.printf("AnomalyDetector %,12.0f reports/s%n", total / ((System.nanoTime() - start) / 1e9));
+        }
+    }
+
+    /**
+     * Check a reading from a sensor with amplitudes 20 and 30, scaled.
+     * 
+     * @param device Sensor's device id.
+     * @param time Time of the reading.
+     * @param waterScale Factor applied to the water reading.
+     * @param powerScale Factor applied to the power reading.
+     */
+    private void report(String device, long time, double waterScale, double powerScale) {
+        double sine = Math.abs(Math.sin(time));
+        detector.check(device, time, 20 * sine * waterScale, 30 * sine * powerScale, time);
+    }
+}
@@ -0,0 +1,62 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.net.InetAddress;
+
+import ca.mta.iottestbed.logger.BinaryEventLogger;
+import ca.mta.iottestbed.network.MessageType;
+import ca.mta.iottestbed.network.NetworkEvent;
+
+/**
+ * Unit tests for ca.mta.iottestbed.logger.BinaryEventLogger
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestBinaryEventLogger {
+
+    /**
+     * Directory for event logs.
+     */
+    @TempDir
+    File directory;
+
+    /**
+     * Assert that the newest records are kept when the ring wraps, read
+     * back oldest first, and continued after reopening.
+     */
+    @Test
+    public void testWrapAndReopen() throws Exception {
+        File file = new File(directory, "events.bin");
+        long peer = NetworkEvent.peer(InetAddress.getByName("127.0.0.1"), 5006);
+
+        BinaryEventLogger logger = new BinaryEventLogger(file, 4);
+        for(int size = 1; size <= 6; size++) {
+            logger.log(NetworkEvent.SENT, MessageType.REPORT.getCode(), size, peer);
+        }
+        logger.log("not stored");
+        assertEquals(6, logger.getCount());
+        assertEquals(1, logger.getSkipped());
+        logger.close();
+
+        StringBuilder out = new StringBuilder();
+        assertEquals(4, BinaryEventLogger.read(file, NetworkEvent.values(), out));
+        String[] lines = out.toString().split("\n");
+        assertTrue(lines[0].endsWith("] Sent REPORT (3 bytes) to 127.0.0.1:5006"), lines[0]);
+        assertTrue(lines[3].endsWith("] Sent REPORT (6 bytes) to 127.0.0.1:5006"), lines[3]);
+
+        // continue after the newest record
+        logger = new BinaryEventLogger(file, 4);
+        logger.log(NetworkEvent.CLOSED, 0, 0, peer);
+        assertEquals(7, logger.getCount());
+        logger.close();
+
+        out.setLength(0);
+        assertEquals(4, BinaryEventLogger.read(file, NetworkEvent.values(), out));
+        lines = out.toString().split("\n");
+        assertTrue(lines[0].endsWith("] Sent REPORT (4 bytes) to 127.0.0.1:5006"), lines[0]);
+        assertTrue(lines[3].endsWith("] Closed connection to 127.0.0.1:5006"), lines[3]);
+    }
+}
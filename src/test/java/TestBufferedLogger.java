@@ -4,6 +4,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.function.Executable;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 import ca.mta.iottestbed.logger.BufferedLogger;
 
 /**
@@ -32,4 +35,25 @@ public class TestBufferedLogger {
             }
         });
     }
+
+    /**
+     * Assert that messages spanning several chunks come back whole and in
+     * order, and that flushing empties the logger.
+     */
+    @Test
+    public void testChunks() throws IOException {
+        BufferedLogger logger = new BufferedLogger(5);
+        logger.log("The quick brown fox");
+        logger.log("jumps over the lazy dog.");
+        assertEquals(45, logger.size());
+        assertEquals("The quick brown fox\njumps over the lazy dog.\n", logger.flush());
+        assertEquals(0, logger.size());
+        assertEquals("", logger.flush());
+
+        logger.log("again");
+        StringWriter out = new StringWriter();
+        assertEquals(6, logger.flushTo(out));
+        assertEquals("again\n", out.toString());
+        assertEquals(0, logger.size());
+    }
 }
@@ -0,0 +1,245 @@
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.DataOutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import ca.mta.iottestbed.network.Connection;
+import ca.mta.iottestbed.network.Frame;
+import ca.mta.iottestbed.network.MessageType;
+import ca.mta.iottestbed.network.Protocol;
+
+/**
+ * Unit tests for ca.mta.iottestbed.network.Connection
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestConnection {
+
+    /**
+     * Server socket the test connections meet on.
+     */
+    private ServerSocket server;
+
+    /**
+     * Sending side.
+     */
+    private Connection sender;
+
+    /**
+     * Receiving side.
+     */
+    private Connection receiver;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new ServerSocket(0);
+        sender = new Connection("127.0.0.1", server.getLocalPort());
+        receiver = new Connection(server.accept());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        sender.close();
+        receiver.close();
+        server.close();
+    }
+
+    /**
+     * Assert that Frames sent to a text-only peer arrive as the
+     * original token format.
+     */
+    @Test
+    public void testTextFallback() {
+        Frame report = new Frame();
+        report.setReport("A1", 0, 1.25, 10.0);
+        assertTrue(sender.send(report));
+        assertArrayEquals(new String[]{"A1", "report", "w:1.25", "e:10.0"}, receiver.receive());
+    }
+
+    /**
+     * Assert that a HELLO carrying the binary offer switches the receiver
+     * to binary, and that binary reports keep their exact values.
+     */
+    @Test
+    public void testNegotiateBinary() {
+        Frame frame = new Frame();
+        assertTrue(sender.send("A1", "OK", Protocol.OFFER));
+        sender.setProtocol(Protocol.BINARY);
+        assertTrue(receiver.receive(frame));
+        assertEquals(MessageType.HELLO, frame.getType());
+        assertEquals(Protocol.BINARY, receiver.getProtocol());
+
+        Frame report = new Frame();
+        report.setReport("A1", 1234567890123L, Math.PI, Double.MIN_VALUE);
+        assertTrue(sender.send(report));
+        assertTrue(sender.send(report));
+        for(int i = 0; i < 2; i++) {
+            assertTrue(receiver.receive(frame));
+            assertEquals(MessageType.REPORT, frame.getType());
+            assertSame("A1".intern(), frame.getDevice());
+            assertEquals(1234567890123L, frame.getTimestamp());
+            assertEquals(Math.PI, frame.getWater());
+            assertEquals(Double.MIN_VALUE, frame.getPower());
+        }
+    }
+
+    /**
+     * Assert that a batch arrives as one binary frame holding every reading,
+     * and as one text report per reading for text-only peers.
+     */
+    @Test
+    public void testBatch() {
+        Frame batch = new Frame();
+        batch.setBatch("A1");
+        for(int i = 0; i < 50; i++) {
+            batch.addReading(1000 + i, i, -i);
+        }
+
+        // text-only peer
+        assertTrue(sender.send(batch));
+        for(int i = 0; i < 50; i++) {
+            assertArrayEquals(new String[]{"A1", "report", "w:" + (double) i, "e:" + (double) -i}, receiver.receive());
+        }
+
+        // binary peer
+        Frame frame = new Frame();
+        sender.setProtocol(Protocol.BINARY);
+        receiver.setProtocol(Protocol.BINARY);
+        assertTrue(sender.send(batch));
+        assertTrue(receiver.receive(frame));
+        assertEquals(MessageType.BATCH, frame.getType());
+        assertEquals(50, frame.getCount());
+        for(int i = 0; i < 50; i++) {
+            assertEquals(1000 + i, frame.getTimestamp(i));
+            assertEquals(i, frame.getWater(i));
+            assertEquals(-i, frame.getPower(i));
+        }
+    }
+
+    /**
+     * Assert that many devices sharing a connection each keep their own
+     * number, whether or not their ids are the same instance.
+     */
+    @Test
+    public void testManyDevices() {
+        sender.setProtocol(Protocol.BINARY);
+        receiver.setProtocol(Protocol.BINARY);
+        Frame report = new Frame();
+        Frame frame = new Frame();
+        for(int round = 0; round < 2; round++) {
+            for(int i = 0; i < 300; i++) {
+                report.setReport(new String("S" + i), i, round, 0);
+                assertTrue(sender.send(report));
+                assertTrue(receiver.receive(frame));
+                assertEquals("S" + i, frame.getDevice());
+                assertEquals(round, frame.getWater());
+            }
+        }
+    }
+
+    /**
+     * Assert that truncated binary frames fail the read, rather than
+     * throwing out of {@code receive}.
+     */
+    @Test
+    public void testTruncated() throws Exception {
+        // device binding without its name length, or with a name cut short
+        assertFalse(receiveRaw(MessageType.DEVICE, new byte[0]));
+        assertFalse(receiveRaw(MessageType.DEVICE, new byte[]{0, 5, 'A'}));
+
+        // batch without its count, and with fewer readings than counted
+        assertFalse(receiveRaw(MessageType.BATCH, new byte[0]));
+        assertFalse(receiveRaw(MessageType.BATCH, new byte[]{0, 2, 0, 0, 0, 0}));
+        assertFalse(receiveRaw(MessageType.REPORT, new byte[]{0, 0, 0, 0}));
+    }
+
+    /**
+     * Assert that a HELLO without the offer leaves the connection in text.
+     */
+    @Test
+    public void testNoOffer() {
+        Frame frame = new Frame();
+        assertTrue(sender.send("A1", "OK"));
+        assertTrue(receiver.receive(frame));
+        assertEquals(MessageType.HELLO, frame.getType());
+        assertEquals(Protocol.TEXT, receiver.getProtocol());
+    }
+
+    /**
+     * Send one binary frame for device number 0, already bound to "A1",
+     * over a raw socket, and try to receive it.
+     *
+     * @param type Frame type.
+     * @param payload Bytes after the frame header.
+     * @return What {@code receive} returned.
+     */
+    private boolean receiveRaw(MessageType type, byte[] payload) throws Exception {
+        try(Socket socket = new Socket("127.0.0.1", server.getLocalPort());
+            Connection connection = new Connection(server.accept())) {
+            connection.setProtocol(Protocol.BINARY);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+            // bind the device, so only the frame under test is malformed
+            out.writeInt(4 + 2 + 2);
+            out.writeByte(Protocol.VERSION);
+            out.writeByte(MessageType.DEVICE.getCode());
+            out.writeShort(0);
+            out.writeShort(2);
+            out.writeBytes("A1");
+
+            out.writeInt(4 + payload.length);
+            out.writeByte(Protocol.VERSION);
+            out.writeByte(type.getCode());
+            out.writeShort(0);
+            out.write(payload);
+            out.flush();
+            return connection.receive(new Frame());
+        }
+    }
+
+    /**
+     * Assert that sending and receiving binary reports allocates nothing
+     * once the connection has warmed up.
+     */
+    @Test
+    public void testSteadyStateAllocation() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        sender.send("A1", "OK", Protocol.OFFER);
+        sender.setProtocol(Protocol.BINARY);
+        Frame sent = new Frame();
+        Frame received = new Frame();
+        receiver.receive(received);
+
+        // warm up, so that buffers, pools, and compiled code are in place
+        for(int i = 0; i < 20000; i++) {
+            sent.setReport("A1", i, i, i);
+            sender.send(sent);
+            receiver.receive(received);
+        }
+
+        // measure the cost of measuring
+        long overhead = -threads.getThreadAllocatedBytes(thread);
+        overhead += threads.getThreadAllocatedBytes(thread);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for(int i = 0; i < 10000; i++) {
+            sent.setReport("A1", i, i, i);
+            assertTrue(sender.send(sent));
+            assertTrue(receiver.receive(received));
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+        assertEquals(9999.0, received.getWater());
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes for 10000 messages");
+    }
+}
@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import ca.mta.iottestbed.discovery.Announcer;
+import ca.mta.iottestbed.discovery.Discovery;
+import ca.mta.iottestbed.discovery.MeterListener;
+import ca.mta.iottestbed.discovery.Responder;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+
+/**
+ * Unit tests for ca.mta.iottestbed.discovery
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestDiscovery {
+
+    /**
+     * Group used by the tests, apart from the default.
+     */
+    private static final InetSocketAddress GROUP = new InetSocketAddress(Discovery.DEFAULT_GROUP, 5017);
+
+    /**
+     * Loopback interface.
+     */
+    private NetworkInterface loopback;
+
+    /**
+     * Runs the announcers and responder.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Ports offered to each announcer, by announcer.
+     */
+    private BlockingQueue<String> offers;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        loopback = Discovery.interfaceFor(InetAddress.getLoopbackAddress());
+        executor = Executors.newCachedThreadPool();
+        offers = new ArrayBlockingQueue<String>(1024);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Assert that an announcing sensor learns the meter's port.
+     */
+    @Test
+    public void testOffer() throws Exception {
+        Responder responder = new Responder("D1", 6006, GROUP, loopback);
+        responder.start(executor);
+        Announcer announcer = announcer("S1");
+        try {
+            assertEquals("S1 D1 6006", offers.poll(5, TimeUnit.SECONDS));
+        } finally {
+            announcer.close();
+            responder.close();
+        }
+    }
+
+    /**
+     * Assert that with one slot, a second sensor is only invited once the
+     * first has attached, and that closing the responder removes its
+     * metrics.
+     */
+    @Test
+    public void testBounded() throws Exception {
+        Responder responder = new Responder("D2", 6006, GROUP, loopback, 1, 60000);
+        responder.start(executor);
+        Announcer first = announcer("S1");
+        Announcer second = null;
+        try {
+            assertEquals("S1 D2 6006", offers.poll(5, TimeUnit.SECONDS));
+            second = announcer("S2");
+            assertNull(waitFor("S2", 300));
+            assertEquals(1, responder.getPending());
+
+            responder.attached("S1");
+            assertNotNull(waitFor("S2", 5000));
+            assertEquals(1, responder.getPending());
+        } finally {
+            first.close();
+            if(second != null) {
+                second.close();
+            }
+            responder.close();
+        }
+
+        // a closed responder leaves no metrics behind
+        String scraped = MetricsRegistry.getDefault().scrape();
+        assertFalse(scraped.contains("meter=\"D2\""), scraped);
+    }
+
+    /**
+     * Start an announcer that announces often and records its offers.
+     *
+     * @param device Sensor's device id.
+     * @return Announcer.
+     */
+    private Announcer announcer(String device) throws Exception {
+        Announcer announcer = new Announcer(device, InetAddress.getLoopbackAddress(), GROUP, loopback, new MeterListener() {
+            @Override
+            public void onMeter(String name, InetAddress address, int port) {
+                offers.offer(device + " " + name + " " + port);
+            }
+        });
+        announcer.setInterval(20);
+        announcer.start(executor);
+        return announcer;
+    }
+
+    /**
+     * Wait for an offer to a sensor, discarding offers to others.
+     *
+     * @param device Sensor's device id.
+     * @param millis Longest time to wait.
+     * @return Offer, or {@code null} if none came in time.
+     */
+    private String waitFor(String device, long millis) throws Exception {
+        long deadline = System.currentTimeMillis() + millis;
+        long left = millis;
+        while(left > 0) {
+            String offer = offers.poll(left, TimeUnit.MILLISECONDS);
+            if(offer != null && offer.startsWith(device + " ")) {
+                return offer;
+            }
+            left = deadline - System.currentTimeMillis();
+        }
+        return null;
+    }
+}
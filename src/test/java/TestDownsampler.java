@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import ca.mta.iottestbed.store.BucketCursor;
+import ca.mta.iottestbed.store.Downsampler;
+import ca.mta.iottestbed.store.SeriesCursor;
+import ca.mta.iottestbed.store.SeriesStore;
+import ca.mta.iottestbed.store.SeriesWriter;
+import ca.mta.iottestbed.store.Tier;
+
+/**
+ * Unit tests for ca.mta.iottestbed.store.Downsampler
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestDownsampler {
+
+    /**
+     * Directory for series.
+     */
+    @TempDir
+    File directory;
+
+    /**
+     * Assert that history is rolled up once, trimmed to its retention, and
+     * that aggregates across tiers and single readings stay exact.
+     */
+    @Test
+    public void testRollUp() throws Exception {
+        // one reading a second for three hours
+        SeriesWriter writer = new SeriesWriter(directory, "A1", 100);
+        for(int i = 0; i < 10800; i++) {
+            writer.append(1000L * i, i, -i);
+        }
+        writer.close();
+
+        SeriesStore store = new SeriesStore(directory);
+        store.setTiers(Tier.HOUR,
+            new Tier("1m", Tier.MINUTE, 2 * Tier.HOUR),
+            new Tier("1h", Tier.HOUR, Tier.FOREVER));
+        Downsampler downsampler = new Downsampler(store);
+
+        // 179 complete minutes, and the hours in written minute blocks
+        assertEquals(181, downsampler.runOnce(3 * Tier.HOUR));
+        assertEquals(0, downsampler.runOnce(3 * Tier.HOUR));
+        assertTrue(downsampler.getDropped() > 0);
+        assertEquals(0, downsampler.getFailures());
+        downsampler.close();
+
+        // single readings older than an hour are gone
+        try(SeriesCursor cursor = store.query("A1", 0, Long.MAX_VALUE)) {
+            assertTrue(cursor.next());
+            assertEquals(2 * Tier.HOUR, cursor.getTimestamp());
+        }
+
+        // hours come from every level
+        try(BucketCursor buckets = store.aggregate("A1", 0, 3 * Tier.HOUR, Tier.HOUR)) {
+            for(int hour = 0; hour < 3; hour++) {
+                assertTrue(buckets.next());
+                assertEquals(hour * Tier.HOUR, buckets.getStart());
+                assertEquals(3600, buckets.getCount());
+                assertEquals(3600 * hour, buckets.getWater().getMin());
+                assertEquals(3600 * hour + 3599, buckets.getWater().getMax());
+                assertEquals(3600 * hour + 1799.5, buckets.getWater().getAverage());
+                assertEquals(-(3600 * hour + 1799.5) * 3600, buckets.getPower().getSum());
+            }
+            assertFalse(buckets.next());
+        }
+
+        // minutes older than two hours are gone
+        try(BucketCursor buckets = store.aggregate("A1", 0, 3 * Tier.HOUR, Tier.MINUTE)) {
+            assertTrue(buckets.next());
+            assertEquals(Tier.HOUR, buckets.getStart());
+            assertEquals(60, buckets.getCount());
+            assertEquals(3600, buckets.getWater().getMin());
+        }
+    }
+
+    /**
+     * Assert that tiers must nest.
+     */
+    @Test
+    public void testTiersNest() {
+        SeriesStore store = new SeriesStore(directory);
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                store.setTiers(Tier.DAY, new Tier("1h", Tier.HOUR, Tier.DAY), new Tier("90m", 90 * Tier.MINUTE, Tier.DAY));
+            }
+        });
+    }
+}
@@ -0,0 +1,58 @@
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import ca.mta.iottestbed.concurrent.ExecutionMode;
+
+/**
+ * Unit tests for ca.mta.iottestbed.concurrent.ExecutionMode
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestExecutionMode {
+
+    /**
+     * Assert that platform executors run tasks on named threads.
+     */
+    @Test
+    public void testPlatform() throws Exception {
+        assertEquals("test-0", threadName(ExecutionMode.PLATFORM));
+    }
+
+    /**
+     * Assert that virtual executors run tasks on named threads,
+     * when the JVM supports them.
+     */
+    @Test
+    public void testVirtual() throws Exception {
+        assumeTrue(ExecutionMode.VIRTUAL.isAvailable());
+        assertEquals("test-0", threadName(ExecutionMode.VIRTUAL));
+    }
+
+    /**
+     * Run a task and return the name of the thread it ran on.
+     * 
+     * @param mode Mode to run with.
+     * @return Thread name.
+     */
+    private String threadName(ExecutionMode mode) throws Exception {
+        ExecutorService executor = mode.newExecutor("test");
+        try {
+            CompletableFuture<String> name = new CompletableFuture<String>();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    name.complete(Thread.currentThread().getName());
+                }
+            });
+            return name.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
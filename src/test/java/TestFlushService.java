@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ca.mta.iottestbed.logger.BufferedFileLogger;
+import ca.mta.iottestbed.logger.Durability;
+import ca.mta.iottestbed.logger.FlushService;
+
+/**
+ * Unit tests for ca.mta.iottestbed.logger.FlushService
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestFlushService {
+
+    /**
+     * Directory for log files.
+     */
+    @TempDir
+    File directory;
+
+    /**
+     * Runs the flushing loop.
+     */
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Assert that a logger is written once its data is old enough.
+     */
+    @Test
+    public void testDelay() throws Exception {
+        File file = new File(directory, "A1.csv");
+        FlushService service = new FlushService(1 << 20, 50, Durability.FSYNC);
+        BufferedFileLogger logger = new BufferedFileLogger(file);
+        service.register(logger);
+        service.start(executor);
+
+        logger.log("row");
+        assertEquals("row\n", await(file, 4));
+        service.close();
+        logger.close();
+    }
+
+    /**
+     * Assert that an idle service sleeps for its whole delay, and that a
+     * line logged after a long idle spell waits out the delay too.
+     */
+    @Test
+    public void testIdle() throws Exception {
+        File file = new File(directory, "A1.csv");
+        FlushService service = new FlushService(1 << 20, 400, Durability.WRITE);
+        BufferedFileLogger logger = new BufferedFileLogger(file);
+        service.register(logger);
+        service.start(executor);
+
+        // about one wakeup per delay, not one per millisecond
+        Thread.sleep(1000);
+        assertTrue(service.getWakeups() <= 5, "Woke " + service.getWakeups() + " times");
+
+        long logged = System.currentTimeMillis();
+        logger.log("row");
+        Thread.sleep(100);
+        assertEquals(0, file.length());
+        assertEquals("row\n", await(file, 4));
+        assertTrue(System.currentTimeMillis() - logged >= 350);
+        service.close();
+        logger.close();
+    }
+
+    /**
+     * Assert that a full logger is written long before its delay.
+     */
+    @Test
+    public void testSize() throws Exception {
+        File file = new File(directory, "A1.csv");
+        FlushService service = new FlushService(100, 3600000, Durability.WRITE);
+        BufferedFileLogger logger = new BufferedFileLogger(file);
+        service.register(logger);
+        service.start(executor);
+
+        for(int i = 0; i < 30; i++) {
+            logger.log("row" + i);
+        }
+        assertTrue(await(file, 100).startsWith("row0\n"));
+        service.close();
+        logger.close();
+    }
+
+    /**
+     * Assert that closing the service writes every logger.
+     */
+    @Test
+    public void testClose() throws Exception {
+        FlushService service = new FlushService(1 << 20, 3600000, Durability.WRITE);
+        BufferedFileLogger[] loggers = new BufferedFileLogger[10];
+        for(int i = 0; i < loggers.length; i++) {
+            loggers[i] = new BufferedFileLogger(new File(directory, i + ".csv"));
+            service.register(loggers[i]);
+        }
+        service.start(executor);
+
+        for(int i = 0; i < loggers.length; i++) {
+            loggers[i].log("row" + i);
+        }
+        service.close();
+
+        for(int i = 0; i < loggers.length; i++) {
+            loggers[i].close();
+            assertEquals("row" + i + "\n", new String(Files.readAllBytes(new File(directory, i + ".csv").toPath())));
+        }
+        assertEquals(1, service.getCycles());
+        assertEquals(10, service.getWrites());
+    }
+
+    /**
+     * Wait until a file holds at least some number of bytes.
+     * 
+     * @param file File to read.
+     * @param length Bytes to wait for.
+     * @return File contents.
+     */
+    private String await(File file, int length) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(file.length() < length && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return new String(Files.readAllBytes(file.toPath()));
+    }
+}
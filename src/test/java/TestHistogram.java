@@ -0,0 +1,45 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import ca.mta.iottestbed.metrics.Histogram;
+
+/**
+ * Unit tests for ca.mta.iottestbed.metrics.Histogram
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestHistogram {
+
+    /**
+     * Assert that small values are exact, and large ones are within 3%
+     * above the true percentile.
+     */
+    @Test
+    public void testPercentiles() {
+        Histogram recorder = new Histogram();
+        assertEquals(0, recorder.getPercentile(50));
+
+        for(int i = 1; i <= 100; i++) {
+            recorder.record(i);
+        }
+        assertEquals(100, recorder.getCount());
+        assertEquals(50, recorder.getPercentile(50));
+        assertEquals(1, recorder.getPercentile(0));
+
+        recorder.reset();
+        for(long i = 1; i <= 100000; i++) {
+            recorder.record(i * 1000);
+        }
+        long p99 = recorder.getPercentile(99);
+        assertTrue(p99 >= 99000000L && p99 <= 99000000L * 1.03, "p99 " + p99);
+        long max = recorder.getMax();
+        assertTrue(max >= 100000000L && max <= 100000000L * 1.03, "max " + max);
+
+        // negative values, from clocks that disagree, count as zero
+        recorder.reset();
+        recorder.record(-5);
+        assertEquals(0, recorder.getMax());
+        assertEquals(1, recorder.getCount());
+    }
+}
@@ -0,0 +1,268 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.net.ServerSocket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ca.mta.iottestbed.network.Connection;
+import ca.mta.iottestbed.network.Frame;
+import ca.mta.iottestbed.network.Link;
+import ca.mta.iottestbed.network.LinkPool;
+import ca.mta.iottestbed.network.MessageType;
+import ca.mta.iottestbed.network.OverflowPolicy;
+import ca.mta.iottestbed.network.Protocol;
+
+/**
+ * Unit tests for ca.mta.iottestbed.network.Link
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestLink {
+
+    /**
+     * Server socket standing in for a meter.
+     */
+    private ServerSocket server;
+
+    /**
+     * Runs the links.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Link under test.
+     */
+    private Link link;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new ServerSocket(0);
+        server.setSoTimeout(5000);
+        executor = Executors.newCachedThreadPool();
+        link = new Link("127.0.0.1", server.getLocalPort(), null, 16, OverflowPolicy.BLOCK);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        link.close();
+        server.close();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Assert that two devices share one connection, greeting in text first
+     * and binary after, and that their reports arrive in order.
+     */
+    @Test
+    public void testMultiplex() throws Exception {
+        link.attach("A1");
+        link.attach("A2");
+        link.start(executor);
+        Connection meter = new Connection(server.accept());
+        Frame frame = new Frame();
+
+        assertTrue(meter.receive(frame));
+        assertEquals(MessageType.HELLO, frame.getType());
+        assertEquals("A1", frame.getDevice());
+        assertEquals(Protocol.BINARY, meter.getProtocol());
+        assertTrue(meter.receive(frame));
+        assertEquals(MessageType.HELLO, frame.getType());
+        assertEquals("A2", frame.getDevice());
+
+        report("A1", 1);
+        report("A2", 2);
+        assertReport(meter, frame, "A1", 1);
+        assertReport(meter, frame, "A2", 2);
+        meter.close();
+    }
+
+    /**
+     * Assert that a link keeps to text when the meter does not accept the
+     * binary format.
+     */
+    @Test
+    public void testTextFallback() throws Exception {
+        link.attach("A1");
+        link.start(executor);
+        Connection meter = new Connection(server.accept());
+        assertArrayEquals(new String[]{"A1", "OK", Protocol.OFFER}, meter.receive());
+        assertTrue(meter.send("M1", "OK"));
+
+        // text reports are stamped when received
+        Frame frame = new Frame();
+        report("A1", 4);
+        assertTrue(meter.receive(frame));
+        assertEquals(MessageType.REPORT, frame.getType());
+        assertEquals("A1", frame.getDevice());
+        assertEquals(Protocol.TEXT, meter.getProtocol());
+        meter.close();
+    }
+
+    /**
+     * Assert that a link reconnects after its connection is closed, greets
+     * the meter again, and carries reports over the new connection.
+     */
+    @Test
+    public void testReconnect() throws Exception {
+        link.attach("A1");
+        link.start(executor);
+        Connection meter = new Connection(server.accept());
+        Frame frame = new Frame();
+        assertTrue(meter.receive(frame));
+        meter.close();
+
+        meter = new Connection(server.accept());
+        assertTrue(meter.receive(frame));
+        assertEquals(MessageType.HELLO, frame.getType());
+        assertEquals(Protocol.BINARY, meter.getProtocol());
+        report("A1", 3);
+        assertReport(meter, frame, "A1", 3);
+        meter.close();
+    }
+
+    /**
+     * Assert that a link pings the meter, and reconnects when the meter
+     * stops answering.
+     */
+    @Test
+    public void testKeepalive() throws Exception {
+        link.setKeepalive(20, 200);
+        link.attach("A1");
+        link.start(executor);
+        Connection meter = new Connection(server.accept());
+        Frame frame = new Frame();
+        assertTrue(meter.receive(frame));
+
+        // answered pings keep the link up
+        for(int i = 0; i < 15; i++) {
+            assertTrue(meter.receive(frame));
+            assertEquals(MessageType.PING, frame.getType());
+            assertTrue(meter.send(new Frame(MessageType.PONG, "M1")));
+        }
+
+        // silence makes it reconnect
+        Connection next = new Connection(server.accept());
+        assertTrue(next.receive(frame));
+        assertEquals(MessageType.HELLO, frame.getType());
+        meter.close();
+        next.close();
+    }
+
+    /**
+     * Assert that once the meter grants credit, reports wait for it.
+     */
+    @Test
+    public void testCredit() throws Exception {
+        link.attach("A1");
+        link.start(executor);
+        Connection meter = new Connection(server.accept());
+        Frame frame = new Frame();
+        assertTrue(meter.receive(frame));
+        assertEquals(-1, link.getCredits("A1"));
+
+        Frame credit = new Frame();
+        credit.setCredit("A1", 1);
+        assertTrue(meter.send(credit));
+        for(int i = 0; i < 100 && link.getCredits("A1") < 1; i++) {
+            Thread.sleep(10);
+        }
+        report("A1", 1);
+        assertReport(meter, frame, "A1", 1);
+        assertEquals(0, link.getCredits("A1"));
+
+        // both reports are set aside until more credit comes
+        report("A1", 2);
+        report("A1", 3);
+        Thread.sleep(100);
+        assertEquals(2, link.size());
+
+        credit.setCredit("A1", 2);
+        assertTrue(meter.send(credit));
+        assertReport(meter, frame, "A1", 2);
+        assertReport(meter, frame, "A1", 3);
+        meter.close();
+    }
+
+    /**
+     * Assert that a device out of credit does not hold up another device
+     * on the same link, and that its reports follow in order once granted.
+     */
+    @Test
+    public void testCreditPerDevice() throws Exception {
+        link.attach("A1");
+        link.attach("A2");
+        link.start(executor);
+        Connection meter = new Connection(server.accept());
+        Frame frame = new Frame();
+        assertTrue(meter.receive(frame));
+        assertTrue(meter.receive(frame));
+
+        // A1 has no credit, A2 is not limited
+        Frame credit = new Frame();
+        credit.setCredit("A1", 0);
+        assertTrue(meter.send(credit));
+        for(int i = 0; i < 100 && link.getCredits("A1") < 0; i++) {
+            Thread.sleep(10);
+        }
+        report("A1", 1);
+        report("A1", 2);
+        report("A2", 3);
+        assertReport(meter, frame, "A2", 3);
+
+        credit.setCredit("A1", 2);
+        assertTrue(meter.send(credit));
+        assertReport(meter, frame, "A1", 1);
+        assertReport(meter, frame, "A1", 2);
+        meter.close();
+    }
+
+    /**
+     * Assert that the pool shares a link until its last user releases it.
+     */
+    @Test
+    public void testPool() {
+        LinkPool pool = new LinkPool();
+        Link first = pool.acquire("127.0.0.1", server.getLocalPort(), null, 16, OverflowPolicy.BLOCK, executor);
+        Link second = pool.acquire("127.0.0.1", server.getLocalPort(), null, 16, OverflowPolicy.BLOCK, executor);
+        assertSame(first, second);
+        assertEquals(1, pool.size());
+
+        pool.release(first);
+        assertFalse(second.isClosed());
+        pool.release(second);
+        assertTrue(second.isClosed());
+        assertEquals(0, pool.size());
+    }
+
+    /**
+     * Queue a report.
+     *
+     * @param device Device id.
+     * @param timestamp Reading time.
+     */
+    private void report(String device, long timestamp) throws InterruptedException {
+        Frame report = new Frame();
+        report.setReport(device, timestamp, 1.0, 2.0);
+        assertTrue(link.offer(report));
+    }
+
+    /**
+     * Assert that the next message is a report.
+     *
+     * @param meter Receiving side.
+     * @param frame Frame to receive into.
+     * @param device Expected device id.
+     * @param timestamp Expected reading time.
+     */
+    private static void assertReport(Connection meter, Frame frame, String device, long timestamp) {
+        // skip keepalive pings
+        do {
+            assertTrue(meter.receive(frame));
+        } while(frame.getType() == MessageType.PING);
+        assertEquals(MessageType.REPORT, frame.getType());
+        assertEquals(device, frame.getDevice());
+        assertEquals(timestamp, frame.getTimestamp());
+    }
+}
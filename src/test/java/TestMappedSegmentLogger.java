@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import ca.mta.iottestbed.logger.MappedSegmentLogger;
+
+/**
+ * Unit tests for ca.mta.iottestbed.logger.MappedSegmentLogger
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestMappedSegmentLogger {
+
+    /**
+     * Directory for segments.
+     */
+    @TempDir
+    File directory;
+
+    /**
+     * Assert that messages roll into new segments, and that closed segments
+     * hold exactly the logged lines.
+     */
+    @Test
+    public void testRoll() throws Exception {
+        MappedSegmentLogger logger = new MappedSegmentLogger(directory, "A1", 64);
+        StringBuilder expected = new StringBuilder();
+        for(int i = 0; i < 20; i++) {
+            String row = "row" + i + ",é,€";
+            logger.log(row);
+            expected.append(row).append('\n');
+        }
+        logger.close();
+
+        File[] segments = MappedSegmentLogger.segments(directory, "A1");
+        assertTrue(segments.length > 1);
+        assertEquals(expected.toString(), read(segments));
+        for(File segment : segments) {
+            assertTrue(segment.length() <= 64);
+        }
+    }
+
+    /**
+     * Assert that a message longer than a segment is dropped rather than
+     * split, and that one exactly filling a segment is kept whole.
+     */
+    @Test
+    public void testTooLong() throws Exception {
+        MappedSegmentLogger logger = new MappedSegmentLogger(directory, "A1", 16);
+        logger.log("short");
+        logger.log("0123456789abcdef");
+        logger.log("0123456789abcde");
+        logger.log("last");
+        logger.close();
+        assertEquals(1, logger.getDropped());
+
+        File[] segments = MappedSegmentLogger.segments(directory, "A1");
+        assertEquals(3, segments.length);
+        assertEquals("short\n", read(new File[]{segments[0]}));
+        assertEquals("0123456789abcde\n", read(new File[]{segments[1]}));
+        assertEquals("last\n", read(new File[]{segments[2]}));
+    }
+
+    /**
+     * Assert that a logger continues after the last complete message
+     * when reopened after a crash.
+     */
+    @Test
+    public void testRecover() throws Exception {
+        // crash without closing, leaving a partly written message
+        MappedSegmentLogger crashed = new MappedSegmentLogger(directory, "A1", 4096);
+        crashed.log("first");
+        crashed.log("second");
+        crashed.sync();
+        try(RandomAccessFile file = new RandomAccessFile(MappedSegmentLogger.segments(directory, "A1")[0], "rw")) {
+            file.seek(crashed.getPosition());
+            file.write("thi".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        MappedSegmentLogger logger = new MappedSegmentLogger(directory, "A1", 4096);
+        assertEquals("first\nsecond\n".length(), logger.getPosition());
+        logger.log("third");
+        logger.close();
+
+        assertEquals("first\nsecond\nthird\n", read(MappedSegmentLogger.segments(directory, "A1")));
+    }
+
+    /**
+     * Read segments in order, as text.
+     * 
+     * @param segments Segment files.
+     * @return Contents of every segment.
+     */
+    private String read(File[] segments) throws Exception {
+        StringBuilder contents = new StringBuilder();
+        for(File segment : segments) {
+            contents.append(new String(Files.readAllBytes(segment.toPath()), StandardCharsets.UTF_8));
+        }
+        return contents.toString();
+    }
+}
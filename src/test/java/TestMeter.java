@@ -0,0 +1,216 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+import ca.mta.iottestbed.logger.Durability;
+import ca.mta.iottestbed.meter.Meter;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+import ca.mta.iottestbed.network.Connection;
+import ca.mta.iottestbed.network.Frame;
+import ca.mta.iottestbed.network.MessageType;
+import ca.mta.iottestbed.network.Protocol;
+
+/**
+ * Unit tests for ca.mta.iottestbed.meter.Meter
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestMeter {
+
+    /**
+     * Assert that a sensor that cannot be reached does not hold up the
+     * others, and that startup finishes once it is given up on.
+     */
+    @Test
+    public void testBootstrap() throws Exception {
+        try(ServerSocket sensor = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            sensor.setSoTimeout(5000);
+            Meter meter = new Meter("B1");
+            meter.setPrinting(false);
+            meter.setPorts(0, sensor.getLocalPort());
+            meter.setBootstrap(2, 1000, 3);
+
+            // nothing listens on 127.0.0.2, so it is refused and retried
+            long start = System.currentTimeMillis();
+            meter.start(new String[]{"127.0.0.2", "127.0.0.1"});
+            Connection connection = new Connection(sensor.accept());
+            assertEquals("addmeter", connection.receive()[0]);
+            connection.close();
+            assertTrue(System.currentTimeMillis() - start < 1000);
+
+            while(meter.getStartupMillis() < 0) {
+                assertTrue(System.currentTimeMillis() - start < 10000);
+                Thread.sleep(10);
+            }
+            // two retries, after at least 125 and 250 milliseconds
+            assertTrue(meter.getStartupMillis() >= 375);
+        }
+    }
+
+    /**
+     * Assert that a sensor is granted its window when it says hello, and
+     * given back half of it once it has used that half.
+     */
+    @Test
+    public void testCredit() throws Exception {
+        int port = freePort();
+        Meter meter = new Meter("F1");
+        meter.setPrinting(false);
+        meter.setPorts(port, freePort());
+        meter.setFlowControl(4, Long.MAX_VALUE);
+        meter.start(new String[0]);
+
+        Connection sensor = hello(port, "F1S");
+        try {
+            assertCredit(sensor, "F1S", 4);
+            report(sensor, "F1S", 1);
+            report(sensor, "F1S", 2);
+            assertCredit(sensor, "F1S", 2);
+        } finally {
+            sensor.close();
+            forget(meter, "F1S");
+        }
+    }
+
+    /**
+     * Assert that a meter holds credit back while its logs are behind,
+     * and gives it back once they have been written.
+     */
+    @Test
+    public void testThrottle() throws Exception {
+        int port = freePort();
+        Meter meter = new Meter("F2");
+        meter.setPrinting(false);
+        meter.setPorts(port, freePort());
+        meter.setFlowControl(4, 1);
+        meter.setFlushPolicy(1 << 20, 1000, Durability.WRITE);
+        meter.start(new String[0]);
+
+        Connection sensor = hello(port, "F2S");
+        try {
+            assertCredit(sensor, "F2S", 4);
+
+            // the first report leaves the log behind until it is flushed
+            report(sensor, "F2S", 1);
+            Thread.sleep(300);
+            long sent = System.currentTimeMillis();
+            report(sensor, "F2S", 2);
+            assertCredit(sensor, "F2S", 2);
+            assertTrue(System.currentTimeMillis() - sent >= 200);
+            assertEquals(1, MetricsRegistry.getDefault().counter("iottestbed_meter_credit_withheld_total",
+                "Times a meter held back a sensor's credit because it was behind.", "meter", "F2").get());
+        } finally {
+            sensor.close();
+            forget(meter, "F2S");
+        }
+    }
+
+    /**
+     * Assert that stopping a meter closes its connections, writes out each
+     * sensor's log, and removes every metric labelled with its name.
+     */
+    @Test
+    public void testStop() throws Exception {
+        int port = freePort();
+        Meter meter = new Meter("P1");
+        meter.setPrinting(false);
+        meter.setPorts(port, freePort());
+        meter.setFlowControl(4, Long.MAX_VALUE);
+        meter.setFlushPolicy(1 << 20, 60000, Durability.WRITE);
+        meter.start(new String[0]);
+
+        Connection sensor = hello(port, "P1S");
+        try {
+            assertCredit(sensor, "P1S", 4);
+            report(sensor, "P1S", 1);
+            for(int i = 0; i < 500 && meter.getSession("P1S").getReadings() == 0; i++) {
+                Thread.sleep(10);
+            }
+            String before = MetricsRegistry.getDefault().scrape();
+            assertTrue(before.contains("iottestbed_meter_connections{meter=\"P1\"} 1\n"), before);
+            assertTrue(before.contains("iottestbed_meter_outstanding_credits{meter=\"P1\"}"), before);
+            assertTrue(before.contains("iottestbed_meter_readings_total{meter=\"P1\"} 1\n"), before);
+
+            meter.stop();
+            assertFalse(sensor.receive(new Frame()));
+            assertTrue(new File("P1S.csv").length() > 0);
+            String after = MetricsRegistry.getDefault().scrape();
+            assertFalse(after.contains("meter=\"P1\""), after);
+        } finally {
+            sensor.close();
+            forget(meter, "P1S");
+        }
+    }
+
+    /**
+     * Connect to a meter as a sensor, and settle on the binary format.
+     *
+     * @param port Meter's port.
+     * @param device Sensor's device id.
+     * @return Connection speaking binary.
+     */
+    private static Connection hello(int port, String device) throws Exception {
+        Connection sensor = new Connection("127.0.0.1", port);
+        sensor.setTimeout(5000);
+        assertTrue(sensor.send(device, "OK", Protocol.OFFER));
+        assertTrue(sensor.receive(new Frame()));
+        assertEquals(Protocol.BINARY, sensor.getProtocol());
+        return sensor;
+    }
+
+    /**
+     * Send a report.
+     *
+     * @param sensor Sensor's connection.
+     * @param device Sensor's device id.
+     * @param timestamp Reading time.
+     */
+    private static void report(Connection sensor, String device, long timestamp) {
+        Frame report = new Frame();
+        report.setReport(device, timestamp, 1.0, 2.0);
+        assertTrue(sensor.send(report));
+    }
+
+    /**
+     * Assert that the next message grants credit.
+     *
+     * @param sensor Sensor's connection.
+     * @param device Expected device id.
+     * @param credits Expected credits.
+     */
+    private static void assertCredit(Connection sensor, String device, int credits) {
+        Frame frame = new Frame();
+        assertTrue(sensor.receive(frame));
+        assertEquals(MessageType.CREDIT, frame.getType());
+        assertEquals(device, frame.getDevice());
+        assertEquals(credits, frame.getCredits());
+    }
+
+    /**
+     * Wait for a meter to close a sensor's session, and delete its log.
+     *
+     * @param meter Meter.
+     * @param device Sensor's device id.
+     */
+    private static void forget(Meter meter, String device) throws InterruptedException {
+        for(int i = 0; i < 500 && meter.getSession(device) != null; i++) {
+            Thread.sleep(10);
+        }
+        new File(device + ".csv").delete();
+    }
+
+    /**
+     * Return a port nothing is listening on.
+     *
+     * @return Port.
+     */
+    private static int freePort() throws Exception {
+        try(ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import ca.mta.iottestbed.metrics.Counter;
+import ca.mta.iottestbed.metrics.Gauge;
+import ca.mta.iottestbed.metrics.Histogram;
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+import ca.mta.iottestbed.metrics.MetricsServer;
+
+/**
+ * Unit tests for ca.mta.iottestbed.metrics.MetricsRegistry
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestMetrics {
+
+    /**
+     * Assert that metrics are written in the Prometheus text format.
+     */
+    @Test
+    public void testScrape() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter sent = registry.counter("test_sent_total", "Messages sent.", "meter", "M\"1");
+        sent.add(3);
+        assertSame(sent, registry.counter("test_sent_total", "Messages sent.", "meter", "M\"1"));
+        registry.register("test_open", "Open things.", new Gauge() {
+            @Override
+            public long get() {
+                return 7;
+            }
+        });
+        Histogram waits = registry.histogram("test_wait_seconds", "Waits.");
+        waits.record(500);
+        waits.record(2000000);
+
+        String text = registry.scrape();
+        assertTrue(text.contains("# HELP test_sent_total Messages sent.\n# TYPE test_sent_total counter\n"), text);
+        assertTrue(text.contains("test_sent_total{meter=\"M\\\"1\"} 3\n"), text);
+        assertTrue(text.contains("test_open 7\n"), text);
+        assertTrue(text.contains("# TYPE test_wait_seconds histogram\n"), text);
+        assertTrue(text.contains("test_wait_seconds_bucket{le=\"1.0E-6\"} 1\n"), text);
+        assertTrue(text.contains("test_wait_seconds_bucket{le=\"0.001\"} 1\n"), text);
+        assertTrue(text.contains("test_wait_seconds_bucket{le=\"0.0025\"} 2\n"), text);
+        assertTrue(text.contains("test_wait_seconds_bucket{le=\"+Inf\"} 2\n"), text);
+        assertTrue(text.contains("test_wait_seconds_count 2\n"), text);
+
+        // families are sorted by name
+        assertTrue(text.indexOf("test_open") < text.indexOf("test_sent_total"));
+        assertTrue(text.indexOf("test_sent_total") < text.indexOf("test_wait_seconds"));
+
+        // a name holds one kind of metric
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                registry.gauge("test_sent_total", "Messages sent.");
+            }
+        });
+    }
+
+    /**
+     * Assert that the server answers with the registry's metrics.
+     */
+    @Test
+    public void testServer() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_requests_total", "Requests.").increment();
+
+        try(MetricsServer server = new MetricsServer(registry, 0)) {
+            server.start();
+            HttpURLConnection http = (HttpURLConnection)new URL(
+                "http://127.0.0.1:" + server.getPort() + MetricsServer.PATH).openConnection();
+            assertEquals(200, http.getResponseCode());
+            assertTrue(http.getContentType().startsWith("text/plain"));
+            try(InputStream in = http.getInputStream()) {
+                String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(text.contains("test_requests_total 1\n"), text);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import ca.mta.iottestbed.metrics.Counter;
+import ca.mta.iottestbed.network.Frame;
+import ca.mta.iottestbed.network.OutboundQueue;
+import ca.mta.iottestbed.network.OverflowPolicy;
+
+/**
+ * Unit tests for ca.mta.iottestbed.network.OutboundQueue
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestOutboundQueue {
+
+    /**
+     * Runs blocked offers.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Frame messages are polled into.
+     */
+    private Frame frame;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        frame = new Frame();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Assert that a full queue drops and counts its oldest message, and
+     * that the rest are polled in order.
+     */
+    @Test
+    public void testDropOldest() throws Exception {
+        Counter drops = new Counter();
+        OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.DROP_OLDEST, drops);
+        for(int i = 0; i < 3; i++) {
+            assertTrue(queue.offer(report(i)));
+        }
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.getDropped());
+        assertEquals(1, drops.get());
+
+        assertTrue(queue.poll(frame, 0));
+        assertEquals(1.0, frame.getWater());
+        assertTrue(queue.poll(frame, 0));
+        assertEquals(2.0, frame.getWater());
+        assertFalse(queue.poll(frame, 0));
+        queue.close();
+    }
+
+    /**
+     * Assert that a full queue closes under DISCONNECT.
+     */
+    @Test
+    public void testDisconnect() throws Exception {
+        OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.DISCONNECT);
+        assertTrue(queue.offer(report(0)));
+        assertFalse(queue.offer(report(1)));
+        assertTrue(queue.isClosed());
+        assertFalse(queue.poll(frame, 0));
+    }
+
+    /**
+     * Assert that a full queue makes the caller wait under BLOCK, until the
+     * writer makes room.
+     */
+    @Test
+    public void testBlock() throws Exception {
+        OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.BLOCK);
+        assertTrue(queue.offer(report(0)));
+
+        CompletableFuture<Boolean> blocked = CompletableFuture.supplyAsync(new Supplier<Boolean>() {
+            @Override
+            public Boolean get() {
+                try {
+                    return queue.offer(report(1));
+                } catch(InterruptedException e) {
+                    return false;
+                }
+            }
+        }, executor);
+        assertThrows(TimeoutException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                blocked.get(200, TimeUnit.MILLISECONDS);
+            }
+        });
+
+        assertTrue(queue.poll(frame, 0));
+        assertEquals(0.0, frame.getWater());
+        assertTrue(blocked.get(5, TimeUnit.SECONDS));
+        assertTrue(queue.poll(frame, 5000));
+        assertEquals(1.0, frame.getWater());
+        queue.close();
+    }
+
+    /**
+     * Create a report.
+     * 
+     * @param value Water and power reading.
+     * @return New report.
+     */
+    private Frame report(double value) {
+        Frame frame = new Frame();
+        frame.setReport("A1", 0, value, value);
+        return frame;
+    }
+}
@@ -0,0 +1,146 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import ca.mta.iottestbed.network.Connection;
+import ca.mta.iottestbed.network.Frame;
+import ca.mta.iottestbed.network.FrameHandler;
+import ca.mta.iottestbed.network.MessageType;
+import ca.mta.iottestbed.network.Protocol;
+import ca.mta.iottestbed.network.Reactor;
+
+/**
+ * Unit tests for ca.mta.iottestbed.network.Reactor
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestReactor {
+
+    /**
+     * Frames received by the reactor, as Strings.
+     */
+    private BlockingQueue<String> received;
+
+    /**
+     * Reactor under test.
+     */
+    private Reactor reactor;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        received = new LinkedBlockingQueue<String>();
+        reactor = new Reactor(0, 2, new FrameHandler() {
+            @Override
+            public void onOpen(Connection connection) {}
+
+            @Override
+            public void onFrame(Connection connection, Frame frame) {
+                if(frame.getDevice().equals("BAD")) {
+                    throw new IllegalStateException("Handler failed");
+                }
+                received.add(frame.toString());
+                if(frame.getType() == MessageType.PING) {
+                    connection.send(new Frame(MessageType.PONG, "M1"));
+                }
+            }
+
+            @Override
+            public void onClose(Connection connection) {}
+        });
+        reactor.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        reactor.close();
+    }
+
+    /**
+     * Assert that text messages sent by a blocking Connection arrive
+     * as Frames.
+     */
+    @Test
+    public void testReceiveText() throws Exception {
+        try(Connection client = new Connection("127.0.0.1", reactor.getPort())) {
+            assertTrue(client.send("A1", "report", "w:1.5", "e:2.5"));
+            String frame = received.poll(5, TimeUnit.SECONDS);
+            assertTrue(frame.startsWith("A1 REPORT "));
+            assertTrue(frame.endsWith(" w:1.5 e:2.5"));
+        }
+    }
+
+    /**
+     * Assert that the reactor switches to binary frames after the
+     * handshake, and decodes them exactly.
+     */
+    @Test
+    public void testReceiveBinary() throws Exception {
+        try(Connection client = new Connection("127.0.0.1", reactor.getPort())) {
+            assertTrue(client.send("A1", "OK", Protocol.OFFER));
+            client.setProtocol(Protocol.BINARY);
+
+            Frame report = new Frame();
+            for(int i = 0; i < 100; i++) {
+                report.setReport("A1", 1000 + i, i / 3.0, -i);
+                assertTrue(client.send(report));
+            }
+
+            assertEquals("A1 HELLO", received.poll(5, TimeUnit.SECONDS));
+            for(int i = 0; i < 100; i++) {
+                assertEquals("A1 REPORT " + (1000 + i) + " w:" + (i / 3.0) + " e:" + (double) -i, received.poll(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    /**
+     * Assert that a message larger than the initial read buffer
+     * is reassembled.
+     */
+    @Test
+    public void testLargeMessage() throws Exception {
+        char[] chars = new char[5000];
+        Arrays.fill(chars, 'é');
+        String large = new String(chars);
+
+        try(Connection client = new Connection("127.0.0.1", reactor.getPort())) {
+            assertTrue(client.send(large, "ping"));
+            assertEquals(large + " PING", received.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Assert that a handler can reply on the Connection it was given.
+     */
+    @Test
+    public void testReply() throws Exception {
+        try(Connection client = new Connection("127.0.0.1", reactor.getPort())) {
+            assertTrue(client.send("A1", "ping"));
+            assertArrayEquals(new String[]{"M1", "pong"}, client.receive());
+        }
+    }
+
+    /**
+     * Assert that a handler that throws only closes the connection it was
+     * handling, and every loop keeps serving the others.
+     */
+    @Test
+    public void testHandlerFailure() throws Exception {
+        try(Connection bad = new Connection("127.0.0.1", reactor.getPort())) {
+            assertTrue(bad.send("BAD", "ping"));
+            assertNull(bad.receive());
+        }
+
+        // connections are spread over both loops
+        for(int i = 0; i < 4; i++) {
+            try(Connection client = new Connection("127.0.0.1", reactor.getPort())) {
+                assertTrue(client.send("A1", "ping"));
+                assertArrayEquals(new String[]{"M1", "pong"}, client.receive());
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+
+import ca.mta.iottestbed.logger.BufferedLogger;
+import ca.mta.iottestbed.logger.Event;
+import ca.mta.iottestbed.logger.FullPolicy;
+import ca.mta.iottestbed.logger.Logger;
+import ca.mta.iottestbed.logger.RingBufferLogger;
+import ca.mta.iottestbed.network.MessageType;
+import ca.mta.iottestbed.network.NetworkEvent;
+
+/**
+ * Unit tests for ca.mta.iottestbed.logger.RingBufferLogger
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestRingBufferLogger {
+
+    /**
+     * Assert that messages are flushed in order, and the logger is
+     * empty afterwards.
+     */
+    @Test
+    public void testFlush() {
+        RingBufferLogger logger = new RingBufferLogger(4, FullPolicy.DROP);
+        logger.log("a");
+        logger.log("b");
+        assertEquals("a\nb\n", logger.flush());
+        assertEquals("", logger.flush());
+
+        // wrap around the ring
+        for(int i = 0; i < 3; i++) {
+            logger.log("c" + i);
+        }
+        assertEquals("c0\nc1\nc2\n", logger.flush());
+    }
+
+    /**
+     * Assert that events are formatted when flushed, in order with messages.
+     */
+    @Test
+    public void testEvents() throws Exception {
+        RingBufferLogger logger = new RingBufferLogger(4, FullPolicy.DROP);
+        long peer = NetworkEvent.peer(InetAddress.getByName("10.0.0.7"), 5006);
+        logger.log(NetworkEvent.SENT, MessageType.REPORT.getCode(), 52, peer);
+        logger.log("a");
+        logger.log(NetworkEvent.RECEIVED, -1, 20, peer);
+        assertEquals("Sent REPORT (52 bytes) to 10.0.0.7:5006\na\nReceived message (20 bytes) from 10.0.0.7:5006\n",
+            logger.flush());
+    }
+
+    /**
+     * Assert that a full logger drops new messages and reports how many.
+     */
+    @Test
+    public void testDrop() {
+        RingBufferLogger logger = new RingBufferLogger(3, FullPolicy.DROP);
+        for(int i = 0; i < 6; i++) {
+            logger.log(Integer.toString(i));
+        }
+        assertEquals("0\n1\n2\n3\n[2 messages dropped]\n", logger.flush());
+    }
+
+    /**
+     * Assert that no message is lost or reordered when many threads log
+     * while another drains.
+     */
+    @Test
+    public void testConcurrent() throws Exception {
+        int producers = 8;
+        int messages = 20000;
+        RingBufferLogger logger = new RingBufferLogger(256, FullPolicy.BLOCK);
+        Thread[] threads = start(logger, producers, messages);
+
+        // drain until every producer has finished and the ring is empty
+        StringBuilder out = new StringBuilder();
+        boolean running = true;
+        while(running || logger.size() > 0) {
+            running = false;
+            for(Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+            logger.drainTo(out);
+        }
+
+        // each producer's messages arrive in order
+        int[] next = new int[producers];
+        for(String line : out.toString().split("\n")) {
+            String[] parts = line.split(":");
+            int producer = Integer.parseInt(parts[0]);
+            assertEquals(next[producer]++, Integer.parseInt(parts[1]));
+        }
+        for(int count : next) {
+            assertEquals(messages, count);
+        }
+    }
+
+    /**
+     * Assert that every drained event line holds the fields of one event,
+     * even while producers refill slots as soon as they are freed.
+     */
+    @Test
+    public void testEventsIntact() throws Exception {
+        int producers = 8;
+        int events = 20000;
+        RingBufferLogger logger = new RingBufferLogger(16, FullPolicy.BLOCK);
+        Event triple = new Event() {
+            @Override
+            public int getCode() {
+                return 0;
+            }
+
+            @Override
+            public void format(StringBuilder out, long first, long second, long third) {
+                out.append(first).append(' ').append(second).append(' ').append(third);
+            }
+        };
+
+        // each producer logs events whose three fields are equal
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for(int i = 0; i < producers; i++) {
+            long base = (long) i * events;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ready.await();
+                    } catch(InterruptedException e) {
+                        return;
+                    }
+                    for(long j = base; j < base + events; j++) {
+                        logger.log(triple, j, j, j);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        ready.countDown();
+
+        StringBuilder out = new StringBuilder();
+        boolean running = true;
+        while(running || logger.size() > 0) {
+            running = false;
+            for(Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+            logger.drainTo(out);
+        }
+
+        int lines = 0;
+        for(String line : out.toString().split("\n")) {
+            String[] parts = line.split(" ");
+            assertEquals(parts[0], parts[1], line);
+            assertEquals(parts[0], parts[2], line);
+            lines++;
+        }
+        assertEquals(producers * events, lines);
+    }
+
+    /**
+     * Compare throughput with BufferedLogger at 1, 8, and 64 producers.
+     * Run with {@code mvn test -Dbenchmarks=true -Dtest=TestRingBufferLogger}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    public void testThroughput() throws Exception {
+        int total = 4000000;
+        for(int producers : new int[]{1, 8, 64}) {
+            for(int round = 0; round < 3; round++) {
+                RingBufferLogger ring = new RingBufferLogger(1 << 22, FullPolicy.DROP);
+                BufferedLogger buffered = new BufferedLogger(1 << 26);
+                double ringRate = rate(ring, producers, total / producers);
+                double bufferedRate = rate(buffered, producers, total / producers);
+                System.out.printf("%2d producers: RingBufferLogger %,12.0f msg/s  BufferedLogger %,12.0f msg/s%n",
+                    producers, ringRate, bufferedRate);
+            }
+        }
+    }
+
+    /**
+     * Measure how fast several threads can log.
+     * 
+     * @param logger Logger to measure.
+     * @param producers Number of threads.
+     * @param messages Messages per thread.
+     * @return Messages per second.
+     */
+    private double rate(Logger logger, int producers, int messages) throws Exception {
+        long start = System.nanoTime();
+        for(Thread thread : start(logger, producers, messages)) {
+            thread.join();
+        }
+        return (double) producers * messages / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Start threads that each log numbered messages.
+     * 
+     * @param logger Logger to log to.
+     * @param producers Number of threads.
+     * @param messages Messages per thread.
+     * @return Started threads.
+     */
+    private Thread[] start(Logger logger, int producers, int messages) {
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for(int i = 0; i < producers; i++) {
+            String prefix = i + ":";
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ready.await();
+                    } catch(InterruptedException e) {
+                        return;
+                    }
+                    for(int j = 0; j < messages; j++) {
+                        logger.log(prefix + j);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        ready.countDown();
+        return threads;
+    }
+}
@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.net.ServerSocket;
+
+import ca.mta.iottestbed.metrics.MetricsRegistry;
+import ca.mta.iottestbed.network.LinkPool;
+import ca.mta.iottestbed.sensor.Sensor;
+
+/**
+ * Unit tests for ca.mta.iottestbed.sensor.Sensor
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestSensor {
+
+    /**
+     * Assert that sensors sharing a link each give it back when stopped,
+     * and that it is closed once the last one has. A stopped sensor's
+     * metrics are removed.
+     */
+    @Test
+    public void testStop() throws Exception {
+        try(ServerSocket meter = new ServerSocket(0)) {
+            int before = LinkPool.getDefault().size();
+            Sensor first = new Sensor("T1", 10, 10);
+            Sensor second = new Sensor("T2", 10, 10);
+            first.setPrinting(false);
+            second.setPrinting(false);
+            first.addMeter("127.0.0.1", meter.getLocalPort());
+            second.addMeter("127.0.0.1", meter.getLocalPort());
+            assertEquals(before + 1, LinkPool.getDefault().size());
+
+            assertTrue(MetricsRegistry.getDefault().scrape().contains("iottestbed_sensor_meters{sensor=\"T1\"} 1\n"));
+            first.stop();
+            assertEquals(before + 1, LinkPool.getDefault().size());
+            String scraped = MetricsRegistry.getDefault().scrape();
+            assertFalse(scraped.contains("sensor=\"T1\""), scraped);
+            assertTrue(scraped.contains("iottestbed_sensor_meters{sensor=\"T2\"} 1\n"), scraped);
+            second.stop();
+            assertEquals(before, LinkPool.getDefault().size());
+
+            // a stopped sensor does not open links again
+            first.addMeter("127.0.0.1", meter.getLocalPort());
+            assertEquals(before, LinkPool.getDefault().size());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.net.ServerSocket;
+
+import ca.mta.iottestbed.meter.Meter;
+import ca.mta.iottestbed.meter.SensorSession;
+import ca.mta.iottestbed.network.Connection;
+import ca.mta.iottestbed.network.Frame;
+import ca.mta.iottestbed.network.MessageType;
+import ca.mta.iottestbed.network.Protocol;
+
+/**
+ * Unit tests for ca.mta.iottestbed.meter.SensorSession, and how a Meter
+ * keeps sessions on its connections.
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestSensorSession {
+
+    /**
+     * Directory for the meter's store.
+     */
+    @TempDir
+    File directory;
+
+    /**
+     * Meter under test.
+     */
+    private Meter meter;
+
+    /**
+     * Port the meter listens on.
+     */
+    private int port;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        port = freePort();
+        meter = new Meter("SS");
+        meter.setPrinting(false);
+        meter.setPorts(port, freePort());
+        meter.setFlowControl(0, 1);
+        meter.setStore(directory);
+        meter.start(new String[0]);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        meter.stop();
+    }
+
+    /**
+     * Assert that a sensor's hello opens its session, that later reports
+     * are recorded in the same session, and that closing the connection
+     * closes it.
+     */
+    @Test
+    public void testSession() throws Exception {
+        Connection sensor = hello("S1");
+        SensorSession session = await("S1", 0);
+        assertEquals("S1", session.getDevice());
+        assertNotNull(session.getConnection());
+
+        report(sensor, "S1", 1);
+        report(sensor, "S1", 2);
+        assertSame(session, await("S1", 2));
+
+        sensor.close();
+        for(int i = 0; i < 500 && meter.getSession("S1") != null; i++) {
+            Thread.sleep(10);
+        }
+        assertNull(meter.getSession("S1"));
+    }
+
+    /**
+     * Assert that several sensors on one connection each get a session of
+     * their own, including one whose first message is a report.
+     */
+    @Test
+    public void testSeveralDevices() throws Exception {
+        Connection sensor = hello("S2");
+        assertTrue(sensor.send(new Frame(MessageType.HELLO, "S3")));
+        report(sensor, "S4", 1);
+        report(sensor, "S2", 2);
+        report(sensor, "S2", 3);
+
+        SensorSession first = await("S2", 2);
+        SensorSession second = await("S3", 0);
+        SensorSession third = await("S4", 1);
+        assertNotSame(first, second);
+        assertNotSame(first, third);
+        assertSame(first.getConnection(), second.getConnection());
+        assertSame(first.getConnection(), third.getConnection());
+        sensor.close();
+    }
+
+    /**
+     * Assert that a ping from a sensor without a session is answered, but
+     * does not open one.
+     */
+    @Test
+    public void testPing() throws Exception {
+        Connection sensor = hello("S5");
+        assertTrue(sensor.send(new Frame(MessageType.PING, "S6")));
+        Frame frame = new Frame();
+        assertTrue(sensor.receive(frame));
+        assertEquals(MessageType.PONG, frame.getType());
+        assertNull(meter.getSession("S6"));
+        sensor.close();
+    }
+
+    /**
+     * Assert that an object attached to a connection can be found again.
+     */
+    @Test
+    public void testAttach() throws Exception {
+        try(ServerSocket server = new ServerSocket(0);
+            Connection connection = new Connection("127.0.0.1", server.getLocalPort())) {
+            assertNull(connection.attachment());
+            Object state = new Object();
+            connection.attach(state);
+            assertSame(state, connection.attachment());
+            connection.attach(null);
+            assertNull(connection.attachment());
+        }
+    }
+
+    /**
+     * Wait for a sensor's session to record a number of readings.
+     *
+     * @param device Sensor's device id.
+     * @param readings Readings expected.
+     * @return Session.
+     */
+    private SensorSession await(String device, long readings) throws InterruptedException {
+        for(int i = 0; i < 500; i++) {
+            SensorSession session = meter.getSession(device);
+            if(session != null && session.getReadings() == readings) {
+                return session;
+            }
+            Thread.sleep(10);
+        }
+        fail("No session for " + device + " with " + readings + " readings");
+        return null;
+    }
+
+    /**
+     * Connect to the meter as a sensor, and settle on the binary format.
+     *
+     * @param device Sensor's device id.
+     * @return Connection speaking binary.
+     */
+    private Connection hello(String device) throws Exception {
+        Connection sensor = new Connection("127.0.0.1", port);
+        sensor.setTimeout(5000);
+        assertTrue(sensor.send(device, "OK", Protocol.OFFER));
+        assertTrue(sensor.receive(new Frame()));
+        assertEquals(Protocol.BINARY, sensor.getProtocol());
+        return sensor;
+    }
+
+    /**
+     * Send a report.
+     *
+     * @param sensor Sensor's connection.
+     * @param device Sensor's device id.
+     * @param timestamp Reading time.
+     */
+    private static void report(Connection sensor, String device, long timestamp) {
+        Frame report = new Frame();
+        report.setReport(device, timestamp, 1.0, 2.0);
+        assertTrue(sensor.send(report));
+    }
+
+    /**
+     * Return a port nothing is listening on.
+     *
+     * @return Port.
+     */
+    private static int freePort() throws Exception {
+        try(ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.util.Random;
+
+import ca.mta.iottestbed.logger.Timestamp;
+import ca.mta.iottestbed.store.BucketCursor;
+import ca.mta.iottestbed.store.CsvExport;
+import ca.mta.iottestbed.store.SeriesCursor;
+import ca.mta.iottestbed.store.SeriesReader;
+import ca.mta.iottestbed.store.SeriesStore;
+import ca.mta.iottestbed.store.SeriesWriter;
+
+/**
+ * Unit tests for ca.mta.iottestbed.store
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestSeriesStore {
+
+    /**
+     * Directory for series.
+     */
+    @TempDir
+    File directory;
+
+    /**
+     * Assert that readings come back exactly as written, and that sensor
+     * readings compress well.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        int count = 10000;
+        long[] timestamps = new long[count];
+        double[] water = new double[count];
+        double[] power = new double[count];
+
+        // sensor-like readings: steady rate with jitter, and some odd values
+        Random random = new Random(1);
+        long time = 1792218640964L;
+        for(int i = 0; i < count; i++) {
+            time += 1000 + (i % 10 == 0 ? random.nextInt(40) - 20 : 0);
+            timestamps[i] = time;
+            water[i] = Math.abs(10 * Math.sin(time / 1000.0));
+            power[i] = i % 100 == 0 ? random.nextDouble() * 1e9 : Math.abs(7 * Math.sin(time / 1000.0));
+        }
+        timestamps[5000] += 100000;
+        power[7] = Double.NaN;
+        power[8] = -0.0;
+        water[9] = Double.MAX_VALUE;
+
+        SeriesWriter writer = new SeriesWriter(directory, "A1", 1000);
+        for(int i = 0; i < count; i++) {
+            writer.append(timestamps[i], water[i], power[i]);
+        }
+        writer.close();
+
+        try(SeriesReader reader = new SeriesReader(directory, "A1")) {
+            assertEquals(10, reader.getBlocks());
+            assertEquals(count, reader.getCount());
+            assertTrue(reader.getBytes() < count * 24L * 3 / 4, "compressed to " + reader.getBytes());
+
+            SeriesCursor cursor = reader.cursor();
+            for(int i = 0; i < count; i++) {
+                assertTrue(cursor.next());
+                assertEquals(timestamps[i], cursor.getTimestamp());
+                assertEquals(Double.doubleToRawLongBits(water[i]), Double.doubleToRawLongBits(cursor.getWater()));
+                assertEquals(Double.doubleToRawLongBits(power[i]), Double.doubleToRawLongBits(cursor.getPower()));
+            }
+            assertFalse(cursor.next());
+        }
+    }
+
+    /**
+     * Assert that a series continues after its last intact block, and that
+     * export writes the meter's CSV format.
+     */
+    @Test
+    public void testRecoverAndExport() throws Exception {
+        SeriesWriter writer = new SeriesWriter(directory, "A1", 2);
+        writer.append(1000, 1.5, 2.5);
+        writer.append(2000, 1.5, 2.5);
+        writer.close();
+
+        // a block torn by a crash
+        try(RandomAccessFile data = new RandomAccessFile(new File(directory, "A1.tsd"), "rw")) {
+            data.seek(data.length());
+            data.write(new byte[] {0, 0, 0, 2, 1, 2, 3});
+        }
+
+        writer = new SeriesWriter(directory, "A1", 2);
+        writer.append(3000, 0.5, 0.25);
+        writer.close();
+
+        StringWriter csv = new StringWriter();
+        try(SeriesReader reader = new SeriesReader(directory, "A1")) {
+            assertEquals(3, CsvExport.export(reader, csv));
+        }
+        assertEquals(
+            new Timestamp(1000) + ",1.5,2.5\n" +
+            new Timestamp(2000) + ",1.5,2.5\n" +
+            new Timestamp(3000) + ",0.5,0.25\n",
+            csv.toString());
+    }
+
+    /**
+     * Assert that range queries and bucket summaries match a full scan.
+     */
+    @Test
+    public void testQuery() throws Exception {
+        SeriesWriter writer = new SeriesWriter(directory, "A1", 100);
+        for(int i = 0; i < 10000; i++) {
+            writer.append(1000L * i, i, -i);
+        }
+        writer.close();
+        SeriesStore store = new SeriesStore(directory);
+        assertEquals(1, store.devices().size());
+
+        // readings from 2500 s up to, not including, 4321 s
+        try(SeriesCursor cursor = store.query("A1", 2500000, 4321000)) {
+            for(int i = 2500; i < 4321; i++) {
+                assertTrue(cursor.next());
+                assertEquals(1000L * i, cursor.getTimestamp());
+                assertEquals(i, cursor.getWater());
+            }
+            assertFalse(cursor.next());
+        }
+
+        // nothing after the last reading
+        try(SeriesCursor cursor = store.query("A1", 20000000, 30000000)) {
+            assertFalse(cursor.next());
+        }
+
+        // one-minute buckets
+        try(BucketCursor buckets = store.aggregate("A1", 30000, 630000, 60000)) {
+            for(int bucket = 0; bucket < 10; bucket++) {
+                assertTrue(buckets.next());
+                int first = 30 + 60 * bucket;
+                assertEquals(30000 + 60000L * bucket, buckets.getStart());
+                assertEquals(60, buckets.getCount());
+                assertEquals(first, buckets.getWater().getMin());
+                assertEquals(first + 59, buckets.getWater().getMax());
+                assertEquals(first + 29.5, buckets.getWater().getAverage());
+                assertEquals(-(first * 60.0 + 1770), buckets.getPower().getSum());
+            }
+            assertFalse(buckets.next());
+        }
+    }
+}
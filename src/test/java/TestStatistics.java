@@ -0,0 +1,140 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ca.mta.iottestbed.stats.Statistics;
+import ca.mta.iottestbed.stats.StatisticsStage;
+import ca.mta.iottestbed.stats.Window;
+import ca.mta.iottestbed.stats.WindowedStatistics;
+
+/**
+ * Unit tests for ca.mta.iottestbed.stats
+ * 
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestStatistics {
+
+    /**
+     * Assert that window statistics match statistics computed directly.
+     */
+    @Test
+    public void testAccuracy() {
+        WindowedStatistics window = new WindowedStatistics(1000, 10);
+        double[] values = new double[5000];
+        Random random = new Random(1);
+        for(int i = 0; i < values.length; i++) {
+            values[i] = 100 + 10 * random.nextGaussian();
+            window.add(i, values[i]);
+        }
+
+        Statistics statistics = new Statistics();
+        window.read(statistics);
+        double sum = 0;
+        for(double value : values) {
+            sum += value;
+        }
+        double mean = sum / values.length;
+        double squares = 0;
+        for(double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        double variance = squares / (values.length - 1);
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        assertEquals(values.length, statistics.getCount());
+        assertEquals(mean, statistics.getMean(), 1e-9);
+        assertEquals(variance, statistics.getVariance(), 1e-6);
+        assertEquals(sorted[0], statistics.getMin());
+        assertEquals(sorted[sorted.length - 1], statistics.getMax());
+        assertEquals(sorted[2499], statistics.getPercentile(50), sorted[2499] * 0.07);
+        assertEquals(sorted[4949], statistics.getPercentile(99), sorted[4949] * 0.07);
+    }
+
+    /**
+     * Assert that old readings leave a sliding window, and that a tumbling
+     * window starts again each period.
+     */
+    @Test
+    public void testWindows() {
+        StatisticsStage stage = new StatisticsStage(60000, 10000, 3);
+        for(long time = 0; time < 120000; time += 1000) {
+            stage.add("A1", time, 1, time);
+            stage.add("B1", time, 2, time);
+        }
+
+        Statistics statistics = new Statistics();
+        stage.getSensor("A1").getWater(Window.SLIDING).read(statistics);
+        assertEquals(30, statistics.getCount());
+        stage.getSensor("A1").getPower(Window.TUMBLING).read(statistics);
+        assertEquals(60, statistics.getCount());
+        assertEquals(60000, statistics.getMin());
+
+        // meter-wide
+        stage.readWater(Window.SLIDING, statistics);
+        assertEquals(60, statistics.getCount());
+        assertEquals(1.5, statistics.getMean(), 1e-12);
+
+        // too old for the window
+        WindowedStatistics window = stage.getSensor("A1").getWater(Window.SLIDING);
+        window.add(0, 1);
+        assertEquals(1, window.getLate());
+    }
+
+    /**
+     * Assert that a reading from the far future is ignored, and does not
+     * push later readings out of the window.
+     */
+    @Test
+    public void testFuture() {
+        WindowedStatistics window = new WindowedStatistics(1000, 100);
+        long now = System.currentTimeMillis();
+        window.add(now, 1);
+        window.add(now + 365L * 24 * 60 * 60 * 1000, 2);
+        window.add(now + 1000, 3);
+        window.add(now + WindowedStatistics.MAX_AHEAD_MILLIS / 2, 4);
+
+        Statistics statistics = new Statistics();
+        window.read(statistics);
+        assertEquals(1, window.getEarly());
+        assertEquals(0, window.getLate());
+        assertEquals(3, statistics.getCount());
+        assertEquals(4, statistics.getMax());
+    }
+
+    /**
+     * Assert that readers never see a half-finished update.
+     */
+    @Test
+    public void testConcurrentRead() throws Exception {
+        WindowedStatistics window = new WindowedStatistics(1, 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for(long time = 0; running.get(); time++) {
+                    // every slot holds readings of its own period
+                    for(int i = 0; i < 10; i++) {
+                        window.add(time, time);
+                    }
+                }
+            }
+        });
+        writer.start();
+
+        Statistics statistics = new Statistics();
+        for(int i = 0; i < 100000; i++) {
+            window.read(statistics);
+            if(statistics.getCount() > 0) {
+                assertEquals(statistics.getMin(), statistics.getMax());
+                assertEquals(statistics.getCount() * statistics.getMin(), statistics.getSum());
+            }
+        }
+        running.set(false);
+        writer.join();
+    }
+}
@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import ca.mta.iottestbed.logger.Timestamp;
+
+/**
+ * Unit tests for ca.mta.iottestbed.logger.Timestamp
+ *
+ * @author Hayden Walker
+ * @version 2026-10-17
+ */
+public class TestTimestamp {
+
+    /**
+     * Formatter the cached formatting must match.
+     */
+    private static final DateTimeFormatter ISO =
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME.withZone(ZoneId.systemDefault());
+
+    /**
+     * Assert that every way of formatting matches the ISO formatter,
+     * including whole seconds, trailing zeros, and times before 1970.
+     */
+    @Test
+    public void testMatchesIso() {
+        long[] times = {0, -1, -999, -1000, 1792218640000L, 1792218640100L, 1792218640120L, 1792218640123L, 1792218640005L};
+        for(long time : times) {
+            check(time);
+        }
+
+        // random times, often in the same second as the one before
+        Random random = new Random(17);
+        long time = 1792218640000L;
+        for(int i = 0; i < 10000; i++) {
+            time += random.nextInt(1500);
+            check(time);
+            check(random.nextLong() % 4000000000000L);
+        }
+    }
+
+    /**
+     * Assert that epoch nanoseconds are close to the wall clock.
+     */
+    @Test
+    public void testEpochNanos() {
+        long difference = Timestamp.epochNanos() / 1000000L - Timestamp.epochMillis();
+        assertTrue(Math.abs(difference) < 1000, "difference " + difference);
+    }
+
+    /**
+     * Assert that a time formats the same every way.
+     *
+     * @param time Milliseconds since the epoch.
+     */
+    private static void check(long time) {
+        String expected = ISO.format(Instant.ofEpochMilli(time));
+        assertEquals(expected, new Timestamp(time).toString());
+
+        char[] chars = new char[Timestamp.MAX_LENGTH + 2];
+        chars[0] = '[';
+        int end = Timestamp.format(time, chars, 1);
+        assertEquals(expected, new String(chars, 1, end - 1));
+
+        byte[] bytes = new byte[Timestamp.MAX_LENGTH];
+        end = Timestamp.format(time, bytes, 0);
+        assertEquals(expected, new String(bytes, 0, end, StandardCharsets.US_ASCII));
+    }
+}